@@ -0,0 +1,64 @@
+package edu.qhjy.score_service.benchmark;
+
+import edu.qhjy.score_service.domain.dto.GradeThresholdsDTO;
+import edu.qhjy.score_service.domain.dto.StudentScoreRankDTO;
+import edu.qhjy.score_service.domain.util.GradeCalculationUtil;
+import edu.qhjy.score_service.service.algorithm.GradeCalculationAlgorithm;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 等级分配基准测试
+ * 覆盖 GradeCalculationAlgorithm 的等级分配以及 GradeCalculationUtil 的临界值计算和等级分配
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@State(Scope.Benchmark)
+public class GradeAssignmentBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    public int size;
+
+    /**
+     * 不同分数的个数，越小同分越密集
+     */
+    @Param({"100", "1000"})
+    public int distinctScores;
+
+    private List<StudentScoreRankDTO> ranks;
+
+    private GradeThresholdsDTO thresholds;
+
+    private GradeCalculationAlgorithm algorithm;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkSupport.quietLogging();
+        ranks = BenchmarkSupport.sortedRanks(size, distinctScores, 42L);
+        thresholds = GradeCalculationAlgorithm.calculateGradeThresholds(
+                ranks, BenchmarkSupport.GRADE_RATIOS, "bench", "bench", true, 0.02);
+        algorithm = new GradeCalculationAlgorithm();
+    }
+
+    @Benchmark
+    public List<StudentScoreRankDTO> algorithmAssignGrades() {
+        algorithm.assignGradesToStudents(ranks, thresholds);
+        return ranks;
+    }
+
+    @Benchmark
+    public GradeThresholdsDTO utilCalculateThresholds() {
+        return GradeCalculationUtil.calculateThresholds(ranks, "bench", "bench");
+    }
+
+    @Benchmark
+    public List<StudentScoreRankDTO> utilAssignGrades() {
+        GradeCalculationUtil.assignGradesToStudents(ranks, thresholds);
+        return ranks;
+    }
+}
@@ -0,0 +1,68 @@
+package edu.qhjy.score_service.benchmark;
+
+import edu.qhjy.score_service.domain.dto.GradeThresholdsDTO;
+import edu.qhjy.score_service.domain.dto.StudentScoreRankDTO;
+import edu.qhjy.score_service.service.algorithm.GradeCalculationAlgorithm;
+import edu.qhjy.score_service.service.algorithm.PrimitiveGradeCalculationAlgorithm;
+import edu.qhjy.score_service.service.algorithm.RankedScoreArray;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 等级临界值排名引擎对比
+ * 对比原有对象列表引擎与基本类型数组引擎在不同人数、同分密度下的性能
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@State(Scope.Benchmark)
+public class GradeRankingEngineBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    public int size;
+
+    /**
+     * 不同分数的个数，越小同分越密集
+     */
+    @Param({"100", "1000"})
+    public int distinctScores;
+
+    @Param({"true", "false"})
+    public boolean eGradePriority;
+
+    private List<StudentScoreRankDTO> ranks;
+
+    private RankedScoreArray rankedScores;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkSupport.quietLogging();
+        ranks = BenchmarkSupport.sortedRanks(size, distinctScores, 42L);
+        rankedScores = RankedScoreArray.fromSortedRanks(ranks);
+    }
+
+    @Benchmark
+    public GradeThresholdsDTO objectEngine() {
+        return GradeCalculationAlgorithm.calculateGradeThresholds(
+                ranks, BenchmarkSupport.GRADE_RATIOS, "bench", "bench", eGradePriority, 0.02);
+    }
+
+    @Benchmark
+    public GradeThresholdsDTO primitiveEngine() {
+        return PrimitiveGradeCalculationAlgorithm.calculateGradeThresholds(
+                rankedScores, BenchmarkSupport.GRADE_RATIOS, "bench", "bench", eGradePriority, 0.02);
+    }
+
+    /**
+     * 包含从排名列表转换为定点数组的开销，对应服务中的实际调用路径
+     */
+    @Benchmark
+    public GradeThresholdsDTO primitiveEngineWithConversion() {
+        return GradeCalculationAlgorithm.calculateGradeThresholds(
+                ranks, BenchmarkSupport.GRADE_RATIOS, "bench", "bench", eGradePriority, 0.02, true);
+    }
+}
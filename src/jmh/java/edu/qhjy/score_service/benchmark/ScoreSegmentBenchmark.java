@@ -0,0 +1,78 @@
+package edu.qhjy.score_service.benchmark;
+
+import edu.qhjy.score_service.domain.dto.GradeThresholdsDTO;
+import edu.qhjy.score_service.domain.dto.ScoreHistogramDTO;
+import edu.qhjy.score_service.domain.dto.ScoreSegmentDTO;
+import edu.qhjy.score_service.service.algorithm.GradeCalculationAlgorithm;
+import edu.qhjy.score_service.service.algorithm.ScoreSegmentCalculator;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 一分一段基准测试
+ * 模拟 ScoreSegmentServiceImpl.calculateCityScoreSegments 去掉数据库查询后的计算路径，
+ * 分数直方图在准备阶段生成，对应数据库端聚合后的查询结果
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@State(Scope.Benchmark)
+public class ScoreSegmentBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    public int size;
+
+    /**
+     * 不同分数的个数，越小同分越密集
+     */
+    @Param({"100", "1000"})
+    public int distinctScores;
+
+    private List<ScoreHistogramDTO> histogram;
+
+    private GradeThresholdsDTO thresholds;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkSupport.quietLogging();
+        histogram = BenchmarkSupport.histogram(BenchmarkSupport.sortedRanks(size, distinctScores, 42L));
+        thresholds = GradeCalculationAlgorithm.calculateHistogramGradeThresholds(
+                histogram, BenchmarkSupport.GRADE_RATIOS, "bench", "bench", true, 0.02, true);
+    }
+
+    /**
+     * 完整的市州一分一段计算：基于直方图的临界值计算、逐分数段判定等级和累计百分比
+     */
+    @Benchmark
+    public List<ScoreSegmentDTO> calculateCityScoreSegments() {
+        GradeThresholdsDTO cityThresholds = GradeCalculationAlgorithm.calculateHistogramGradeThresholds(
+                histogram, BenchmarkSupport.GRADE_RATIOS, "bench", "bench", true, 0.02, true);
+        return ScoreSegmentCalculator.buildCitySegments(
+                "bench", "bench", "bench", histogram, cityThresholds, 0, distinctScores - 1);
+    }
+
+    /**
+     * 仅计算一分一段表（临界值已计算）
+     */
+    @Benchmark
+    public List<ScoreSegmentDTO> buildCitySegments() {
+        return ScoreSegmentCalculator.buildCitySegments(
+                "bench", "bench", "bench", histogram, thresholds, 0, distinctScores - 1);
+    }
+
+    /**
+     * 每个分数段计算一次累计百分比
+     */
+    @Benchmark
+    public void naturalPrecisionPercentage(Blackhole blackhole) {
+        for (int segment = 1; segment <= distinctScores; segment++) {
+            int cumulativeCount = (int) ((long) size * segment / distinctScores);
+            blackhole.consume(ScoreSegmentCalculator.calculateNaturalPrecisionPercentage(cumulativeCount, size));
+        }
+    }
+}
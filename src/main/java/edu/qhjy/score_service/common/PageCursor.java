@@ -0,0 +1,71 @@
+package edu.qhjy.score_service.common;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * 分页游标编解码工具
+ * 游标记录上一页最后一行的排序键值，下一页按“排序键大于（或小于）该值”查询，翻到多深都只扫描一页的数据。
+ * 游标对调用方不透明：内容为排序方式签名加排序键值的JSON数组，经Base64URL编码。
+ * 签名与本次查询的排序方式不一致时视为无效游标
+ */
+public final class PageCursor {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final TypeReference<List<String>> LIST_TYPE = new TypeReference<>() {
+    };
+
+    private PageCursor() {
+    }
+
+    /**
+     * 编码游标
+     *
+     * @param signature 排序方式签名（查询类型、排序字段、排序方向）
+     * @param keys      上一页最后一行的排序键值，按排序优先级排列
+     * @return 游标
+     */
+    public static String encode(String signature, Object... keys) {
+        List<String> parts = new ArrayList<>(keys.length + 1);
+        parts.add(signature);
+        for (Object key : keys) {
+            parts.add(key != null ? key.toString() : null);
+        }
+        try {
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(MAPPER.writeValueAsBytes(parts));
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("分页游标编码失败：" + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 解码游标
+     *
+     * @param cursor    游标
+     * @param signature 本次查询的排序方式签名
+     * @param keyCount  排序键个数
+     * @return 排序键值
+     * @throws IllegalArgumentException 游标格式错误或与本次查询的排序方式不一致
+     */
+    public static List<String> decode(String cursor, String signature, int keyCount) {
+        List<String> parts;
+        try {
+            parts = MAPPER.readValue(Base64.getUrlDecoder().decode(cursor), LIST_TYPE);
+        } catch (Exception e) {
+            throw new IllegalArgumentException("分页游标无效");
+        }
+        if (parts == null || parts.size() != keyCount + 1 || !signature.equals(parts.get(0))) {
+            throw new IllegalArgumentException("分页游标与查询条件的排序方式不一致");
+        }
+        List<String> keys = parts.subList(1, parts.size());
+        if (keys.contains(null)) {
+            throw new IllegalArgumentException("分页游标无效");
+        }
+        return keys;
+    }
+}
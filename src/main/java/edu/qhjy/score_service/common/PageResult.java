@@ -63,6 +63,11 @@ public class PageResult<T> {
      */
     private Boolean isLast;
 
+    /**
+     * 下一页游标（没有下一页时为null），传回查询接口的cursor参数即可按游标翻页
+     */
+    private String nextCursor;
+
     /**
      * 构建分页结果
      *
@@ -91,6 +96,31 @@ public class PageResult<T> {
                 .build();
     }
 
+    /**
+     * 构建游标翻页结果
+     * 游标翻页不依赖页码，总数仅在调用方要求时统计，未统计时total和pages为null
+     *
+     * @param records    当前页数据
+     * @param pageSize   每页大小
+     * @param total      总记录数，可为null
+     * @param nextCursor 下一页游标，没有下一页时为null
+     * @param <T>        数据类型
+     * @return 分页结果
+     */
+    public static <T> PageResult<T> ofCursor(List<T> records, Integer pageSize, Long total, String nextCursor) {
+        return PageResult.<T>builder()
+                .pageSize(pageSize)
+                .total(total)
+                .pages(total != null ? (int) Math.ceil((double) total / pageSize) : null)
+                .records(records)
+                .hasPrevious(true)
+                .hasNext(nextCursor != null)
+                .isFirst(false)
+                .isLast(nextCursor == null)
+                .nextCursor(nextCursor)
+                .build();
+    }
+
     /**
      * 构建空的分页结果
      *
@@ -167,6 +197,9 @@ public class PageResult<T> {
      * @return 起始索引
      */
     public Integer getStartIndex() {
+        if (pageNum == null) {
+            return null; // 游标翻页没有页码
+        }
         return (pageNum - 1) * pageSize;
     }
 
@@ -176,6 +209,9 @@ public class PageResult<T> {
      * @return 结束索引
      */
     public Integer getEndIndex() {
+        if (pageNum == null || total == null) {
+            return null;
+        }
         return Math.min(getStartIndex() + pageSize, total.intValue());
     }
 }
\ No newline at end of file
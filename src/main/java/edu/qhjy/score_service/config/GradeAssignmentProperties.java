@@ -53,6 +53,15 @@ public class GradeAssignmentProperties {
         return gradeConfig.getEGradeMinPercentage();
     }
 
+    /**
+     * 是否使用基本类型数组排名引擎
+     *
+     * @return true表示使用定点整数数组+二分查找的引擎，false表示使用原有的对象列表引擎
+     */
+    public boolean isUsePrimitiveRankingEngine() {
+        return algorithmConfig.isUsePrimitiveRankingEngine();
+    }
+
     /**
      * 获取等级对应的数字代码
      */
@@ -204,5 +213,19 @@ public class GradeAssignmentProperties {
          * 是否启用详细日志
          */
         private boolean enableDetailedLogging = false;
+
+        /**
+         * 是否启用单次查询流水线模式
+         * true: 每个市州的排名数据只查询一次，阈值计算、等级分配、kscj更新和WCXX构建共用同一份结果
+         * false: 使用原有流程，各阶段分别查询排名数据
+         */
+        private boolean singlePassPipeline = true;
+
+        /**
+         * 是否使用基本类型数组排名引擎
+         * true: 成绩转换为十分位定点整数数组，同分范围通过二分查找确定
+         * false: 使用原有的List<StudentScoreRankDTO>逐个比较BigDecimal的引擎
+         */
+        private boolean usePrimitiveRankingEngine = true;
     }
 }
\ No newline at end of file
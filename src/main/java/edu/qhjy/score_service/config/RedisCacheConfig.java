@@ -1,8 +1,12 @@
 package edu.qhjy.score_service.config;
 
+import edu.qhjy.score_service.service.cache.TwoLevelCacheManager;
+import edu.qhjy.score_service.service.cache.YjxhIndexCacheService;
+import edu.qhjy.score_service.service.redis.codec.CompactPayloadRedisSerializer;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -14,6 +18,8 @@ import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
 import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.RedisSerializationContext;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
@@ -52,6 +58,30 @@ public class RedisCacheConfig {
     @Value("${spring.data.redis.database:0}")
     private int redisDatabase;
 
+    @Value("${cache.two-level.enabled:true}")
+    private boolean twoLevelEnabled;
+
+    @Value("${cache.two-level.l1-max-size:2000}")
+    private long localMaxSize;
+
+    @Value("${cache.two-level.l1-max-ttl-seconds:300}")
+    private long localMaxTtlSeconds;
+
+    @Value("${cache.two-level.invalidation-topic:score:cache:invalidation}")
+    private String invalidationTopic;
+
+    @Value("${cache.compact-serializer.enabled:true}")
+    private boolean compactSerializerEnabled;
+
+    @Value("${cache.compact-serializer.compression:lz4}")
+    private String compactCompression;
+
+    @Value("${cache.compact-serializer.compress-threshold-bytes:4096}")
+    private int compactCompressThreshold;
+
+    @Value("${cache.page-total.ttl-seconds:300}")
+    private long pageTotalTtlSeconds;
+
     /**
      * Redis连接工厂配置
      * 根据配置自动选择单体或集群模式
@@ -147,7 +177,14 @@ public class RedisCacheConfig {
         GenericJackson2JsonRedisSerializer jsonSerializer = new GenericJackson2JsonRedisSerializer();
 
         template.setKeySerializer(stringSerializer);
-        template.setValueSerializer(jsonSerializer);
+        // 成绩排名、一分一段等大列表使用列式二进制编码，其余值仍为JSON
+        if (compactSerializerEnabled) {
+            log.info("启用紧凑值序列化，压缩方式: {}, 压缩阈值: {} 字节", compactCompression, compactCompressThreshold);
+            template.setValueSerializer(new CompactPayloadRedisSerializer(jsonSerializer,
+                    "lz4".equalsIgnoreCase(compactCompression), compactCompressThreshold));
+        } else {
+            template.setValueSerializer(jsonSerializer);
+        }
         template.setHashKeySerializer(stringSerializer);
         template.setHashValueSerializer(jsonSerializer);
 
@@ -156,11 +193,12 @@ public class RedisCacheConfig {
     }
 
     /**
-     * 配置Redis缓存管理器
-     * 为不同的缓存区域设置不同的过期时间和配置
+     * 配置缓存管理器
+     * 为不同的缓存区域设置不同的过期时间和配置；启用两级缓存时在Redis前增加本机L1缓存
      */
     @Bean
-    public RedisCacheManager cacheManager(RedisConnectionFactory connectionFactory) {
+    public CacheManager cacheManager(RedisConnectionFactory connectionFactory,
+                                     RedisTemplate<String, Object> redisTemplate) {
 
         // 默认缓存配置
         RedisCacheConfiguration defaultConfig = RedisCacheConfiguration.defaultCacheConfig()
@@ -207,6 +245,11 @@ public class RedisCacheConfig {
                 .entryTtl(Duration.ofHours(6))
                 .prefixCacheNameWith("score:subject:");
 
+        // 分页总数缓存配置 - 短期缓存，翻页时复用首页统计的总数
+        RedisCacheConfiguration pageTotalConfig = defaultConfig
+                .entryTtl(Duration.ofSeconds(pageTotalTtlSeconds))
+                .prefixCacheNameWith("score:page_total:");
+
         // 配置不同缓存区域的配置
         Map<String, RedisCacheConfiguration> cacheConfigurations = new HashMap<>();
         cacheConfigurations.put("scoreStatistics", statisticsConfig);
@@ -218,10 +261,38 @@ public class RedisCacheConfig {
         cacheConfigurations.put("childrenCount", childrenCountConfig);
         cacheConfigurations.put("subjectList", subjectConfig);
         cacheConfigurations.put("subjectEntities", subjectConfig);
+        cacheConfigurations.put("pageTotal", pageTotalConfig);
 
-        return RedisCacheManager.builder(connectionFactory)
+        RedisCacheManager redisCacheManager = RedisCacheManager.builder(connectionFactory)
                 .cacheDefaults(defaultConfig)
                 .withInitialCacheConfigurations(cacheConfigurations)
                 .build();
+        if (!twoLevelEnabled) {
+            return redisCacheManager;
+        }
+
+        // 未注册为Bean，需手动初始化预配置的缓存区域
+        redisCacheManager.initializeCaches();
+        log.info("启用两级缓存，L1最大条目数: {}, L1最大过期时间: {}s, 失效通知频道: {}",
+                localMaxSize, localMaxTtlSeconds, invalidationTopic);
+        return new TwoLevelCacheManager(redisCacheManager, defaultConfig, redisTemplate, invalidationTopic,
+                localMaxSize, Duration.ofSeconds(localMaxTtlSeconds));
+    }
+
+    /**
+     * 缓存失效通知监听容器
+     * 订阅失效频道，收到其他实例的写入或清除通知后清除本机L1和阅卷序号索引
+     */
+    @Bean
+    public RedisMessageListenerContainer cacheInvalidationListenerContainer(RedisConnectionFactory connectionFactory,
+                                                                           CacheManager cacheManager,
+                                                                           YjxhIndexCacheService yjxhIndexCacheService) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        if (cacheManager instanceof TwoLevelCacheManager twoLevelCacheManager) {
+            container.addMessageListener(twoLevelCacheManager, new ChannelTopic(twoLevelCacheManager.getTopic()));
+        }
+        container.addMessageListener(yjxhIndexCacheService, new ChannelTopic(yjxhIndexCacheService.getTopic()));
+        return container;
     }
 }
\ No newline at end of file
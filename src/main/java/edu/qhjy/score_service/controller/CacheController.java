@@ -0,0 +1,70 @@
+package edu.qhjy.score_service.controller;
+
+import edu.qhjy.score_service.common.Result;
+import edu.qhjy.score_service.domain.vo.CacheTierStatsVO;
+import edu.qhjy.score_service.service.cache.TwoLevelCacheManager;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.CacheManager;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * 缓存监控控制器
+ * 提供两级缓存的分级命中统计和本机L1管理
+ *
+ * @author dadalv
+ * @since 2025-08-01
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/cache")
+@RequiredArgsConstructor
+@Tag(name = "缓存监控", description = "两级缓存命中统计和管理接口")
+public class CacheController {
+
+    private final CacheManager cacheManager;
+
+    /**
+     * 获取各缓存区域的分级命中统计
+     */
+    @Operation(summary = "获取缓存命中统计", description = "按缓存区域返回本机L1和Redis L2的命中次数与命中率")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "查询成功"),
+            @ApiResponse(responseCode = "500", description = "服务器内部错误")
+    })
+    @GetMapping("/stats")
+    public Result<List<CacheTierStatsVO>> getCacheStats() {
+        if (!(cacheManager instanceof TwoLevelCacheManager twoLevelCacheManager)) {
+            return Result.error("未启用两级缓存");
+        }
+        return Result.success(twoLevelCacheManager.getStats());
+    }
+
+    /**
+     * 清空本机L1缓存
+     */
+    @Operation(summary = "清空本机L1缓存", description = "只清空当前实例的本机缓存，Redis和其他实例不受影响")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "清除成功"),
+            @ApiResponse(responseCode = "500", description = "服务器内部错误")
+    })
+    @DeleteMapping("/local")
+    public Result<String> clearLocalCache() {
+        if (!(cacheManager instanceof TwoLevelCacheManager twoLevelCacheManager)) {
+            return Result.error("未启用两级缓存");
+        }
+        try {
+            twoLevelCacheManager.clearLocal();
+            return Result.success("清空本机L1缓存成功");
+        } catch (Exception e) {
+            log.error("清空本机L1缓存失败", e);
+            return Result.error("清空本机L1缓存失败：" + e.getMessage());
+        }
+    }
+}
@@ -9,6 +9,7 @@ import edu.qhjy.score_service.domain.vo.PfgjQueryResultVO;
 import edu.qhjy.score_service.service.DbfImportService;
 import edu.qhjy.score_service.service.PfgjImportService;
 import edu.qhjy.score_service.service.PfgjQueryService;
+import edu.qhjy.score_service.service.cache.YjxhIndexCacheService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -41,6 +42,7 @@ public class DbfImportController {
     private final DbfImportService dbfImportService;
     private final PfgjImportService pfgjImportService;
     private final PfgjQueryService pfgjQueryService;
+    private final YjxhIndexCacheService yjxhIndexCacheService;
 
     /**
      * 导入DBF文件
@@ -414,6 +416,31 @@ public class DbfImportController {
         }
     }
 
+    /**
+     * 清除阅卷序号本地索引
+     * 阅卷序号记录数变化时索引会自动重新加载，原地修改考生信息后需调用此接口；
+     * 清除通知通过Redis广播，所有实例的本地索引同时清除
+     *
+     * @param ksjhdm 考试计划代码，为空时清除全部
+     * @return 清除结果
+     */
+    @DeleteMapping("/yjxh-cache")
+    @Operation(summary = "清除阅卷序号索引缓存", description = "清除所有实例中指定考试计划（或全部）的阅卷序号本地索引")
+    public Result<String> evictYjxhCache(
+            @Parameter(description = "考试计划代码，为空时清除全部", example = "202507") @RequestParam(value = "ksjhdm", required = false) String ksjhdm) {
+        try {
+            if (ksjhdm == null || ksjhdm.isBlank()) {
+                yjxhIndexCacheService.evictAll();
+            } else {
+                yjxhIndexCacheService.evict(ksjhdm);
+            }
+            return Result.success("清除阅卷序号索引缓存成功");
+        } catch (Exception e) {
+            log.error("清除阅卷序号索引缓存失败，考试计划代码：{}", ksjhdm, e);
+            return Result.error("清除阅卷序号索引缓存失败：" + e.getMessage());
+        }
+    }
+
     @GetMapping("/health")
     @Operation(summary = "健康检查", description = "检查DBF导入服务的健康状态")
     public ResponseEntity<String> healthCheck() {
@@ -1,5 +1,6 @@
 package edu.qhjy.score_service.controller;
 
+import edu.qhjy.score_service.aop.UserContext;
 import edu.qhjy.score_service.common.PageResult;
 import edu.qhjy.score_service.common.Result;
 import edu.qhjy.score_service.domain.dto.GradeBookQueryDTO;
@@ -22,8 +23,10 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 
@@ -75,7 +78,11 @@ public class GradeBookController {
 
             @Parameter(description = "分页页码（从1开始，默认1）", example = "1") @RequestParam(value = "pageNum", required = false, defaultValue = "1") Integer pageNum,
 
-            @Parameter(description = "分页大小（默认20，最大1000）", example = "20") @RequestParam(value = "pageSize", required = false, defaultValue = "20") Integer pageSize) {
+            @Parameter(description = "分页大小（默认20，最大1000）", example = "20") @RequestParam(value = "pageSize", required = false, defaultValue = "20") Integer pageSize,
+
+            @Parameter(description = "翻页游标（可选，上一页返回的nextCursor，传入后忽略pageNum）") @RequestParam(value = "cursor", required = false) String cursor,
+
+            @Parameter(description = "游标翻页时是否统计总数（可选，默认false）", example = "false") @RequestParam(value = "withTotal", required = false) Boolean withTotal) {
 
         try {
             // 构建查询DTO
@@ -86,6 +93,8 @@ public class GradeBookController {
                     .kqmc(szxmc)
                     .pageNum(pageNum)
                     .pageSize(pageSize)
+                    .cursor(cursor)
+                    .withTotal(withTotal)
                     .build();
 
             log.info("接收到成绩等第册查询请求：{}", queryDTO);
@@ -176,4 +185,60 @@ public class GradeBookController {
             return ResponseEntity.internalServerError().build();
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * 成绩等第册PDF流式下载接口
+     * 与下载接口参数相同，按批读取学生并逐页写出到响应流
+     */
+    @Operation(summary = "流式下载成绩等第册PDF", description = "与下载成绩等第册PDF的参数和内容相同，按批读取学生并逐页写出，内存占用不随学生人数增长")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "PDF文件下载成功"),
+            @ApiResponse(responseCode = "500", description = "服务器内部错误")
+    })
+    @PostMapping(value = "/download-pdf/stream", consumes = MediaType.APPLICATION_FORM_URLENCODED_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamGradeBookPdf(
+            @Parameter(description = "考试计划代码（必填）", required = true, example = "202507001") @RequestParam("ksjhdm") String ksjhdm,
+
+            @Parameter(description = "学校（必填）", required = true, example = "长沙市第一中学") @RequestParam("school") String school,
+
+            @Parameter(description = "所在省名称", example = "湖南省") @RequestParam(value = "szsmc", required = false) String szsmc,
+
+            @Parameter(description = "所在县名称（区县）", example = "岳麓区") @RequestParam(value = "szxmc", required = false) String szxmc) {
+
+        GradeBookQueryDTO queryDTO = GradeBookQueryDTO.builder()
+                .ksjhdm(ksjhdm)
+                .school(school)
+                .szsmc(szsmc)
+                .kqmc(szxmc)
+                .build();
+        log.info("接收到成绩等第册PDF流式下载请求：{}", queryDTO);
+
+        String fileName = gradeBookPdfService.generatePdfFileName(ksjhdm, school);
+        String encodedFileName = URLEncoder.encode(fileName, StandardCharsets.UTF_8)
+                .replaceAll("\\+", "%20");
+
+        // 响应体在异步线程中写出，需传递当前用户
+        UserContext.UserInfo user = UserContext.get();
+        StreamingResponseBody body = outputStream -> {
+            UserContext.set(user);
+            try {
+                gradeBookPdfService.writeGradeBookPdf(queryDTO, outputStream);
+            } catch (IOException | RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new RuntimeException("生成成绩等第册PDF失败: " + e.getMessage(), e);
+            } finally {
+                UserContext.clear();
+            }
+        };
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_PDF);
+        headers.setContentDispositionFormData("attachment", encodedFileName);
+        headers.setCacheControl("must-revalidate, post-check=0, pre-check=0");
+
+        return ResponseEntity.ok()
+                .headers(headers)
+                .body(body);
+    }
+}
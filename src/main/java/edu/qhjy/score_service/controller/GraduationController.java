@@ -1,5 +1,6 @@
 package edu.qhjy.score_service.controller;
 
+import edu.qhjy.score_service.aop.UserContext;
 import edu.qhjy.score_service.common.PageResult;
 import edu.qhjy.score_service.common.Result;
 import edu.qhjy.score_service.domain.dto.BatchGraduationDTO;
@@ -24,8 +25,10 @@ import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 
@@ -267,4 +270,72 @@ public class GraduationController {
             return ResponseEntity.internalServerError().build();
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * 毕业生花名册PDF流式下载接口
+     * 与下载接口参数相同，按批读取学生并逐页写出到响应流，适用于全市、全省等大范围导出
+     */
+    @Operation(summary = "流式下载毕业生花名册PDF", description = "与下载毕业生花名册PDF的参数和内容相同，按批读取学生并逐页写出，内存占用不随学生人数增长")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "PDF文件下载成功"),
+            @ApiResponse(responseCode = "500", description = "服务器内部错误")
+    })
+    @PostMapping(value = "/download-pdf/stream", consumes = MediaType.APPLICATION_FORM_URLENCODED_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamGraduationPdf(
+            @Parameter(description = "毕业年度（必填）", required = true, example = "2024") @RequestParam("bynd") String bynd,
+
+            @Parameter(description = "所在市名称", example = "长沙市") @RequestParam(value = "szsmc", required = false) String szsmc,
+
+            @Parameter(description = "考区名称", example = "岳麓区") @RequestParam(value = "kqmc", required = false) String kqmc,
+
+            @Parameter(description = "学校名称", example = "长沙市第一中学") @RequestParam(value = "xxmc", required = false) String xxmc,
+
+            @Parameter(description = "考生号", example = "202401001") @RequestParam(value = "ksh", required = false) String ksh,
+
+            @Parameter(description = "排序字段", example = "ksh") @RequestParam(value = "sortField", required = false) String sortField,
+
+            @Parameter(description = "排序方向（asc/desc）", example = "asc") @RequestParam(value = "sortOrder", required = false) String sortOrder,
+
+            @Parameter(description = "是否只查询满足毕业条件的学生（true/false）", example = "true") @RequestParam(value = "isQualified", required = false) Boolean isQualified) {
+
+        GraduationPdfQueryDTO queryDTO = GraduationPdfQueryDTO.builder()
+                .bynd(bynd)
+                .szsmc(szsmc)
+                .kqmc(kqmc)
+                .xxmc(xxmc)
+                .ksh(ksh)
+                .sortField(sortField)
+                .sortOrder(sortOrder)
+                .isQualified(isQualified)
+                .build();
+        log.info("接收到毕业生花名册PDF流式下载请求：{}", queryDTO);
+
+        String fileName = graduationPdfService.generatePdfFileName(queryDTO);
+        String encodedFileName = URLEncoder.encode(fileName, StandardCharsets.UTF_8)
+                .replaceAll("\\+", "%20");
+
+        // 响应体在异步线程中写出，需传递当前用户
+        UserContext.UserInfo user = UserContext.get();
+        StreamingResponseBody body = outputStream -> {
+            UserContext.set(user);
+            try {
+                graduationPdfService.writeGraduationPdf(queryDTO, outputStream);
+            } catch (IOException | RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new RuntimeException("生成毕业生花名册PDF失败: " + e.getMessage(), e);
+            } finally {
+                UserContext.clear();
+            }
+        };
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_PDF);
+        headers.setContentDispositionFormData("attachment", encodedFileName);
+        headers.setCacheControl("must-revalidate, post-check=0, pre-check=0");
+
+        return ResponseEntity.ok()
+                .headers(headers)
+                .body(body);
+    }
+}
@@ -0,0 +1,128 @@
+package edu.qhjy.score_service.controller;
+
+import edu.qhjy.score_service.common.Result;
+import edu.qhjy.score_service.domain.dto.GradeBookQueryDTO;
+import edu.qhjy.score_service.domain.dto.GraduationPdfQueryDTO;
+import edu.qhjy.score_service.domain.vo.TaskStatusVO;
+import edu.qhjy.score_service.service.PdfExportJobService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotBlank;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * PDF异步导出控制器
+ * 全省、全市等大范围毕业生花名册和成绩等第册：提交任务后按任务ID查询进度，完成后下载
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/pdf-export")
+@RequiredArgsConstructor
+@Validated
+@Tag(name = "PDF异步导出", description = "大范围报表分片并行生成、进度查询和下载接口")
+public class PdfExportController {
+
+    private final PdfExportJobService pdfExportJobService;
+
+    /**
+     * 提交毕业生花名册PDF导出任务
+     */
+    @PostMapping("/graduation")
+    @Operation(summary = "提交毕业生花名册PDF导出任务", description = "查询条件与下载毕业生花名册PDF相同，返回任务ID，按任务ID查询进度和下载")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "提交成功"),
+            @ApiResponse(responseCode = "400", description = "请求参数错误"),
+            @ApiResponse(responseCode = "500", description = "服务器内部错误")
+    })
+    public Result<TaskStatusVO> submitGraduationExport(@Valid @RequestBody GraduationPdfQueryDTO queryDTO) {
+        log.info("接收到毕业生花名册PDF导出任务：{}", queryDTO);
+        try {
+            return Result.success(pdfExportJobService.submitGraduationExport(queryDTO));
+        } catch (Exception e) {
+            log.error("提交毕业生花名册PDF导出任务失败：{}", e.getMessage(), e);
+            return Result.error(e.getMessage());
+        }
+    }
+
+    /**
+     * 提交成绩等第册PDF导出任务
+     */
+    @PostMapping("/grade-book")
+    @Operation(summary = "提交成绩等第册PDF导出任务", description = "查询条件与下载成绩等第册PDF相同，返回任务ID，按任务ID查询进度和下载")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "提交成功"),
+            @ApiResponse(responseCode = "400", description = "请求参数错误"),
+            @ApiResponse(responseCode = "500", description = "服务器内部错误")
+    })
+    public Result<TaskStatusVO> submitGradeBookExport(@Valid @RequestBody GradeBookQueryDTO queryDTO) {
+        log.info("接收到成绩等第册PDF导出任务：{}", queryDTO);
+        try {
+            return Result.success(pdfExportJobService.submitGradeBookExport(queryDTO));
+        } catch (Exception e) {
+            log.error("提交成绩等第册PDF导出任务失败：{}", e.getMessage(), e);
+            return Result.error(e.getMessage());
+        }
+    }
+
+    /**
+     * 查询导出任务进度
+     */
+    @GetMapping("/{taskId}")
+    @Operation(summary = "查询PDF导出任务进度", description = "返回任务状态（PENDING/PROCESSING/COMPLETED/FAILED）和进度，完成后result中包含downloadUrl")
+    public Result<TaskStatusVO> getExportStatus(
+            @Parameter(description = "任务ID", required = true) @PathVariable @NotBlank String taskId) {
+        TaskStatusVO status = pdfExportJobService.getExportStatus(taskId);
+        if (status == null) {
+            return Result.error(404, "导出任务不存在或已过期");
+        }
+        return Result.success(status);
+    }
+
+    /**
+     * 下载导出的PDF文件
+     */
+    @GetMapping("/{taskId}/file")
+    @Operation(summary = "下载导出的PDF文件", description = "任务完成后下载合并后的PDF文件")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "PDF文件下载成功"),
+            @ApiResponse(responseCode = "404", description = "任务不存在、未完成或已过期")
+    })
+    public ResponseEntity<Resource> downloadExportFile(
+            @Parameter(description = "任务ID", required = true) @PathVariable @NotBlank String taskId) {
+        Path file = pdfExportJobService.getExportFile(taskId);
+        TaskStatusVO status = pdfExportJobService.getExportStatus(taskId);
+        if (file == null || status == null) {
+            return ResponseEntity.notFound().build();
+        }
+
+        String fileName = String.valueOf(((Map<?, ?>) status.getResult()).get("fileName"));
+        String encodedFileName = URLEncoder.encode(fileName, StandardCharsets.UTF_8)
+                .replaceAll("\\+", "%20");
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_PDF);
+        headers.setContentDispositionFormData("attachment", encodedFileName);
+        headers.setCacheControl("must-revalidate, post-check=0, pre-check=0");
+
+        return ResponseEntity.ok()
+                .headers(headers)
+                .body(new FileSystemResource(file));
+    }
+}
@@ -1,5 +1,6 @@
 package edu.qhjy.score_service.controller;
 
+import edu.qhjy.score_service.aop.UserContext;
 import edu.qhjy.score_service.common.PageResult;
 import edu.qhjy.score_service.common.Result;
 import edu.qhjy.score_service.domain.dto.ExamScoreQueryDTO;
@@ -25,6 +26,7 @@ import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
@@ -115,7 +117,9 @@ public class ScoreController {
             @Parameter(description = "每页大小") @RequestParam(value = "pageSize", defaultValue = "20") Integer pageSize,
             @Parameter(description = "排序字段") @RequestParam(value = "sortField", required = false) String sortField,
             @Parameter(description = "排序方向：asc-升序，desc-降序") @RequestParam(value = "sortOrder", defaultValue = "asc") String sortOrder,
-            @Parameter(description = "是否只返回有成绩的考生：true-仅返回正考记录，false-返回所有考生包括正考和缺考") @RequestParam(value = "onlyWithScores", defaultValue = "false") Boolean onlyWithScores) {
+            @Parameter(description = "是否只返回有成绩的考生：true-仅返回正考记录，false-返回所有考生包括正考和缺考") @RequestParam(value = "onlyWithScores", defaultValue = "false") Boolean onlyWithScores,
+            @Parameter(description = "翻页游标（上一页返回的nextCursor，传入后忽略pageNum）") @RequestParam(value = "cursor", required = false) String cursor,
+            @Parameter(description = "游标翻页时是否统计总数，默认不统计") @RequestParam(value = "withTotal", required = false) Boolean withTotal) {
 
         try {
             // 构建查询DTO
@@ -133,6 +137,8 @@ public class ScoreController {
                     .sortField(sortField)
                     .sortOrder(sortOrder)
                     .onlyWithScores(onlyWithScores)
+                    .cursor(cursor)
+                    .withTotal(withTotal)
                     .build();
 
             log.info("开始查询成绩数据，查询条件：{}", queryDTO);
@@ -146,6 +152,60 @@ public class ScoreController {
         }
     }
 
+    /**
+     * 成绩数据流式导出接口
+     * 返回全部符合条件的考生成绩（JSON数组），边查询边写出，适用于全省等大范围导出
+     */
+    @Operation(summary = "成绩数据流式导出", description = "与成绩查询相同的筛选条件，不分页，按批读取并直接写出JSON数组到响应流")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "导出成功"),
+            @ApiResponse(responseCode = "500", description = "服务器内部错误")
+    })
+    @GetMapping("/query/stream")
+    public ResponseEntity<StreamingResponseBody> streamGrades(
+            @Parameter(description = "考试计划代码", required = true) @RequestParam("ksjhdm") String ksjhdm,
+            @Parameter(description = "地市名称") @RequestParam(value = "szsmc", required = false) String szsmc,
+            @Parameter(description = "考区名称") @RequestParam(value = "szxmc", required = false) String szxmc,
+            @Parameter(description = "学校名称") @RequestParam(value = "xxmc", required = false) String xxmc,
+            @Parameter(description = "年级（入学年度）") @RequestParam(value = "grade", required = false) String grade,
+            @Parameter(description = "班级名称") @RequestParam(value = "bjmc", required = false) String bjmc,
+            @Parameter(description = "考籍号") @RequestParam(value = "ksh", required = false) String ksh,
+            @Parameter(description = "科目类型：0-合格性考试科目，1-考察性考试科目") @RequestParam(value = "kmlx", defaultValue = "0") Integer kmlx,
+            @Parameter(description = "排序字段") @RequestParam(value = "sortField", required = false) String sortField,
+            @Parameter(description = "排序方向：asc-升序，desc-降序") @RequestParam(value = "sortOrder", defaultValue = "asc") String sortOrder,
+            @Parameter(description = "是否只返回有成绩的考生：true-仅返回正考记录，false-返回所有考生包括正考和缺考") @RequestParam(value = "onlyWithScores", defaultValue = "false") Boolean onlyWithScores) {
+
+        GradeQueryDTO queryDTO = GradeQueryDTO.builder()
+                .ksjhdm(ksjhdm)
+                .szsmc(szsmc)
+                .kqmc(szxmc)
+                .xxmc(xxmc)
+                .grade(grade)
+                .bjmc(bjmc)
+                .ksh(ksh)
+                .kmlx(kmlx)
+                .sortField(sortField)
+                .sortOrder(sortOrder)
+                .onlyWithScores(onlyWithScores)
+                .build();
+        log.info("开始流式导出成绩数据，查询条件：{}", queryDTO);
+
+        // 响应体在异步线程中写出，需传递当前用户以保留数据范围权限
+        UserContext.UserInfo user = UserContext.get();
+        StreamingResponseBody body = outputStream -> {
+            UserContext.set(user);
+            try {
+                gradeService.writeGradeData(queryDTO, outputStream);
+            } finally {
+                UserContext.clear();
+            }
+        };
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body);
+    }
+
     /**
      * 考查科目成绩查询接口
      */
@@ -165,7 +225,9 @@ public class ScoreController {
             @Parameter(description = "考籍号") @RequestParam(value = "ksh", required = false) String ksh,
             @Parameter(description = "是否只查询有成绩的记录：true-只返回有成绩数据的记录，false-只返回没有成绩数据的记录，不传-返回所有记录") @RequestParam(value = "withScores", required = false) Boolean withScores,
             @Parameter(description = "页码") @RequestParam(value = "pageNum", defaultValue = "1") Integer pageNum,
-            @Parameter(description = "每页大小") @RequestParam(value = "pageSize", defaultValue = "20") Integer pageSize) {
+            @Parameter(description = "每页大小") @RequestParam(value = "pageSize", defaultValue = "20") Integer pageSize,
+            @Parameter(description = "翻页游标（上一页返回的nextCursor，传入后忽略pageNum）") @RequestParam(value = "cursor", required = false) String cursor,
+            @Parameter(description = "游标翻页时是否统计总数，默认不统计") @RequestParam(value = "withTotal", required = false) Boolean withTotal) {
         try {
             // 构建查询DTO
             ExamScoreQueryDTO query = new ExamScoreQueryDTO();
@@ -178,6 +240,8 @@ public class ScoreController {
             query.setWithScores(withScores);
             query.setPageNum(pageNum);
             query.setPageSize(pageSize);
+            query.setCursor(cursor);
+            query.setWithTotal(withTotal);
 
             log.info("开始查询考查科目成绩，查询条件：{}", query);
             PageResult<ExamScoreVO> result = scoreService.getExamScoresWithPagination(query);
@@ -263,6 +327,60 @@ public class ScoreController {
         }
     }
 
+    /**
+     * 流式生成Excel导入模板接口
+     * 参数校验和初始化在请求线程完成，模板边生成边写出到响应，不在内存中缓冲整个文件，适用于全省等大范围模板
+     */
+    @Operation(summary = "流式生成Excel导入模板", description = "与生成Excel导入模板相同，学生数据逐行读取并直接写出到响应流")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "模板生成成功"),
+            @ApiResponse(responseCode = "400", description = "请求参数错误"),
+            @ApiResponse(responseCode = "500", description = "服务器内部错误")
+    })
+    @PostMapping("/generate-excel-template/stream")
+    public ResponseEntity<StreamingResponseBody> streamExcelTemplate(
+            @Parameter(description = "考试计划代码", required = true) @RequestParam("ksjhdm") String ksjhdm,
+            @Parameter(description = "科目名称", required = true) @RequestParam("kmmc") String kmmc,
+            @Parameter(description = "地市名称", required = true) @RequestParam("szsmc") String szsmc,
+            @Parameter(description = "考区名称", required = true) @RequestParam("kqmc") String kqmc,
+            @Parameter(description = "学校名称", required = true) @RequestParam("xxmc") String xxmc) {
+
+        try {
+            scoreService.prepareExcelTemplate(ksjhdm, kmmc, szsmc, kqmc, xxmc);
+        } catch (Exception e) {
+            log.error("生成Excel导入模板失败，考试计划代码: {}, 科目名称: {}", ksjhdm, kmmc, e);
+            return ResponseEntity.status(500)
+                    .body(null);
+        }
+
+        // 响应体在异步线程中写出，需传递当前用户以保留数据范围权限
+        UserContext.UserInfo user = UserContext.get();
+        StreamingResponseBody body = outputStream -> {
+            UserContext.set(user);
+            try {
+                scoreService.writeExcelTemplate(ksjhdm, kmmc, szsmc, kqmc, xxmc, outputStream);
+            } finally {
+                UserContext.clear();
+            }
+        };
+
+        String fileName = String.format("%s%s%s%s导入模板.xlsx",
+                ksjhdm != null ? ksjhdm : "",
+                kqmc != null ? kqmc : "",
+                xxmc != null ? xxmc : "",
+                kmmc != null ? kmmc : "");
+        String encodedFileName = URLEncoder.encode(fileName, StandardCharsets.UTF_8)
+                .replaceAll("\\+", "%20");
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
+        headers.set(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + encodedFileName + "\"");
+
+        return ResponseEntity.ok()
+                .headers(headers)
+                .body(body);
+    }
+
     /**
      * 导入Excel成绩文件接口
      */
@@ -4,6 +4,7 @@ import edu.qhjy.score_service.aop.UserContext;
 import edu.qhjy.score_service.common.Result;
 import edu.qhjy.score_service.domain.vo.*;
 import edu.qhjy.score_service.service.ScoreService;
+import edu.qhjy.score_service.service.ScoreStatisticsCubeService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -11,10 +12,8 @@ import jakarta.validation.constraints.NotBlank;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.validation.annotation.Validated;
-import org.springframework.web.bind.annotation.GetMapping;
-import org.springframework.web.bind.annotation.RequestMapping;
-import org.springframework.web.bind.annotation.RequestParam;
-import org.springframework.web.bind.annotation.RestController;
+import org.springframework.util.StringUtils;
+import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
 
@@ -34,6 +33,7 @@ import java.util.List;
 public class ScoreStatisticsController {
 
     private final ScoreService scoreService;
+    private final ScoreStatisticsCubeService statisticsCubeService;
 
     /**
      * 获取区域成绩统计分布（柱状图数据）
@@ -204,4 +204,27 @@ public class ScoreStatisticsController {
             return Result.error("获取统计分析概览失败: " + e.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * 重建成绩统计汇总
+     */
+    @PostMapping("/cube/rebuild")
+    @Operation(summary = "重建成绩统计汇总", description = "指定考试计划时重建该计划（可限定科目）的汇总数据；不指定时补齐所有尚未汇总的考试计划和科目")
+    public Result<Integer> rebuildStatisticsCube(
+            @Parameter(description = "考试计划代码（可选）") @RequestParam(required = false) String examPlanCode,
+
+            @Parameter(description = "科目名称（可选）") @RequestParam(required = false) String subjectName) {
+
+        log.info("重建成绩统计汇总：examPlanCode={}, subjectName={}", examPlanCode, subjectName);
+
+        try {
+            int rebuilt = StringUtils.hasText(examPlanCode)
+                    ? statisticsCubeService.refresh(examPlanCode, subjectName)
+                    : statisticsCubeService.rebuildMissing();
+            return Result.success(rebuilt);
+        } catch (Exception e) {
+            log.error("重建成绩统计汇总失败", e);
+            return Result.error("重建成绩统计汇总失败: " + e.getMessage());
+        }
+    }
+}
@@ -91,7 +91,11 @@ public class StudentDataController {
 
             @Parameter(description = "排序字段（可选：ksh-考籍号, kscjbs-考生成绩标识, fslkscj-分数，默认ksh）", example = "ksh") @RequestParam(value = "sortField", required = false, defaultValue = "ksh") String sortField,
 
-            @Parameter(description = "排序方向（可选：asc-升序, desc-降序，默认asc）", example = "asc") @RequestParam(value = "sortOrder", required = false, defaultValue = "asc") String sortOrder) {
+            @Parameter(description = "排序方向（可选：asc-升序, desc-降序，默认asc）", example = "asc") @RequestParam(value = "sortOrder", required = false, defaultValue = "asc") String sortOrder,
+
+            @Parameter(description = "翻页游标（可选，上一页返回的nextCursor，传入后忽略pageNum）") @RequestParam(value = "cursor", required = false) String cursor,
+
+            @Parameter(description = "游标翻页时是否统计总数（可选，默认false）", example = "false") @RequestParam(value = "withTotal", required = false) Boolean withTotal) {
 
         try {
             // 构建查询DTO
@@ -113,6 +117,8 @@ public class StudentDataController {
                     .cjdjm(cjdjm)
                     .sortField(sortField)
                     .sortOrder(sortOrder)
+                    .cursor(cursor)
+                    .withTotal(withTotal)
                     .build();
 
             log.info("接收到学生数据查询请求：{}", queryDTO);
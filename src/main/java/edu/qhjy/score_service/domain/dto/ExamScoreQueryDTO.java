@@ -66,6 +66,21 @@ public class ExamScoreQueryDTO {
     @Max(value = 1000, message = "每页大小不能超过1000")
     private Integer pageSize = 20;
 
+    /**
+     * 翻页游标（上一页返回的nextCursor），传入后按游标翻页并忽略pageNum
+     */
+    private String cursor;
+
+    /**
+     * 游标翻页时是否统计总数（默认不统计，页码翻页始终统计）
+     */
+    private Boolean withTotal;
+
+    /**
+     * 游标解码后的上一页最后一个考籍号，由服务层设置，不为null时按游标查询
+     */
+    private String afterKsh;
+
     /**
      * 计算偏移量
      */
@@ -40,6 +40,18 @@ public class GradeBookQueryDTO {
     @Builder.Default
     private Integer pageSize = 20;
 
+    @Schema(description = "翻页游标（上一页返回的nextCursor），传入后按游标翻页并忽略pageNum")
+    private String cursor;
+
+    @Schema(description = "游标翻页时是否统计总数（默认不统计，页码翻页始终统计）")
+    private Boolean withTotal;
+
+    /**
+     * 游标解码后的上一页最后一个考籍号，由服务层设置，不为null时按游标查询
+     */
+    @Schema(hidden = true)
+    private String afterKsh;
+
     /**
      * 验证查询参数
      */
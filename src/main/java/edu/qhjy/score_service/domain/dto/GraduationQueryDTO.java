@@ -53,6 +53,12 @@ public class GraduationQueryDTO {
     @Schema(description = "是否满足毕业条件（筛选条件）：true-只返回满足毕业条件的学生，false或null-返回所有学生")
     private Boolean isQualified;
 
+    /**
+     * 上一批最后一个考生号，由服务层分批导出时设置，不为null时只查询考生号更大的学生
+     */
+    @Schema(hidden = true)
+    private String afterKsh;
+
     /**
      * 计算分页偏移量
      *
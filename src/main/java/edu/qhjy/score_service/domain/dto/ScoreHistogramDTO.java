@@ -0,0 +1,33 @@
+package edu.qhjy.score_service.domain.dto;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+/**
+ * 分数直方图DTO
+ * 某市州某一分数的考生人数，用于一分一段表计算
+ */
+@Data
+public class ScoreHistogramDTO {
+
+    /**
+     * 所在市州名称
+     */
+    private String szsmc;
+
+    /**
+     * 分数类考试成绩
+     */
+    private BigDecimal fslkscj;
+
+    /**
+     * 该分数的考生人数
+     */
+    private Integer count;
+
+    /**
+     * 该分数已保存的等级（动态等级计算失败时使用）
+     */
+    private String grade;
+}
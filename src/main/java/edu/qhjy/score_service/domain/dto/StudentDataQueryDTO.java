@@ -7,6 +7,8 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.math.BigDecimal;
+
 /**
  * 学生数据查询请求DTO
  * 支持多维度筛选和分页查询
@@ -77,6 +79,27 @@ public class StudentDataQueryDTO {
 
     private String permissionDm;
 
+    @Schema(description = "翻页游标（上一页返回的nextCursor），传入后按游标翻页并忽略pageNum")
+    private String cursor;
+
+    @Schema(description = "游标翻页时是否统计总数（默认不统计，页码翻页始终统计）")
+    private Boolean withTotal;
+
+    /**
+     * 游标解码后的上一页最后一行排序键，由服务层设置，afterKscjbs不为null时按游标查询
+     */
+    @Schema(hidden = true)
+    private String afterKsh;
+
+    @Schema(hidden = true)
+    private BigDecimal afterScore;
+
+    @Schema(hidden = true)
+    private String afterKmmc;
+
+    @Schema(hidden = true)
+    private Long afterKscjbs;
+
     /**
      * 验证查询参数
      */
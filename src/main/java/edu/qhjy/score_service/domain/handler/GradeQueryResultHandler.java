@@ -1,6 +1,7 @@
 package edu.qhjy.score_service.domain.handler;
 
 import edu.qhjy.score_service.domain.vo.GradeQueryVO;
+import lombok.Data;
 import org.apache.ibatis.session.ResultContext;
 import org.apache.ibatis.session.ResultHandler;
 
@@ -8,54 +9,83 @@ import java.util.*;
 
 /**
  * 成绩查询结果处理器
- * 用于将查询结果中的科目成绩数据聚合到GradeQueryVO的scores Map中
+ * 逐行接收（考籍号、科目、成绩）并直接写入对应考生GradeQueryVO的scores中，
+ * 不再把每个成绩单元格读成一个Map后再分组。考生基本信息由调用方预先按页查询，每个考生只读一次
  */
-public class GradeQueryResultHandler implements ResultHandler<Map<String, Object>> {
+public class GradeQueryResultHandler implements ResultHandler<GradeQueryResultHandler.ScoreRow> {
 
-    private final Map<String, GradeQueryVO> resultMap = new LinkedHashMap<>();
+    private final Map<String, GradeQueryVO> studentMap;
+    private final List<GradeQueryVO> students;
+    private final List<String> subjects;
+    private final Set<String> scoredKsh;
+
+    /**
+     * @param students 本页考生（按返回顺序排列），scores由处理器重新初始化
+     * @param subjects 需返回的科目（按显示顺序），没有成绩的科目值为null，不在其中的科目不返回；
+     *                 为null时按查询到的科目原样返回
+     */
+    public GradeQueryResultHandler(List<GradeQueryVO> students, List<String> subjects) {
+        this.students = students;
+        this.subjects = subjects;
+        this.studentMap = new HashMap<>(students.size() * 4 / 3 + 1);
+        this.scoredKsh = new HashSet<>(students.size() * 4 / 3 + 1);
+        for (GradeQueryVO student : students) {
+            LinkedHashMap<String, String> scores = new LinkedHashMap<>();
+            if (subjects != null) {
+                for (String subject : subjects) {
+                    scores.put(subject, null);
+                }
+            }
+            student.setScores(scores);
+            studentMap.put(student.getKsh(), student);
+        }
+    }
 
     @Override
-    public void handleResult(ResultContext<? extends Map<String, Object>> resultContext) {
-        Map<String, Object> row = resultContext.getResultObject();
-
-        String ksh = (String) row.get("ksh");
-        String kmmc = (String) row.get("kmmc");
-        String scoreValue = (String) row.get("score_value");
-
-        // 获取或创建GradeQueryVO对象
-        GradeQueryVO gradeVO = resultMap.computeIfAbsent(ksh, k -> {
-            GradeQueryVO vo = new GradeQueryVO();
-            vo.setKsh((String) row.get("ksh"));
-            vo.setXm((String) row.get("xm"));
-            vo.setSfzjh((String) row.get("sfzjh"));
-            vo.setGrade((String) row.get("grade"));
-            vo.setBj((String) row.get("bj"));
-            vo.setXb((String) row.get("xb"));
-            vo.setMz((String) row.get("mz"));
-            vo.setSzsmc((String) row.get("szsmc"));
-            vo.setKqmc((String) row.get("kqmc"));
-            vo.setXxmc((String) row.get("xxmc"));
-            vo.setScores(new HashMap<>());
-            return vo;
-        });
-
-        // 添加科目成绩到scores Map中
-        if (kmmc != null && scoreValue != null) {
-            gradeVO.getScores().put(kmmc, scoreValue);
+    public void handleResult(ResultContext<? extends ScoreRow> resultContext) {
+        ScoreRow row = resultContext.getResultObject();
+        GradeQueryVO student = studentMap.get(row.getKsh());
+        if (student == null) {
+            return;
+        }
+        scoredKsh.add(row.getKsh());
+        if (subjects == null || student.getScores().containsKey(row.getKmmc())) {
+            student.getScores().put(row.getKmmc(), row.getScoreValue());
         }
     }
 
     /**
-     * 获取处理后的结果列表
+     * 获取处理后的结果列表：按传入顺序，只包含查询到成绩记录的考生
      */
     public List<GradeQueryVO> getResults() {
-        return new ArrayList<>(resultMap.values());
+        List<GradeQueryVO> results = new ArrayList<>(scoredKsh.size());
+        for (GradeQueryVO student : students) {
+            if (scoredKsh.contains(student.getKsh())) {
+                results.add(student);
+            }
+        }
+        return results;
     }
 
     /**
-     * 清空结果
+     * 成绩行
      */
-    public void clear() {
-        resultMap.clear();
+    @Data
+    public static class ScoreRow {
+
+        /**
+         * 考籍号
+         */
+        private String ksh;
+
+        /**
+         * 科目名称
+         */
+        private String kmmc;
+
+        /**
+         * 成绩值（合格性考试为等第，考察性考试为合格评定，缺考为Q）
+         */
+        private String scoreValue;
     }
-}
\ No newline at end of file
+}
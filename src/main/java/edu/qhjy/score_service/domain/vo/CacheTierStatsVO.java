@@ -0,0 +1,74 @@
+package edu.qhjy.score_service.domain.vo;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+import java.io.Serializable;
+
+/**
+ * 两级缓存分级命中统计视图对象
+ *
+ * @author dadalv
+ * @since 2025-08-01
+ */
+@Data
+@Accessors(chain = true)
+public class CacheTierStatsVO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 缓存区域名称
+     */
+    private String cacheName;
+
+    /**
+     * 本机L1当前条目数（估算值）
+     */
+    private Long l1Size;
+
+    /**
+     * L1命中次数
+     */
+    private Long l1Hits;
+
+    /**
+     * L1未命中次数
+     */
+    private Long l1Misses;
+
+    /**
+     * L1命中率
+     */
+    private Double l1HitRatio;
+
+    /**
+     * L1因容量或过期淘汰的条目数
+     */
+    private Long l1Evictions;
+
+    /**
+     * Redis（L2）命中次数，仅统计L1未命中的请求
+     */
+    private Long l2Hits;
+
+    /**
+     * Redis（L2）未命中次数
+     */
+    private Long l2Misses;
+
+    /**
+     * Redis（L2）命中率
+     */
+    private Double l2HitRatio;
+
+    /**
+     * 两级合计命中率
+     */
+    private Double overallHitRatio;
+
+    /**
+     * 收到其他实例的L1失效通知次数
+     */
+    private Long remoteInvalidations;
+}
@@ -19,6 +19,11 @@ public class DbfImportResponseVO implements Serializable {
 
     private static final long serialVersionUID = 1L;
 
+    /**
+     * 导入任务ID（可用于查询导入进度）
+     */
+    private String taskId;
+
     /**
      * 导入是否成功
      */
@@ -109,6 +114,11 @@ public class DbfImportResponseVO implements Serializable {
      */
     private List<StudentDataVO> successPreview;
 
+    /**
+     * 导入流水线各阶段指标（吞吐量、队列深度）
+     */
+    private List<DbfImportStageMetricsVO> stageMetrics;
+
     /**
      * 错误详情（如果导入过程中发生异常）
      */
@@ -0,0 +1,54 @@
+package edu.qhjy.score_service.domain.vo;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+import java.io.Serializable;
+
+/**
+ * DBF导入流水线阶段指标视图对象
+ *
+ * @author dadalv
+ * @since 2025-08-01
+ */
+@Data
+@Accessors(chain = true)
+public class DbfImportStageMetricsVO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 阶段名称（解析/校验/写入）
+     */
+    private String stage;
+
+    /**
+     * 已处理记录数
+     */
+    private Long records;
+
+    /**
+     * 已处理批次数
+     */
+    private Long chunks;
+
+    /**
+     * 阶段实际处理耗时（毫秒，不含等待上下游的时间）
+     */
+    private Long busyMillis;
+
+    /**
+     * 阶段吞吐量（条/秒，按实际处理耗时计算）
+     */
+    private Long recordsPerSecond;
+
+    /**
+     * 输出队列当前深度（写入阶段为0）
+     */
+    private Integer queueDepth;
+
+    /**
+     * 输出队列最大深度
+     */
+    private Integer maxQueueDepth;
+}
@@ -66,4 +66,12 @@ public class GraduationStudentVO {
      */
     @JsonIgnore
     private Boolean isQualifiedInternal;
+
+    /**
+     * 各科目的成绩合格评定（科目名称->CJHGM，只含合格评定非空的科目），
+     * 随成绩批量查询一并填充，供PDF花名册使用，不对外暴露
+     */
+    @JsonIgnore
+    @Builder.Default
+    private Map<String, String> passCodes = new HashMap<>();
 }
\ No newline at end of file
@@ -48,34 +48,44 @@ public interface GraduationMapper {
     List<StudentScoreVO> selectStudentScores(@Param("ksh") String ksh);
 
     /**
-     * 批量更新学生毕业状态
-     *
-     * @param kshList      考生号列表
-     * @param bynd         毕业年度
-     * @param operatorName 操作人姓名
-     * @param operatorCode 操作人工作人员码
-     * @return 更新记录数
-     */
-    int batchUpdateGraduationStatus(@Param("kshList") List<String> kshList,
-                                    @Param("bynd") String bynd,
-                                    @Param("operatorName") String operatorName,
-                                    @Param("operatorCode") String operatorCode);
-
-    /**
-     * 根据条件查询符合毕业条件的考生号列表
+     * 查询审批范围内（正常在校或已毕业）学生所在的学校，用于按学校分块审批
      *
      * @param szsmc 所在市名称（必填）
      * @param kqmc  考区名称（可选）
      * @param xxmc  学校名称（可选）
      * @param ksh   考生号（可选）
-     * @param bynd  毕业年度（可选）
-     * @return 考生号列表
+     * @return 学校名称列表（学校为空的学生对应一个null）
+     */
+    List<String> selectApprovalSchools(@Param("szsmc") String szsmc,
+                                       @Param("kqmc") String kqmc,
+                                       @Param("xxmc") String xxmc,
+                                       @Param("ksh") String ksh);
+
+    /**
+     * 将一所学校内满足毕业条件的学生更新为毕业（单条UPDATE，合格科目数在数据库中按考生号分组统计）
+     *
+     * @param szsmc        所在市名称（必填）
+     * @param kqmc         考区名称（可选）
+     * @param xxmc         学校名称（可选）
+     * @param ksh          考生号（可选）
+     * @param schoolName   本次更新的学校，为null时更新学校为空的学生
+     * @param kskm         考试科目合格数要求
+     * @param kckm         考查科目合格数要求
+     * @param bynd         毕业年度
+     * @param operatorName 操作人姓名
+     * @param operatorCode 操作人工作人员码
+     * @return 更新记录数
      */
-    List<String> selectQualifiedStudentKsh(@Param("szsmc") String szsmc,
-                                           @Param("kqmc") String kqmc,
-                                           @Param("xxmc") String xxmc,
-                                           @Param("ksh") String ksh,
-                                           @Param("bynd") String bynd);
+    int approveQualifiedGraduation(@Param("szsmc") String szsmc,
+                                   @Param("kqmc") String kqmc,
+                                   @Param("xxmc") String xxmc,
+                                   @Param("ksh") String ksh,
+                                   @Param("schoolName") String schoolName,
+                                   @Param("kskm") int kskm,
+                                   @Param("kckm") int kckm,
+                                   @Param("bynd") String bynd,
+                                   @Param("operatorName") String operatorName,
+                                   @Param("operatorCode") String operatorCode);
 
     /**
      * 统计考试科目合格数量
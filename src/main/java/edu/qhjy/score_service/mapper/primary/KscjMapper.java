@@ -2,13 +2,18 @@ package edu.qhjy.score_service.mapper.primary;
 
 import edu.qhjy.score_service.domain.dto.GradeBookQueryDTO;
 import edu.qhjy.score_service.domain.dto.GradeQueryDTO;
+import edu.qhjy.score_service.domain.dto.ScoreHistogramDTO;
 import edu.qhjy.score_service.domain.dto.StudentDataQueryDTO;
 import edu.qhjy.score_service.domain.entity.KscjEntity;
+import edu.qhjy.score_service.domain.handler.GradeQueryResultHandler;
 import edu.qhjy.score_service.domain.vo.ExamScoreVO;
 import edu.qhjy.score_service.domain.vo.GradeBookVO;
+import edu.qhjy.score_service.domain.vo.GradeQueryVO;
 import edu.qhjy.score_service.domain.vo.StudentDataVO;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.session.ResultHandler;
 
 import java.math.BigDecimal;
 import java.util.List;
@@ -54,6 +59,11 @@ public interface KscjMapper {
      */
     Long countExamScores(@Param("query") edu.qhjy.score_service.domain.dto.ExamScoreQueryDTO query);
 
+    /**
+     * 游标方式查询Excel导入模板的学生数据（按考籍号排序，不分页）
+     */
+    Cursor<ExamScoreVO> selectExamTemplateStudents(@Param("query") edu.qhjy.score_service.domain.dto.ExamScoreQueryDTO query);
+
     /**
      * 根据科目名称查询所有成绩
      */
@@ -246,6 +256,32 @@ public interface KscjMapper {
             @Param("kmmc") String kmmc,
             @Param("cities") List<String> cities);
 
+    /**
+     * 按库中已写入的等级统计某市州各等级人数（等级赋分后保存WCXX使用，统计范围与getStudentScoreRanks一致）
+     *
+     * @param ksjhdm 考试计划代码
+     * @param kmmc   科目名称
+     * @param szsmc  市州名称
+     * @return 各等级人数（grade：等级，未赋分为UNGRADED；count：人数）
+     */
+    List<Map<String, Object>> selectCityGradeCounts(
+            @Param("ksjhdm") String ksjhdm,
+            @Param("kmmc") String kmmc,
+            @Param("szsmc") String szsmc);
+
+    /**
+     * 获取各市州分数直方图（一分一段计算使用，按市州、分数分组统计人数）
+     *
+     * @param ksjhdm 考试计划代码
+     * @param kmmc   科目名称
+     * @param cities 市州名称列表，为空时查询全部市州
+     * @return 按市州、分数降序排列的分数直方图
+     */
+    List<ScoreHistogramDTO> getCityScoreHistogram(
+            @Param("ksjhdm") String ksjhdm,
+            @Param("kmmc") String kmmc,
+            @Param("cities") List<String> cities);
+
     /**
      * 获取历史考试计划（包含成绩数据）
      *
@@ -347,6 +383,17 @@ public interface KscjMapper {
                                    @Param("kmmc") String kmmc,
                                    @Param("kshList") List<String> kshList);
 
+    /**
+     * 流式读取指定考试计划和科目已存在成绩记录的全部考籍号
+     *
+     * @param ksjhdm  考试计划代码
+     * @param kmmc    科目名称
+     * @param handler 逐行处理考籍号的处理器
+     */
+    void scanExistingKsh(@Param("ksjhdm") String ksjhdm,
+                         @Param("kmmc") String kmmc,
+                         ResultHandler<String> handler);
+
     /**
      * 统计指定考试计划和科目的现有成绩记录数
      *
@@ -382,16 +429,42 @@ public interface KscjMapper {
             @Param("scoreUpdates") List<edu.qhjy.score_service.domain.dto.ScoreUpdateDTO> scoreUpdates);
 
 
-    void clearTempImportTable();
+    /**
+     * 删除临时表中指定导入任务的记录
+     *
+     * @param importId 导入任务ID
+     * @return 删除的记录数
+     */
+    int deleteTempImportRows(@Param("importId") String importId);
 
-    int batchInsertIntoTempTable(List<KscjEntity> list);
+    int batchInsertIntoTempTable(@Param("list") List<KscjEntity> list, @Param("importId") String importId);
 
-    int mergeFromTempTable();
+    /**
+     * 将临时表中指定导入任务的记录MERGE到成绩表
+     *
+     * @param importId 导入任务ID
+     * @return 影响行数
+     */
+    int mergeFromTempTable(@Param("importId") String importId);
 
     List<String> selectPaginatedStudentKsh(GradeQueryDTO queryDTO);
 
-    List<Map<String, Object>> selectGradeDataByKshList(
+    /**
+     * 统计成绩查询的考生总数（不含游标条件）
+     */
+    Long countPaginatedStudentKsh(GradeQueryDTO queryDTO);
+
+    /**
+     * 查询本页考生的基本信息
+     */
+    List<GradeQueryVO> selectGradeStudentsByKshList(@Param("kshList") List<String> kshList);
+
+    /**
+     * 查询本页考生的科目成绩，逐行交给结果处理器聚合
+     */
+    void selectGradeScoresByKshList(
             @Param("kshList") List<String> kshList,
-            @Param("query") GradeQueryDTO queryDTO
+            @Param("query") GradeQueryDTO queryDTO,
+            ResultHandler<GradeQueryResultHandler.ScoreRow> handler
     );
 }
\ No newline at end of file
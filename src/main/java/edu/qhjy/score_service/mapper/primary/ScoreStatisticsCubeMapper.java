@@ -0,0 +1,125 @@
+package edu.qhjy.score_service.mapper.primary;
+
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 成绩统计汇总表Mapper
+ * 汇总表KSCJ_TJHZ按（考试计划、科目、市州、区县、学校、班级、等级）预聚合正考成绩，
+ * 统计分析接口从汇总表按索引读取，不再扫描kscj原始数据
+ */
+@Mapper
+public interface ScoreStatisticsCubeMapper {
+
+    /**
+     * 删除指定考试计划、科目的汇总数据
+     */
+    int deleteSlice(@Param("ksjhdm") String ksjhdm, @Param("kmmc") String kmmc);
+
+    /**
+     * 从kscj重新汇总指定考试计划、科目的数据
+     */
+    int insertSlice(@Param("ksjhdm") String ksjhdm, @Param("kmmc") String kmmc);
+
+    /**
+     * 创建分片状态行（未汇总），已存在时抛出主键冲突
+     */
+    int insertSliceMarker(@Param("ksjhdm") String ksjhdm, @Param("kmmc") String kmmc);
+
+    /**
+     * 查询分片是否已汇总
+     *
+     * @return 1已汇总，0未汇总，null表示没有状态行
+     */
+    Integer selectSliceBuilt(@Param("ksjhdm") String ksjhdm, @Param("kmmc") String kmmc);
+
+    /**
+     * 锁定分片状态行（SELECT ... FOR UPDATE），须在重建事务中调用
+     *
+     * @return 锁定时的汇总状态
+     */
+    Integer lockSliceMarker(@Param("ksjhdm") String ksjhdm, @Param("kmmc") String kmmc);
+
+    /**
+     * 标记分片已汇总
+     */
+    int markSliceBuilt(@Param("ksjhdm") String ksjhdm, @Param("kmmc") String kmmc);
+
+    /**
+     * 检查汇总表和分片状态表是否存在，不存在时抛出SQL异常
+     */
+    Integer probeTables();
+
+    /**
+     * 查询考试计划下有正考成绩的科目
+     */
+    List<String> selectSubjectsByKsjhdm(@Param("ksjhdm") String ksjhdm);
+
+    /**
+     * 查询有正考成绩但尚未标记为已汇总的（考试计划、科目），用于补齐历史数据
+     *
+     * @return 每行包含ksjhdm、kmmc
+     */
+    List<Map<String, Object>> selectMissingSlices();
+
+    /**
+     * 查询区域成绩统计分布（柱状图数据），返回列与KscjMapper.selectAreaScoreStatistics一致
+     *
+     * @param ksjhdm    考试计划代码
+     * @param kmmc      科目名称
+     * @param areaLevel 区域级别(city/county/school/class)
+     * @param areaCode  区域代码（可选，用于筛选特定区域）
+     */
+    List<Map<String, Object>> selectAreaScoreStatistics(
+            @Param("ksjhdm") String ksjhdm,
+            @Param("kmmc") String kmmc,
+            @Param("areaLevel") String areaLevel,
+            @Param("areaCode") String areaCode);
+
+    /**
+     * 查询科目成绩等级分布，每个等级一行（grade_code、count）
+     *
+     * @param ksjhdm    考试计划代码
+     * @param kmmc      科目名称
+     * @param areaLevel 区域级别
+     * @param areaCode  区域代码
+     */
+    List<Map<String, Object>> selectGradeDistribution(
+            @Param("ksjhdm") String ksjhdm,
+            @Param("kmmc") String kmmc,
+            @Param("areaLevel") String areaLevel,
+            @Param("areaCode") String areaCode);
+
+    /**
+     * 查询科目分数段人数，返回一行（fd90、fd80、fd70、fd60、fdbjg）
+     *
+     * @param ksjhdm    考试计划代码
+     * @param kmmc      科目名称
+     * @param areaLevel 区域级别
+     * @param areaCode  区域代码
+     */
+    Map<String, Object> selectScoreRangeCounts(
+            @Param("ksjhdm") String ksjhdm,
+            @Param("kmmc") String kmmc,
+            @Param("areaLevel") String areaLevel,
+            @Param("areaCode") String areaCode);
+
+    /**
+     * 查询历史成绩趋势数据（折线图数据），返回列与KscjMapper.selectHistoricalTrends一致
+     *
+     * @param kmmc      科目名称
+     * @param areaLevel 区域级别
+     * @param areaCode  区域代码
+     * @param startYear 开始年份（可选）
+     * @param endYear   结束年份（可选）
+     */
+    List<Map<String, Object>> selectHistoricalTrends(
+            @Param("kmmc") String kmmc,
+            @Param("areaLevel") String areaLevel,
+            @Param("areaCode") String areaCode,
+            @Param("startYear") String startYear,
+            @Param("endYear") String endYear);
+}
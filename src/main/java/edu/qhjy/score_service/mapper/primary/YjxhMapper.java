@@ -3,6 +3,7 @@ package edu.qhjy.score_service.mapper.primary;
 import edu.qhjy.score_service.domain.entity.YjxhEntity;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.session.ResultHandler;
 
 import java.util.List;
 
@@ -42,6 +43,22 @@ public interface YjxhMapper {
      */
     List<YjxhEntity> selectByKsjhdm(@Param("ksjhdm") String ksjhdm);
 
+    /**
+     * 流式读取考试计划的所有阅卷序号信息，用于构建本地阅卷序号索引
+     *
+     * @param ksjhdm  考试计划代码
+     * @param handler 逐行处理结果的处理器
+     */
+    void scanByKsjhdm(@Param("ksjhdm") String ksjhdm, ResultHandler<YjxhEntity> handler);
+
+    /**
+     * 统计考试计划的阅卷序号记录数
+     *
+     * @param ksjhdm 考试计划代码
+     * @return 记录数
+     */
+    int countByKsjhdm(@Param("ksjhdm") String ksjhdm);
+
     /**
      * 验证阅卷序号、考试计划代码和考生姓名的匹配关系
      *
@@ -1,9 +1,11 @@
 package edu.qhjy.score_service.service;
 
 import edu.qhjy.score_service.domain.dto.DbfRecordDTO;
+import edu.qhjy.score_service.util.MappedDbfReader;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * DBF文件解析服务接口
@@ -23,6 +25,53 @@ public interface DbfParserService {
      */
     List<DbfRecordDTO> parseDbfFile(MultipartFile file, String ksjhdm) throws Exception;
 
+    /**
+     * 流式解析DBF文件，按批次回调处理，不在内存中保留全部记录
+     *
+     * @param file         DBF文件
+     * @param ksjhdm       考试计划代码
+     * @param chunkSize    每批记录数
+     * @param chunkHandler 批次处理回调，每批有效记录解析完成后调用一次
+     * @return 解析出的有效记录总数
+     * @throws Exception 解析异常
+     */
+    int parseDbfFile(MultipartFile file, String ksjhdm, int chunkSize,
+                     Consumer<List<DbfRecordDTO>> chunkHandler) throws Exception;
+
+    /**
+     * 打开DBF文件：上传文件落盘并映射到内存，同时校验必需字段
+     * 同一次导入中的计数、解析、预览均应复用该读取器，使用完毕后需关闭
+     *
+     * @param file DBF文件
+     * @return 内存映射读取器
+     * @throws Exception 读取或结构校验异常
+     */
+    MappedDbfReader openDbfFile(MultipartFile file) throws Exception;
+
+    /**
+     * 从已打开的DBF文件流式解析记录，按批次回调处理
+     *
+     * @param reader       已打开的DBF读取器
+     * @param ksjhdm       考试计划代码
+     * @param kmmc         科目名称
+     * @param chunkSize    每批记录数
+     * @param chunkHandler 批次处理回调
+     * @return 解析出的有效记录总数
+     */
+    int parseDbfFile(MappedDbfReader reader, String ksjhdm, String kmmc, int chunkSize,
+                     Consumer<List<DbfRecordDTO>> chunkHandler);
+
+    /**
+     * 从已打开的DBF文件读取前若干条有效记录（随机访问，不扫描全文件）
+     *
+     * @param reader 已打开的DBF读取器
+     * @param ksjhdm 考试计划代码
+     * @param kmmc   科目名称
+     * @param limit  最多读取的有效记录数
+     * @return 有效记录列表
+     */
+    List<DbfRecordDTO> parseDbfRecords(MappedDbfReader reader, String ksjhdm, String kmmc, int limit);
+
     /**
      * 从文件名中提取科目名称
      * 文件名格式：5_化学_单科成绩(46877人).dbf
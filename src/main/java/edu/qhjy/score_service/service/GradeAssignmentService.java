@@ -12,6 +12,7 @@ import edu.qhjy.score_service.mapper.primary.KscjMapper;
 import edu.qhjy.score_service.mapper.primary.KsjhMapper;
 import edu.qhjy.score_service.mapper.primary.WcxxMapper;
 import edu.qhjy.score_service.service.algorithm.GradeCalculationAlgorithm;
+import edu.qhjy.score_service.service.algorithm.ScoreSegmentCalculator;
 import edu.qhjy.score_service.service.redis.GradeAssignmentLockService;
 import edu.qhjy.score_service.service.redis.GradeAssignmentProgressService;
 import edu.qhjy.score_service.service.redis.GradeCalculationCacheService;
@@ -26,6 +27,7 @@ import java.math.RoundingMode;
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
 
@@ -45,43 +47,12 @@ public class GradeAssignmentService {
     private final GradeAssignmentProgressService progressService;
     private final GradeCalculationCacheService cacheService;
     private final GradeAssignmentProperties gradeAssignmentProperties;
+    private final ScoreStatisticsCubeService statisticsCubeService;
 
     // 线程池用于并行处理
     private final Executor gradeAssignmentExecutor = Executors.newFixedThreadPool(
             Runtime.getRuntime().availableProcessors());
 
-    /**
-     * 计算自然精度的百分比（动态精度方案）
-     * 在一位小数限制下，避免不必要的四舍五入
-     *
-     * @param count 当前计数
-     * @param total 总数
-     * @return 自然精度的百分比，最多保留一位小数
-     */
-    private BigDecimal calculateNaturalPrecisionPercentage(int count, int total) {
-        // 计算精确的百分比
-        BigDecimal exactPercentage = BigDecimal.valueOf(count)
-                .multiply(BigDecimal.valueOf(100))
-                .divide(BigDecimal.valueOf(total), 10, RoundingMode.HALF_UP);
-
-        // 检查是否为整数
-        if (exactPercentage.stripTrailingZeros().scale() <= 0) {
-            return exactPercentage.setScale(0, RoundingMode.UNNECESSARY);
-        }
-
-        // 检查一位小数是否足够精确表示
-        BigDecimal oneDecimal = exactPercentage.setScale(1, RoundingMode.HALF_UP);
-        BigDecimal difference = exactPercentage.subtract(oneDecimal).abs();
-
-        // 如果差异很小（小于0.01），使用一位小数
-        if (difference.compareTo(BigDecimal.valueOf(0.01)) < 0) {
-            return oneDecimal;
-        }
-
-        // 否则使用截断到一位小数（避免四舍五入失真）
-        return exactPercentage.setScale(1, RoundingMode.DOWN);
-    }
-
     /**
      * 安全地将Object转换为BigDecimal
      */
@@ -147,13 +118,15 @@ public class GradeAssignmentService {
             progressService.updateProgress(taskId, 10, "获取处理城市列表完成");
 
             // 5. 第一阶段：并行计算各城市等级阈值
+            // 流水线模式下每个城市的排名数据只查询一次，后续阶段共用内存中的快照
+            boolean singlePass = gradeAssignmentProperties.getAlgorithmConfig().isSinglePassPipeline();
             CityThresholdsResult thresholdsResult = calculateCityThresholdsParallel(
-                    request, cities, taskId);
+                    request, cities, taskId, singlePass);
             progressService.updateProgress(taskId, 50, "等级阈值计算完成");
 
             // 6. 第二阶段：串行批量更新所有学生等级
             GradeAssignmentResultVO result = batchUpdateStudentGrades(
-                    request, thresholdsResult.getSuccessfulCities(),
+                    request, thresholdsResult.getSuccessfulCities(), thresholdsResult.getRankSnapshots(),
                     thresholdsResult.getFailedCities().size(), taskId);
             progressService.updateProgress(taskId, 90, "学生等级更新完成");
 
@@ -163,6 +136,8 @@ public class GradeAssignmentService {
 
             // 清除相关缓存
             cacheService.clearCache(request.getKsjhdm(), request.getKmmc());
+            // 等级已变更，事务提交后重建统计汇总
+            statisticsCubeService.refreshAsync(request.getKsjhdm(), request.getKmmc());
 
             progressService.completeTask(taskId, "等级赋分任务完成");
             log.info("等级赋分完成: 处理学生数={}, 成功数={}",
@@ -225,9 +200,13 @@ public class GradeAssignmentService {
 
     /**
      * 并行计算各城市等级阈值
+     *
+     * @param singlePass 是否启用单次查询流水线模式，启用时同时记录各城市的排名快照（学生人数）
      */
     private CityThresholdsResult calculateCityThresholdsParallel(
-            GradeAssignmentRequestDTO request, List<String> cities, String taskId) {
+            GradeAssignmentRequestDTO request, List<String> cities, String taskId, boolean singlePass) {
+
+        Map<String, CityRankSnapshot> snapshots = new ConcurrentHashMap<>();
 
         List<CompletableFuture<Map.Entry<String, GradeThresholdsDTO>>> futures = cities
                 .stream().<CompletableFuture<Map.Entry<String, GradeThresholdsDTO>>>map(
@@ -236,7 +215,7 @@ public class GradeAssignmentService {
                                 // 检查缓存
                                 GradeThresholdsDTO cached = cacheService.getCachedThresholds(
                                         request.getKsjhdm(), request.getKmmc(), city);
-                                if (cached != null) {
+                                if (cached != null && !singlePass) {
                                     return new AbstractMap.SimpleEntry<>(city, cached);
                                 }
 
@@ -249,17 +228,26 @@ public class GradeAssignmentService {
                                     return null;
                                 }
 
-                                // 计算等级阈值 - 使用配置文件中的比例
-                                Map<String, Double> gradeRatios = gradeAssignmentProperties.getGradeConfig()
-                                        .getGradeRatios();
-                                GradeThresholdsDTO thresholds = GradeCalculationAlgorithm.calculateGradeThresholds(
-                                        studentRanks, gradeRatios, city, request.getKmmc(),
-                                        gradeAssignmentProperties.isUseEGradePriorityAlgorithm(),
-                                        gradeAssignmentProperties.getEGradeMinPercentage());
+                                GradeThresholdsDTO thresholds = cached;
+                                if (thresholds == null) {
+                                    // 计算等级阈值 - 使用配置文件中的比例
+                                    Map<String, Double> gradeRatios = gradeAssignmentProperties.getGradeConfig()
+                                            .getGradeRatios();
+                                    thresholds = GradeCalculationAlgorithm.calculateGradeThresholds(
+                                            studentRanks, gradeRatios, city, request.getKmmc(),
+                                            gradeAssignmentProperties.isUseEGradePriorityAlgorithm(),
+                                            gradeAssignmentProperties.getEGradeMinPercentage(),
+                                            gradeAssignmentProperties.isUsePrimitiveRankingEngine());
+
+                                    // 缓存结果
+                                    cacheService.cacheThresholds(
+                                            request.getKsjhdm(), request.getKmmc(), city, thresholds);
+                                }
 
-                                // 缓存结果
-                                cacheService.cacheThresholds(
-                                        request.getKsjhdm(), request.getKmmc(), city, thresholds);
+                                if (singlePass) {
+                                    // 只保留人数，排名列表随即释放；等级由SQL按阈值写入库中
+                                    snapshots.put(city, new CityRankSnapshot(studentRanks.size()));
+                                }
 
                                 log.debug("城市 {} 等级阈值计算完成: {}", city, thresholds);
                                 return new AbstractMap.SimpleEntry<>(city, thresholds);
@@ -294,7 +282,7 @@ public class GradeAssignmentService {
             log.warn("以下城市等级阈值计算失败: {}", failedCities);
         }
 
-        return new CityThresholdsResult(result, failedCities);
+        return new CityThresholdsResult(result, failedCities, snapshots);
     }
 
     /**
@@ -303,6 +291,7 @@ public class GradeAssignmentService {
     private GradeAssignmentResultVO batchUpdateStudentGrades(
             GradeAssignmentRequestDTO request,
             Map<String, GradeThresholdsDTO> cityThresholds,
+            Map<String, CityRankSnapshot> rankSnapshots,
             int initialFailureCount,
             String taskId) {
 
@@ -316,18 +305,26 @@ public class GradeAssignmentService {
             GradeThresholdsDTO thresholds = entry.getValue();
 
             try {
-                // 查询该城市所有学生成绩
-                List<StudentScoreRankDTO> studentRanks = kscjMapper.selectStudentScoreRanks(
-                        request.getKsjhdm(), request.getKmmc(), city);
+                int cityStudentCount;
+                CityRankSnapshot snapshot = rankSnapshots.get(city);
+                if (snapshot != null) {
+                    // 流水线模式：阈值计算阶段已查询过该城市学生，直接使用快照中的人数
+                    cityStudentCount = snapshot.getTotalCount();
+                } else {
+                    // 查询该城市所有学生成绩
+                    List<StudentScoreRankDTO> studentRanks = kscjMapper.selectStudentScoreRanks(
+                            request.getKsjhdm(), request.getKmmc(), city);
 
-                if (studentRanks.isEmpty()) {
-                    continue;
-                }
+                    if (studentRanks.isEmpty()) {
+                        continue;
+                    }
 
-                totalStudents += studentRanks.size();
+                    // 为学生分配等级
+                    gradeAlgorithm.assignGradesToStudents(studentRanks, thresholds);
+                    cityStudentCount = studentRanks.size();
+                }
 
-                // 为学生分配等级
-                gradeAlgorithm.assignGradesToStudents(studentRanks, thresholds);
+                totalStudents += cityStudentCount;
 
                 // 执行批量更新（一次性更新该城市所有学生）
                 int updatedCount = kscjMapper.batchUpdateGrades(
@@ -343,7 +340,7 @@ public class GradeAssignmentService {
                 successCount += updatedCount;
 
                 log.info("城市 {} 学生等级更新完成: 查询学生数={}, 实际更新数={}",
-                        city, studentRanks.size(), updatedCount);
+                        city, cityStudentCount, updatedCount);
 
             } catch (Exception e) {
                 failureCount += 1; // 统计失败的城市数量，而不是学生数量
@@ -422,6 +419,7 @@ public class GradeAssignmentService {
 
     /**
      * 保存等级阈值信息到WCXX表
+     * 各等级人数按库中已写入的cjdjm统计，与kscj中的等级来自同一次赋分（SQL按阈值写入）
      */
     private void saveGradeThresholds(GradeAssignmentRequestDTO request,
                                      Map<String, GradeThresholdsDTO> cityThresholds) {
@@ -447,27 +445,19 @@ public class GradeAssignmentService {
             String city = entry.getKey();
             GradeThresholdsDTO thresholds = entry.getValue();
 
-            // 统一数据源：使用与一分一段服务相同的学生数据获取方法
-            List<StudentScoreRankDTO> cityStudents = kscjMapper.getStudentScoreRanks(
-                    request.getKsjhdm(), request.getKmmc(), Collections.singletonList(city));
-
-            if (cityStudents == null || cityStudents.isEmpty()) {
-                log.warn("未找到城市 {} 的学生成绩数据，跳过保存", city);
-                continue;
-            }
-
-            // 使用实际学生总数作为计算基准（与一分一段服务保持一致）
-            int totalStudents = cityStudents.size();
-
-            // 从学生数据中统计等级分布
+            // 按库中已写入的等级统计（统计范围与一分一段服务的学生数据一致）
             Map<String, Integer> gradeCountMap = new HashMap<>();
-            for (String grade : Arrays.asList("A", "B", "C", "D", "E", "UNGRADED")) {
-                gradeCountMap.put(grade, 0);
+            int totalStudents = 0;
+            for (Map<String, Object> row : kscjMapper.selectCityGradeCounts(
+                    request.getKsjhdm(), request.getKmmc(), city)) {
+                int count = ((Number) row.get("count")).intValue();
+                gradeCountMap.merge((String) row.get("grade"), count, Integer::sum);
+                totalStudents += count;
             }
 
-            for (StudentScoreRankDTO student : cityStudents) {
-                String grade = student.getGrade() != null ? student.getGrade() : "UNGRADED";
-                gradeCountMap.put(grade, gradeCountMap.get(grade) + 1);
+            if (totalStudents == 0) {
+                log.warn("未找到城市 {} 的学生成绩数据，跳过保存", city);
+                continue;
             }
 
             // 构建等级统计数据列表（模拟原有的actualGradeStats格式）
@@ -502,7 +492,7 @@ public class GradeAssignmentService {
                 cumulativeCount += count;
 
                 // 计算累计百分比（动态精度方案，使用与一分一段服务相同的学生总数基准）
-                BigDecimal cumulativePercentage = calculateNaturalPrecisionPercentage(
+                BigDecimal cumulativePercentage = ScoreSegmentCalculator.calculateNaturalPrecisionPercentage(
                         cumulativeCount, totalStudents);
 
                 WcxxEntity wcxx = new WcxxEntity();
@@ -607,7 +597,7 @@ public class GradeAssignmentService {
                 int count = gradeCountMap.get(grade);
                 if (count > 0) {
                     cumulativeCount += count;
-                    BigDecimal ljbfb = calculateNaturalPrecisionPercentage(cumulativeCount, totalStudents);
+                    BigDecimal ljbfb = ScoreSegmentCalculator.calculateNaturalPrecisionPercentage(cumulativeCount, totalStudents);
                     gradeAssignmentLjbfb.put(grade, ljbfb);
                 }
             }
@@ -896,11 +886,27 @@ public class GradeAssignmentService {
     private static class CityThresholdsResult {
         private final Map<String, GradeThresholdsDTO> successfulCities;
         private final List<String> failedCities;
+        private final Map<String, CityRankSnapshot> rankSnapshots;
 
-        public CityThresholdsResult(Map<String, GradeThresholdsDTO> successfulCities, List<String> failedCities) {
+        public CityThresholdsResult(Map<String, GradeThresholdsDTO> successfulCities, List<String> failedCities,
+                                    Map<String, CityRankSnapshot> rankSnapshots) {
             this.successfulCities = successfulCities;
             this.failedCities = failedCities;
+            this.rankSnapshots = rankSnapshots;
         }
 
     }
-}
\ No newline at end of file
+
+    /**
+     * 城市排名快照
+     * 单次查询流水线模式下保存某城市在阈值计算阶段查询到的学生人数，kscj更新阶段不再重复查询
+     */
+    @Getter
+    private static class CityRankSnapshot {
+        private final int totalCount;
+
+        CityRankSnapshot(int totalCount) {
+            this.totalCount = totalCount;
+        }
+    }
+}
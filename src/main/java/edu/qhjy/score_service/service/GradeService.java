@@ -4,6 +4,9 @@ import edu.qhjy.score_service.common.PageResult;
 import edu.qhjy.score_service.domain.dto.GradeQueryDTO;
 import edu.qhjy.score_service.domain.vo.GradeQueryVO;
 
+import java.io.IOException;
+import java.io.OutputStream;
+
 /**
  * 成绩查询服务接口
  */
@@ -16,4 +19,14 @@ public interface GradeService {
      * @return 分页结果
      */
     PageResult<GradeQueryVO> queryGradeData(GradeQueryDTO queryDTO);
+
+    /**
+     * 将符合条件的全部成绩数据以JSON数组流式写出（不分页）
+     * 按排序键分批读取考生，每批写出后即释放，内存占用与总人数无关
+     *
+     * @param queryDTO     查询条件，分页参数和游标被忽略
+     * @param outputStream 输出流
+     * @throws IOException 写出失败
+     */
+    void writeGradeData(GradeQueryDTO queryDTO, OutputStream outputStream) throws IOException;
 }
\ No newline at end of file
@@ -3,6 +3,7 @@ package edu.qhjy.score_service.service;
 import edu.qhjy.score_service.domain.dto.GraduationPdfQueryDTO;
 
 import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
 
 /**
  * 毕业生花名册PDF生成服务接口
@@ -18,6 +19,38 @@ public interface GraduationPdfService {
      */
     ByteArrayOutputStream generateGraduationPdf(GraduationPdfQueryDTO queryDTO) throws Exception;
 
+    /**
+     * 流式生成毕业生花名册PDF
+     * 按批读取学生，每写满一页即输出到流中，内存占用与学生总数无关
+     *
+     * @param queryDTO     查询条件
+     * @param outputStream PDF输出流（不由本方法关闭）
+     * @throws Exception 生成PDF过程中的异常
+     */
+    void writeGraduationPdf(GraduationPdfQueryDTO queryDTO, OutputStream outputStream) throws Exception;
+
+    /**
+     * 统计毕业生花名册PDF的总页数
+     *
+     * @param queryDTO 查询条件
+     * @return 总页数，没有数据时为0
+     */
+    int countGraduationPdfPages(GraduationPdfQueryDTO queryDTO);
+
+    /**
+     * 生成毕业生花名册PDF中的一段连续页，用于分片并行生成后合并
+     * 页眉页码和序号按整份花名册计算，各段按页码顺序合并后与整份生成的内容一致
+     *
+     * @param queryDTO     查询条件
+     * @param firstPage    起始页（从0开始）
+     * @param pageCount    页数
+     * @param totalPages   整份花名册的总页数（页眉显示）
+     * @param outputStream PDF输出流（不由本方法关闭）
+     * @throws Exception 生成PDF过程中的异常
+     */
+    void writeGraduationPdfPages(GraduationPdfQueryDTO queryDTO, int firstPage, int pageCount, int totalPages,
+                                 OutputStream outputStream) throws Exception;
+
     /**
      * 生成PDF文件名
      * 命名规则：bynd + szsmc（如果有）+ szxmc（如果有）+ xxmc（如果有）+ "毕业生花名册" + 生成日期 + "版"
@@ -6,6 +6,9 @@ import edu.qhjy.score_service.domain.dto.BatchGraduationDTO;
 import edu.qhjy.score_service.domain.dto.GraduationQueryDTO;
 import edu.qhjy.score_service.domain.vo.GraduationStudentVO;
 
+import java.util.List;
+import java.util.function.Consumer;
+
 /**
  * 毕业生花名册服务接口
  */
@@ -21,6 +24,38 @@ public interface GraduationService {
      */
     Result<PageResult<GraduationStudentVO>> queryGraduationStudents(GraduationQueryDTO queryDTO);
 
+    /**
+     * 统计符合查询条件的毕业生人数（isQualified为true时只统计满足毕业条件的学生）
+     *
+     * @param queryDTO 查询条件
+     * @return 人数
+     */
+    int countGraduationStudents(GraduationQueryDTO queryDTO);
+
+    /**
+     * 分批读取符合查询条件的全部毕业生（含成绩），用于PDF等大范围导出
+     * 按考生号升序排序时使用考生号游标翻页，其他排序按页码翻页
+     *
+     * @param queryDTO      查询条件（分页参数由本方法设置）
+     * @param batchSize     每批学生数
+     * @param batchConsumer 每批学生的处理
+     */
+    void forEachGraduationStudentBatch(GraduationQueryDTO queryDTO, int batchSize,
+                                       Consumer<List<GraduationStudentVO>> batchConsumer);
+
+    /**
+     * 分批读取从第firstBatch批开始的至多maxBatches批毕业生（含成绩），用于分片并行导出
+     * 起始批按页码定位，之后与全量读取相同：按考生号升序时使用考生号游标翻页
+     *
+     * @param queryDTO      查询条件（分页参数由本方法设置）
+     * @param firstBatch    起始批序号（从0开始）
+     * @param maxBatches    最多读取的批数
+     * @param batchSize     每批学生数
+     * @param batchConsumer 每批学生的处理
+     */
+    void forEachGraduationStudentBatch(GraduationQueryDTO queryDTO, int firstBatch, int maxBatches, int batchSize,
+                                       Consumer<List<GraduationStudentVO>> batchConsumer);
+
     /**
      * 批量毕业审批
      * 修改ksxx表中学生的BYND为当前年份，KJZTMC更新为"毕业"
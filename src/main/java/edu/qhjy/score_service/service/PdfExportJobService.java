@@ -0,0 +1,47 @@
+package edu.qhjy.score_service.service;
+
+import edu.qhjy.score_service.domain.dto.GradeBookQueryDTO;
+import edu.qhjy.score_service.domain.dto.GraduationPdfQueryDTO;
+import edu.qhjy.score_service.domain.vo.TaskStatusVO;
+
+import java.nio.file.Path;
+
+/**
+ * PDF异步导出服务接口
+ * 全省、全市等大范围报表按固定页数切分为多个分片并行生成，再按页码顺序合并为一个PDF文件
+ */
+public interface PdfExportJobService {
+
+    /**
+     * 提交毕业生花名册PDF导出任务
+     *
+     * @param queryDTO 查询条件
+     * @return 任务状态（含任务ID）
+     */
+    TaskStatusVO submitGraduationExport(GraduationPdfQueryDTO queryDTO);
+
+    /**
+     * 提交成绩等第册PDF导出任务
+     *
+     * @param queryDTO 查询条件
+     * @return 任务状态（含任务ID）
+     */
+    TaskStatusVO submitGradeBookExport(GradeBookQueryDTO queryDTO);
+
+    /**
+     * 查询导出任务状态
+     * 完成后result中包含fileName（下载文件名）、totalPages（总页数）、downloadUrl（下载地址）
+     *
+     * @param taskId 任务ID
+     * @return 任务状态，任务不存在或已过期时返回null
+     */
+    TaskStatusVO getExportStatus(String taskId);
+
+    /**
+     * 获取已完成导出任务的PDF文件
+     *
+     * @param taskId 任务ID
+     * @return PDF文件路径，任务不存在、未完成或已过期时返回null
+     */
+    Path getExportFile(String taskId);
+}
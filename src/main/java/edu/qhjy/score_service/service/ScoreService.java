@@ -6,6 +6,7 @@ import edu.qhjy.score_service.domain.entity.KskmxxEntity;
 import edu.qhjy.score_service.domain.vo.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.OutputStream;
 import java.util.List;
 
 /**
@@ -136,6 +137,31 @@ public interface ScoreService {
      */
     byte[] generateExcelTemplate(String ksjhdm, String kmmc, String szsmc, String kqmc, String xxmc);
 
+    /**
+     * 生成Excel导入模板前的参数校验和成绩记录初始化
+     *
+     * @param ksjhdm 考试计划代码
+     * @param kmmc   科目名称
+     * @param szsmc  地市名称（必传）
+     * @param kqmc   考区名称（必传）
+     * @param xxmc   学校名称（必传）
+     */
+    void prepareExcelTemplate(String ksjhdm, String kmmc, String szsmc, String kqmc, String xxmc);
+
+    /**
+     * 将Excel导入模板直接写入输出流
+     * 学生数据通过游标逐行读取，不在内存中保留学生列表和文件字节，需先调用prepareExcelTemplate
+     *
+     * @param ksjhdm       考试计划代码
+     * @param kmmc         科目名称
+     * @param szsmc        地市名称
+     * @param kqmc         考区名称
+     * @param xxmc         学校名称
+     * @param outputStream 输出流，由调用方关闭
+     */
+    void writeExcelTemplate(String ksjhdm, String kmmc, String szsmc, String kqmc, String xxmc,
+                            OutputStream outputStream);
+
     /**
      * 导入Excel成绩文件
      *
@@ -0,0 +1,279 @@
+package edu.qhjy.score_service.service;
+
+import edu.qhjy.score_service.mapper.primary.ScoreStatisticsCubeMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 成绩统计汇总服务
+ * 维护汇总表KSCJ_TJHZ：成绩导入、等级赋分、等级调整后按（考试计划、科目）整片重建，
+ * 重建在事务提交后异步执行，同一分片排队中的重复请求合并为一次。
+ * 统计分析接口读取汇总表，分片尚未汇总时先同步汇总一次。
+ * 每次重建先锁定分片状态表KSCJ_TJHZ_ZT中的对应行，读路径补齐、异步刷新、手动重建以及其他节点上的重建
+ * 对同一分片依次执行，不会重复插入；汇总表或状态表不存在时统计接口回退为直接扫描kscj
+ *
+ * @author dadalv
+ * @since 2025-08-01
+ */
+@Slf4j
+@Service
+public class ScoreStatisticsCubeService {
+
+    private static final String ALL_SUBJECTS = "*";
+    private static final String[] STATISTICS_CACHES = {"statistics", "trend_analysis"};
+
+    @Autowired
+    private ScoreStatisticsCubeMapper cubeMapper;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    // 关闭后统计接口回退为直接扫描kscj（需先执行db/kscj_tjhz.sql建表）
+    @Value("${statistics.cube.enabled:false}")
+    private boolean enabled;
+    @Value("${statistics.cube.queue-capacity:200}")
+    private int refreshQueueCapacity;
+
+    // 汇总重建线程池（单线程，避免多个分片同时扫描kscj）
+    private volatile ThreadPoolExecutor refreshExecutor;
+
+    // 汇总表是否存在（首次使用时检查一次）
+    private volatile Boolean tablesAvailable;
+
+    // 已排队尚未开始的重建分片（ksjhdm:kmmc，kmmc为*表示整个考试计划）
+    private final Set<String> pendingRefreshes = ConcurrentHashMap.newKeySet();
+
+    // 初始化线程池
+    private ThreadPoolExecutor getRefreshExecutor() {
+        if (refreshExecutor == null) {
+            synchronized (this) {
+                if (refreshExecutor == null) {
+                    ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                            1,
+                            1,
+                            60,
+                            TimeUnit.SECONDS,
+                            new LinkedBlockingQueue<>(refreshQueueCapacity),
+                            new ThreadFactory() {
+                                private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+                                @Override
+                                public Thread newThread(Runnable r) {
+                                    Thread t = new Thread(r, "statistics-cube-" + threadNumber.getAndIncrement());
+                                    t.setDaemon(false);
+                                    return t;
+                                }
+                            },
+                            new ThreadPoolExecutor.CallerRunsPolicy());
+                    executor.allowCoreThreadTimeOut(true);
+                    refreshExecutor = executor;
+                }
+            }
+        }
+        return refreshExecutor;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (refreshExecutor != null && !refreshExecutor.isShutdown()) {
+            log.info("正在关闭成绩统计汇总线程池...");
+            refreshExecutor.shutdown();
+            try {
+                if (!refreshExecutor.awaitTermination(30, TimeUnit.SECONDS)) {
+                    refreshExecutor.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                refreshExecutor.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+            log.info("成绩统计汇总线程池已关闭");
+        }
+    }
+
+    /**
+     * 是否使用汇总表：配置开启且汇总表已创建
+     */
+    public boolean isEnabled() {
+        if (!enabled) {
+            return false;
+        }
+        Boolean available = tablesAvailable;
+        if (available == null) {
+            synchronized (this) {
+                if (tablesAvailable == null) {
+                    tablesAvailable = probeTables();
+                }
+                available = tablesAvailable;
+            }
+        }
+        return available;
+    }
+
+    private boolean probeTables() {
+        try {
+            cubeMapper.probeTables();
+            return true;
+        } catch (DataAccessException e) {
+            log.warn("成绩统计汇总表KSCJ_TJHZ/KSCJ_TJHZ_ZT不可用，统计接口改为直接查询kscj（建表脚本见db/kscj_tjhz.sql）: {}",
+                    e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 异步重建汇总分片；当前线程有事务时在事务提交后提交任务，回滚则不重建
+     *
+     * @param ksjhdm 考试计划代码
+     * @param kmmc   科目名称，为空时重建该考试计划下全部科目
+     */
+    public void refreshAsync(String ksjhdm, String kmmc) {
+        if (!StringUtils.hasText(ksjhdm) || !isEnabled()) {
+            return;
+        }
+        String sliceKey = ksjhdm + ":" + (StringUtils.hasText(kmmc) ? kmmc : ALL_SUBJECTS);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    submitRefresh(sliceKey, ksjhdm, kmmc);
+                }
+            });
+        } else {
+            submitRefresh(sliceKey, ksjhdm, kmmc);
+        }
+    }
+
+    private void submitRefresh(String sliceKey, String ksjhdm, String kmmc) {
+        if (!pendingRefreshes.add(sliceKey)) {
+            log.debug("汇总分片已在排队，合并重建请求: {}", sliceKey);
+            return;
+        }
+        getRefreshExecutor().execute(() -> {
+            // 开始前移出排队集合，重建过程中的新变更会再排一次
+            pendingRefreshes.remove(sliceKey);
+            try {
+                refresh(ksjhdm, kmmc);
+            } catch (Exception e) {
+                log.error("成绩统计汇总重建失败: {}", sliceKey, e);
+            }
+        });
+    }
+
+    /**
+     * 同步重建汇总分片并清除统计缓存
+     *
+     * @param ksjhdm 考试计划代码
+     * @param kmmc   科目名称，为空时重建该考试计划下全部科目
+     * @return 重建的科目数
+     */
+    public int refresh(String ksjhdm, String kmmc) {
+        List<String> subjects = StringUtils.hasText(kmmc)
+                ? Collections.singletonList(kmmc)
+                : cubeMapper.selectSubjectsByKsjhdm(ksjhdm);
+        for (String subject : subjects) {
+            rebuildSlice(ksjhdm, subject, false);
+        }
+        evictStatisticsCaches();
+        return subjects.size();
+    }
+
+    /**
+     * 补齐有正考成绩但尚未汇总的分片（汇总表上线前的历史考试计划）
+     *
+     * @return 补齐的分片数
+     */
+    public int rebuildMissing() {
+        List<Map<String, Object>> slices = cubeMapper.selectMissingSlices();
+        for (Map<String, Object> slice : slices) {
+            rebuildSlice((String) slice.get("ksjhdm"), (String) slice.get("kmmc"), true);
+        }
+        if (!slices.isEmpty()) {
+            evictStatisticsCaches();
+        }
+        log.info("成绩统计汇总补齐完成，共 {} 个分片", slices.size());
+        return slices.size();
+    }
+
+    /**
+     * 读取前确认分片已汇总，未汇总时同步汇总一次（没有成绩的空分片同样记为已汇总，不会反复扫描kscj）
+     */
+    public void ensureSlice(String ksjhdm, String kmmc) {
+        Integer built = cubeMapper.selectSliceBuilt(ksjhdm, kmmc);
+        if (built == null || built != 1) {
+            rebuildSlice(ksjhdm, kmmc, true);
+        }
+    }
+
+    /**
+     * 重建分片
+     *
+     * @param onlyIfMissing 为true时拿到分片锁后若已被其他线程或节点汇总则跳过
+     */
+    private void rebuildSlice(String ksjhdm, String kmmc, boolean onlyIfMissing) {
+        ensureSliceMarker(ksjhdm, kmmc);
+        long start = System.currentTimeMillis();
+        // 锁定状态行后删除、插入并标记，同一分片的重建依次执行；三步在同一事务中提交，读取方不会看到半个分片
+        Boolean rebuilt = transactionTemplate.execute(status -> {
+            Integer built = cubeMapper.lockSliceMarker(ksjhdm, kmmc);
+            if (onlyIfMissing && built != null && built == 1) {
+                return false;
+            }
+            cubeMapper.deleteSlice(ksjhdm, kmmc);
+            cubeMapper.insertSlice(ksjhdm, kmmc);
+            cubeMapper.markSliceBuilt(ksjhdm, kmmc);
+            return true;
+        });
+        if (Boolean.TRUE.equals(rebuilt)) {
+            log.info("成绩统计汇总重建完成: ksjhdm={}, kmmc={}, 耗时={}ms",
+                    ksjhdm, kmmc, System.currentTimeMillis() - start);
+        }
+    }
+
+    /**
+     * 确保分片状态行存在（在重建事务之外自动提交），并发创建时以先提交的为准
+     */
+    private void ensureSliceMarker(String ksjhdm, String kmmc) {
+        if (cubeMapper.selectSliceBuilt(ksjhdm, kmmc) != null) {
+            return;
+        }
+        try {
+            cubeMapper.insertSliceMarker(ksjhdm, kmmc);
+        } catch (DuplicateKeyException e) {
+            log.debug("汇总分片状态行已由其他线程创建: ksjhdm={}, kmmc={}", ksjhdm, kmmc);
+        }
+    }
+
+    private void evictStatisticsCaches() {
+        for (String cacheName : STATISTICS_CACHES) {
+            Cache cache = cacheManager.getCache(cacheName);
+            if (cache != null) {
+                cache.clear();
+            }
+        }
+    }
+}
@@ -1,11 +1,13 @@
 package edu.qhjy.score_service.service.algorithm;
 
 import edu.qhjy.score_service.domain.dto.GradeThresholdsDTO;
+import edu.qhjy.score_service.domain.dto.ScoreHistogramDTO;
 import edu.qhjy.score_service.domain.dto.StudentScoreRankDTO;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
@@ -32,6 +34,81 @@ public class GradeCalculationAlgorithm {
         return calculateGradeThresholds(scores, gradeRatios, szsmc, kmmc, false, 0.02);
     }
 
+    /**
+     * 计算等级临界值（支持选择排名引擎）
+     *
+     * @param scores                     按成绩降序排列的学生成绩列表
+     * @param gradeRatios                等级比例配置
+     * @param szsmc                      市州名称
+     * @param kmmc                       科目名称
+     * @param useEGradePriorityAlgorithm 是否使用E等级优先算法
+     * @param eGradeMinPercentage        E等级最小百分比
+     * @param usePrimitiveEngine         是否使用基本类型数组排名引擎
+     * @return 等级临界值
+     */
+    public static GradeThresholdsDTO calculateGradeThresholds(List<StudentScoreRankDTO> scores,
+                                                              Map<String, Double> gradeRatios,
+                                                              String szsmc, String kmmc,
+                                                              boolean useEGradePriorityAlgorithm,
+                                                              double eGradeMinPercentage,
+                                                              boolean usePrimitiveEngine) {
+        if (usePrimitiveEngine && scores != null && !scores.isEmpty()) {
+            RankedScoreArray rankedScores = RankedScoreArray.fromSortedRanks(scores);
+            if (rankedScores != null) {
+                return PrimitiveGradeCalculationAlgorithm.calculateGradeThresholds(rankedScores, gradeRatios,
+                        szsmc, kmmc, useEGradePriorityAlgorithm, eGradeMinPercentage);
+            }
+            log.warn("成绩无法转换为一位小数定点数，使用原排名引擎: city={}, subject={}", szsmc, kmmc);
+        }
+        return calculateGradeThresholds(scores, gradeRatios, szsmc, kmmc,
+                useEGradePriorityAlgorithm, eGradeMinPercentage);
+    }
+
+    /**
+     * 根据分数直方图计算等级临界值
+     * 直方图无法转换为定点数组或未启用基本类型引擎时，展开为成绩列表后使用原排名引擎
+     *
+     * @param histogram                  按成绩降序排列的单个市州分数直方图
+     * @param gradeRatios                等级比例配置
+     * @param szsmc                      市州名称
+     * @param kmmc                       科目名称
+     * @param useEGradePriorityAlgorithm 是否使用E等级优先算法
+     * @param eGradeMinPercentage        E等级最小百分比
+     * @param usePrimitiveEngine         是否使用基本类型数组排名引擎
+     * @return 等级临界值
+     */
+    public static GradeThresholdsDTO calculateHistogramGradeThresholds(List<ScoreHistogramDTO> histogram,
+                                                                       Map<String, Double> gradeRatios,
+                                                                       String szsmc, String kmmc,
+                                                                       boolean useEGradePriorityAlgorithm,
+                                                                       double eGradeMinPercentage,
+                                                                       boolean usePrimitiveEngine) {
+        if (histogram == null || histogram.isEmpty()) {
+            log.warn("分数直方图为空，无法计算等级临界值: city={}, subject={}", szsmc, kmmc);
+            return null;
+        }
+        if (usePrimitiveEngine) {
+            RankedScoreArray rankedScores = RankedScoreArray.fromSortedHistogram(histogram);
+            if (rankedScores != null) {
+                return PrimitiveGradeCalculationAlgorithm.calculateGradeThresholds(rankedScores, gradeRatios,
+                        szsmc, kmmc, useEGradePriorityAlgorithm, eGradeMinPercentage);
+            }
+            log.warn("成绩无法转换为一位小数定点数，使用原排名引擎: city={}, subject={}", szsmc, kmmc);
+        }
+
+        List<StudentScoreRankDTO> scores = new ArrayList<>();
+        for (ScoreHistogramDTO bucket : histogram) {
+            int count = bucket.getCount() != null ? bucket.getCount() : 0;
+            for (int i = 0; i < count; i++) {
+                StudentScoreRankDTO student = new StudentScoreRankDTO();
+                student.setFslkscj(bucket.getFslkscj());
+                scores.add(student);
+            }
+        }
+        return calculateGradeThresholds(scores, gradeRatios, szsmc, kmmc,
+                useEGradePriorityAlgorithm, eGradeMinPercentage);
+    }
+
     /**
      * 计算等级临界值（支持新旧算法）
      *
@@ -58,14 +135,7 @@ public class GradeCalculationAlgorithm {
         log.info("开始计算等级临界值: city={}, subject={}, totalCount={}, useNewAlgorithm={}",
                 szsmc, kmmc, totalCount, useEGradePriorityAlgorithm);
 
-        GradeThresholdsDTO thresholds = new GradeThresholdsDTO();
-        thresholds.setSzsmc(szsmc);
-        thresholds.setKmmc(kmmc);
-        thresholds.setTotalCount(totalCount);
-
-        int aCount, bCount, cCount, dCount, eCount;
         DEBoundaryResult deBoundary = null; // 缓存DE分界线结果，避免重复计算
-
         if (useEGradePriorityAlgorithm) {
             // 新算法：E等级优先
             log.info("使用E等级优先算法，市州: {}, 科目: {}, 总人数: {}, E等级最小百分比: {}%",
@@ -73,7 +143,68 @@ public class GradeCalculationAlgorithm {
 
             // 1. 先确定DE分界线和E等级人数（只计算一次）
             deBoundary = findDEBoundary(scores, eGradeMinPercentage);
-            eCount = deBoundary.getECount();
+        } else {
+            // 原算法：E等级作为缓冲区
+            log.info("使用原算法（E等级作为缓冲区），市州: {}, 科目: {}, 总人数: {}", szsmc, kmmc, totalCount);
+        }
+
+        int[] gradeCounts = allocateGradeCounts(totalCount, gradeRatios,
+                deBoundary != null ? deBoundary.getECount() : null);
+        int aCount = gradeCounts[0];
+        int bCount = gradeCounts[1];
+        int cCount = gradeCounts[2];
+        int dCount = gradeCounts[3];
+        int eCount = gradeCounts[4];
+
+        GradeThresholdsDTO thresholds = createThresholds(szsmc, kmmc, totalCount, gradeCounts);
+
+        // 计算临界值
+        log.info("计算等级临界值: city={}, subject={}, 人数分布 A={}, B={}, C={}, D={}, E={}",
+                szsmc, kmmc, aCount, bCount, cCount, dCount, eCount);
+
+        if (useEGradePriorityAlgorithm) {
+            // 新算法：使用缓存的DE分界线结果，避免重复计算
+            thresholds.setGradeAThreshold(findOptimalThreshold(scores, aCount, "A"));
+            thresholds.setGradeBThreshold(findOptimalThreshold(scores, aCount + bCount, "B"));
+            thresholds.setGradeCThreshold(findOptimalThreshold(scores, aCount + bCount + cCount, "C"));
+            thresholds.setGradeDThreshold(deBoundary.getBoundaryScore());
+            thresholds.setGradeEThreshold(scores.get(scores.size() - 1).getFslkscj());
+
+            log.info("新算法阈值: A阈值={}, B阈值={}, C阈值={}, D阈值(DE分界线)={}, E阈值={}",
+                    thresholds.getGradeAThreshold(), thresholds.getGradeBThreshold(),
+                    thresholds.getGradeCThreshold(), thresholds.getGradeDThreshold(),
+                    thresholds.getGradeEThreshold());
+        } else {
+            // 原算法：按累计人数计算所有阈值
+            thresholds.setGradeAThreshold(findOptimalThreshold(scores, aCount, "A"));
+            thresholds.setGradeBThreshold(findOptimalThreshold(scores, aCount + bCount, "B"));
+            thresholds.setGradeCThreshold(findOptimalThreshold(scores, aCount + bCount + cCount, "C"));
+            thresholds.setGradeDThreshold(findOptimalThreshold(scores, aCount + bCount + cCount + dCount, "D"));
+            // 设置E等级阈值为最低分，而不是0
+            thresholds.setGradeEThreshold(scores.get(scores.size() - 1).getFslkscj());
+        }
+
+        log.info("等级临界值计算完成: city={}, subject={}, A阈值={}, B阈值={}, C阈值={}, D阈值={}, E阈值={}, E人数={}",
+                szsmc, kmmc, thresholds.getGradeAThreshold(), thresholds.getGradeBThreshold(),
+                thresholds.getGradeCThreshold(), thresholds.getGradeDThreshold(), thresholds.getGradeEThreshold(),
+                thresholds.getGradeECount());
+
+        return thresholds;
+    }
+
+    /**
+     * 按等级比例分配各等级人数
+     *
+     * @param totalCount     总人数
+     * @param gradeRatios    等级比例配置
+     * @param priorityECount E等级优先算法确定的E等级人数，为null时使用原算法（E等级作为缓冲区）
+     * @return 各等级人数，依次为A、B、C、D、E
+     */
+    static int[] allocateGradeCounts(int totalCount, Map<String, Double> gradeRatios, Integer priorityECount) {
+        int aCount, bCount, cCount, dCount, eCount;
+
+        if (priorityECount != null) {
+            eCount = priorityECount;
             int abcdTotalCount = totalCount - eCount;
 
             // 2. 在剩余学生中按固定比例划分ABCD（保持原有比例）
@@ -98,9 +229,6 @@ public class GradeCalculationAlgorithm {
                     aCount, bCount, cCount, dCount, eCount, aCount + bCount + cCount + dCount);
 
         } else {
-            // 原算法：E等级作为缓冲区
-            log.info("使用原算法（E等级作为缓冲区），市州: {}, 科目: {}, 总人数: {}", szsmc, kmmc, totalCount);
-
             aCount = (int) Math.round(totalCount * gradeRatios.get("A"));
             bCount = (int) Math.round(totalCount * gradeRatios.get("B"));
             cCount = (int) Math.round(totalCount * gradeRatios.get("C"));
@@ -129,44 +257,24 @@ public class GradeCalculationAlgorithm {
             }
         }
 
-        // 设置人数
-        thresholds.setGradeACount(aCount);
-        thresholds.setGradeBCount(bCount);
-        thresholds.setGradeCCount(cCount);
-        thresholds.setGradeDCount(dCount);
-        thresholds.setGradeECount(eCount);
-
-        // 计算临界值
-        log.info("计算等级临界值: city={}, subject={}, 人数分布 A={}, B={}, C={}, D={}, E={}",
-                szsmc, kmmc, aCount, bCount, cCount, dCount, eCount);
-
-        if (useEGradePriorityAlgorithm) {
-            // 新算法：使用缓存的DE分界线结果，避免重复计算
-            thresholds.setGradeAThreshold(findOptimalThreshold(scores, aCount, "A"));
-            thresholds.setGradeBThreshold(findOptimalThreshold(scores, aCount + bCount, "B"));
-            thresholds.setGradeCThreshold(findOptimalThreshold(scores, aCount + bCount + cCount, "C"));
-            thresholds.setGradeDThreshold(deBoundary.getBoundaryScore());
-            thresholds.setGradeEThreshold(scores.get(scores.size() - 1).getFslkscj());
-
-            log.info("新算法阈值: A阈值={}, B阈值={}, C阈值={}, D阈值(DE分界线)={}, E阈值={}",
-                    thresholds.getGradeAThreshold(), thresholds.getGradeBThreshold(),
-                    thresholds.getGradeCThreshold(), thresholds.getGradeDThreshold(),
-                    thresholds.getGradeEThreshold());
-        } else {
-            // 原算法：按累计人数计算所有阈值
-            thresholds.setGradeAThreshold(findOptimalThreshold(scores, aCount, "A"));
-            thresholds.setGradeBThreshold(findOptimalThreshold(scores, aCount + bCount, "B"));
-            thresholds.setGradeCThreshold(findOptimalThreshold(scores, aCount + bCount + cCount, "C"));
-            thresholds.setGradeDThreshold(findOptimalThreshold(scores, aCount + bCount + cCount + dCount, "D"));
-            // 设置E等级阈值为最低分，而不是0
-            thresholds.setGradeEThreshold(scores.get(scores.size() - 1).getFslkscj());
-        }
-
-        log.info("等级临界值计算完成: city={}, subject={}, A阈值={}, B阈值={}, C阈值={}, D阈值={}, E阈值={}, E人数={}",
-                szsmc, kmmc, thresholds.getGradeAThreshold(), thresholds.getGradeBThreshold(),
-                thresholds.getGradeCThreshold(), thresholds.getGradeDThreshold(), thresholds.getGradeEThreshold(),
-                thresholds.getGradeECount());
+        return new int[]{aCount, bCount, cCount, dCount, eCount};
+    }
 
+    /**
+     * 创建等级临界值对象并设置各等级人数
+     *
+     * @param gradeCounts 各等级人数，依次为A、B、C、D、E
+     */
+    static GradeThresholdsDTO createThresholds(String szsmc, String kmmc, int totalCount, int[] gradeCounts) {
+        GradeThresholdsDTO thresholds = new GradeThresholdsDTO();
+        thresholds.setSzsmc(szsmc);
+        thresholds.setKmmc(kmmc);
+        thresholds.setTotalCount(totalCount);
+        thresholds.setGradeACount(gradeCounts[0]);
+        thresholds.setGradeBCount(gradeCounts[1]);
+        thresholds.setGradeCCount(gradeCounts[2]);
+        thresholds.setGradeDCount(gradeCounts[3]);
+        thresholds.setGradeECount(gradeCounts[4]);
         return thresholds;
     }
 
@@ -325,7 +433,7 @@ public class GradeCalculationAlgorithm {
      * @param thresholds 等级临界值
      * @return 等级
      */
-    private static String determineGrade(BigDecimal score, GradeThresholdsDTO thresholds) {
+    static String determineGrade(BigDecimal score, GradeThresholdsDTO thresholds) {
         if (score.compareTo(thresholds.getGradeAThreshold()) >= 0) {
             return "A";
         } else if (score.compareTo(thresholds.getGradeBThreshold()) >= 0) {
@@ -0,0 +1,175 @@
+package edu.qhjy.score_service.service.algorithm;
+
+import edu.qhjy.score_service.domain.dto.GradeThresholdsDTO;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Map;
+
+/**
+ * 基本类型数组等级计算引擎
+ * 基于十分位定点成绩数组和同分段索引计算等级临界值，同分范围通过二分查找确定，
+ * 计算结果与 {@link GradeCalculationAlgorithm} 完全一致
+ */
+@Slf4j
+public class PrimitiveGradeCalculationAlgorithm {
+
+    /**
+     * 计算等级临界值
+     *
+     * @param scores                     按成绩降序排列的定点成绩数组
+     * @param gradeRatios                等级比例配置
+     * @param szsmc                      市州名称
+     * @param kmmc                       科目名称
+     * @param useEGradePriorityAlgorithm 是否使用E等级优先算法
+     * @param eGradeMinPercentage        E等级最小百分比
+     * @return 等级临界值
+     */
+    public static GradeThresholdsDTO calculateGradeThresholds(RankedScoreArray scores,
+                                                              Map<String, Double> gradeRatios,
+                                                              String szsmc, String kmmc,
+                                                              boolean useEGradePriorityAlgorithm,
+                                                              double eGradeMinPercentage) {
+
+        if (scores == null || scores.size() == 0) {
+            log.warn("成绩数据为空，无法计算等级临界值: city={}, subject={}", szsmc, kmmc);
+            return null;
+        }
+
+        int totalCount = scores.size();
+        log.info("开始计算等级临界值（基本类型引擎）: city={}, subject={}, totalCount={}, distinctScores={}, useNewAlgorithm={}",
+                szsmc, kmmc, totalCount, scores.runCount(), useEGradePriorityAlgorithm);
+
+        DEBoundary deBoundary = null;
+        if (useEGradePriorityAlgorithm) {
+            deBoundary = findDEBoundary(scores, eGradeMinPercentage);
+        }
+
+        int[] gradeCounts = GradeCalculationAlgorithm.allocateGradeCounts(totalCount, gradeRatios,
+                deBoundary != null ? deBoundary.eCount : null);
+        int aCount = gradeCounts[0];
+        int bCount = gradeCounts[1];
+        int cCount = gradeCounts[2];
+        int dCount = gradeCounts[3];
+
+        GradeThresholdsDTO thresholds = GradeCalculationAlgorithm.createThresholds(
+                szsmc, kmmc, totalCount, gradeCounts);
+
+        thresholds.setGradeAThreshold(scores.scoreAt(findOptimalThresholdIndex(scores, aCount)));
+        thresholds.setGradeBThreshold(scores.scoreAt(findOptimalThresholdIndex(scores, aCount + bCount)));
+        thresholds.setGradeCThreshold(scores.scoreAt(findOptimalThresholdIndex(scores, aCount + bCount + cCount)));
+        if (deBoundary != null) {
+            thresholds.setGradeDThreshold(scores.scoreAt(deBoundary.boundaryIndex));
+        } else {
+            thresholds.setGradeDThreshold(scores.scoreAt(
+                    findOptimalThresholdIndex(scores, aCount + bCount + cCount + dCount)));
+        }
+        // 设置E等级阈值为最低分，而不是0
+        thresholds.setGradeEThreshold(scores.scoreAt(totalCount - 1));
+
+        log.info("等级临界值计算完成（基本类型引擎）: city={}, subject={}, A阈值={}, B阈值={}, C阈值={}, D阈值={}, E阈值={}, E人数={}",
+                szsmc, kmmc, thresholds.getGradeAThreshold(), thresholds.getGradeBThreshold(),
+                thresholds.getGradeCThreshold(), thresholds.getGradeDThreshold(), thresholds.getGradeEThreshold(),
+                thresholds.getGradeECount());
+
+        return thresholds;
+    }
+
+    /**
+     * 寻找DE分界线（E等级优先算法）
+     * 找到最接近98%但小于98%的累计百分比对应的分数线
+     *
+     * @param scores              按成绩降序排列的定点成绩数组
+     * @param eGradeMinPercentage E等级最小百分比（如0.02表示2%）
+     * @return DE分界线所在下标和E等级起始下标
+     */
+    private static DEBoundary findDEBoundary(RankedScoreArray scores, double eGradeMinPercentage) {
+        int totalCount = scores.size();
+        double targetPercentile = 1.0 - eGradeMinPercentage;
+
+        int targetIndex = (int) Math.floor(totalCount * targetPercentile);
+        if (targetIndex >= totalCount) {
+            targetIndex = totalCount - 1;
+        }
+        if (targetIndex < 0) {
+            targetIndex = 0;
+        }
+
+        // 二分查找同分范围
+        int sameScoreStart = scores.runStart(targetIndex);
+        int sameScoreEnd = scores.runEnd(targetIndex);
+
+        // 同分都进入E等级时的累计百分比
+        double option2Percentage = (double) (sameScoreEnd + 1) / totalCount;
+
+        int eStartIndex;
+        int boundaryIndex;
+        if (option2Percentage >= targetPercentile) {
+            // 同分都进入E等级时达到98%，则同分都不进入E等级
+            eStartIndex = sameScoreStart;
+            boundaryIndex = sameScoreStart > 0 ? sameScoreStart - 1 : targetIndex;
+        } else {
+            // 两个选项都 < 98%，选择更大的那个（更接近98%）
+            eStartIndex = sameScoreEnd + 1;
+            boundaryIndex = targetIndex;
+        }
+
+        // 确保E等级至少有1个学生
+        if (eStartIndex >= totalCount) {
+            eStartIndex = totalCount - 1;
+            boundaryIndex = eStartIndex - 1;
+        }
+
+        int eCount = totalCount - eStartIndex;
+        log.debug("DE分界线确定（基本类型引擎）: 分界分数={}, E等级起始索引={}, E等级人数={}",
+                scores.scoreAt(boundaryIndex), eStartIndex, eCount);
+
+        return new DEBoundary(boundaryIndex, eCount);
+    }
+
+    /**
+     * 寻找最优等级临界值所在下标
+     * 处理同分情况，选择最接近目标人数的临界值
+     *
+     * @param scores      按成绩降序排列的定点成绩数组
+     * @param targetCount 目标人数（累计）
+     * @return 临界分数所在下标
+     */
+    private static int findOptimalThresholdIndex(RankedScoreArray scores, int targetCount) {
+        if (targetCount >= scores.size()) {
+            // 目标人数超过总人数时返回最低分数，确保所有学生都能被正确分级
+            return scores.size() - 1;
+        }
+
+        int targetIndex = targetCount - 1;
+        int sameScoreStart = scores.runStart(targetIndex);
+        int sameScoreEnd = scores.runEnd(targetIndex);
+
+        // 没有同分情况，直接返回
+        if (sameScoreStart == sameScoreEnd) {
+            return targetIndex;
+        }
+
+        int diff1 = Math.abs(sameScoreStart - targetCount); // 同分都不包含
+        int diff2 = Math.abs(sameScoreEnd + 1 - targetCount); // 同分都包含
+
+        if (diff1 <= diff2) {
+            // 选择较高的分数作为临界值（同分都不达到该等级）
+            return sameScoreStart > 0 ? sameScoreStart - 1 : targetIndex;
+        }
+        // 选择当前分数作为临界值（同分都达到该等级）
+        return targetIndex;
+    }
+
+    /**
+     * DE分界线查找结果
+     */
+    private static class DEBoundary {
+        private final int boundaryIndex;
+        private final int eCount;
+
+        DEBoundary(int boundaryIndex, int eCount) {
+            this.boundaryIndex = boundaryIndex;
+            this.eCount = eCount;
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package edu.qhjy.score_service.service.algorithm;
+
+import edu.qhjy.score_service.domain.dto.ScoreHistogramDTO;
+import edu.qhjy.score_service.domain.dto.StudentScoreRankDTO;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.List;
+
+/**
+ * 降序排列的定点成绩数组
+ * 成绩以一位小数的定点整数（十分位）按同分段压缩保存，并附带同分段起始下标索引，供基本类型排名引擎使用
+ */
+public class RankedScoreArray {
+
+    /**
+     * 定点小数位数（十分位）
+     */
+    private static final int FIXED_POINT_SCALE = 1;
+
+    /**
+     * 每个同分段的十分位定点成绩，按降序排列
+     */
+    private final int[] runScores;
+
+    /**
+     * 每个同分段在排名中的起始下标（升序），末尾附加哨兵值（总人数）
+     */
+    private final int[] runStarts;
+
+    /**
+     * 同分段数量
+     */
+    private final int runCount;
+
+    /**
+     * 源数据的小数位数，还原BigDecimal时保持与数据库列一致
+     */
+    private final int sourceScale;
+
+    private RankedScoreArray(int[] runScores, int[] runStarts, int runCount, int sourceScale) {
+        this.runScores = runScores;
+        this.runStarts = runStarts;
+        this.runCount = runCount;
+        this.sourceScale = sourceScale;
+    }
+
+    /**
+     * 由已按成绩降序排列的十分位定点成绩构建
+     *
+     * @param tenths      十分位定点成绩（如85.5表示为855）
+     * @param sourceScale 还原BigDecimal时使用的小数位数
+     */
+    public static RankedScoreArray fromSortedTenths(int[] tenths, int sourceScale) {
+        Builder builder = new Builder(tenths.length);
+        for (int score : tenths) {
+            builder.add(score, 1);
+        }
+        return builder.build(sourceScale);
+    }
+
+    /**
+     * 由按成绩降序排列的学生排名列表构建
+     *
+     * @param ranks 按成绩降序排列的学生成绩列表
+     * @return 定点成绩数组；存在空成绩或超过一位小数的成绩时返回null
+     */
+    public static RankedScoreArray fromSortedRanks(List<StudentScoreRankDTO> ranks) {
+        Builder builder = new Builder(ranks.size());
+        int scale = 0;
+        for (StudentScoreRankDTO rank : ranks) {
+            Integer tenths = toTenths(rank.getFslkscj());
+            if (tenths == null) {
+                return null;
+            }
+            builder.add(tenths, 1);
+            scale = Math.max(scale, rank.getFslkscj().scale());
+        }
+        return builder.build(scale);
+    }
+
+    /**
+     * 由按成绩降序排列的分数直方图构建
+     *
+     * @param histogram 某市州按成绩降序排列的分数直方图
+     * @return 定点成绩数组；存在空成绩或超过一位小数的成绩时返回null
+     */
+    public static RankedScoreArray fromSortedHistogram(List<ScoreHistogramDTO> histogram) {
+        Builder builder = new Builder(histogram.size());
+        int scale = 0;
+        for (ScoreHistogramDTO bucket : histogram) {
+            Integer tenths = toTenths(bucket.getFslkscj());
+            if (tenths == null || bucket.getCount() == null) {
+                return null;
+            }
+            builder.add(tenths, bucket.getCount());
+            scale = Math.max(scale, bucket.getFslkscj().scale());
+        }
+        return builder.build(scale);
+    }
+
+    /**
+     * 转换为十分位定点整数，无法精确表示时返回null
+     */
+    private static Integer toTenths(BigDecimal score) {
+        if (score == null) {
+            return null;
+        }
+        try {
+            return score.movePointRight(FIXED_POINT_SCALE).intValueExact();
+        } catch (ArithmeticException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 总人数
+     */
+    public int size() {
+        return runStarts[runCount];
+    }
+
+    /**
+     * 同分段数量
+     */
+    public int runCount() {
+        return runCount;
+    }
+
+    /**
+     * 指定位置的十分位定点成绩
+     */
+    public int tenthsAt(int index) {
+        return runScores[runIndexOf(index)];
+    }
+
+    /**
+     * 指定位置的成绩（还原为BigDecimal）
+     */
+    public BigDecimal scoreAt(int index) {
+        return BigDecimal.valueOf(tenthsAt(index), FIXED_POINT_SCALE)
+                .setScale(sourceScale, RoundingMode.UNNECESSARY);
+    }
+
+    /**
+     * 指定位置所在同分段的起始下标（包含）
+     */
+    public int runStart(int index) {
+        return runStarts[runIndexOf(index)];
+    }
+
+    /**
+     * 指定位置所在同分段的结束下标（包含）
+     */
+    public int runEnd(int index) {
+        return runStarts[runIndexOf(index) + 1] - 1;
+    }
+
+    /**
+     * 二分查找指定位置所在的同分段序号
+     */
+    private int runIndexOf(int index) {
+        if (index < 0 || index >= size()) {
+            throw new ArrayIndexOutOfBoundsException(index);
+        }
+        int low = 0;
+        int high = runCount - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (runStarts[mid] <= index) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * 按降序逐个追加成绩并合并同分段
+     */
+    private static class Builder {
+        private int[] runScores;
+        private int[] runStarts;
+        private int runCount;
+        private int total;
+
+        Builder(int expectedRuns) {
+            int capacity = Math.max(1, expectedRuns);
+            this.runScores = new int[capacity];
+            this.runStarts = new int[capacity + 1];
+        }
+
+        void add(int tenths, int count) {
+            if (count <= 0) {
+                return;
+            }
+            if (runCount > 0) {
+                int last = runScores[runCount - 1];
+                if (tenths > last) {
+                    throw new IllegalArgumentException("成绩必须按降序排列: index=" + total);
+                }
+                if (tenths == last) {
+                    total += count;
+                    return;
+                }
+            }
+            if (runCount == runScores.length) {
+                runScores = java.util.Arrays.copyOf(runScores, runCount * 2);
+                runStarts = java.util.Arrays.copyOf(runStarts, runCount * 2 + 1);
+            }
+            runScores[runCount] = tenths;
+            runStarts[runCount] = total;
+            runCount++;
+            total += count;
+        }
+
+        RankedScoreArray build(int sourceScale) {
+            runStarts[runCount] = total;
+            return new RankedScoreArray(runScores, runStarts, runCount, sourceScale);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package edu.qhjy.score_service.service.algorithm;
+
+import edu.qhjy.score_service.domain.dto.GradeThresholdsDTO;
+import edu.qhjy.score_service.domain.dto.ScoreHistogramDTO;
+import edu.qhjy.score_service.domain.dto.ScoreSegmentDTO;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 一分一段计算
+ * 不依赖数据库的纯计算部分，供一分一段服务和等级赋分服务共用
+ */
+public class ScoreSegmentCalculator {
+
+    /**
+     * 计算自然精度的百分比（动态精度方案）
+     * 在一位小数限制下，避免不必要的四舍五入
+     *
+     * @param count 当前计数
+     * @param total 总数
+     * @return 自然精度的百分比，最多保留一位小数；总数为0时返回0
+     */
+    public static BigDecimal calculateNaturalPrecisionPercentage(int count, int total) {
+        if (total == 0) {
+            return BigDecimal.ZERO;
+        }
+
+        // 计算精确的百分比
+        BigDecimal exactPercentage = BigDecimal.valueOf(count)
+                .multiply(BigDecimal.valueOf(100))
+                .divide(BigDecimal.valueOf(total), 10, RoundingMode.HALF_UP);
+
+        // 检查是否为整数
+        if (exactPercentage.stripTrailingZeros().scale() <= 0) {
+            return exactPercentage.setScale(0, RoundingMode.UNNECESSARY);
+        }
+
+        // 检查一位小数是否足够精确表示
+        BigDecimal oneDecimal = exactPercentage.setScale(1, RoundingMode.HALF_UP);
+        BigDecimal difference = exactPercentage.subtract(oneDecimal).abs();
+
+        // 如果差异很小（小于0.01），使用一位小数
+        if (difference.compareTo(BigDecimal.valueOf(0.01)) < 0) {
+            return oneDecimal;
+        }
+
+        // 否则使用截断到一位小数（避免四舍五入失真）
+        return exactPercentage.setScale(1, RoundingMode.DOWN);
+    }
+
+    /**
+     * 根据分数直方图生成单个市州的一分一段数据
+     * 为全省分数范围内的每个整数分数生成一条记录，等级按临界值逐分数段判定
+     *
+     * @param histogram  该市州按成绩降序排列的分数直方图
+     * @param thresholds 等级临界值，为null时使用直方图中已保存的等级
+     * @param minScore   全省最低分
+     * @param maxScore   全省最高分
+     * @return 按分数降序排列的一分一段数据
+     */
+    public static List<ScoreSegmentDTO> buildCitySegments(String ksjhdm, String kmmc, String cityName,
+                                                          List<ScoreHistogramDTO> histogram,
+                                                          GradeThresholdsDTO thresholds,
+                                                          int minScore, int maxScore) {
+        List<ScoreSegmentDTO> segments = new ArrayList<>(Math.max(0, maxScore - minScore + 1));
+
+        int totalStudents = 0;
+        for (ScoreHistogramDTO bucket : histogram) {
+            totalStudents += bucket.getCount();
+        }
+
+        int bucketIndex = 0;
+        int cumulativeCount = 0;
+
+        // 为全省分数范围内的每个整数分数生成记录，直方图已按分数降序排列，单次遍历即可
+        for (int score = maxScore; score >= minScore; score--) {
+            int countAtScore = 0;
+            String grade = null;
+
+            // 跳过高于当前分数的直方图记录（不在全省分数范围内）
+            while (bucketIndex < histogram.size()
+                    && histogram.get(bucketIndex).getFslkscj().intValue() > score) {
+                bucketIndex++;
+            }
+            // 成绩数据在导入时已经四舍五入为整数，同一整数分数只取最高记录的等级
+            while (bucketIndex < histogram.size()
+                    && histogram.get(bucketIndex).getFslkscj().intValue() == score) {
+                ScoreHistogramDTO bucket = histogram.get(bucketIndex);
+                if (countAtScore == 0) {
+                    grade = thresholds != null
+                            ? GradeCalculationAlgorithm.determineGrade(bucket.getFslkscj(), thresholds)
+                            : bucket.getGrade();
+                }
+                countAtScore += bucket.getCount();
+                bucketIndex++;
+            }
+            cumulativeCount += countAtScore;
+
+            // 计算该市州的累计百分比（动态精度方案）
+            BigDecimal cumulativePercentage = calculateNaturalPrecisionPercentage(cumulativeCount, totalStudents);
+
+            ScoreSegmentDTO segment = ScoreSegmentDTO.builder()
+                    .score(BigDecimal.valueOf(score))
+                    .count(countAtScore)
+                    .cumulativeCount(cumulativeCount)
+                    .cumulativePercentage(cumulativePercentage)
+                    .grade(grade)
+                    .rank(cumulativeCount)
+                    .ksjhdm(ksjhdm)
+                    .kmmc(kmmc)
+                    .szsmc(cityName)
+                    .build();
+
+            segments.add(segment);
+        }
+
+        return segments;
+    }
+}
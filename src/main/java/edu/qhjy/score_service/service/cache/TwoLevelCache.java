@@ -0,0 +1,157 @@
+package edu.qhjy.score_service.service.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import edu.qhjy.score_service.domain.vo.CacheTierStatsVO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.support.AbstractValueAdaptingCache;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 两级缓存
+ * L1为本机Caffeine缓存（容量受限，过期时间不超过Redis区域的过期时间），L2为Redis缓存。
+ * 读取先查L1，未命中再查Redis并回填L1；写入和清除同时作用于两级，并通过Redis发布订阅通知其他实例清除L1。
+ * L1中保存的是对象引用，调用方不应修改缓存返回的对象
+ *
+ * @author dadalv
+ * @since 2025-08-01
+ */
+@Slf4j
+public class TwoLevelCache extends AbstractValueAdaptingCache {
+
+    private final String name;
+    private final Cache<Object, Object> localCache;
+    private final org.springframework.cache.Cache redisCache;
+    private final TwoLevelCacheManager.InvalidationPublisher publisher;
+
+    private final LongAdder redisHits = new LongAdder();
+    private final LongAdder redisMisses = new LongAdder();
+    private final LongAdder remoteInvalidations = new LongAdder();
+
+    TwoLevelCache(String name, Cache<Object, Object> localCache, org.springframework.cache.Cache redisCache,
+                  TwoLevelCacheManager.InvalidationPublisher publisher) {
+        // Redis缓存区域不缓存null值，两级保持一致
+        super(false);
+        this.name = name;
+        this.localCache = localCache;
+        this.redisCache = redisCache;
+        this.publisher = publisher;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return this;
+    }
+
+    @Override
+    protected Object lookup(Object key) {
+        Object localKey = localKey(key);
+        Object value = localCache.getIfPresent(localKey);
+        if (value != null) {
+            return value;
+        }
+        ValueWrapper wrapper = redisCache.get(key);
+        if (wrapper == null || wrapper.get() == null) {
+            redisMisses.increment();
+            return null;
+        }
+        redisHits.increment();
+        value = wrapper.get();
+        localCache.put(localKey, value);
+        return value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        Object value = lookup(key);
+        if (value != null) {
+            return (T) value;
+        }
+        T loaded;
+        try {
+            loaded = valueLoader.call();
+        } catch (Exception e) {
+            throw new ValueRetrievalException(key, valueLoader, e);
+        }
+        put(key, loaded);
+        return loaded;
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        if (value == null) {
+            evict(key);
+            return;
+        }
+        redisCache.put(key, value);
+        localCache.put(localKey(key), value);
+        publisher.publish(name, localKey(key));
+    }
+
+    @Override
+    public void evict(Object key) {
+        redisCache.evict(key);
+        localCache.invalidate(localKey(key));
+        publisher.publish(name, localKey(key));
+    }
+
+    @Override
+    public void clear() {
+        redisCache.clear();
+        localCache.invalidateAll();
+        publisher.publish(name, null);
+    }
+
+    /**
+     * 收到其他实例的失效通知，只清除本机L1
+     *
+     * @param key 缓存键，为null时清空整个区域
+     */
+    void invalidateLocal(String key) {
+        remoteInvalidations.increment();
+        if (key == null) {
+            localCache.invalidateAll();
+        } else {
+            localCache.invalidate(key);
+        }
+    }
+
+    /**
+     * 分级命中统计
+     */
+    CacheTierStatsVO getStats() {
+        CacheStats localStats = localCache.stats();
+        long l2Hits = redisHits.sum();
+        long l2Misses = redisMisses.sum();
+        long l2Requests = l2Hits + l2Misses;
+        long totalRequests = localStats.requestCount();
+        return new CacheTierStatsVO()
+                .setCacheName(name)
+                .setL1Size(localCache.estimatedSize())
+                .setL1Hits(localStats.hitCount())
+                .setL1Misses(localStats.missCount())
+                .setL1HitRatio(localStats.hitRate())
+                .setL1Evictions(localStats.evictionCount())
+                .setL2Hits(l2Hits)
+                .setL2Misses(l2Misses)
+                .setL2HitRatio(l2Requests > 0 ? (double) l2Hits / l2Requests : 0D)
+                .setOverallHitRatio(totalRequests > 0
+                        ? (double) (localStats.hitCount() + l2Hits) / totalRequests : 0D)
+                .setRemoteInvalidations(remoteInvalidations.sum());
+    }
+
+    /**
+     * L1以字符串作为键，与Redis键和失效消息中的键保持一致
+     */
+    private static String localKey(Object key) {
+        return String.valueOf(key);
+    }
+}
@@ -0,0 +1,194 @@
+package edu.qhjy.score_service.service.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import edu.qhjy.score_service.domain.vo.CacheTierStatsVO;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.io.Serializable;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 两级缓存管理器
+ * 在RedisCacheManager前增加本机Caffeine缓存：每个缓存区域的L1过期时间取Redis区域过期时间与L1最大过期时间中的较小值，
+ * 条目数受限。写入和清除时通过Redis发布订阅广播失效消息，其他实例收到后清除各自的L1
+ *
+ * @author dadalv
+ * @since 2025-08-01
+ */
+@Slf4j
+public class TwoLevelCacheManager implements CacheManager, MessageListener {
+
+    private final RedisCacheManager redisCacheManager;
+    private final RedisCacheConfiguration defaultConfiguration;
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final String topic;
+    private final long localMaxSize;
+    private final Duration localMaxTtl;
+
+    // 当前实例标识，忽略自己发出的失效消息
+    private final String instanceId = UUID.randomUUID().toString();
+    private final Map<String, TwoLevelCache> caches = new ConcurrentHashMap<>();
+    private final InvalidationPublisher publisher = this::publishInvalidation;
+
+    public TwoLevelCacheManager(RedisCacheManager redisCacheManager, RedisCacheConfiguration defaultConfiguration,
+                                RedisTemplate<String, Object> redisTemplate, String topic,
+                                long localMaxSize, Duration localMaxTtl) {
+        this.redisCacheManager = redisCacheManager;
+        this.defaultConfiguration = defaultConfiguration;
+        this.redisTemplate = redisTemplate;
+        this.topic = topic;
+        this.localMaxSize = localMaxSize;
+        this.localMaxTtl = localMaxTtl;
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        return caches.computeIfAbsent(name, this::createCache);
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return Collections.unmodifiableSet(caches.keySet());
+    }
+
+    /**
+     * 各缓存区域的分级命中统计
+     */
+    public List<CacheTierStatsVO> getStats() {
+        List<CacheTierStatsVO> stats = new ArrayList<>();
+        for (TwoLevelCache cache : caches.values()) {
+            stats.add(cache.getStats());
+        }
+        stats.sort(Comparator.comparing(CacheTierStatsVO::getCacheName));
+        return stats;
+    }
+
+    /**
+     * 清空本机所有L1缓存，不影响Redis和其他实例
+     */
+    public void clearLocal() {
+        caches.values().forEach(cache -> cache.invalidateLocal(null));
+        log.info("已清空本机所有L1缓存");
+    }
+
+    /**
+     * 失效消息的频道名称
+     */
+    public String getTopic() {
+        return topic;
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        Object body;
+        try {
+            body = redisTemplate.getValueSerializer().deserialize(message.getBody());
+        } catch (Exception e) {
+            log.warn("解析缓存失效消息失败: {}", e.getMessage());
+            return;
+        }
+        if (!(body instanceof InvalidationMessage invalidation) || instanceId.equals(invalidation.getInstanceId())) {
+            return;
+        }
+        TwoLevelCache cache = caches.get(invalidation.getCacheName());
+        if (cache != null) {
+            cache.invalidateLocal(invalidation.getKey());
+            log.debug("收到缓存失效通知，区域: {}, 键: {}", invalidation.getCacheName(),
+                    invalidation.getKey() != null ? invalidation.getKey() : "全部");
+        }
+    }
+
+    private TwoLevelCache createCache(String name) {
+        Cache redisCache = redisCacheManager.getCache(name);
+        if (redisCache == null) {
+            throw new IllegalStateException("无法创建Redis缓存区域: " + name);
+        }
+        RedisCacheConfiguration configuration = redisCacheManager.getCacheConfigurations()
+                .getOrDefault(name, defaultConfiguration);
+        Duration localTtl = resolveLocalTtl(configuration);
+        log.info("创建两级缓存区域: {}, L1最大条目数: {}, L1过期时间: {}s", name, localMaxSize, localTtl.getSeconds());
+        return new TwoLevelCache(name,
+                Caffeine.newBuilder()
+                        .maximumSize(localMaxSize)
+                        .expireAfterWrite(localTtl)
+                        .recordStats()
+                        .build(),
+                redisCache, publisher);
+    }
+
+    /**
+     * L1过期时间不超过Redis区域的过期时间
+     */
+    private Duration resolveLocalTtl(RedisCacheConfiguration configuration) {
+        Duration redisTtl = configuration.getTtlFunction().getTimeToLive(Object.class, null);
+        if (redisTtl == null || redisTtl.isZero() || redisTtl.isNegative()) {
+            return localMaxTtl;
+        }
+        return redisTtl.compareTo(localMaxTtl) < 0 ? redisTtl : localMaxTtl;
+    }
+
+    private void publishInvalidation(String cacheName, String key) {
+        try {
+            redisTemplate.convertAndSend(topic, new InvalidationMessage(instanceId, cacheName, key));
+        } catch (Exception e) {
+            // 通知失败时其他实例的L1最迟在L1过期时间后失效
+            log.warn("发布缓存失效通知失败，区域: {}, 键: {}, 原因: {}", cacheName, key, e.getMessage());
+        }
+    }
+
+    /**
+     * 失效消息发布接口
+     */
+    @FunctionalInterface
+    interface InvalidationPublisher {
+        void publish(String cacheName, String key);
+    }
+
+    /**
+     * 缓存失效消息
+     */
+    @Data
+    @NoArgsConstructor
+    public static class InvalidationMessage implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * 发出消息的实例标识
+         */
+        private String instanceId;
+
+        /**
+         * 缓存区域名称
+         */
+        private String cacheName;
+
+        /**
+         * 缓存键，为null表示清空整个区域
+         */
+        private String key;
+
+        public InvalidationMessage(String instanceId, String cacheName, String key) {
+            this.instanceId = instanceId;
+            this.cacheName = cacheName;
+            this.key = key;
+        }
+    }
+}
@@ -0,0 +1,276 @@
+package edu.qhjy.score_service.service.cache;
+
+import edu.qhjy.score_service.domain.entity.YjxhEntity;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 单个考试计划的阅卷序号索引
+ * 按 (阅卷序号, 科目名称) 查找考生，数据以列式数组保存：科目名称和考生（考生号、姓名）做字典编码，
+ * 阅卷序号按顺序拼接在一个字符池中、以偏移量定位，查找使用开放寻址的int散列表，
+ * 不为每条记录保留实体对象或阅卷序号字符串
+ *
+ * @author dadalv
+ * @since 2025-08-01
+ */
+public final class YjxhIndex {
+
+    /**
+     * 科目类型为空时的存储值
+     */
+    private static final byte KMLX_NULL = -1;
+
+    private final String ksjhdm;
+    private final String ksjhmc;
+    private final int size;
+
+    // 阅卷序号字符池，第row条记录的阅卷序号为 [yjxhOffsets[row], yjxhOffsets[row + 1])
+    private final char[] yjxhChars;
+    private final int[] yjxhOffsets;
+    private final int[] kmmcIds;
+    private final int[] studentIds;
+    private final byte[] kmlxs;
+
+    private final String[] kmmcDict;
+    private final Map<String, Integer> kmmcLookup;
+    private final String[] studentKsh;
+    private final String[] studentKsxm;
+
+    /**
+     * 开放寻址散列表，保存记录下标+1，0表示空槽
+     */
+    private final int[] slots;
+    private final int slotMask;
+
+    private YjxhIndex(Builder builder) {
+        this.ksjhdm = builder.ksjhdm;
+        this.ksjhmc = builder.ksjhmc;
+        this.size = builder.size;
+        this.yjxhChars = Arrays.copyOf(builder.yjxhChars, builder.yjxhCharCount);
+        this.yjxhOffsets = Arrays.copyOf(builder.yjxhOffsets, size + 1);
+        this.kmmcIds = Arrays.copyOf(builder.kmmcIds, size);
+        this.studentIds = Arrays.copyOf(builder.studentIds, size);
+        this.kmlxs = Arrays.copyOf(builder.kmlxs, size);
+        this.kmmcDict = builder.kmmcDict.keySet().toArray(new String[0]);
+        this.kmmcLookup = builder.kmmcDict;
+        this.studentKsh = Arrays.copyOf(builder.studentKsh, builder.studentCount);
+        this.studentKsxm = Arrays.copyOf(builder.studentKsxm, builder.studentCount);
+
+        // 负载因子不超过0.5
+        int capacity = Integer.highestOneBit(Math.max(size, 1) * 2 - 1) << 1;
+        this.slots = new int[capacity];
+        this.slotMask = capacity - 1;
+        for (int row = 0; row < size; row++) {
+            int slot = hash(yjxhHashCode(row), kmmcIds[row]) & slotMask;
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & slotMask;
+            }
+            slots[slot] = row + 1;
+        }
+    }
+
+    /**
+     * 创建构建器
+     *
+     * @param ksjhdm 考试计划代码
+     */
+    public static Builder builder(String ksjhdm) {
+        return new Builder(ksjhdm);
+    }
+
+    /**
+     * 按阅卷序号和科目名称查找考生信息
+     *
+     * @return 考生信息，不存在时返回null
+     */
+    public YjxhEntity find(String yjxh, String kmmc) {
+        int row = rowOf(yjxh, kmmc);
+        if (row < 0) {
+            return null;
+        }
+        int student = studentIds[row];
+        return new YjxhEntity()
+                .setYjxh(yjxh)
+                .setKsjhdm(ksjhdm)
+                .setKsjhmc(ksjhmc)
+                .setKmmc(kmmcDict[kmmcIds[row]])
+                .setKmlx(kmlxs[row] == KMLX_NULL ? null : (int) kmlxs[row])
+                .setKsh(studentKsh[student])
+                .setKsxm(studentKsxm[student]);
+    }
+
+    /**
+     * 考试计划代码
+     */
+    public String getKsjhdm() {
+        return ksjhdm;
+    }
+
+    /**
+     * 考试计划名称
+     */
+    public String getKsjhmc() {
+        return ksjhmc;
+    }
+
+    /**
+     * 阅卷序号记录数
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 科目数量
+     */
+    public int subjectCount() {
+        return kmmcDict.length;
+    }
+
+    /**
+     * 考生数量
+     */
+    public int studentCount() {
+        return studentKsh.length;
+    }
+
+    private int rowOf(String yjxh, String kmmc) {
+        if (yjxh == null || kmmc == null) {
+            return -1;
+        }
+        Integer kmmcId = kmmcLookup.get(kmmc);
+        if (kmmcId == null) {
+            return -1;
+        }
+        int slot = hash(yjxh.hashCode(), kmmcId) & slotMask;
+        int entry;
+        while ((entry = slots[slot]) != 0) {
+            int row = entry - 1;
+            if (kmmcIds[row] == kmmcId && yjxhEquals(row, yjxh)) {
+                return row;
+            }
+            slot = (slot + 1) & slotMask;
+        }
+        return -1;
+    }
+
+    private boolean yjxhEquals(int row, String yjxh) {
+        int start = yjxhOffsets[row];
+        int length = yjxhOffsets[row + 1] - start;
+        if (length != yjxh.length()) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (yjxhChars[start + i] != yjxh.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 字符池中阅卷序号的散列值，与String.hashCode一致，查找时可直接使用查询字符串的散列值
+     */
+    private int yjxhHashCode(int row) {
+        int h = 0;
+        for (int i = yjxhOffsets[row]; i < yjxhOffsets[row + 1]; i++) {
+            h = 31 * h + yjxhChars[i];
+        }
+        return h;
+    }
+
+    private static int hash(int yjxhHash, int kmmcId) {
+        int h = yjxhHash * 31 + kmmcId;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * 逐条追加阅卷序号记录的构建器，可直接作为查询结果的流式处理目标
+     */
+    public static final class Builder {
+        private final String ksjhdm;
+        private String ksjhmc;
+        private int size;
+        private char[] yjxhChars = new char[16 * 1024];
+        private int yjxhCharCount;
+        private int[] yjxhOffsets = new int[1024 + 1];
+        private int[] kmmcIds = new int[1024];
+        private int[] studentIds = new int[1024];
+        private byte[] kmlxs = new byte[1024];
+
+        private final Map<String, Integer> kmmcDict = new LinkedHashMap<>();
+        private final Map<String, Integer> studentDict = new HashMap<>();
+        private String[] studentKsh = new String[1024];
+        private String[] studentKsxm = new String[1024];
+        private int studentCount;
+
+        private Builder(String ksjhdm) {
+            this.ksjhdm = ksjhdm;
+        }
+
+        /**
+         * 追加一条阅卷序号记录，阅卷序号或科目名称为空的记录忽略
+         */
+        public Builder add(YjxhEntity entity) {
+            if (entity.getYjxh() == null || entity.getKmmc() == null) {
+                return this;
+            }
+            if (ksjhmc == null) {
+                ksjhmc = entity.getKsjhmc();
+            }
+            if (size == kmmcIds.length) {
+                int capacity = size * 2;
+                yjxhOffsets = Arrays.copyOf(yjxhOffsets, capacity + 1);
+                kmmcIds = Arrays.copyOf(kmmcIds, capacity);
+                studentIds = Arrays.copyOf(studentIds, capacity);
+                kmlxs = Arrays.copyOf(kmlxs, capacity);
+            }
+            appendYjxh(entity.getYjxh());
+            kmmcIds[size] = kmmcDict.computeIfAbsent(entity.getKmmc(), k -> kmmcDict.size());
+            studentIds[size] = studentIdOf(entity.getKsh(), entity.getKsxm());
+            kmlxs[size] = entity.getKmlx() == null ? KMLX_NULL : entity.getKmlx().byteValue();
+            size++;
+            return this;
+        }
+
+        private void appendYjxh(String yjxh) {
+            int length = yjxh.length();
+            if (yjxhCharCount + length > yjxhChars.length) {
+                yjxhChars = Arrays.copyOf(yjxhChars, Math.max(yjxhChars.length * 2, yjxhCharCount + length));
+            }
+            yjxh.getChars(0, length, yjxhChars, yjxhCharCount);
+            yjxhCharCount += length;
+            yjxhOffsets[size + 1] = yjxhCharCount;
+        }
+
+        /**
+         * 同一考生在各科目中重复出现，考生号和姓名只保存一份
+         */
+        private int studentIdOf(String ksh, String ksxm) {
+            String key = ksh + '\u0000' + ksxm;
+            Integer id = studentDict.get(key);
+            if (id != null) {
+                return id;
+            }
+            if (studentCount == studentKsh.length) {
+                studentKsh = Arrays.copyOf(studentKsh, studentCount * 2);
+                studentKsxm = Arrays.copyOf(studentKsxm, studentCount * 2);
+            }
+            studentKsh[studentCount] = ksh;
+            studentKsxm[studentCount] = ksxm;
+            studentDict.put(key, studentCount);
+            return studentCount++;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public YjxhIndex build() {
+            return new YjxhIndex(this);
+        }
+    }
+}
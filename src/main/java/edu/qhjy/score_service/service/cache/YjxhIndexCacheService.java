@@ -0,0 +1,256 @@
+package edu.qhjy.score_service.service.cache;
+
+import edu.qhjy.score_service.mapper.primary.YjxhMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.Comparator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 阅卷序号索引本地缓存服务
+ * 按考试计划整体加载阅卷序号索引并缓存在本机内存中，同一考试计划分科目多次导入时共用一份索引，
+ * 导入校验由逐批IN查询变为内存查找。
+ * 每次获取索引时比对考试计划的阅卷序号记录数，记录数变化（追加或删除阅卷序号）时重新加载；
+ * 原地修改考生信息需等待过期或手动清除缓存。
+ * 手动清除通过两级缓存的失效通知频道广播到所有实例，各实例收到后清除本机索引
+ *
+ * @author dadalv
+ * @since 2025-08-01
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class YjxhIndexCacheService implements MessageListener {
+
+    /**
+     * 失效通知中阅卷序号索引使用的缓存区域名称
+     */
+    public static final String INVALIDATION_CACHE_NAME = "yjxhIndex";
+
+    private final YjxhMapper yjxhMapper;
+    private final RedisTemplate<String, Object> redisTemplate;
+
+    // 当前实例标识，忽略自己发出的清除通知
+    private final String instanceId = UUID.randomUUID().toString();
+
+    // 考试计划代码 -> 正在加载或已加载的索引
+    private final Map<String, CompletableFuture<CachedIndex>> indexes = new ConcurrentHashMap<>();
+
+    @Value("${dbf.import.yjxh-cache.enabled:true}")
+    private boolean enabled;
+    @Value("${dbf.import.yjxh-cache.ttl-minutes:30}")
+    private long ttlMinutes;
+    @Value("${dbf.import.yjxh-cache.max-plans:3}")
+    private int maxPlans;
+    @Value("${cache.two-level.invalidation-topic:score:cache:invalidation}")
+    private String invalidationTopic;
+
+    /**
+     * 是否启用本地索引缓存
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 获取考试计划的阅卷序号索引，未缓存、已过期或记录数变化时从数据库加载
+     *
+     * @param ksjhdm 考试计划代码
+     * @return 阅卷序号索引；未启用缓存或考试计划没有阅卷序号时返回null
+     */
+    public YjxhIndex getIndex(String ksjhdm) {
+        if (!enabled || ksjhdm == null) {
+            return null;
+        }
+        int currentCount = yjxhMapper.countByKsjhdm(ksjhdm);
+        if (currentCount == 0) {
+            indexes.remove(ksjhdm);
+            return null;
+        }
+
+        while (true) {
+            CompletableFuture<CachedIndex> future = indexes.get(ksjhdm);
+            if (future == null) {
+                CompletableFuture<CachedIndex> loading = new CompletableFuture<>();
+                if (indexes.putIfAbsent(ksjhdm, loading) != null) {
+                    continue;
+                }
+                return load(ksjhdm, loading).index;
+            }
+
+            CachedIndex cached;
+            try {
+                cached = future.join();
+            } catch (CompletionException | CancellationException e) {
+                // 其他线程加载失败，由当前线程重新加载
+                indexes.remove(ksjhdm, future);
+                continue;
+            }
+            if (cached.isExpired(ttlMinutes) || cached.sourceCount != currentCount) {
+                log.info("考试计划[{}]阅卷序号索引已失效（缓存记录数: {}, 当前记录数: {}），重新加载",
+                        ksjhdm, cached.sourceCount, currentCount);
+                indexes.remove(ksjhdm, future);
+                continue;
+            }
+            cached.lastAccessTime = System.currentTimeMillis();
+            return cached.index;
+        }
+    }
+
+    /**
+     * 获取考试计划名称，索引已缓存时不查询数据库
+     *
+     * @param ksjhdm 考试计划代码
+     * @return 考试计划名称
+     */
+    public String getKsjhmc(String ksjhdm) {
+        CompletableFuture<CachedIndex> future = indexes.get(ksjhdm);
+        if (future != null && future.isDone() && !future.isCompletedExceptionally()) {
+            String ksjhmc = future.join().index.getKsjhmc();
+            if (ksjhmc != null) {
+                return ksjhmc;
+            }
+        }
+        return yjxhMapper.selectKsjhmcByKsjhdm(ksjhdm);
+    }
+
+    /**
+     * 清除指定考试计划的索引，并通知其他实例清除
+     *
+     * @param ksjhdm 考试计划代码
+     */
+    public void evict(String ksjhdm) {
+        evictLocal(ksjhdm);
+        publishEviction(ksjhdm);
+    }
+
+    /**
+     * 清除所有考试计划的索引，并通知其他实例清除
+     */
+    public void evictAll() {
+        evictLocal(null);
+        publishEviction(null);
+    }
+
+    /**
+     * 失效通知频道名称
+     */
+    public String getTopic() {
+        return invalidationTopic;
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        Object body;
+        try {
+            body = redisTemplate.getValueSerializer().deserialize(message.getBody());
+        } catch (Exception e) {
+            log.warn("解析阅卷序号索引清除通知失败: {}", e.getMessage());
+            return;
+        }
+        if (body instanceof TwoLevelCacheManager.InvalidationMessage invalidation
+                && INVALIDATION_CACHE_NAME.equals(invalidation.getCacheName())
+                && !instanceId.equals(invalidation.getInstanceId())) {
+            log.debug("收到阅卷序号索引清除通知，考试计划: {}", invalidation.getKey() != null ? invalidation.getKey() : "全部");
+            evictLocal(invalidation.getKey());
+        }
+    }
+
+    /**
+     * 清除本机索引，ksjhdm为null时清除全部
+     */
+    private void evictLocal(String ksjhdm) {
+        if (ksjhdm == null) {
+            indexes.clear();
+            log.info("清除所有阅卷序号索引");
+        } else if (indexes.remove(ksjhdm) != null) {
+            log.info("清除考试计划[{}]的阅卷序号索引", ksjhdm);
+        }
+    }
+
+    private void publishEviction(String ksjhdm) {
+        try {
+            redisTemplate.convertAndSend(invalidationTopic,
+                    new TwoLevelCacheManager.InvalidationMessage(instanceId, INVALIDATION_CACHE_NAME, ksjhdm));
+        } catch (Exception e) {
+            // 通知失败时其他实例的索引最迟在过期后重新加载
+            log.warn("发布阅卷序号索引清除通知失败，考试计划: {}, 原因: {}", ksjhdm, e.getMessage());
+        }
+    }
+
+    private CachedIndex load(String ksjhdm, CompletableFuture<CachedIndex> loading) {
+        long startTime = System.currentTimeMillis();
+        try {
+            YjxhIndex.Builder builder = YjxhIndex.builder(ksjhdm);
+            int[] sourceCount = {0};
+            yjxhMapper.scanByKsjhdm(ksjhdm, context -> {
+                builder.add(context.getResultObject());
+                sourceCount[0]++;
+            });
+            CachedIndex cached = new CachedIndex(builder.build(), sourceCount[0]);
+            loading.complete(cached);
+            log.info("加载考试计划[{}]阅卷序号索引完成，记录数: {}, 考生数: {}, 科目数: {}，耗时: {} ms",
+                    ksjhdm, cached.index.size(), cached.index.studentCount(), cached.index.subjectCount(),
+                    System.currentTimeMillis() - startTime);
+            evictOverflow(ksjhdm);
+            return cached;
+        } catch (RuntimeException e) {
+            indexes.remove(ksjhdm, loading);
+            loading.completeExceptionally(e);
+            throw new RuntimeException("加载阅卷序号索引失败: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 缓存的考试计划数超过上限时，清除最久未使用的索引
+     */
+    private void evictOverflow(String currentKsjhdm) {
+        while (indexes.size() > maxPlans) {
+            String eldest = indexes.entrySet().stream()
+                    .filter(entry -> !entry.getKey().equals(currentKsjhdm))
+                    .filter(entry -> entry.getValue().isDone() && !entry.getValue().isCompletedExceptionally())
+                    .min(Comparator.comparingLong(entry -> entry.getValue().join().lastAccessTime))
+                    .map(Map.Entry::getKey)
+                    .orElse(null);
+            if (eldest == null) {
+                return;
+            }
+            indexes.remove(eldest);
+            log.info("阅卷序号索引缓存已满，清除考试计划[{}]的索引", eldest);
+        }
+    }
+
+    /**
+     * 已加载的索引及其加载、访问时间
+     */
+    private static class CachedIndex {
+        private final YjxhIndex index;
+        // 加载时数据库中的记录数，用于判断阅卷序号是否有增删
+        private final int sourceCount;
+        private final long loadTime;
+        private volatile long lastAccessTime;
+
+        CachedIndex(YjxhIndex index, int sourceCount) {
+            this.index = index;
+            this.sourceCount = sourceCount;
+            this.loadTime = System.currentTimeMillis();
+            this.lastAccessTime = loadTime;
+        }
+
+        boolean isExpired(long ttlMinutes) {
+            return System.currentTimeMillis() - loadTime > TimeUnit.MINUTES.toMillis(ttlMinutes);
+        }
+    }
+}
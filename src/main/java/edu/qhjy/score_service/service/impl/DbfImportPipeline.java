@@ -0,0 +1,309 @@
+package edu.qhjy.score_service.service.impl;
+
+import edu.qhjy.score_service.domain.vo.DbfImportStageMetricsVO;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * DBF导入三段式流水线
+ * 解析、校验两个阶段各自在本流水线专用的线程中运行，写入阶段（写入临时表）在调用线程中运行，
+ * 不与其他导入共用线程池，多个导入同时进行时阶段任务不会排队等待或退化到调用线程中执行。
+ * 阶段之间通过有界队列连接，下游处理不过来时上游阻塞等待（背压），
+ * 任一阶段失败或整体超时时其余阶段尽快退出，异常由调用线程抛出
+ *
+ * @param <P> 解析阶段输出的批次类型
+ * @param <V> 校验阶段输出的批次类型
+ * @author dadalv
+ * @since 2025-08-01
+ */
+@Slf4j
+class DbfImportPipeline<P, V> {
+
+    /**
+     * 队列等待时检查失败状态的间隔（毫秒）
+     */
+    private static final long POLL_INTERVAL_MILLIS = 100;
+
+    /**
+     * 流水线失败后等待阶段线程退出的最长时间（毫秒）
+     */
+    private static final long STAGE_EXIT_WAIT_MILLIS = 5000;
+
+    /**
+     * 批次结束标记
+     */
+    private static final Object END = new Object();
+
+    /**
+     * 流水线编号，用于阶段线程命名
+     */
+    private static final AtomicInteger PIPELINE_NUMBER = new AtomicInteger(1);
+
+    private final long timeoutMillis;
+    private final BlockingQueue<Object> parsedQueue;
+    private final BlockingQueue<Object> validatedQueue;
+    private final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+
+    private final StageMetrics parseMetrics;
+    private final StageMetrics validateMetrics;
+    private final StageMetrics writeMetrics;
+
+    // 整体截止时间（System.nanoTime），在run开始时设置
+    private volatile long deadlineNanos;
+
+    /**
+     * 数据源：逐批产出解析结果，返回解析出的记录总数
+     */
+    @FunctionalInterface
+    interface Source<P> {
+        int produce(Consumer<P> emitter) throws Exception;
+    }
+
+    /**
+     * @param queueCapacity 阶段间队列容量（批次数）
+     * @param timeoutMillis 整体超时时间（毫秒），超时后取消各阶段并使导入失败
+     */
+    DbfImportPipeline(int queueCapacity, long timeoutMillis) {
+        this.timeoutMillis = timeoutMillis;
+        this.parsedQueue = new ArrayBlockingQueue<>(queueCapacity);
+        this.validatedQueue = new ArrayBlockingQueue<>(queueCapacity);
+        this.parseMetrics = new StageMetrics("解析", parsedQueue);
+        this.validateMetrics = new StageMetrics("校验", validatedQueue);
+        this.writeMetrics = new StageMetrics("写入", null);
+    }
+
+    /**
+     * 运行流水线，直到全部批次写入完成
+     * 超时在阶段之间的等待点检查，写入阶段正在执行的单批写入不会被打断
+     *
+     * @param source        解析阶段（专用线程中运行）
+     * @param parsedSize    解析批次的记录数
+     * @param validator     校验阶段（专用线程中运行）
+     * @param validatedSize 校验批次写入的记录数
+     * @param writer        写入阶段（调用线程中运行）
+     * @return 解析出的记录总数
+     */
+    @SuppressWarnings("unchecked")
+    int run(Source<P> source, ToIntFunction<P> parsedSize,
+            Function<P, V> validator, ToIntFunction<V> validatedSize,
+            Consumer<V> writer) throws Exception {
+        deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        String threadPrefix = "dbf-pipeline-" + PIPELINE_NUMBER.getAndIncrement();
+        AtomicInteger sourceCount = new AtomicInteger();
+
+        Thread parseStage = startStage("解析", threadPrefix + "-parse", () -> {
+            long[] chunkStart = {System.nanoTime()};
+            int count = source.produce(chunk -> {
+                parseMetrics.record(parsedSize.applyAsInt(chunk), System.nanoTime() - chunkStart[0]);
+                put(parsedQueue, chunk, parseMetrics);
+                chunkStart[0] = System.nanoTime();
+            });
+            sourceCount.set(count);
+            put(parsedQueue, END, parseMetrics);
+        });
+
+        Thread validateStage = startStage("校验", threadPrefix + "-validate", () -> {
+            Object item;
+            while ((item = take(parsedQueue)) != END) {
+                long start = System.nanoTime();
+                V validated = validator.apply((P) item);
+                validateMetrics.record(parsedSize.applyAsInt((P) item), System.nanoTime() - start);
+                put(validatedQueue, validated, validateMetrics);
+            }
+            put(validatedQueue, END, validateMetrics);
+        });
+
+        boolean completed = false;
+        try {
+            Object item;
+            while ((item = take(validatedQueue)) != END) {
+                long start = System.nanoTime();
+                writer.accept((V) item);
+                writeMetrics.record(validatedSize.applyAsInt((V) item), System.nanoTime() - start);
+                checkFailure();
+            }
+            // 等待上游阶段退出并检查其是否失败
+            awaitStage(parseStage);
+            awaitStage(validateStage);
+            checkFailure();
+            completed = true;
+            return sourceCount.get();
+        } finally {
+            if (!completed) {
+                failure.compareAndSet(null, new CancellationException("DBF导入流水线写入阶段失败"));
+                stopStage(parseStage);
+                stopStage(validateStage);
+            }
+        }
+    }
+
+    /**
+     * 各阶段当前指标
+     */
+    List<DbfImportStageMetricsVO> getStageMetrics() {
+        return List.of(parseMetrics.toVO(), validateMetrics.toVO(), writeMetrics.toVO());
+    }
+
+    /**
+     * 输出各阶段指标日志
+     */
+    void logSummary() {
+        for (DbfImportStageMetricsVO metrics : getStageMetrics()) {
+            log.info("【性能分析-流水线】{}阶段: 记录={}, 批次={}, 处理耗时={} ms, 吞吐={} 条/秒, 输出队列最大深度={}",
+                    metrics.getStage(), metrics.getRecords(), metrics.getChunks(), metrics.getBusyMillis(),
+                    metrics.getRecordsPerSecond(), metrics.getMaxQueueDepth());
+        }
+    }
+
+    /**
+     * 在专用线程中启动阶段任务，异常统一记录为流水线失败
+     */
+    private Thread startStage(String stageName, String threadName, StageTask task) {
+        Thread thread = new Thread(() -> {
+            try {
+                task.run();
+            } catch (Throwable t) {
+                fail(stageName, t);
+            }
+        }, threadName);
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    /**
+     * 中断阶段线程并等待其退出，避免调用方关闭文件时阶段线程仍在读取
+     */
+    private void stopStage(Thread stage) {
+        stage.interrupt();
+        try {
+            stage.join(STAGE_EXIT_WAIT_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (stage.isAlive()) {
+            log.warn("DBF导入流水线阶段线程 {} 未在{}毫秒内退出", stage.getName(), STAGE_EXIT_WAIT_MILLIS);
+        }
+    }
+
+    /**
+     * 等待阶段线程退出，等待期间发现流水线失败或超时则退出
+     */
+    private void awaitStage(Thread stage) throws InterruptedException {
+        while (stage.isAlive()) {
+            stage.join(POLL_INTERVAL_MILLIS);
+            checkFailure();
+        }
+    }
+
+    private void fail(String stageName, Throwable cause) {
+        if (cause instanceof CancellationException && failure.get() != null) {
+            return;
+        }
+        RuntimeException exception = new IllegalStateException(
+                "DBF导入流水线" + stageName + "阶段失败: " + cause.getMessage(), cause);
+        if (failure.compareAndSet(null, exception)) {
+            log.error("DBF导入流水线{}阶段失败", stageName, cause);
+        }
+    }
+
+    private void checkFailure() {
+        if (failure.get() == null && System.nanoTime() - deadlineNanos > 0) {
+            RuntimeException timeout = new IllegalStateException(
+                    "DBF导入流水线超时：超过" + TimeUnit.MILLISECONDS.toSeconds(timeoutMillis) + "秒未完成，已取消");
+            if (failure.compareAndSet(null, timeout)) {
+                log.error("DBF导入流水线超时，已运行超过{}秒，取消各阶段", TimeUnit.MILLISECONDS.toSeconds(timeoutMillis));
+            }
+        }
+        RuntimeException exception = failure.get();
+        if (exception != null) {
+            throw exception;
+        }
+    }
+
+    /**
+     * 放入队列，队列满时等待，等待期间发现流水线失败则退出
+     */
+    private void put(BlockingQueue<Object> queue, Object item, StageMetrics metrics) {
+        try {
+            while (!queue.offer(item, POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS)) {
+                checkFailure();
+            }
+            metrics.sampleQueueDepth();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("DBF导入流水线已取消");
+        }
+    }
+
+    /**
+     * 从队列取出，队列空时等待，等待期间发现流水线失败则退出
+     */
+    private Object take(BlockingQueue<Object> queue) {
+        try {
+            Object item;
+            while ((item = queue.poll(POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS)) == null) {
+                checkFailure();
+            }
+            return item;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("DBF导入流水线已取消");
+        }
+    }
+
+    @FunctionalInterface
+    private interface StageTask {
+        void run() throws Exception;
+    }
+
+    /**
+     * 单个阶段的处理指标
+     */
+    private static class StageMetrics {
+        private final String stage;
+        private final BlockingQueue<Object> outputQueue;
+        private final AtomicLong records = new AtomicLong();
+        private final AtomicLong chunks = new AtomicLong();
+        private final AtomicLong busyNanos = new AtomicLong();
+        private final AtomicInteger maxQueueDepth = new AtomicInteger();
+
+        StageMetrics(String stage, BlockingQueue<Object> outputQueue) {
+            this.stage = stage;
+            this.outputQueue = outputQueue;
+        }
+
+        void record(int recordCount, long nanos) {
+            records.addAndGet(recordCount);
+            chunks.incrementAndGet();
+            busyNanos.addAndGet(nanos);
+        }
+
+        void sampleQueueDepth() {
+            if (outputQueue != null) {
+                maxQueueDepth.accumulateAndGet(outputQueue.size(), Math::max);
+            }
+        }
+
+        DbfImportStageMetricsVO toVO() {
+            long busyMillis = TimeUnit.NANOSECONDS.toMillis(busyNanos.get());
+            long recordCount = records.get();
+            return new DbfImportStageMetricsVO()
+                    .setStage(stage)
+                    .setRecords(recordCount)
+                    .setChunks(chunks.get())
+                    .setBusyMillis(busyMillis)
+                    .setRecordsPerSecond(busyMillis > 0 ? recordCount * 1000 / busyMillis : recordCount)
+                    .setQueueDepth(outputQueue != null ? outputQueue.size() : 0)
+                    .setMaxQueueDepth(maxQueueDepth.get());
+        }
+    }
+}
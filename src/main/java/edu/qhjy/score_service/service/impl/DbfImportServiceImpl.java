@@ -5,13 +5,18 @@ import edu.qhjy.score_service.domain.dto.DbfRecordDTO;
 import edu.qhjy.score_service.domain.entity.KscjEntity;
 import edu.qhjy.score_service.domain.entity.YjxhEntity;
 import edu.qhjy.score_service.domain.vo.DbfImportResponseVO;
+import edu.qhjy.score_service.domain.vo.DbfImportStageMetricsVO;
 import edu.qhjy.score_service.domain.vo.FailedRecordVO;
 import edu.qhjy.score_service.domain.vo.StudentDataVO;
 import edu.qhjy.score_service.mapper.primary.KscjMapper;
 import edu.qhjy.score_service.mapper.primary.YjxhMapper;
 import edu.qhjy.score_service.service.DbfImportService;
 import edu.qhjy.score_service.service.DbfParserService;
+import edu.qhjy.score_service.service.ScoreStatisticsCubeService;
+import edu.qhjy.score_service.service.cache.YjxhIndex;
+import edu.qhjy.score_service.service.cache.YjxhIndexCacheService;
 import edu.qhjy.score_service.util.DbfDebugUtil;
+import edu.qhjy.score_service.util.MappedDbfReader;
 import jakarta.annotation.PreDestroy;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
@@ -26,6 +31,7 @@ import java.time.LocalDateTime;
 import java.util.*;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 
 /**
@@ -42,6 +48,9 @@ public class DbfImportServiceImpl implements DbfImportService {
     private final DbfParserService dbfParserService;
     private final YjxhMapper yjxhMapper;
     private final KscjMapper kscjMapper;
+    private final YjxhIndexCacheService yjxhIndexCacheService;
+    private final TempScoreBulkLoader tempScoreBulkLoader;
+    private final ScoreStatisticsCubeService statisticsCubeService;
 
     // @Qualifier("primaryDataSource")
     // private final HikariDataSource primaryDataSource;
@@ -61,8 +70,22 @@ public class DbfImportServiceImpl implements DbfImportService {
     private int queueCapacity;
     @Value("${dbf.import.thread-pool.keep-alive-time:60}")
     private long keepAliveTime;
+    // 是否启用解析/校验/写入三段流水线
+    @Value("${dbf.import.pipeline.enabled:true}")
+    private boolean pipelineEnabled;
+    // 流水线阶段间队列容量（批次数）
+    @Value("${dbf.import.pipeline.queue-capacity:4}")
+    private int pipelineQueueCapacity;
+    // 流水线整体超时时间（秒），超时后取消各阶段并使导入失败
+    @Value("${dbf.import.pipeline.timeout-seconds:1800}")
+    private long pipelineTimeoutSeconds;
+    // 临时表加载方式：jdbc-batch（预编译语句JDBC批量）或 mybatis（多行INSERT）
+    @Value("${dbf.import.temp-table-loader.mode:jdbc-batch}")
+    private String tempTableLoaderMode;
     // 线程池执行器
     private volatile ThreadPoolExecutor threadPoolExecutor;
+    // 成功数据预览条数
+    private static final int SUCCESS_PREVIEW_SIZE = 10;
 
     // 初始化线程池
     private ThreadPoolExecutor getThreadPoolExecutor() {
@@ -143,72 +166,52 @@ public class DbfImportServiceImpl implements DbfImportService {
                         "参数验证失败", file.getOriginalFilename(), file.getSize(), ksjhdm, startTime);
             }
 
-            log.info("【性能分析-阶段1】开始 -> 解析DBF文件...");
-            // 2. 解析DBF文件
-            List<DbfRecordDTO> dbfRecords = dbfParserService.parseDbfFile(file, ksjhdm);
+            // 2. 科目名称从文件名中提取（与解析出的每条记录一致）
+            String kmmc = dbfParserService.extractSubjectFromFileName(file.getOriginalFilename());
+            // 同一考试计划分科目多次导入共用本地阅卷序号索引，未启用时逐批查询数据库
+            YjxhIndex yjxhIndex = yjxhIndexCacheService.getIndex(ksjhdm);
+            String ksjhmc = yjxhIndexCacheService.getKsjhmc(ksjhdm);
+
+            // 3. 上传文件只落盘映射一次，边解析边校验边写入临时表，内存中只保留当前批次
+            StreamImportResult importResult;
+            try (MappedDbfReader reader = dbfParserService.openDbfFile(file)) {
+                log.info("【性能分析-阶段1】开始 -> 流式解析、校验并写入数据库，文件记录数: {}", reader.getRecordCount());
+                importResult = streamImportRecords(reader, file, ksjhdm, kmmc, ksjhmc, yjxhIndex, taskId, startTime);
+            }
 
             // ==================== 【性能分析代码-节点1】 ====================
             long currentTime = System.currentTimeMillis();
-            log.info("【性能分析-阶段1】结束 -> 文件解析完成。耗时: {} 毫秒", currentTime - lastCheckpointTime);
-            lastCheckpointTime = currentTime;
+            log.info("【性能分析-阶段1】结束 -> 流式导入完成。耗时: {} 毫秒", currentTime - lastCheckpointTime);
             // =============================================================
 
-
-            if (dbfRecords.isEmpty()) {
+            if (importResult.getTotalRecords() == 0) {
                 return DbfImportResponseVO.createFailureResponse(
-                        "DBF文件中没有有效数据", file.getOriginalFilename(), file.getSize(), ksjhdm, startTime);
+                        "DBF文件中没有有效数据", file.getOriginalFilename(), file.getSize(), ksjhdm, startTime)
+                        .setTaskId(taskId);
             }
 
-            // 3. 从DBF记录中获取科目名称（所有记录的科目名称应该相同）
-            String kmmc = dbfRecords.get(0).getKmmc();
-
-
-            log.info("【性能分析-阶段2】开始 -> 数据校验与关联...");
-            // 4. 使用批量查询优化的方式处理记录
-            ProcessResult processResult = processRecords(dbfRecords, ksjhdm, kmmc);
-
-            // ==================== 【性能分析代码-节点2】 ====================
-            currentTime = System.currentTimeMillis();
-            log.info("【性能分析-阶段2】结束 -> 数据校验与关联完成。耗时: {} 毫秒", currentTime - lastCheckpointTime);
-            lastCheckpointTime = currentTime;
-            // =============================================================
-
-
-            // 5. 批量导入成功记录（覆盖模式）
-            log.info("【性能分析-阶段3】开始 -> 写入数据库 (先删后插)...");
-            if (!processResult.getValidRecords().isEmpty()) {
-                batchInsertScores(processResult.getValidRecords(), ksjhdm);
-            }
-
-            // ==================== 【性能分析代码-节点3】 ====================
-            currentTime = System.currentTimeMillis();
-            log.info("【性能分析-阶段3】结束 -> 写入数据库完成。耗时: {} 毫秒", currentTime - lastCheckpointTime);
-            // =============================================================
-
-
-            // 6. 构建响应结果
-            String ksjhmc = yjxhMapper.selectKsjhmcByKsjhdm(ksjhdm);
+            // 4. 构建响应结果
             DbfImportResponseVO response = DbfImportResponseVO.createSuccessResponse(
-                    file.getOriginalFilename(), file.getSize(), ksjhdm, ksjhmc,
-                    dbfParserService.extractSubjectFromFileName(file.getOriginalFilename()),
-                    startTime);
+                    file.getOriginalFilename(), file.getSize(), ksjhdm, ksjhmc, kmmc, startTime)
+                    .setTaskId(taskId);
 
             response.setStatistics(
-                    dbfRecords.size(),
-                    processResult.getValidRecords().size(),
-                    processResult.getYjxhNotFoundCount(),
-                    processResult.getNameMismatchCount(),
+                    importResult.getTotalRecords(),
+                    importResult.getValidCount(),
+                    importResult.getYjxhNotFoundCount(),
+                    importResult.getNameMismatchCount(),
                     0 // 数据验证失败数（在解析阶段已过滤）
             );
 
-            response.setFailedRecords(processResult.getFailedRecords());
-            response.setSuccessPreview(processResult.getValidRecords().stream()
-                    .limit(10)
-                    .map(this::convertToPreviewMap)
-                    .collect(Collectors.toList()));
+            response.setFailedRecords(importResult.getFailedRecords());
+            response.setSuccessPreview(importResult.getSuccessPreview());
+            response.setStageMetrics(importResult.getStageMetrics());
 
             log.info("DBF文件导入完成，成功: {}, 失败: {}",
-                    processResult.getValidRecords().size(), processResult.getFailedRecords().size());
+                    importResult.getValidCount(), importResult.getFailedRecords().size());
+            if (importResult.getValidCount() > 0) {
+                statisticsCubeService.refreshAsync(ksjhdm, kmmc);
+            }
 
             // // 记录导入后连接池状态
             // if (primaryDataSource != null && primaryDataSource.getHikariPoolMXBean() !=
@@ -232,7 +235,7 @@ public class DbfImportServiceImpl implements DbfImportService {
             log.error("DBF文件导入失败: {}", e.getMessage());
             String ksjhmc = null;
             try {
-                ksjhmc = yjxhMapper.selectKsjhmcByKsjhdm(ksjhdm);
+                ksjhmc = yjxhIndexCacheService.getKsjhmc(ksjhdm);
             } catch (Exception ex) {
                 // 忽略获取考试计划名称失败的警告日志
             }
@@ -241,7 +244,10 @@ public class DbfImportServiceImpl implements DbfImportService {
                     "导入过程中发生错误: " + e.getMessage(),
                     file.getSize(), ksjhdm, ksjhmc, startTime);
             response.setErrorDetails(e.getMessage());
+            response.setTaskId(taskId);
             return response;
+        } finally {
+            importProgressCache.remove(taskId);
         }
     }
 
@@ -260,13 +266,14 @@ public class DbfImportServiceImpl implements DbfImportService {
         LocalDateTime startTime = LocalDateTime.now();
 
         try {
-            // 解析前几条记录用于预览
-            List<DbfRecordDTO> allRecords = dbfParserService.parseDbfFile(file, ksjhdm);
-            List<DbfRecordDTO> previewRecords = allRecords.stream()
-                    .limit(previewCount)
-                    .toList();
+            // 只读取前几条记录用于预览，不解析整个文件
+            List<DbfRecordDTO> previewRecords;
+            try (MappedDbfReader reader = dbfParserService.openDbfFile(file)) {
+                previewRecords = dbfParserService.parseDbfRecords(reader, ksjhdm,
+                        dbfParserService.extractSubjectFromFileName(file.getOriginalFilename()), previewCount);
+            }
 
-            String ksjhmc = yjxhMapper.selectKsjhmcByKsjhdm(ksjhdm);
+            String ksjhmc = yjxhIndexCacheService.getKsjhmc(ksjhdm);
             DbfImportResponseVO response = DbfImportResponseVO.createSuccessResponse(
                     file.getOriginalFilename(), file.getSize(), ksjhdm, ksjhmc,
                     dbfParserService.extractSubjectFromFileName(file.getOriginalFilename()),
@@ -283,7 +290,7 @@ public class DbfImportServiceImpl implements DbfImportService {
             log.error("预览DBF文件失败: {}", e.getMessage(), e);
             String ksjhmc = null;
             try {
-                ksjhmc = yjxhMapper.selectKsjhmcByKsjhdm(ksjhdm);
+                ksjhmc = yjxhIndexCacheService.getKsjhmc(ksjhdm);
             } catch (Exception ex) {
                 log.warn("获取考试计划名称失败: {}", ex.getMessage());
             }
@@ -319,9 +326,21 @@ public class DbfImportServiceImpl implements DbfImportService {
     }
 
     /**
-     * 根据DBF记录批次按需获取阅卷序号映射关系（分批查询优化）
+     * 根据DBF记录批次按需获取阅卷序号映射关系，有本地索引时直接在内存中查找，否则分批查询数据库
      */
-    private Map<String, YjxhEntity> getYjxhMappingByBatch(List<DbfRecordDTO> batch, String ksjhdm, String kmmc) {
+    private Map<String, YjxhEntity> getYjxhMappingByBatch(List<DbfRecordDTO> batch, String ksjhdm, String kmmc,
+                                                          YjxhIndex yjxhIndex) {
+        if (yjxhIndex != null) {
+            Map<String, YjxhEntity> yjxhMap = new HashMap<>(batch.size() * 2);
+            for (DbfRecordDTO record : batch) {
+                YjxhEntity entity = yjxhIndex.find(record.getYjxh(), kmmc);
+                if (entity != null) {
+                    yjxhMap.put(entity.getYjxh(), entity);
+                }
+            }
+            return yjxhMap;
+        }
+
         Set<String> yjxhSet = batch.stream()
                 .map(DbfRecordDTO::getYjxh)
                 .collect(Collectors.toSet());
@@ -334,45 +353,205 @@ public class DbfImportServiceImpl implements DbfImportService {
     }
 
     /**
-     * 处理记录，分类为有效记录和失败记录（分批查询优化版本）
+     * 流式导入：在事务外逐批解析、校验，每批有效记录离开校验阶段后即写入临时表（以导入任务ID区分），
+     * 内存中只保留在途批次；全部写入后在一个短事务内将本次导入的记录MERGE到目标表。
+     * 无论成功或失败，最后删除临时表中本次导入的记录
      */
-    private ProcessResult processRecords(List<DbfRecordDTO> dbfRecords, String ksjhdm, String kmmc) {
-        // 分批处理记录，避免一次性加载所有阅卷序号映射
-        List<List<DbfRecordDTO>> batches = partitionList(dbfRecords, batchSize);
+    private StreamImportResult streamImportRecords(MappedDbfReader reader, MultipartFile file, String ksjhdm,
+                                                   String kmmc, String ksjhmc, YjxhIndex yjxhIndex,
+                                                   String taskId, LocalDateTime startTime) {
+        StreamImportResult result = new StreamImportResult();
+        List<DbfImportStageMetricsVO> stageMetrics = new ArrayList<>();
+        // 临时表中本次导入的记录以任务ID标识
+        String importId = taskId;
 
-        List<DbfRecordDTO> allValidRecords = new ArrayList<>();
-        List<FailedRecordVO> allFailedRecords = new ArrayList<>();
-        int totalYjxhNotFoundCount = 0;
-        int totalNameMismatchCount = 0;
-
-        for (List<DbfRecordDTO> batch : batches) {
-            // 为当前批次获取阅卷序号映射
-            Map<String, YjxhEntity> yjxhMap = getYjxhMappingByBatch(batch, ksjhdm, kmmc);
+        try {
+            // 步骤1：逐批解析、校验并写入临时表（不占用事务）
+            long phaseStartTime = System.currentTimeMillis();
+            int expectedRecords = reader.getRecordCount();
+            AtomicReference<Integer> kmlx = new AtomicReference<>();
+            int parsedCount;
+            // JDBC批量加载会话在事务外独占一个连接，MyBatis方式时为null
+            try (TempScoreBulkLoader.Session loader = useJdbcBatchLoader() ? tempScoreBulkLoader.open(importId) : null) {
+                if (pipelineEnabled) {
+                    // 解析、校验在流水线专用线程中运行，写入临时表在当前线程中运行，三个阶段并行推进
+                    log.info("【性能分析-阶段1.1】开始 -> 流水线解析校验并写入临时表，批次大小: {}, 队列容量: {}",
+                            batchSize, pipelineQueueCapacity);
+                    DbfImportPipeline<List<DbfRecordDTO>, ValidatedChunk> pipeline =
+                            new DbfImportPipeline<>(pipelineQueueCapacity,
+                                    TimeUnit.SECONDS.toMillis(pipelineTimeoutSeconds));
+                    parsedCount = pipeline.run(
+                            emitter -> dbfParserService.parseDbfFile(reader, ksjhdm, kmmc, batchSize, emitter),
+                            List::size,
+                            chunk -> validateChunk(chunk, ksjhdm, kmmc, ksjhmc, yjxhIndex, kmlx),
+                            ValidatedChunk::getValidCount,
+                            validated -> {
+                                loadChunk(validated.entities, importId, loader);
+                                collectChunk(validated, result);
+                                updateImportProgress(taskId, file, ksjhdm, kmmc, expectedRecords, startTime,
+                                        result, pipeline.getStageMetrics());
+                            });
+                    pipeline.logSummary();
+                    stageMetrics.addAll(pipeline.getStageMetrics());
+                } else {
+                    log.info("【性能分析-阶段1.1】开始 -> 顺序解析校验并写入临时表，批次大小: {}", batchSize);
+                    parsedCount = dbfParserService.parseDbfFile(reader, ksjhdm, kmmc, batchSize, chunk -> {
+                        ValidatedChunk validated = validateChunk(chunk, ksjhdm, kmmc, ksjhmc, yjxhIndex, kmlx);
+                        loadChunk(validated.entities, importId, loader);
+                        collectChunk(validated, result);
+                        updateImportProgress(taskId, file, ksjhdm, kmmc, expectedRecords, startTime, result, null);
+                    });
+                }
+                if (loader != null) {
+                    loader.finish();
+                    stageMetrics.add(loader.getMetrics());
+                }
+            } catch (Exception e) {
+                log.error("解析校验或写入临时表时发生严重错误，成绩表未写入任何数据!", e);
+                throw new RuntimeException("导入失败: " + e.getMessage(), e);
+            }
+            result.totalRecords = parsedCount;
+            result.stageMetrics = stageMetrics;
+            log.info("【性能分析-阶段1.1】结束 -> 解析校验并写入临时表完成，有效记录: {}。耗时: {} ms",
+                    result.validCount, System.currentTimeMillis() - phaseStartTime);
 
-            // 处理当前批次（改为普通for循环，5w条<1秒）
-            List<ProcessedRecord> processedRecords = new ArrayList<>(batch.size());
-            for (DbfRecordDTO record : batch) {
-                ProcessedRecord processed = processRecord(record, yjxhMap);
-                processedRecords.add(processed);
+            if (result.validCount == 0) {
+                return result;
             }
 
-            // 汇总当前批次结果
-            for (ProcessedRecord processed : processedRecords) {
-                if (processed.isValid()) {
-                    allValidRecords.add(processed.getRecord());
+            // 步骤2：事务内只执行本次导入记录的MERGE
+            transactionTemplate.execute(status -> {
+                try {
+                    long mergeStartTime = System.currentTimeMillis();
+                    log.info("【性能分析-阶段1.2】开始 -> 从临时表MERGE数据到目标表...");
+                    int affectedRows = kscjMapper.mergeFromTempTable(importId);
+                    log.info("【性能分析-阶段1.2】结束 -> MERGE操作完成，影响行数: {}。耗时: {} ms",
+                            affectedRows, System.currentTimeMillis() - mergeStartTime);
+                } catch (Exception e) {
+                    log.error("MERGE过程中发生严重错误，事务将回滚!", e);
+                    status.setRollbackOnly();
+                    throw new RuntimeException("导入失败: " + e.getMessage(), e);
                 }
-                if (processed.getFailedRecord() != null) {
-                    allFailedRecords.add(processed.getFailedRecord());
-                    if (processed.isYjxhNotFound()) {
-                        totalYjxhNotFoundCount++;
-                    } else if (processed.isNameMismatch()) {
-                        totalNameMismatchCount++;
-                    }
+                return null;
+            });
+            return result;
+        } finally {
+            clearTempImportRows(importId);
+        }
+    }
+
+    /**
+     * 校验一批记录（阅卷序号、姓名匹配）并转换为待写入的成绩实体
+     * 流水线模式下在校验线程中运行，不修改共享的导入结果
+     */
+    private ValidatedChunk validateChunk(List<DbfRecordDTO> chunk, String ksjhdm, String kmmc, String ksjhmc,
+                                         YjxhIndex yjxhIndex, AtomicReference<Integer> kmlx) {
+        // 为当前批次获取阅卷序号映射
+        Map<String, YjxhEntity> yjxhMap = getYjxhMappingByBatch(chunk, ksjhdm, kmmc, yjxhIndex);
+
+        ValidatedChunk validated = new ValidatedChunk(chunk.size());
+        for (DbfRecordDTO record : chunk) {
+            ProcessedRecord processed = processRecord(record, yjxhMap);
+            if (processed.getFailedRecord() != null) {
+                validated.failedRecords.add(processed.getFailedRecord());
+                if (processed.isYjxhNotFound()) {
+                    validated.yjxhNotFoundCount++;
+                } else if (processed.isNameMismatch()) {
+                    validated.nameMismatchCount++;
+                }
+            }
+            if (processed.isValid()) {
+                if (kmlx.get() == null) {
+                    // 科目类型以第一条有效记录为准
+                    kmlx.set(resolveKmlx(yjxhMap.get(record.getYjxh())));
+                }
+                validated.entities.add(convertToKscjEntity(record, ksjhmc, kmlx.get()));
+                if (validated.previewRecords.size() < SUCCESS_PREVIEW_SIZE) {
+                    validated.previewRecords.add(record);
                 }
             }
         }
+        return validated;
+    }
 
-        return new ProcessResult(allValidRecords, allFailedRecords, totalYjxhNotFoundCount, totalNameMismatchCount);
+    /**
+     * 累加校验后批次的导入结果（在写入线程中运行）
+     */
+    private void collectChunk(ValidatedChunk validated, StreamImportResult result) {
+        result.processedCount += validated.processedCount;
+        result.validCount += validated.entities.size();
+        result.yjxhNotFoundCount += validated.yjxhNotFoundCount;
+        result.nameMismatchCount += validated.nameMismatchCount;
+        result.failedRecords.addAll(validated.failedRecords);
+        for (DbfRecordDTO record : validated.previewRecords) {
+            if (result.successPreview.size() >= SUCCESS_PREVIEW_SIZE) {
+                break;
+            }
+            result.successPreview.add(convertToPreviewMap(record));
+        }
+    }
+
+    /**
+     * 将一批有效记录写入临时表（在写入线程中运行），loader为null时使用MyBatis多行INSERT
+     */
+    private void loadChunk(List<KscjEntity> entities, String importId, TempScoreBulkLoader.Session loader) {
+        if (entities.isEmpty()) {
+            return;
+        }
+        if (loader != null) {
+            loader.add(entities);
+        } else {
+            kscjMapper.batchInsertIntoTempTable(entities, importId);
+        }
+    }
+
+    /**
+     * 删除临时表中本次导入的记录，失败时只记录日志，不影响导入结果
+     */
+    private void clearTempImportRows(String importId) {
+        try {
+            int deleted = kscjMapper.deleteTempImportRows(importId);
+            log.info("已清理临时表中本次导入的记录: {} 条", deleted);
+        } catch (Exception e) {
+            log.warn("清理临时表导入记录失败，importId={}: {}", importId, e.getMessage());
+        }
+    }
+
+    /**
+     * 取阅卷序号记录中的科目类型，为空时默认为合格性考试
+     */
+    private Integer resolveKmlx(YjxhEntity yjxhEntity) {
+        if (yjxhEntity != null && yjxhEntity.getKmlx() != null) {
+            return yjxhEntity.getKmlx();
+        }
+        return 0;
+    }
+
+    /**
+     * 是否使用JDBC批量方式加载临时表
+     */
+    private boolean useJdbcBatchLoader() {
+        return !"mybatis".equalsIgnoreCase(tempTableLoaderMode);
+    }
+
+    /**
+     * 更新导入进度
+     */
+    private void updateImportProgress(String taskId, MultipartFile file, String ksjhdm, String kmmc,
+                                      int expectedRecords, LocalDateTime startTime, StreamImportResult result,
+                                      List<DbfImportStageMetricsVO> stageMetrics) {
+        DbfImportResponseVO progress = new DbfImportResponseVO()
+                .setTaskId(taskId)
+                .setFileName(file.getOriginalFilename())
+                .setFileSize(file.getSize())
+                .setKsjhdm(ksjhdm)
+                .setKmmc(kmmc)
+                .setStartTime(startTime)
+                .setMessage(String.format("正在导入: 已处理 %d/%d 条记录", result.processedCount, expectedRecords))
+                .setStatistics(result.processedCount, result.validCount,
+                        result.yjxhNotFoundCount, result.nameMismatchCount, 0)
+                .setStageMetrics(stageMetrics);
+        importProgressCache.put(taskId, progress);
     }
 
     /**
@@ -507,66 +686,6 @@ public class DbfImportServiceImpl implements DbfImportService {
 //        log.info("【性能分析-阶段3】方法 batchInsertScores 总耗时: {} 毫秒", currentTime - methodStartTime);
 //        // ===============================================================
 //    }
-    private void batchInsertScores(List<DbfRecordDTO> validRecords, String ksjhdm) {
-        long methodStartTime = System.currentTimeMillis();
-        log.info("【性能分析-阶段3】进入 batchInsertScores [高性能模式]，待处理记录数: {}", validRecords.size());
-
-        // 预查询KSJHMC和KMLX (逻辑保留)
-        String ksjhmc = yjxhMapper.selectKsjhmcByKsjhdm(ksjhdm);
-        Integer kmlx = 0;
-        if (!validRecords.isEmpty()) {
-            try {
-                YjxhEntity yjxhEntity = yjxhMapper.selectByYjxhAndKsjhdm(validRecords.get(0).getYjxh(), ksjhdm);
-                if (yjxhEntity != null) {
-                    kmlx = yjxhEntity.getKmlx();
-                }
-            } catch (Exception e) {
-                log.warn("查询KMLX失败，使用默认值0。错误: {}", e.getMessage());
-            }
-        }
-        final String finalKsjhmc = ksjhmc;
-        final Integer finalKmlx = kmlx;
-
-        // 使用TransactionTemplate确保整个ETL过程的原子性
-        transactionTemplate.execute(status -> {
-            try {
-                long phaseStartTime = System.currentTimeMillis();
-
-                // 步骤1：清空临时表
-                log.info("【性能分析-阶段3.1】开始 -> 清空临时表...");
-                kscjMapper.clearTempImportTable();
-                log.info("【性能分析-阶段3.1】结束 -> 临时表已清空。耗时: {} ms", System.currentTimeMillis() - phaseStartTime);
-                phaseStartTime = System.currentTimeMillis();
-
-                // 步骤2：全量数据高速写入临时表
-                log.info("【性能分析-阶段3.2】开始 -> 批量插入数据到临时表...");
-                List<KscjEntity> allEntities = validRecords.stream()
-                        .map(record -> convertToKscjEntity(record, finalKsjhmc, finalKmlx))
-                        .collect(Collectors.toList());
-
-                List<List<KscjEntity>> batches = partitionList(allEntities, batchSize); // batchSize来自yml配置
-                for (int i = 0; i < batches.size(); i++) {
-                    kscjMapper.batchInsertIntoTempTable(batches.get(i));
-                }
-                log.info("【性能分析-阶段3.2】结束 -> 所有数据已插入临时表。耗时: {} ms", System.currentTimeMillis() - phaseStartTime);
-                phaseStartTime = System.currentTimeMillis();
-
-                // 步骤3：执行一次性的MERGE操作
-                log.info("【性能分析-阶段3.3】开始 -> 从临时表MERGE数据到目标表...");
-                int affectedRows = kscjMapper.mergeFromTempTable();
-                log.info("【性能分析-阶段3.3】结束 -> MERGE操作完成，影响行数: {}。耗时: {} ms", affectedRows, System.currentTimeMillis() - phaseStartTime);
-
-            } catch (Exception e) {
-                log.error("高性能导入过程中发生严重错误，事务将回滚!", e);
-                status.setRollbackOnly();
-                throw new RuntimeException("导入失败: " + e.getMessage(), e);
-            }
-            return null;
-        });
-
-        log.info("【性能分析-阶段3】方法 batchInsertScores [高性能模式] 总耗时: {} ms", System.currentTimeMillis() - methodStartTime);
-    }
-
     /**
      * 处理单个批次的数据（使用预查询的KSJHMC和KMLX）
      */
@@ -679,23 +798,40 @@ public class DbfImportServiceImpl implements DbfImportService {
     }
 
     /**
-     * 处理结果内部类
+     * 流式导入结果内部类（逐批累加，有效记录本身由导入过程单独暂存）
      */
     @Getter
-    private static class ProcessResult {
-        private final List<DbfRecordDTO> validRecords;
-        private final List<FailedRecordVO> failedRecords;
-        private final int yjxhNotFoundCount;
-        private final int nameMismatchCount;
-
-        public ProcessResult(List<DbfRecordDTO> validRecords, List<FailedRecordVO> failedRecords,
-                             int yjxhNotFoundCount, int nameMismatchCount) {
-            this.validRecords = validRecords;
-            this.failedRecords = failedRecords;
-            this.yjxhNotFoundCount = yjxhNotFoundCount;
-            this.nameMismatchCount = nameMismatchCount;
+    private static class StreamImportResult {
+        private final List<FailedRecordVO> failedRecords = new ArrayList<>();
+        private final List<StudentDataVO> successPreview = new ArrayList<>();
+        private int totalRecords;
+        private int processedCount;
+        private int validCount;
+        private int yjxhNotFoundCount;
+        private int nameMismatchCount;
+        private List<DbfImportStageMetricsVO> stageMetrics;
+    }
+
+    /**
+     * 校验完成、待写入临时表的批次
+     */
+    @Getter
+    private static class ValidatedChunk {
+        private final int processedCount;
+        private final List<KscjEntity> entities;
+        private final List<FailedRecordVO> failedRecords = new ArrayList<>();
+        private final List<DbfRecordDTO> previewRecords = new ArrayList<>();
+        private int yjxhNotFoundCount;
+        private int nameMismatchCount;
+
+        ValidatedChunk(int processedCount) {
+            this.processedCount = processedCount;
+            this.entities = new ArrayList<>(processedCount);
         }
 
+        int getValidCount() {
+            return entities.size();
+        }
     }
 
     /**
@@ -1,9 +1,8 @@
 package edu.qhjy.score_service.service.impl;
 
-import com.linuxense.javadbf.DBFReader;
-import com.linuxense.javadbf.DBFRow;
 import edu.qhjy.score_service.domain.dto.DbfRecordDTO;
 import edu.qhjy.score_service.service.DbfParserService;
+import edu.qhjy.score_service.util.MappedDbfReader;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
@@ -11,9 +10,9 @@ import org.springframework.web.multipart.MultipartFile;
 import java.io.InputStream;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
-import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -39,39 +38,99 @@ public class DbfParserServiceImpl implements DbfParserService {
      */
     private static final Pattern SCORE_PATTERN = Pattern.compile("^\\d{1,4}$");
 
+    /**
+     * 一次性解析全部记录时的内部批次大小
+     */
+    private static final int DEFAULT_CHUNK_SIZE = 1000;
+
+    /**
+     * DBF文件必需字段
+     */
+    private static final String[] REQUIRED_FIELDS = {"ksh", "xm", "zcj", "kgtcj", "zgtcj"};
+
     @Override
     public List<DbfRecordDTO> parseDbfFile(MultipartFile file, String ksjhdm) throws Exception {
-        log.info("开始解析DBF文件: {}, 大小: {} bytes", file.getOriginalFilename(), file.getSize());
-
         List<DbfRecordDTO> records = new ArrayList<>();
-        String kmmc = extractSubjectFromFileName(file.getOriginalFilename());
+        parseDbfFile(file, ksjhdm, DEFAULT_CHUNK_SIZE, records::addAll);
+        return records;
+    }
 
-        try (InputStream inputStream = file.getInputStream()) {
-            // 使用GBK编码读取DBF文件（中文DBF文件通常使用GBK编码）
-            DBFReader reader = new DBFReader(inputStream, Charset.forName("GBK"));
+    @Override
+    public int parseDbfFile(MultipartFile file, String ksjhdm, int chunkSize,
+                            Consumer<List<DbfRecordDTO>> chunkHandler) throws Exception {
+        try (MappedDbfReader reader = openDbfFile(file)) {
+            return parseDbfFile(reader, ksjhdm, extractSubjectFromFileName(file.getOriginalFilename()),
+                    chunkSize, chunkHandler);
+        }
+    }
 
+    @Override
+    public MappedDbfReader openDbfFile(MultipartFile file) throws Exception {
+        log.info("打开DBF文件: {}, 大小: {} bytes", file.getOriginalFilename(), file.getSize());
+        MappedDbfReader reader = MappedDbfReader.open(file);
+        try {
             // 验证字段结构
             validateRequiredFields(reader);
+            return reader;
+        } catch (Exception e) {
+            reader.close();
+            throw e;
+        }
+    }
 
-            DBFRow row;
-            int rowNumber = 1;
-
-            while ((row = reader.nextRow()) != null) {
-                try {
-                    DbfRecordDTO record = parseRow(row, ksjhdm, kmmc, rowNumber);
-                    if (record != null && validateDbfRecord(record)) {
-                        records.add(record);
-                    } else {
-                        log.warn("第{}行数据验证失败，跳过该记录", rowNumber);
-                    }
-                } catch (Exception e) {
-                    log.error("解析第{}行数据时发生错误: {}", rowNumber, e.getMessage());
-                }
-                rowNumber++;
+    @Override
+    public int parseDbfFile(MappedDbfReader reader, String ksjhdm, String kmmc, int chunkSize,
+                            Consumer<List<DbfRecordDTO>> chunkHandler) {
+        FieldLayout layout = new FieldLayout(reader);
+        int validCount = 0;
+        int rowNumber = 1;
+        List<DbfRecordDTO> chunk = new ArrayList<>(chunkSize);
+
+        for (int index = 0; index < reader.getRecordCount(); index++) {
+            // 与原解析方式一致：跳过已删除记录，行号只对未删除记录计数
+            if (reader.isDeleted(index)) {
+                continue;
+            }
+            DbfRecordDTO record = parseRecord(reader, layout, index, ksjhdm, kmmc, rowNumber);
+            if (record != null && validateDbfRecord(record)) {
+                chunk.add(record);
+            } else {
+                log.warn("第{}行数据验证失败，跳过该记录", rowNumber);
+            }
+            rowNumber++;
+
+            if (chunk.size() >= chunkSize) {
+                validCount += chunk.size();
+                chunkHandler.accept(chunk);
+                chunk = new ArrayList<>(chunkSize);
             }
         }
 
-        log.info("DBF文件解析完成，共解析{}条有效记录", records.size());
+        if (!chunk.isEmpty()) {
+            validCount += chunk.size();
+            chunkHandler.accept(chunk);
+        }
+
+        log.info("DBF文件解析完成，共解析{}条有效记录", validCount);
+        return validCount;
+    }
+
+    @Override
+    public List<DbfRecordDTO> parseDbfRecords(MappedDbfReader reader, String ksjhdm, String kmmc, int limit) {
+        FieldLayout layout = new FieldLayout(reader);
+        List<DbfRecordDTO> records = new ArrayList<>(Math.max(0, limit));
+        int rowNumber = 1;
+
+        for (int index = 0; index < reader.getRecordCount() && records.size() < limit; index++) {
+            if (reader.isDeleted(index)) {
+                continue;
+            }
+            DbfRecordDTO record = parseRecord(reader, layout, index, ksjhdm, kmmc, rowNumber);
+            if (record != null && validateDbfRecord(record)) {
+                records.add(record);
+            }
+            rowNumber++;
+        }
         return records;
     }
 
@@ -137,43 +196,38 @@ public class DbfParserServiceImpl implements DbfParserService {
 
     @Override
     public int getDbfRecordCount(MultipartFile file) throws Exception {
+        // 记录数位于文件头，只需读取前几个字节
         try (InputStream inputStream = file.getInputStream()) {
-            DBFReader reader = new DBFReader(inputStream, Charset.forName("GBK"));
-            return reader.getRecordCount();
+            return MappedDbfReader.readDeclaredRecordCount(inputStream);
         }
     }
 
     @Override
     public boolean validateDbfFileStructure(MultipartFile file) throws Exception {
-        try (InputStream inputStream = file.getInputStream()) {
-            DBFReader reader = new DBFReader(inputStream, Charset.forName("GBK"));
-
-            // 检查必需的字段是否存在
-            validateRequiredFields(reader);
-
+        try (MappedDbfReader reader = openDbfFile(file)) {
             // 检查是否有数据记录
             return reader.getRecordCount() > 0;
         }
     }
 
     /**
-     * 解析DBF行数据
+     * 解析DBF记录数据
      */
-    private DbfRecordDTO parseRow(DBFRow row, String ksjhdm, String kmmc, int rowNumber) {
+    private DbfRecordDTO parseRecord(MappedDbfReader reader, FieldLayout layout, int index,
+                                     String ksjhdm, String kmmc, int rowNumber) {
         try {
             DbfRecordDTO record = new DbfRecordDTO();
             record.setRowNumber(rowNumber);
             record.setKsjhdm(ksjhdm);
             record.setKmmc(kmmc);
 
-            // 提取字段值（字段名可能大小写不同）
-            record.setYjxh(getStringValue(row, "ksh", "KSH"));
-            record.setKsxm(getStringValue(row, "xm", "XM"));
+            record.setYjxh(reader.getString(index, layout.ksh));
+            record.setKsxm(reader.getString(index, layout.xm));
 
             // 解析成绩字段
-            record.setZcj(parseScore(getStringValue(row, "zcj", "ZCJ")));
-            record.setKgtcj(parseDecimalScore(getStringValue(row, "kgtcj", "KGTCJ")));
-            record.setZgtcj(parseDecimalScore(getStringValue(row, "zgtcj", "ZGTCJ")));
+            record.setZcj(parseScore(reader.getString(index, layout.zcj)));
+            record.setKgtcj(parseDecimalScore(reader.getString(index, layout.kgtcj)));
+            record.setZgtcj(parseDecimalScore(reader.getString(index, layout.zgtcj)));
 
             return record;
         } catch (Exception e) {
@@ -182,23 +236,6 @@ public class DbfParserServiceImpl implements DbfParserService {
         }
     }
 
-    /**
-     * 获取字符串字段值（支持多种字段名）
-     */
-    private String getStringValue(DBFRow row, String... fieldNames) {
-        for (String fieldName : fieldNames) {
-            try {
-                Object value = row.getObject(fieldName);
-                if (value != null) {
-                    return value.toString().trim();
-                }
-            } catch (Exception e) {
-                // 字段不存在，尝试下一个字段名
-            }
-        }
-        return null;
-    }
-
     /**
      * 解析FSLKSCJ字段，转换为Integer类型（四舍五入）
      */
@@ -236,18 +273,9 @@ public class DbfParserServiceImpl implements DbfParserService {
     /**
      * 验证DBF文件是否包含必需的字段
      */
-    private void validateRequiredFields(DBFReader reader) throws Exception {
-        int fieldCount = reader.getFieldCount();
-        List<String> fieldNames = new ArrayList<>();
-
-        for (int i = 0; i < fieldCount; i++) {
-            fieldNames.add(reader.getField(i).getName().toLowerCase());
-        }
-
-        // 检查必需字段
-        String[] requiredFields = {"ksh", "xm", "zcj", "kgtcj", "zgtcj"};
-        for (String field : requiredFields) {
-            if (!fieldNames.contains(field.toLowerCase())) {
+    private void validateRequiredFields(MappedDbfReader reader) {
+        for (String field : REQUIRED_FIELDS) {
+            if (reader.getFieldIndex(field) < 0) {
                 throw new IllegalArgumentException("DBF文件缺少必需字段: " + field);
             }
         }
@@ -259,4 +287,23 @@ public class DbfParserServiceImpl implements DbfParserService {
     private boolean isBlank(String str) {
         return str == null || str.trim().isEmpty();
     }
-}
\ No newline at end of file
+
+    /**
+     * 必需字段在DBF文件中的下标（每个文件只解析一次）
+     */
+    private static class FieldLayout {
+        private final int ksh;
+        private final int xm;
+        private final int zcj;
+        private final int kgtcj;
+        private final int zgtcj;
+
+        FieldLayout(MappedDbfReader reader) {
+            this.ksh = reader.getFieldIndex("ksh");
+            this.xm = reader.getFieldIndex("xm");
+            this.zcj = reader.getFieldIndex("zcj");
+            this.kgtcj = reader.getFieldIndex("kgtcj");
+            this.zgtcj = reader.getFieldIndex("zgtcj");
+        }
+    }
+}
@@ -3,7 +3,6 @@ package edu.qhjy.score_service.service.impl;
 import com.lowagie.text.*;
 import com.lowagie.text.Font;
 import com.lowagie.text.Rectangle;
-import com.lowagie.text.pdf.BaseFont;
 import com.lowagie.text.pdf.PdfPCell;
 import com.lowagie.text.pdf.PdfPTable;
 import com.lowagie.text.pdf.PdfWriter;
@@ -13,14 +12,17 @@ import edu.qhjy.score_service.domain.vo.GradeBookVO;
 import edu.qhjy.score_service.mapper.primary.YjxhMapper;
 import edu.qhjy.score_service.service.GradeBookPdfService;
 import edu.qhjy.score_service.service.GradeBookService;
+import edu.qhjy.score_service.service.pdf.PdfStyleRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.awt.*;
 import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -43,83 +45,138 @@ public class GradeBookPdfServiceImpl implements GradeBookPdfService {
     private static final float TITLE_FONT_SIZE = 16f;
     private static final float HEADER_FONT_SIZE = 12f;
     private static final float TABLE_FONT_SIZE = 9f;
+    // 表头（6列：序号、考籍号、姓名、身份证件号、性别、考试科目及等级）
+    private static final String[] TABLE_HEADERS = {"序号", "考籍号", "姓名", "身份证件号", "性别", "考试科目及等级"};
     private final GradeBookService gradeBookService;
     private final YjxhMapper yjxhMapper;
+    private final PdfStyleRegistry pdfStyleRegistry;
+
+    // 流式生成时每次读取的页数（每批学生数 = ROWS_PER_PAGE * pagesPerFetch）
+    @Value("${pdf.stream.pages-per-fetch:10}")
+    private int pagesPerFetch;
 
     @Override
     public ByteArrayOutputStream generateGradeBookPdf(GradeBookQueryDTO queryDTO) throws Exception {
-        log.info("开始生成成绩等第册PDF，查询条件：{}", queryDTO);
-
         ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        Document document = new Document(PAGE_SIZE, MARGIN_LEFT, MARGIN_RIGHT, MARGIN_TOP, MARGIN_BOTTOM);
+        writeGradeBookPdf(queryDTO, baos);
+        return baos;
+    }
 
-        try (document) {
-            PdfWriter writer = PdfWriter.getInstance(document, baos);
-            document.open();
+    @Override
+    public void writeGradeBookPdf(GradeBookQueryDTO queryDTO, OutputStream outputStream) throws Exception {
+        log.info("开始生成成绩等第册PDF，查询条件：{}", queryDTO);
 
-            // 提前查询考试计划名称，避免在每页都查询
-            String ksjhmc = null;
-            try {
-                ksjhmc = yjxhMapper.selectKsjhmcByKsjhdm(queryDTO.getKsjhdm());
-            } catch (Exception e) {
-                log.warn("查询考试计划名称失败，ksjhdm: {}, 错误: {}", queryDTO.getKsjhdm(), e.getMessage());
-            }
+        // 先统计人数，用于页眉中的总页数
+        int totalPages = countGradeBookPdfPages(queryDTO);
+        if (totalPages == 0) {
+            throw new RuntimeException("未查询到成绩等第册数据");
+        }
+        writeGradeBookPdfPages(queryDTO, 0, totalPages, totalPages, outputStream);
+    }
 
-            // 获取所有数据（不分页）
-            GradeBookQueryDTO allDataQuery = new GradeBookQueryDTO();
-            allDataQuery.setKsjhdm(queryDTO.getKsjhdm());
-            allDataQuery.setSchool(queryDTO.getSchool());
-            allDataQuery.setPageNum(1);
-            allDataQuery.setPageSize(10000); // 设置一个较大的值获取所有数据
+    @Override
+    public int countGradeBookPdfPages(GradeBookQueryDTO queryDTO) {
+        GradeBookQueryDTO countQuery = newBatchQuery(queryDTO, 1, 1);
+        PageResult<GradeBookVO> result = gradeBookService.queryGradeBook(countQuery);
+        if (result.getRecords().isEmpty() || result.getTotal() == null) {
+            return 0;
+        }
+        log.info("查询到学生数据总数：{}", result.getTotal());
+        return (int) ((result.getTotal() + ROWS_PER_PAGE - 1) / ROWS_PER_PAGE);
+    }
 
-            PageResult<GradeBookVO> result = gradeBookService.queryGradeBook(allDataQuery);
+    @Override
+    public void writeGradeBookPdfPages(GradeBookQueryDTO queryDTO, int firstPage, int pageCount, int totalPages,
+                                       OutputStream outputStream) throws Exception {
+        // 提前查询考试计划名称，避免在每页都查询
+        String ksjhmc = null;
+        try {
+            ksjhmc = yjxhMapper.selectKsjhmcByKsjhdm(queryDTO.getKsjhdm());
+        } catch (Exception e) {
+            log.warn("查询考试计划名称失败，ksjhdm: {}, 错误: {}", queryDTO.getKsjhdm(), e.getMessage());
+        }
 
-            if (result.getRecords().isEmpty()) {
-                throw new RuntimeException("未查询到成绩等第册数据");
-            }
+        // 起始批按页码定位（每批页数须整除起始页），同时得到学校信息；后续按考籍号游标逐批读取
+        int batchPages = gcd(firstPage, pagesPerFetch);
+        GradeBookQueryDTO batchQuery = newBatchQuery(queryDTO, firstPage / batchPages + 1, ROWS_PER_PAGE * batchPages);
 
-            GradeBookVO gradeBookVO = result.getRecords().get(0);
-            List<GradeBookVO.StudentGradeData> studentDataList = gradeBookVO.getStudentData();
+        PageResult<GradeBookVO> result = gradeBookService.queryGradeBook(batchQuery);
+        if (result.getRecords().isEmpty()) {
+            throw new RuntimeException("未查询到成绩等第册数据");
+        }
 
-            log.info("查询到学生数据总数：{}", studentDataList.size());
+        GradeBookVO gradeBookVO = result.getRecords().get(0);
+        int maxRows = pageCount * ROWS_PER_PAGE;
 
-            // 分页处理数据
-            int totalPages = (int) Math.ceil((double) studentDataList.size() / ROWS_PER_PAGE);
+        Document document = new Document(PAGE_SIZE, MARGIN_LEFT, MARGIN_RIGHT, MARGIN_TOP, MARGIN_BOTTOM);
 
-            for (int pageIndex = 0; pageIndex < totalPages; pageIndex++) {
-                if (pageIndex > 0) {
-                    document.newPage();
-                }
+        try (document) {
+            PdfWriter writer = PdfWriter.getInstance(document, outputStream);
+            // 输出流由调用方关闭
+            writer.setCloseStream(false);
+            document.open();
 
-                // 添加页面内容，传入已查询的考试计划名称
-                addPageContent(document, gradeBookVO, studentDataList, pageIndex, totalPages, queryDTO.getKsjhdm(),
-                        ksjhmc);
+            List<GradeBookVO.StudentGradeData> pageData = new ArrayList<>(ROWS_PER_PAGE);
+            int pageIndex = 0;
+            int rowCount = 0;
+            while (true) {
+                for (GradeBookVO.StudentGradeData student : result.getRecords().get(0).getStudentData()) {
+                    if (rowCount++ >= maxRows) {
+                        break;
+                    }
+                    pageData.add(student);
+                    if (pageData.size() == ROWS_PER_PAGE) {
+                        writePage(document, gradeBookVO, pageData, firstPage, pageIndex++, totalPages,
+                                queryDTO.getKsjhdm(), ksjhmc);
+                        pageData.clear();
+                    }
+                }
+                if (rowCount >= maxRows || result.getNextCursor() == null) {
+                    break;
+                }
+                batchQuery.setCursor(result.getNextCursor());
+                result = gradeBookService.queryGradeBook(batchQuery);
+                if (result.getRecords().isEmpty()) {
+                    break;
+                }
+            }
+            if (!pageData.isEmpty()) {
+                writePage(document, gradeBookVO, pageData, firstPage, pageIndex++, totalPages,
+                        queryDTO.getKsjhdm(), ksjhmc);
             }
 
-            log.info("成绩等第册PDF生成完成，总页数：{}", totalPages);
-
+            log.info("成绩等第册PDF生成完成，第{}-{}页，共{}页", firstPage + 1, firstPage + pageIndex, totalPages);
         }
+    }
 
-        return baos;
+    private GradeBookQueryDTO newBatchQuery(GradeBookQueryDTO queryDTO, int pageNum, int pageSize) {
+        GradeBookQueryDTO batchQuery = new GradeBookQueryDTO();
+        batchQuery.setKsjhdm(queryDTO.getKsjhdm());
+        batchQuery.setSchool(queryDTO.getSchool());
+        batchQuery.setPageNum(pageNum);
+        batchQuery.setPageSize(pageSize);
+        return batchQuery;
+    }
+
+    private static int gcd(int a, int b) {
+        return b == 0 ? a : gcd(b, a % b);
     }
 
     /**
-     * 添加页面内容
+     * 写出一页：除本文档第一页外先换页，换页时上一页内容即写入输出流；页码和序号按整册计算
      */
-    private void addPageContent(Document document, GradeBookVO gradeBookVO,
-                                List<GradeBookVO.StudentGradeData> allStudentData,
-                                int pageIndex, int totalPages, String ksjhdm, String ksjhmc) throws Exception {
-
-        // 获取当前页的数据
-        int startIndex = pageIndex * ROWS_PER_PAGE;
-        int endIndex = Math.min(startIndex + ROWS_PER_PAGE, allStudentData.size());
-        List<GradeBookVO.StudentGradeData> pageData = allStudentData.subList(startIndex, endIndex);
+    private void writePage(Document document, GradeBookVO gradeBookVO, List<GradeBookVO.StudentGradeData> pageData,
+                           int firstPage, int localPageIndex, int totalPages, String ksjhdm, String ksjhmc) throws Exception {
+        if (localPageIndex > 0) {
+            document.newPage();
+        }
+        int pageIndex = firstPage + localPageIndex;
 
         // 添加标题和页眉信息
         addTitleAndHeader(document, gradeBookVO, ksjhdm, ksjhmc, pageIndex + 1, totalPages);
 
         // 添加表格
-        addDataTable(document, pageData, startIndex);
+        addDataTable(document, pageData, pageIndex * ROWS_PER_PAGE);
     }
 
     /**
@@ -128,12 +185,8 @@ public class GradeBookPdfServiceImpl implements GradeBookPdfService {
     private void addTitleAndHeader(Document document, GradeBookVO gradeBookVO,
                                    String ksjhdm, String ksjhmc, int currentPage, int totalPages) throws Exception {
 
-        // 创建中文字体
-        BaseFont baseFont = BaseFont.createFont("STSong-Light", "UniGB-UCS2-H", BaseFont.NOT_EMBEDDED);
-        com.lowagie.text.Font titleFont = new com.lowagie.text.Font(baseFont, TITLE_FONT_SIZE,
-                com.lowagie.text.Font.BOLD);
-        com.lowagie.text.Font headerFont = new com.lowagie.text.Font(baseFont, HEADER_FONT_SIZE,
-                com.lowagie.text.Font.NORMAL);
+        Font titleFont = pdfStyleRegistry.font(TITLE_FONT_SIZE, Font.BOLD);
+        Font headerFont = pdfStyleRegistry.font(HEADER_FONT_SIZE, Font.NORMAL);
 
         // 标题：使用传入的ksjhmc，拼接为"ksjhmc+等级册"
         String title = (ksjhmc != null && !ksjhmc.trim().isEmpty()) ? ksjhmc + "等级册" : ksjhdm + "等级册";
@@ -178,12 +231,8 @@ public class GradeBookPdfServiceImpl implements GradeBookPdfService {
     private void addDataTable(Document document, List<GradeBookVO.StudentGradeData> studentData, int startIndex)
             throws Exception {
 
-        // 创建中文字体
-        BaseFont baseFont = BaseFont.createFont("STSong-Light", "UniGB-UCS2-H", BaseFont.NOT_EMBEDDED);
-        com.lowagie.text.Font tableFont = new com.lowagie.text.Font(baseFont, TABLE_FONT_SIZE,
-                com.lowagie.text.Font.NORMAL);
-        com.lowagie.text.Font headerFont = new com.lowagie.text.Font(baseFont, TABLE_FONT_SIZE,
-                com.lowagie.text.Font.BOLD);
+        Font tableFont = pdfStyleRegistry.font(TABLE_FONT_SIZE, Font.NORMAL);
+        Font headerFont = pdfStyleRegistry.font(TABLE_FONT_SIZE, Font.BOLD);
 
         // 创建表格（6列：序号、考籍号、姓名、身份证件号、性别、考试科目及等级）
         PdfPTable table = new PdfPTable(6);
@@ -194,7 +243,7 @@ public class GradeBookPdfServiceImpl implements GradeBookPdfService {
         table.setWidths(columnWidths);
 
         // 添加表头
-        addTableHeader(table, headerFont);
+        pdfStyleRegistry.addHeaderRow(table, TABLE_HEADERS, headerFont, 5f);
 
         // 添加数据行
         for (int i = 0; i < studentData.size(); i++) {
@@ -205,69 +254,22 @@ public class GradeBookPdfServiceImpl implements GradeBookPdfService {
         document.add(table);
     }
 
-    /**
-     * 添加表头
-     */
-    private void addTableHeader(PdfPTable table, Font headerFont) {
-        String[] headers = {"序号", "考籍号", "姓名", "身份证件号", "性别", "考试科目及等级"};
-
-        for (String header : headers) {
-            PdfPCell cell = new PdfPCell(new Phrase(header, headerFont));
-            cell.setHorizontalAlignment(Element.ALIGN_CENTER);
-            cell.setVerticalAlignment(Element.ALIGN_MIDDLE);
-            cell.setPadding(5f);
-            cell.setBackgroundColor(new Color(240, 240, 240));
-            table.addCell(cell);
-        }
-    }
-
     /**
      * 添加数据行
      */
     private void addTableRow(PdfPTable table, GradeBookVO.StudentGradeData student, int rowNumber, Font tableFont) {
-
         // 序号
-        PdfPCell numberCell = new PdfPCell(new Phrase(String.valueOf(rowNumber), tableFont));
-        numberCell.setHorizontalAlignment(Element.ALIGN_CENTER);
-        numberCell.setVerticalAlignment(Element.ALIGN_MIDDLE);
-        numberCell.setPadding(3f);
-        table.addCell(numberCell);
-
+        table.addCell(pdfStyleRegistry.cell(String.valueOf(rowNumber), tableFont, Element.ALIGN_CENTER, 3f));
         // 考籍号
-        PdfPCell kshCell = new PdfPCell(new Phrase(student.getKsh() != null ? student.getKsh() : "", tableFont));
-        kshCell.setHorizontalAlignment(Element.ALIGN_CENTER);
-        kshCell.setVerticalAlignment(Element.ALIGN_MIDDLE);
-        kshCell.setPadding(3f);
-        table.addCell(kshCell);
-
+        table.addCell(pdfStyleRegistry.cell(student.getKsh(), tableFont, Element.ALIGN_CENTER, 3f));
         // 姓名
-        PdfPCell nameCell = new PdfPCell(new Phrase(student.getXm() != null ? student.getXm() : "", tableFont));
-        nameCell.setHorizontalAlignment(Element.ALIGN_CENTER);
-        nameCell.setVerticalAlignment(Element.ALIGN_MIDDLE);
-        nameCell.setPadding(3f);
-        table.addCell(nameCell);
-
+        table.addCell(pdfStyleRegistry.cell(student.getXm(), tableFont, Element.ALIGN_CENTER, 3f));
         // 身份证件号
-        PdfPCell idCell = new PdfPCell(new Phrase(student.getSfzjh() != null ? student.getSfzjh() : "", tableFont));
-        idCell.setHorizontalAlignment(Element.ALIGN_CENTER);
-        idCell.setVerticalAlignment(Element.ALIGN_MIDDLE);
-        idCell.setPadding(3f);
-        table.addCell(idCell);
-
+        table.addCell(pdfStyleRegistry.cell(student.getSfzjh(), tableFont, Element.ALIGN_CENTER, 3f));
         // 性别
-        PdfPCell genderCell = new PdfPCell(new Phrase(student.getXb() != null ? student.getXb() : "", tableFont));
-        genderCell.setHorizontalAlignment(Element.ALIGN_CENTER);
-        genderCell.setVerticalAlignment(Element.ALIGN_MIDDLE);
-        genderCell.setPadding(3f);
-        table.addCell(genderCell);
-
+        table.addCell(pdfStyleRegistry.cell(student.getXb(), tableFont, Element.ALIGN_CENTER, 3f));
         // 考试科目及等级
-        PdfPCell scoresCell = new PdfPCell(
-                new Phrase(student.getScores() != null ? student.getScores() : "", tableFont));
-        scoresCell.setHorizontalAlignment(Element.ALIGN_LEFT);
-        scoresCell.setVerticalAlignment(Element.ALIGN_MIDDLE);
-        scoresCell.setPadding(3f);
-        table.addCell(scoresCell);
+        table.addCell(pdfStyleRegistry.cell(student.getScores(), tableFont, Element.ALIGN_LEFT, 3f));
     }
 
     @Override
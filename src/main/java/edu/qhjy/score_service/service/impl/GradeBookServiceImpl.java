@@ -1,13 +1,16 @@
 package edu.qhjy.score_service.service.impl;
 
+import edu.qhjy.score_service.common.PageCursor;
 import edu.qhjy.score_service.common.PageResult;
 import edu.qhjy.score_service.domain.dto.GradeBookQueryDTO;
 import edu.qhjy.score_service.domain.vo.GradeBookVO;
 import edu.qhjy.score_service.mapper.primary.KscjMapper;
 import edu.qhjy.score_service.service.GradeBookService;
+import edu.qhjy.score_service.service.redis.PageTotalCacheService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
 
 import java.util.List;
 import java.util.Map;
@@ -20,7 +23,10 @@ import java.util.Map;
 @RequiredArgsConstructor
 public class GradeBookServiceImpl implements GradeBookService {
 
+    private static final String CURSOR_SIGNATURE = "grade_book:ksh:asc";
+
     private final KscjMapper kscjMapper;
+    private final PageTotalCacheService pageTotalCacheService;
 
     @Override
     public PageResult<GradeBookVO> queryGradeBook(GradeBookQueryDTO queryDTO) {
@@ -32,6 +38,12 @@ public class GradeBookServiceImpl implements GradeBookService {
         // 设置分页参数
         queryDTO.validateAndSetDefaults();
 
+        // 解析翻页游标
+        boolean cursorMode = StringUtils.hasText(queryDTO.getCursor());
+        if (cursorMode) {
+            queryDTO.setAfterKsh(PageCursor.decode(queryDTO.getCursor(), CURSOR_SIGNATURE, 1).get(0));
+        }
+
         try {
             // 查询学校基本信息
             Map<String, String> schoolInfo = kscjMapper.selectSchoolInfo(queryDTO);
@@ -40,12 +52,15 @@ public class GradeBookServiceImpl implements GradeBookService {
                 return PageResult.empty(queryDTO.getPageNum(), queryDTO.getPageSize());
             }
 
-            // 查询总数
-            Long totalCount = kscjMapper.countGradeBookData(queryDTO);
-            log.info("查询到成绩等第册学生总数：{}", totalCount);
-
-            if (totalCount == 0) {
-                return PageResult.empty(queryDTO.getPageNum(), queryDTO.getPageSize());
+            // 查询总数（按筛选条件缓存，游标翻页默认不统计）
+            Long totalCount = null;
+            if (!cursorMode || Boolean.TRUE.equals(queryDTO.getWithTotal())) {
+                totalCount = pageTotalCacheService.getTotal("grade_book", () -> kscjMapper.countGradeBookData(queryDTO),
+                        queryDTO.getKsjhdm(), queryDTO.getSchool(), queryDTO.getSzsmc(), queryDTO.getKqmc());
+                log.info("查询到成绩等第册学生总数：{}", totalCount);
+                if (totalCount == 0) {
+                    return PageResult.empty(queryDTO.getPageNum(), queryDTO.getPageSize());
+                }
             }
 
             // 查询分页数据
@@ -59,7 +74,17 @@ public class GradeBookServiceImpl implements GradeBookService {
                     .studentData(studentDataList)
                     .build();
 
-            return PageResult.success(List.of(gradeBookVO), totalCount, queryDTO.getPageNum(), queryDTO.getPageSize());
+            // 游标为本页最后一个考籍号
+            String nextCursor = studentDataList.size() < queryDTO.getLimit() ? null
+                    : PageCursor.encode(CURSOR_SIGNATURE, studentDataList.get(studentDataList.size() - 1).getKsh());
+            if (cursorMode) {
+                return PageResult.ofCursor(List.of(gradeBookVO), queryDTO.getPageSize(), totalCount, nextCursor);
+            }
+            PageResult<GradeBookVO> result = PageResult.success(List.of(gradeBookVO), totalCount, queryDTO.getPageNum(), queryDTO.getPageSize());
+            if (result.getHasNext()) {
+                result.setNextCursor(nextCursor);
+            }
+            return result;
 
         } catch (Exception e) {
             log.error("查询成绩等第册失败，查询条件：{}，错误信息：{}", queryDTO, e.getMessage(), e);
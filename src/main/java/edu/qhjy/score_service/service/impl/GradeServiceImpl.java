@@ -1,25 +1,30 @@
 package edu.qhjy.score_service.service.impl;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.github.pagehelper.PageHelper;
-import com.github.pagehelper.PageInfo;
 import edu.qhjy.score_service.aop.UserContext;
+import edu.qhjy.score_service.common.PageCursor;
 import edu.qhjy.score_service.common.PageResult;
 import edu.qhjy.score_service.domain.dto.GradeQueryDTO;
 import edu.qhjy.score_service.domain.handler.GradeQueryResultHandler;
 import edu.qhjy.score_service.domain.vo.GradeQueryVO;
 import edu.qhjy.score_service.mapper.primary.KscjMapper;
 import edu.qhjy.score_service.service.GradeService;
+import edu.qhjy.score_service.service.redis.PageTotalCacheService;
 import edu.qhjy.score_service.service.redis.SubjectCacheService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.ArrayList;
-import java.util.LinkedHashMap;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 /**
  * 成绩查询服务实现类
@@ -31,22 +36,19 @@ public class GradeServiceImpl implements GradeService {
 
     private final KscjMapper kscjMapper;
     private final SubjectCacheService subjectCacheService;
+    private final PageTotalCacheService pageTotalCacheService;
+    private final ObjectMapper objectMapper;
+
+    // 流式导出每批读取的考生数
+    @Value("${grade-query.stream-batch-size:500}")
+    private int streamBatchSize;
 
     @Override
     public PageResult<GradeQueryVO> queryGradeData(GradeQueryDTO queryDTO) {
         log.info("开始查询成绩数据，查询条件：{}", queryDTO);
 
         try {
-            // --- 最终权限逻辑 ---
-            // 1. 从 UserContext 获取当前登录用户的 DM 码
-            UserContext.UserInfo user = UserContext.get();
-            if (user != null) {
-                String userDm = user.getDm();
-                log.info("设置最终数据范围权限，用户DM: {}", userDm);
-                // 2. 将用户权限DM设置到查询DTO中，由SQL进行最终的数据范围限定
-                queryDTO.setPermissionDm(userDm);
-            }
-            // --- 权限逻辑结束 ---
+            applyPermission(queryDTO);
 
             log.info("使用传统查询方案");
             return queryWithTraditionalMethod(queryDTO);
@@ -62,85 +64,182 @@ public class GradeServiceImpl implements GradeService {
      * 传统查询方案（原有逻辑）
      */
     private PageResult<GradeQueryVO> queryWithTraditionalMethod(GradeQueryDTO queryDTO) {
-        // 步骤 1: 使用 PageHelper 对学生ID进行精确分页
-        PageHelper.startPage(queryDTO.getPageNum(), queryDTO.getPageSize());
+        queryDTO.validateAndSetDefaults();
+        boolean cursorMode = StringUtils.hasText(queryDTO.getCursor());
+        if (cursorMode) {
+            applyCursor(queryDTO);
+        }
+
+        // 步骤 1: 统计学生总数（按筛选条件缓存，游标翻页默认不统计）
+        Long total = null;
+        if (!cursorMode || Boolean.TRUE.equals(queryDTO.getWithTotal())) {
+            total = pageTotalCacheService.getTotal("grade_query", () -> kscjMapper.countPaginatedStudentKsh(queryDTO),
+                    queryDTO.getPermissionDm(), queryDTO.getKsjhdm(), queryDTO.getKmlx(), queryDTO.getOnlyWithScores(),
+                    queryDTO.getSzsmc(), queryDTO.getKqmc(), queryDTO.getXxmc(), queryDTO.getGrade(),
+                    queryDTO.getBjmc(), queryDTO.getKsh());
+            log.info("查询到符合条件的学生总数：{}", total);
+            if (total == 0) {
+                return PageResult.empty(queryDTO.getPageNum(), queryDTO.getPageSize());
+            }
+        }
+
+        // 步骤 2: 使用 PageHelper 对学生ID进行分页，总数已单独统计，不再由 PageHelper 执行 COUNT；
+        // 游标翻页时排序键条件已限定起点，只取第一页
+        PageHelper.startPage(cursorMode ? 1 : queryDTO.getPageNum(), queryDTO.getPageSize(), false);
         List<String> kshList = kscjMapper.selectPaginatedStudentKsh(queryDTO);
 
-        // PageHelper 执行后，kshList 实际上是一个 Page 对象，包含了总数等信息
-        PageInfo<String> kshPageInfo = new PageInfo<>(kshList);
-        long total = kshPageInfo.getTotal(); // 获取正确的、按学生统计的总数
-        log.info("查询到符合条件的学生总数：{}", total);
+        if (kshList.isEmpty()) {
+            return cursorMode
+                    ? PageResult.ofCursor(List.of(), queryDTO.getPageSize(), total, null)
+                    : PageResult.success(List.of(), total, queryDTO.getPageNum(), queryDTO.getPageSize());
+        }
+
+        // 步骤 3: 查询本页考生信息和科目成绩，成绩行由结果处理器直接聚合到考生VO
+        List<GradeQueryVO> records = loadGradeRecords(kshList, queryDTO, resolveRequiredSubjects(queryDTO));
+        log.info("组装后，本页实际返回学生记录数：{}", records.size());
 
-        if (total == 0 || kshList.isEmpty()) {
-            return PageResult.empty(queryDTO.getPageNum(), queryDTO.getPageSize());
+        // 步骤 4: 构建最终的 PageResult 对象，游标为本页最后一个考生的排序键
+        String nextCursor = kshList.size() < queryDTO.getPageSize() ? null
+                : PageCursor.encode(cursorSignature(queryDTO), cursorKeys(queryDTO, kshList, records));
+        if (cursorMode) {
+            return PageResult.ofCursor(records, queryDTO.getPageSize(), total, nextCursor);
+        }
+        PageResult<GradeQueryVO> result = PageResult.success(records, total, queryDTO.getPageNum(), queryDTO.getPageSize());
+        if (result.getHasNext()) {
+            result.setNextCursor(nextCursor);
         }
+        return result;
+    }
 
-        // 步骤 2: 根据分页得到的 kshList，查询这些考生的所有详细成绩信息
-        List<Map<String, Object>> flatStudentScores = kscjMapper.selectGradeDataByKshList(kshList, queryDTO);
-        log.info("查询到本页学生的详细成绩条目数：{}", flatStudentScores.size());
+    /**
+     * 排序方式签名，游标只能用于相同排序方式的查询
+     */
+    private String cursorSignature(GradeQueryDTO queryDTO) {
+        return "grade_query:" + ("xm".equals(queryDTO.getSortField()) ? "xm" : "ksh") + ":"
+                + ("desc".equals(queryDTO.getSortOrder()) ? "desc" : "asc");
+    }
 
-        // 步骤 3: 在内存中对详细数据进行分组和组装
-        // 按KSH对结果进行分组
-        Map<String, List<Map<String, Object>>> groupedByKsh = flatStudentScores.stream()
-                .collect(Collectors.groupingBy(row -> (String) row.get("ksh")));
+    /**
+     * 将游标解码为上一页最后一个考生的排序键（按姓名排序时为姓名和考籍号）
+     */
+    private void applyCursor(GradeQueryDTO queryDTO) {
+        if ("xm".equals(queryDTO.getSortField())) {
+            List<String> keys = PageCursor.decode(queryDTO.getCursor(), cursorSignature(queryDTO), 2);
+            queryDTO.setAfterXm(keys.get(0));
+            queryDTO.setAfterKsh(keys.get(1));
+        } else {
+            queryDTO.setAfterKsh(PageCursor.decode(queryDTO.getCursor(), cursorSignature(queryDTO), 1).get(0));
+        }
+    }
 
-        List<GradeQueryVO> records = new ArrayList<>();
-        // 按照分页查询出的kshList的顺序来组装，确保排序正确
+    /**
+     * 本页最后一个考生的排序键（按姓名排序时为姓名和考籍号）
+     */
+    private Object[] cursorKeys(GradeQueryDTO queryDTO, List<String> kshList, List<GradeQueryVO> records) {
+        String lastKsh = kshList.get(kshList.size() - 1);
+        if (!"xm".equals(queryDTO.getSortField())) {
+            return new Object[]{lastKsh};
+        }
+        // 与SQL排序一致，姓名为空按空串处理
+        String xm = null;
+        if (!records.isEmpty() && lastKsh.equals(records.get(records.size() - 1).getKsh())) {
+            xm = records.get(records.size() - 1).getXm();
+        }
+        return new Object[]{xm != null ? xm : "", lastKsh};
+    }
+
+    /**
+     * 查询本页考生信息和科目成绩
+     * 考生信息每人一行，成绩每科一行只取考籍号、科目和成绩，由GradeQueryResultHandler直接写入考生VO
+     *
+     * @param kshList  本页考籍号（按排序顺序）
+     * @param queryDTO 查询条件
+     * @param subjects 需返回的科目，为null时按查询到的科目返回
+     * @return 按kshList顺序排列、有成绩记录的考生
+     */
+    private List<GradeQueryVO> loadGradeRecords(List<String> kshList, GradeQueryDTO queryDTO, List<String> subjects) {
+        List<GradeQueryVO> students = kscjMapper.selectGradeStudentsByKshList(kshList);
+        Map<String, GradeQueryVO> studentMap = new HashMap<>(students.size() * 4 / 3 + 1);
+        for (GradeQueryVO student : students) {
+            studentMap.put(student.getKsh(), student);
+        }
+        List<GradeQueryVO> ordered = new ArrayList<>(kshList.size());
         for (String ksh : kshList) {
-            List<Map<String, Object>> studentRows = groupedByKsh.get(ksh);
-            if (studentRows == null || studentRows.isEmpty()) continue;
-
-            // 以第一条记录为基础，构建VO对象
-            Map<String, Object> firstRow = studentRows.get(0);
-            GradeQueryVO vo = new GradeQueryVO();
-            vo.setKsh((String) firstRow.get("ksh"));
-            vo.setXm((String) firstRow.get("xm"));
-            vo.setSfzjh((String) firstRow.get("sfzjh"));
-            vo.setGrade((String) firstRow.get("grade"));
-            vo.setBj((String) firstRow.get("bj"));
-            vo.setXb((String) firstRow.get("xb"));
-            vo.setMz((String) firstRow.get("mz"));
-            vo.setSzsmc((String) firstRow.get("szsmc"));
-            vo.setKqmc((String) firstRow.get("kqmc"));
-            vo.setXxmc((String) firstRow.get("xxmc"));
-            vo.setXxdm((String) firstRow.get("xxdm"));
-
-            // 将该学生的所有科目成绩聚合到scores Map中
-            LinkedHashMap<String, String> scores = new LinkedHashMap<>();
-            for (Map<String, Object> row : studentRows) {
-                scores.put((String) row.get("kmmc"), (String) row.get("score_value"));
+            GradeQueryVO student = studentMap.get(ksh);
+            if (student != null) {
+                ordered.add(student);
             }
-            vo.setScores(scores);
-            records.add(vo);
         }
-        log.info("组装后，本页实际返回学生记录数：{}", records.size());
 
-        // 补全科目数据
-        completeSubjectScores(records, queryDTO);
-
-        // 步骤 4: 构建最终的 PageResult 对象
-        int totalPages = (int) Math.ceil((double) total / queryDTO.getPageSize());
-        return PageResult.<GradeQueryVO>builder()
-                .pageNum(queryDTO.getPageNum())
-                .pageSize(queryDTO.getPageSize())
-                .total(total)
-                .pages(totalPages)
-                .records(records)
-                .build();
+        GradeQueryResultHandler handler = new GradeQueryResultHandler(ordered, subjects);
+        kscjMapper.selectGradeScoresByKshList(kshList, queryDTO, handler);
+        return handler.getResults();
+    }
+
+    @Override
+    public void writeGradeData(GradeQueryDTO queryDTO, OutputStream outputStream) throws IOException {
+        applyPermission(queryDTO);
+        queryDTO.validateAndSetDefaults();
+        queryDTO.setAfterKsh(null);
+        queryDTO.setAfterXm(null);
+        List<String> subjects = resolveRequiredSubjects(queryDTO);
+
+        int written = 0;
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+            generator.writeStartArray();
+            while (true) {
+                // 按排序键分批读取，每批从上一批最后一个考生之后开始
+                PageHelper.startPage(1, streamBatchSize, false);
+                List<String> kshList = kscjMapper.selectPaginatedStudentKsh(queryDTO);
+                if (kshList.isEmpty()) {
+                    break;
+                }
+                List<GradeQueryVO> records = loadGradeRecords(kshList, queryDTO, subjects);
+                for (GradeQueryVO record : records) {
+                    generator.writeObject(record);
+                }
+                generator.flush();
+                written += records.size();
+                if (kshList.size() < streamBatchSize) {
+                    break;
+                }
+                Object[] keys = cursorKeys(queryDTO, kshList, records);
+                if (keys.length == 2) {
+                    queryDTO.setAfterXm((String) keys[0]);
+                    queryDTO.setAfterKsh((String) keys[1]);
+                } else {
+                    queryDTO.setAfterKsh((String) keys[0]);
+                }
+            }
+            generator.writeEndArray();
+        }
+        log.info("流式导出成绩数据完成，考试计划：{}，考生数：{}", queryDTO.getKsjhdm(), written);
+    }
+
+    /**
+     * 将当前登录用户的数据范围权限设置到查询条件中，由SQL进行最终的数据范围限定
+     */
+    private void applyPermission(GradeQueryDTO queryDTO) {
+        UserContext.UserInfo user = UserContext.get();
+        if (user != null) {
+            String userDm = user.getDm();
+            log.info("设置最终数据范围权限，用户DM: {}", userDm);
+            queryDTO.setPermissionDm(userDm);
+        }
     }
 
     /**
-     * 补全科目数据，确保所有科目都在scores中返回
+     * 查询需返回的科目，确保所有科目都在scores中返回
      * 根据kmlx查询对应的科目，没有成绩的科目设置为null
      *
-     * @param records  成绩记录列表
      * @param queryDTO 查询条件
+     * @return 科目名称列表（按显示顺序），无法确定时返回null，此时按查询到的科目返回
      */
-    private void completeSubjectScores(List<GradeQueryVO> records, GradeQueryDTO queryDTO) {
+    private List<String> resolveRequiredSubjects(GradeQueryDTO queryDTO) {
         // 如果没有指定考试计划代码，则无法补全科目
         if (!StringUtils.hasText(queryDTO.getKsjhdm())) {
             log.warn("未指定考试计划代码，无法补全科目数据");
-            return;
+            return null;
         }
 
         try {
@@ -150,36 +249,12 @@ public class GradeServiceImpl implements GradeService {
 
             log.info("考试计划[{}]科目类型[{}]下共有{}个科目需要补全：{}",
                     queryDTO.getKsjhdm(), queryDTO.getKmlx(), requiredSubjects.size(), requiredSubjects);
-
-            // 为每个学生补全缺失的科目，保持科目顺序
-            for (GradeQueryVO record : records) {
-                if (record.getScores() == null) {
-                    continue;
-                }
-
-                // 创建新的LinkedHashMap来保持科目顺序
-                LinkedHashMap<String, String> orderedScores = new LinkedHashMap<>();
-
-                // 按照requiredSubjects的顺序添加科目
-                for (String subjectName : requiredSubjects) {
-                    if (record.getScores().containsKey(subjectName)) {
-                        // 如果有成绩，使用原有成绩
-                        orderedScores.put(subjectName, record.getScores().get(subjectName));
-                    } else {
-                        // 如果没有成绩，设置为null
-                        orderedScores.put(subjectName, null);
-                    }
-                }
-
-                // 替换原有的scores
-                record.setScores(orderedScores);
-            }
-
-            log.info("科目补全完成，每个学生现在都包含{}个科目的成绩数据", requiredSubjects.size());
+            return requiredSubjects;
 
         } catch (Exception e) {
-            log.error("补全科目数据失败", e);
+            log.error("查询需补全的科目失败", e);
             // 不抛出异常，避免影响主要查询功能
+            return null;
         }
     }
 }
\ No newline at end of file
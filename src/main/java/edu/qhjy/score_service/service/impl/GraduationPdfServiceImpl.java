@@ -1,30 +1,30 @@
 package edu.qhjy.score_service.service.impl;
 
 import com.lowagie.text.*;
+import com.lowagie.text.Font;
 import com.lowagie.text.Rectangle;
-import com.lowagie.text.pdf.BaseFont;
 import com.lowagie.text.pdf.PdfPCell;
 import com.lowagie.text.pdf.PdfPTable;
 import com.lowagie.text.pdf.PdfWriter;
-import edu.qhjy.score_service.common.PageResult;
-import edu.qhjy.score_service.common.Result;
 import edu.qhjy.score_service.domain.dto.GraduationPdfQueryDTO;
 import edu.qhjy.score_service.domain.dto.GraduationQueryDTO;
 import edu.qhjy.score_service.domain.vo.GraduationStudentVO;
 import edu.qhjy.score_service.mapper.primary.KmxxMapper;
-import edu.qhjy.score_service.mapper.primary.KscjMapper;
 import edu.qhjy.score_service.service.GraduationPdfService;
 import edu.qhjy.score_service.service.GraduationService;
+import edu.qhjy.score_service.service.pdf.PdfStyleRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.util.CollectionUtils;
 
-import java.awt.*;
 import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -49,92 +49,111 @@ public class GraduationPdfServiceImpl implements GraduationPdfService {
     private static final float TITLE_FONT_SIZE = 16f;
     private static final float HEADER_FONT_SIZE = 12f;
     private static final float TABLE_FONT_SIZE = 8f;
+    // 基本信息列表头（科目列按查询到的科目追加）
+    private static final String[] BASIC_HEADERS = {"毕业年度", "考生号", "姓名", "性别", "市州", "县区", "学校", "考籍状态"};
     private final GraduationService graduationService;
-    private final KscjMapper kscjMapper;
     private final KmxxMapper kmxxMapper;
+    private final PdfStyleRegistry pdfStyleRegistry;
+
+    // 流式生成时每次读取的页数（每批学生数 = ROWS_PER_PAGE * pagesPerFetch）
+    @Value("${pdf.stream.pages-per-fetch:10}")
+    private int pagesPerFetch;
 
     @Override
     public ByteArrayOutputStream generateGraduationPdf(GraduationPdfQueryDTO queryDTO) throws Exception {
-        log.info("开始生成毕业生花名册PDF，查询条件：{}", queryDTO);
-
         ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        Document document = new Document(PAGE_SIZE, MARGIN_LEFT, MARGIN_RIGHT, MARGIN_TOP, MARGIN_BOTTOM);
+        writeGraduationPdf(queryDTO, baos);
+        return baos;
+    }
 
-        try (document) {
-            PdfWriter writer = PdfWriter.getInstance(document, baos);
-            document.open();
+    @Override
+    public void writeGraduationPdf(GraduationPdfQueryDTO queryDTO, OutputStream outputStream) throws Exception {
+        log.info("开始生成毕业生花名册PDF，查询条件：{}", queryDTO);
+
+        // 先统计人数，用于页眉中的总页数
+        int totalPages = countGraduationPdfPages(queryDTO);
+        if (totalPages == 0) {
+            throw new RuntimeException("未查询到毕业生数据");
+        }
+        writeGraduationPdfPages(queryDTO, 0, totalPages, totalPages, outputStream);
+    }
 
-            // 查询毕业生数据（不分页，获取所有数据）
-            List<GraduationStudentVO> graduationStudents = queryGraduationStudentsForPdf(queryDTO);
+    @Override
+    public int countGraduationPdfPages(GraduationPdfQueryDTO queryDTO) {
+        int totalCount = graduationService.countGraduationStudents(convertToGraduationQueryDTO(queryDTO));
+        log.info("查询到毕业生数据总数：{}", totalCount);
+        return (totalCount + ROWS_PER_PAGE - 1) / ROWS_PER_PAGE;
+    }
 
-            if (CollectionUtils.isEmpty(graduationStudents)) {
-                throw new RuntimeException("未查询到毕业生数据");
-            }
+    @Override
+    public void writeGraduationPdfPages(GraduationPdfQueryDTO queryDTO, int firstPage, int pageCount, int totalPages,
+                                        OutputStream outputStream) throws Exception {
+        GraduationQueryDTO graduationQueryDTO = convertToGraduationQueryDTO(queryDTO);
 
-            // 获取所有科目名称，用于构建表头
-            List<String> allSubjects = getAllSubjects();
+        // 获取所有科目名称，用于构建表头
+        List<String> allSubjects = getAllSubjects();
 
-            log.info("查询到毕业生数据总数：{}，科目总数：{}", graduationStudents.size(), allSubjects.size());
+        // 每批页数须整除起始页，起始批才能按页码定位
+        int batchPages = gcd(firstPage, pagesPerFetch);
+        int firstBatch = firstPage / batchPages;
+        int maxBatches = (pageCount + batchPages - 1) / batchPages;
+        int maxRows = pageCount * ROWS_PER_PAGE;
 
-            // 分页处理数据
-            int totalPages = (int) Math.ceil((double) graduationStudents.size() / ROWS_PER_PAGE);
+        Document document = new Document(PAGE_SIZE, MARGIN_LEFT, MARGIN_RIGHT, MARGIN_TOP, MARGIN_BOTTOM);
 
-            for (int pageIndex = 0; pageIndex < totalPages; pageIndex++) {
-                if (pageIndex > 0) {
-                    document.newPage();
-                }
+        try (document) {
+            PdfWriter writer = PdfWriter.getInstance(document, outputStream);
+            // 输出流由调用方关闭
+            writer.setCloseStream(false);
+            document.open();
 
-                // 添加页面内容
-                addPageContent(document, graduationStudents, allSubjects, pageIndex, totalPages, queryDTO);
+            // 按批读取学生，凑满一页即写出，内存中只保留当前批次和当前页
+            List<GraduationStudentVO> pageData = new ArrayList<>(ROWS_PER_PAGE);
+            int[] counters = {0, 0}; // 已读行数、已写页数
+            graduationService.forEachGraduationStudentBatch(graduationQueryDTO, firstBatch, maxBatches,
+                    ROWS_PER_PAGE * batchPages, batch -> {
+                        for (GraduationStudentVO student : batch) {
+                            if (counters[0]++ >= maxRows) {
+                                return;
+                            }
+                            if (!CollectionUtils.isEmpty(allSubjects)) {
+                                enrichStudentScoresWithAllSubjects(student, allSubjects);
+                            }
+                            pageData.add(student);
+                            if (pageData.size() == ROWS_PER_PAGE) {
+                                writePage(document, pageData, allSubjects, firstPage, counters[1]++, totalPages, queryDTO);
+                                pageData.clear();
+                            }
+                        }
+                    });
+            if (!pageData.isEmpty()) {
+                writePage(document, pageData, allSubjects, firstPage, counters[1]++, totalPages, queryDTO);
+            }
+            if (counters[1] == 0) {
+                throw new RuntimeException("未查询到毕业生数据");
             }
 
-            log.info("毕业生花名册PDF生成完成，总页数：{}", totalPages);
-
+            log.info("毕业生花名册PDF生成完成，第{}-{}页，共{}页", firstPage + 1, firstPage + counters[1], totalPages);
         }
+    }
 
-        return baos;
+    private static int gcd(int a, int b) {
+        return b == 0 ? a : gcd(b, a % b);
     }
 
     /**
-     * 查询毕业生数据用于PDF生成
-     * 修改scores字段返回逻辑，包含所有科目
+     * 写出一页：除本文档第一页外先换页，换页时上一页内容即写入输出流；页码和序号按整份花名册计算
      */
-    private List<GraduationStudentVO> queryGraduationStudentsForPdf(GraduationPdfQueryDTO queryDTO) {
+    private void writePage(Document document, List<GraduationStudentVO> pageData, List<String> allSubjects,
+                           int firstPage, int localPageIndex, int totalPages, GraduationPdfQueryDTO queryDTO) {
+        int pageIndex = firstPage + localPageIndex;
         try {
-            // 1. 转换查询条件
-            GraduationQueryDTO graduationQueryDTO = convertToGraduationQueryDTO(queryDTO);
-
-            // 2. 调用现有的毕业生查询服务获取基本数据（不分页，获取所有数据）
-            graduationQueryDTO.setPageNum(1);
-            graduationQueryDTO.setPageSize(Integer.MAX_VALUE);
-
-            Result<PageResult<GraduationStudentVO>> result = graduationService
-                    .queryGraduationStudents(graduationQueryDTO);
-            if (result.getCode() == null || !result.getCode().equals(200) || result.getData() == null
-                    || CollectionUtils.isEmpty(result.getData().getRecords())) {
-                log.warn("未查询到毕业生数据：{}", result.getMessage());
-                return new ArrayList<>();
+            if (localPageIndex > 0) {
+                document.newPage();
             }
-
-            List<GraduationStudentVO> students = result.getData().getRecords();
-
-            // 3. 获取所有科目列表
-            List<String> allSubjects = getAllSubjects();
-            if (CollectionUtils.isEmpty(allSubjects)) {
-                log.warn("未查询到科目信息");
-                return students; // 返回原始数据，不修改scores
-            }
-
-            // 4. 为每个学生重新构建完整的scores Map（包含所有科目）
-            for (GraduationStudentVO student : students) {
-                enrichStudentScoresWithAllSubjects(student, allSubjects);
-            }
-
-            return students;
-
+            addPageContent(document, pageData, allSubjects, pageIndex, totalPages, queryDTO);
         } catch (Exception e) {
-            log.error("查询毕业生数据失败", e);
-            return new ArrayList<>();
+            throw new RuntimeException("生成毕业生花名册PDF第" + (pageIndex + 1) + "页失败: " + e.getMessage(), e);
         }
     }
 
@@ -156,37 +175,21 @@ public class GraduationPdfServiceImpl implements GraduationPdfService {
 
     /**
      * 为学生补全所有科目的成绩信息
-     * 参考OutOfProvinceScoreServiceImpl的scoresList构建逻辑
+     * 成绩合格评定已随毕业生查询按批次载入（passCodes），这里只做一次内存合并，不再逐个考生查询kscj
      */
     private void enrichStudentScoresWithAllSubjects(GraduationStudentVO student, List<String> allSubjects) {
-        try {
-            // 查询学生的实际成绩数据（参考OutOfProvinceScoreServiceImpl.getStudentInfo方法）
-            List<Map<String, String>> scoresMapList = kscjMapper.selectScoresByKsh(student.getKsh());
-            Map<String, String> actualScores = new HashMap<>();
-            if (scoresMapList != null && !scoresMapList.isEmpty()) {
-                for (Map<String, String> scoreMap : scoresMapList) {
-                    String key = scoreMap.get("key");
-                    String value = scoreMap.get("value");
-                    if (key != null && value != null) {
-                        actualScores.put(key, value);
-                    }
-                }
-            }
-
-            // 构建包含所有科目的scores Map
-            Map<String, String> completeScores = new HashMap<>();
-            for (String subject : allSubjects) {
-                // 如果有成绩记录则返回CJHGM，否则返回null
-                completeScores.put(subject, actualScores.get(subject));
-            }
+        Map<String, String> actualScores = student.getPassCodes() != null
+                ? student.getPassCodes()
+                : Collections.emptyMap();
 
-            student.setScores(completeScores);
-
-        } catch (Exception e) {
-            log.error("为学生 {} 补全科目成绩失败", student.getKsh(), e);
-            // 设置空的scores Map
-            student.setScores(new HashMap<>());
+        // 构建包含所有科目的scores Map
+        Map<String, String> completeScores = new HashMap<>(allSubjects.size() * 4 / 3 + 1);
+        for (String subject : allSubjects) {
+            // 如果有成绩记录则返回CJHGM，否则返回null
+            completeScores.put(subject, actualScores.get(subject));
         }
+
+        student.setScores(completeScores);
     }
 
     /**
@@ -204,14 +207,11 @@ public class GraduationPdfServiceImpl implements GraduationPdfService {
     /**
      * 添加页面内容
      */
-    private void addPageContent(Document document, List<GraduationStudentVO> allStudents,
+    private void addPageContent(Document document, List<GraduationStudentVO> pageData,
                                 List<String> allSubjects, int pageIndex, int totalPages,
                                 GraduationPdfQueryDTO queryDTO) throws Exception {
 
-        // 获取当前页的数据
         int startIndex = pageIndex * ROWS_PER_PAGE;
-        int endIndex = Math.min(startIndex + ROWS_PER_PAGE, allStudents.size());
-        List<GraduationStudentVO> pageData = allStudents.subList(startIndex, endIndex);
 
         // 添加标题和页眉信息
         addTitleAndHeader(document, queryDTO, pageIndex + 1, totalPages);
@@ -226,12 +226,8 @@ public class GraduationPdfServiceImpl implements GraduationPdfService {
     private void addTitleAndHeader(Document document, GraduationPdfQueryDTO queryDTO,
                                    int currentPage, int totalPages) throws Exception {
 
-        // 创建中文字体
-        BaseFont baseFont = BaseFont.createFont("STSong-Light", "UniGB-UCS2-H", BaseFont.NOT_EMBEDDED);
-        com.lowagie.text.Font titleFont = new com.lowagie.text.Font(baseFont, TITLE_FONT_SIZE,
-                com.lowagie.text.Font.BOLD);
-        com.lowagie.text.Font headerFont = new com.lowagie.text.Font(baseFont, HEADER_FONT_SIZE,
-                com.lowagie.text.Font.NORMAL);
+        Font titleFont = pdfStyleRegistry.font(TITLE_FONT_SIZE, Font.BOLD);
+        Font headerFont = pdfStyleRegistry.font(HEADER_FONT_SIZE, Font.NORMAL);
 
         // 标题
         String title = "毕业生花名册";
@@ -284,12 +280,8 @@ public class GraduationPdfServiceImpl implements GraduationPdfService {
     private void addDataTable(Document document, List<GraduationStudentVO> studentData,
                               List<String> allSubjects, int startIndex) throws Exception {
 
-        // 创建中文字体
-        BaseFont baseFont = BaseFont.createFont("STSong-Light", "UniGB-UCS2-H", BaseFont.NOT_EMBEDDED);
-        com.lowagie.text.Font tableFont = new com.lowagie.text.Font(baseFont, TABLE_FONT_SIZE,
-                com.lowagie.text.Font.NORMAL);
-        com.lowagie.text.Font headerFont = new com.lowagie.text.Font(baseFont, TABLE_FONT_SIZE,
-                com.lowagie.text.Font.BOLD);
+        Font tableFont = pdfStyleRegistry.font(TABLE_FONT_SIZE, Font.NORMAL);
+        Font headerFont = pdfStyleRegistry.font(TABLE_FONT_SIZE, Font.BOLD);
 
         // 计算列数：毕业年度 + 考生号 + 姓名 + 性别 + 市州 + 县区 + 学校 + 考籍状态 + 各科目
         int columnCount = 8 + allSubjects.size();
@@ -329,27 +321,13 @@ public class GraduationPdfServiceImpl implements GraduationPdfService {
     /**
      * 添加表头
      */
-    private void addTableHeader(PdfPTable table, com.lowagie.text.Font headerFont, List<String> allSubjects) {
+    private void addTableHeader(PdfPTable table, Font headerFont, List<String> allSubjects) {
         // 基本信息列
-        String[] basicHeaders = {"毕业年度", "考生号", "姓名", "性别", "市州", "县区", "学校", "考籍状态"};
-
-        for (String header : basicHeaders) {
-            PdfPCell cell = new PdfPCell(new Phrase(header, headerFont));
-            cell.setHorizontalAlignment(Element.ALIGN_CENTER);
-            cell.setVerticalAlignment(Element.ALIGN_MIDDLE);
-            cell.setPadding(3f);
-            cell.setBackgroundColor(new Color(240, 240, 240));
-            table.addCell(cell);
-        }
+        pdfStyleRegistry.addHeaderRow(table, BASIC_HEADERS, headerFont, 3f);
 
         // 科目列
         for (String subject : allSubjects) {
-            PdfPCell cell = new PdfPCell(new Phrase(subject, headerFont));
-            cell.setHorizontalAlignment(Element.ALIGN_CENTER);
-            cell.setVerticalAlignment(Element.ALIGN_MIDDLE);
-            cell.setPadding(3f);
-            cell.setBackgroundColor(new Color(240, 240, 240));
-            table.addCell(cell);
+            table.addCell(pdfStyleRegistry.headerCell(subject, headerFont, 3f));
         }
     }
 
@@ -357,7 +335,7 @@ public class GraduationPdfServiceImpl implements GraduationPdfService {
      * 添加数据行
      */
     private void addTableRow(PdfPTable table, GraduationStudentVO student,
-                             List<String> allSubjects, com.lowagie.text.Font tableFont) {
+                             List<String> allSubjects, Font tableFont) {
 
         // 毕业年度
         addTableCell(table, student.getBynd(), tableFont, Element.ALIGN_CENTER);
@@ -394,12 +372,8 @@ public class GraduationPdfServiceImpl implements GraduationPdfService {
     /**
      * 添加表格单元格
      */
-    private void addTableCell(PdfPTable table, String content, com.lowagie.text.Font font, int alignment) {
-        PdfPCell cell = new PdfPCell(new Phrase(content != null ? content : "", font));
-        cell.setHorizontalAlignment(alignment);
-        cell.setVerticalAlignment(Element.ALIGN_MIDDLE);
-        cell.setPadding(2f);
-        table.addCell(cell);
+    private void addTableCell(PdfPTable table, String content, Font font, int alignment) {
+        table.addCell(pdfStyleRegistry.cell(content, font, alignment, 2f));
     }
 
     @Override
@@ -11,13 +11,16 @@ import edu.qhjy.score_service.mapper.primary.GraduationMapper;
 import edu.qhjy.score_service.service.GraduationService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.util.CollectionUtils;
 import org.springframework.util.StringUtils;
 
 import java.time.LocalDate;
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 /**
@@ -29,6 +32,11 @@ import java.util.stream.Collectors;
 public class GraduationServiceImpl implements GraduationService {
 
     private final GraduationMapper graduationMapper;
+    private final TransactionTemplate transactionTemplate;
+
+    // 按考生号批量查询成绩时每批的考生数（IN列表长度）
+    @Value("${graduation.score-batch-size:1000}")
+    private int scoreBatchSize;
 
     @Override
     @Transactional(readOnly = true)
@@ -66,11 +74,8 @@ public class GraduationServiceImpl implements GraduationService {
                         .map(GraduationStudentVO::getKsh)
                         .collect(Collectors.toList());
 
-                List<StudentScoreVO> allScores = graduationMapper.selectStudentScoresBatch(kshList);
-
-                // 按考生号分组成绩数据
-                Map<String, List<StudentScoreVO>> scoresMap = allScores.stream()
-                        .collect(Collectors.groupingBy(StudentScoreVO::getKsh));
+                // 分批查询所有学生的成绩
+                Map<String, List<StudentScoreVO>> scoresMap = selectStudentScoresByKsh(kshList);
 
                 // 为每个学生设置成绩和毕业条件判定
                 for (GraduationStudentVO student : students) {
@@ -99,12 +104,8 @@ public class GraduationServiceImpl implements GraduationService {
                         .map(GraduationStudentVO::getKsh)
                         .collect(Collectors.toList());
 
-                // 批量查询所有学生的成绩
-                List<StudentScoreVO> allScores = graduationMapper.selectStudentScoresBatch(kshList);
-
-                // 按考生号分组成绩数据
-                Map<String, List<StudentScoreVO>> scoresMap = allScores.stream()
-                        .collect(Collectors.groupingBy(StudentScoreVO::getKsh));
+                // 分批查询所有学生的成绩
+                Map<String, List<StudentScoreVO>> scoresMap = selectStudentScoresByKsh(kshList);
 
                 // 为每个学生设置成绩和毕业条件判定
                 for (GraduationStudentVO student : students) {
@@ -122,7 +123,89 @@ public class GraduationServiceImpl implements GraduationService {
     }
 
     @Override
-    @Transactional(rollbackFor = Exception.class)
+    public int countGraduationStudents(GraduationQueryDTO queryDTO) {
+        BytjEntity graduationRequirement = requireGraduationRequirement(queryDTO.getSzsmc());
+        if (Boolean.TRUE.equals(queryDTO.getIsQualified())) {
+            return graduationMapper.countQualifiedGraduationStudents(
+                    queryDTO, graduationRequirement.getKskm(), graduationRequirement.getKckm());
+        }
+        return graduationMapper.countGraduationStudents(queryDTO);
+    }
+
+    @Override
+    public void forEachGraduationStudentBatch(GraduationQueryDTO queryDTO, int batchSize,
+                                              Consumer<List<GraduationStudentVO>> batchConsumer) {
+        forEachGraduationStudentBatch(queryDTO, 0, Integer.MAX_VALUE, batchSize, batchConsumer);
+    }
+
+    @Override
+    public void forEachGraduationStudentBatch(GraduationQueryDTO queryDTO, int firstBatch, int maxBatches, int batchSize,
+                                              Consumer<List<GraduationStudentVO>> batchConsumer) {
+        BytjEntity graduationRequirement = requireGraduationRequirement(queryDTO.getSzsmc());
+        boolean qualifiedOnly = Boolean.TRUE.equals(queryDTO.getIsQualified());
+        // 按考生号排序（升序或降序）时用考生号游标翻页，避免深分页的OFFSET扫描；
+        // 按姓名、毕业年度排序时按页码翻页，查询以考生号作为最后的排序键，各批顺序确定
+        boolean keyset = isKshSort(queryDTO);
+
+        queryDTO.setPageNum(firstBatch + 1);
+        queryDTO.setPageSize(batchSize);
+        queryDTO.setAfterKsh(null);
+        for (int batchCount = 0; batchCount < maxBatches; batchCount++) {
+            List<GraduationStudentVO> students = qualifiedOnly
+                    ? graduationMapper.selectQualifiedGraduationStudents(
+                    queryDTO, graduationRequirement.getKskm(), graduationRequirement.getKckm())
+                    : graduationMapper.selectGraduationStudents(queryDTO);
+            if (CollectionUtils.isEmpty(students)) {
+                return;
+            }
+
+            List<String> kshList = new ArrayList<>(students.size());
+            for (GraduationStudentVO student : students) {
+                kshList.add(student.getKsh());
+            }
+            Map<String, List<StudentScoreVO>> scoresMap = selectStudentScoresByKsh(kshList);
+            for (GraduationStudentVO student : students) {
+                enrichStudentGraduationInfoBatch(student, graduationRequirement,
+                        scoresMap.getOrDefault(student.getKsh(), Collections.emptyList()));
+            }
+            batchConsumer.accept(students);
+
+            if (students.size() < batchSize) {
+                return;
+            }
+            if (keyset) {
+                // 起始批按页码定位后改为从第一页按游标读取
+                queryDTO.setPageNum(1);
+                queryDTO.setAfterKsh(students.get(students.size() - 1).getKsh());
+            } else {
+                queryDTO.setPageNum(queryDTO.getPageNum() + 1);
+            }
+        }
+    }
+
+    /**
+     * 获取毕业条件，未设置时抛出异常
+     */
+    private BytjEntity requireGraduationRequirement(String szsmc) {
+        if (!StringUtils.hasText(szsmc)) {
+            throw new IllegalArgumentException("所在市名称不能为空");
+        }
+        BytjEntity graduationRequirement = graduationMapper.selectBytjBySzsmc(szsmc);
+        if (graduationRequirement == null) {
+            throw new RuntimeException("未找到该市的毕业条件设置");
+        }
+        return graduationRequirement;
+    }
+
+    /**
+     * 查询结果是否只按考生号排序（排序字段为空、ksh或不在xm/bynd中时，与Mapper中的排序一致）
+     */
+    private boolean isKshSort(GraduationQueryDTO queryDTO) {
+        String sortField = queryDTO.getSortField();
+        return !"xm".equalsIgnoreCase(sortField) && !"bynd".equalsIgnoreCase(sortField);
+    }
+
+    @Override
     public Result<String> batchGraduationApproval(BatchGraduationDTO batchDTO) {
         try {
             // 参数校验
@@ -147,47 +230,55 @@ public class GraduationServiceImpl implements GraduationService {
                 log.info("使用系统当前年份作为毕业年度：{}", currentYear);
             }
 
-            // 查询符合条件的考生号列表
-            List<String> qualifiedKshList = graduationMapper.selectQualifiedStudentKsh(
-                    batchDTO.getSzsmc(),
-                    batchDTO.getKqmc(),
-                    batchDTO.getXxmc(),
-                    batchDTO.getKsh(),
-                    batchDTO.getBynd());
-
-            if (CollectionUtils.isEmpty(qualifiedKshList)) {
-                return Result.error("未找到符合条件的学生");
-            }
-
-            log.info("找到符合基本条件的学生数量：{}", qualifiedKshList.size());
-
             // 获取毕业条件
             BytjEntity graduationRequirement = graduationMapper.selectBytjBySzsmc(batchDTO.getSzsmc());
             if (graduationRequirement == null) {
                 return Result.error("未找到该市的毕业条件设置");
             }
 
-            // 使用优化后的批量检查方法筛选真正满足毕业条件的学生
-            List<String> actualQualifiedKshList = batchCheckGraduationQualification(
-                    qualifiedKshList, graduationRequirement);
+            // 按学校分块，每所学校一条UPDATE并单独提交，避免全市学生在一个事务中长时间锁定
+            List<String> schools = graduationMapper.selectApprovalSchools(
+                    batchDTO.getSzsmc(),
+                    batchDTO.getKqmc(),
+                    batchDTO.getXxmc(),
+                    batchDTO.getKsh());
 
-            if (CollectionUtils.isEmpty(actualQualifiedKshList)) {
-                return Result.error("没有学生满足毕业条件");
+            if (CollectionUtils.isEmpty(schools)) {
+                return Result.error("未找到符合条件的学生");
             }
 
-            log.info("满足毕业条件的学生数量：{}", actualQualifiedKshList.size());
+            log.info("批量毕业审批范围内学校数量：{}", schools.size());
 
-            // 批量更新毕业状态
             // 如果operatorCode为空，传入null避免数据库字段长度限制
             String operatorCode = StringUtils.hasText(batchDTO.getOperatorCode()) ? batchDTO.getOperatorCode() : null;
-            int updateCount = graduationMapper.batchUpdateGraduationStatus(
-                    actualQualifiedKshList,
-                    currentYear,
-                    batchDTO.getOperatorName(),
-                    operatorCode);
+            int updateCount = 0;
+            List<String> approvedSchools = new ArrayList<>();
+            for (String school : schools) {
+                int schoolCount;
+                try {
+                    schoolCount = approveSchool(batchDTO, school, graduationRequirement, currentYear, operatorCode);
+                } catch (Exception e) {
+                    // 之前的学校已各自提交，不会回滚，需如实返回已完成的部分
+                    log.error("学校 {} 毕业审批失败，已提交学校：{}，已更新学生数量：{}", school, approvedSchools, updateCount, e);
+                    return Result.error(String.format(
+                            "批量毕业审批部分完成：学校 %s 审批失败（%s）；此前已提交 %d 所学校、%d 名学生%s，可重新执行以完成剩余学校",
+                            school, e.getMessage(), approvedSchools.size(), updateCount,
+                            approvedSchools.isEmpty() ? "" : "（" + String.join("、", approvedSchools) + "）"));
+                }
+                log.info("学校 {} 毕业审批完成，更新学生数量：{}", school, schoolCount);
+                updateCount += schoolCount;
+                if (schoolCount > 0) {
+                    approvedSchools.add(school != null ? school : "未填写学校");
+                }
+            }
 
-            log.info("批量毕业审批完成，更新学生数量：{}", updateCount);
-            return Result.success(String.format("批量毕业审批成功，共处理 %d 名学生", updateCount));
+            if (updateCount == 0) {
+                return Result.error("没有学生满足毕业条件");
+            }
+
+            log.info("批量毕业审批完成，更新学生数量：{}，涉及学校：{}", updateCount, approvedSchools.size());
+            return Result.success(String.format("批量毕业审批成功，共处理 %d 名学生（%d 所学校）",
+                    updateCount, approvedSchools.size()));
 
         } catch (Exception e) {
             log.error("批量毕业审批失败", e);
@@ -195,6 +286,25 @@ public class GraduationServiceImpl implements GraduationService {
         }
     }
 
+    /**
+     * 在独立事务中审批一所学校，返回实际更新的学生数
+     */
+    private int approveSchool(BatchGraduationDTO batchDTO, String school, BytjEntity graduationRequirement,
+                              String currentYear, String operatorCode) {
+        Integer count = transactionTemplate.execute(status -> graduationMapper.approveQualifiedGraduation(
+                batchDTO.getSzsmc(),
+                batchDTO.getKqmc(),
+                batchDTO.getXxmc(),
+                batchDTO.getKsh(),
+                school,
+                graduationRequirement.getKskm(),
+                graduationRequirement.getKckm(),
+                currentYear,
+                batchDTO.getOperatorName(),
+                operatorCode));
+        return count != null ? count : 0;
+    }
+
     @Override
     public boolean checkGraduationQualification(String ksh, String szsmc) {
         try {
@@ -229,75 +339,6 @@ public class GraduationServiceImpl implements GraduationService {
         }
     }
 
-    /**
-     * 批量检查毕业条件（优化版本，解决N+1查询问题）
-     *
-     * @param kshList               考生号列表
-     * @param graduationRequirement 毕业条件
-     * @return 满足毕业条件的考生号列表
-     */
-    private List<String> batchCheckGraduationQualification(List<String> kshList, BytjEntity graduationRequirement) {
-        if (CollectionUtils.isEmpty(kshList)) {
-            return new ArrayList<>();
-        }
-
-        try {
-            // 批量查询所有学生的成绩
-            List<StudentScoreVO> allScores = graduationMapper.selectStudentScoresBatch(kshList);
-
-            // 按考生号分组成绩数据
-            Map<String, List<StudentScoreVO>> scoresMap = allScores.stream()
-                    .collect(Collectors.groupingBy(StudentScoreVO::getKsh));
-
-            List<String> qualifiedKshList = new ArrayList<>();
-
-            // 遍历每个学生，检查毕业条件
-            for (String ksh : kshList) {
-                List<StudentScoreVO> studentScores = scoresMap.getOrDefault(ksh, new ArrayList<>());
-
-                // 统计考试科目和考察科目的合格数量
-                int examSubjectPassCount = 0;
-                int assessmentSubjectPassCount = 0;
-
-                Set<String> examSubjects = new HashSet<>();
-                Set<String> assessmentSubjects = new HashSet<>();
-
-                for (StudentScoreVO score : studentScores) {
-                    if ("合格".equals(score.getCjhgm())) {
-                        Integer kmlx = score.getKmlx();
-                        if (kmlx != null) {
-                            if (kmlx == 0) {
-                                // 考试科目（KMLX=0）
-                                examSubjects.add(score.getKmmc());
-                            } else if (kmlx == 1) {
-                                // 考察科目（KMLX=1）
-                                assessmentSubjects.add(score.getKmmc());
-                            }
-                        }
-                    }
-                }
-
-                examSubjectPassCount = examSubjects.size();
-                assessmentSubjectPassCount = assessmentSubjects.size();
-
-                // 判断是否满足毕业条件
-                boolean examQualified = examSubjectPassCount >= graduationRequirement.getKskm();
-                boolean assessmentQualified = assessmentSubjectPassCount >= graduationRequirement.getKckm();
-
-                if (examQualified && assessmentQualified) {
-                    qualifiedKshList.add(ksh);
-                }
-            }
-
-            log.info("批量检查毕业条件完成，输入学生数：{}，满足条件学生数：{}", kshList.size(), qualifiedKshList.size());
-            return qualifiedKshList;
-
-        } catch (Exception e) {
-            log.error("批量检查毕业条件失败", e);
-            return new ArrayList<>();
-        }
-    }
-
     @Override
     public GraduationStudentVO getStudentGraduationDetails(String ksh, String szsmc) {
         try {
@@ -330,6 +371,24 @@ public class GraduationServiceImpl implements GraduationService {
         }
     }
 
+    /**
+     * 按考生号分批查询成绩并按考生号分组
+     * 每批的IN列表不超过scoreBatchSize，避免全市导出时超出驱动参数上限
+     *
+     * @param kshList 考生号列表
+     * @return 考生号->成绩列表
+     */
+    private Map<String, List<StudentScoreVO>> selectStudentScoresByKsh(List<String> kshList) {
+        Map<String, List<StudentScoreVO>> scoresMap = new HashMap<>(kshList.size() * 4 / 3 + 1);
+        for (int from = 0; from < kshList.size(); from += scoreBatchSize) {
+            List<String> batch = kshList.subList(from, Math.min(from + scoreBatchSize, kshList.size()));
+            for (StudentScoreVO score : graduationMapper.selectStudentScoresBatch(batch)) {
+                scoresMap.computeIfAbsent(score.getKsh(), k -> new ArrayList<>()).add(score);
+            }
+        }
+        return scoresMap;
+    }
+
     /**
      * 丰富学生毕业信息（批量优化版本）
      *
@@ -342,6 +401,7 @@ public class GraduationServiceImpl implements GraduationService {
         try {
             // 转换成绩为Map格式
             Map<String, String> scoresMap = new HashMap<>();
+            Map<String, String> passCodes = new HashMap<>();
             int examSubjectPassCount = 0;
             int assessmentSubjectPassCount = 0;
 
@@ -370,6 +430,9 @@ public class GraduationServiceImpl implements GraduationService {
                     displayScore = StringUtils.hasText(score.getCjdjm()) ? score.getCjdjm() : score.getCjhgm();
                 }
                 scoresMap.put(score.getKmmc(), displayScore);
+                if (score.getCjhgm() != null) {
+                    passCodes.put(score.getKmmc(), score.getCjhgm());
+                }
 
                 // 统计合格科目数量
                 if ("合格".equals(score.getCjhgm())) {
@@ -388,6 +451,7 @@ public class GraduationServiceImpl implements GraduationService {
 
             // 设置学生信息
             student.setScores(scoresMap);
+            student.setPassCodes(passCodes);
             student.setExamSubjectPassCount(examSubjectPassCount);
             student.setAssessmentSubjectPassCount(assessmentSubjectPassCount);
             student.setRequiredExamSubjectCount(graduationRequirement.getKskm());
@@ -2,7 +2,6 @@ package edu.qhjy.score_service.service.impl;
 
 import com.lowagie.text.*;
 import com.lowagie.text.Font;
-import com.lowagie.text.pdf.BaseFont;
 import com.lowagie.text.pdf.PdfPCell;
 import com.lowagie.text.pdf.PdfPTable;
 import com.lowagie.text.pdf.PdfWriter;
@@ -11,11 +10,11 @@ import edu.qhjy.score_service.domain.dto.GraduationStatisticsQueryDTO;
 import edu.qhjy.score_service.domain.vo.GraduationStatisticsVO;
 import edu.qhjy.score_service.service.GraduationStatisticsPdfService;
 import edu.qhjy.score_service.service.GraduationStatisticsService;
+import edu.qhjy.score_service.service.pdf.PdfStyleRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
-import java.awt.*;
 import java.io.ByteArrayOutputStream;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
@@ -39,7 +38,10 @@ public class GraduationStatisticsPdfServiceImpl implements GraduationStatisticsP
     private static final float TITLE_FONT_SIZE = 18f;
     private static final float HEADER_FONT_SIZE = 14f;
     private static final float TABLE_FONT_SIZE = 12f;
+    // 表头（4列：毕业年度、级别、地市、人数）
+    private static final String[] TABLE_HEADERS = {"毕业年度", "级别", "地市", "人数"};
     private final GraduationStatisticsService graduationStatisticsService;
+    private final PdfStyleRegistry pdfStyleRegistry;
 
     @Override
     public ByteArrayOutputStream generateGraduationStatisticsPdf(GraduationStatisticsQueryDTO queryDTO) throws Exception {
@@ -83,21 +85,7 @@ public class GraduationStatisticsPdfServiceImpl implements GraduationStatisticsP
      * 添加标题
      */
     private void addTitle(Document document, GraduationStatisticsQueryDTO queryDTO) throws DocumentException {
-        // 创建中文字体
-        BaseFont baseFont;
-        try {
-            baseFont = BaseFont.createFont("STSong-Light", "UniGB-UCS2-H", BaseFont.NOT_EMBEDDED);
-        } catch (Exception e) {
-            log.warn("无法加载中文字体，使用默认字体");
-            try {
-                baseFont = BaseFont.createFont(BaseFont.HELVETICA, BaseFont.CP1252, BaseFont.NOT_EMBEDDED);
-            } catch (Exception ex) {
-                log.error("创建默认字体失败", ex);
-                throw new RuntimeException("字体创建失败", ex);
-            }
-        }
-
-        Font titleFont = new Font(baseFont, TITLE_FONT_SIZE, Font.BOLD);
+        Font titleFont = pdfStyleRegistry.font(TITLE_FONT_SIZE, Font.BOLD);
 
         // 构建标题文本
         String titleText = queryDTO.getBynd() + "年度" + queryDTO.getRxnd() + "级毕业生统计表";
@@ -113,22 +101,8 @@ public class GraduationStatisticsPdfServiceImpl implements GraduationStatisticsP
      * 添加统计表格
      */
     private void addStatisticsTable(Document document, GraduationStatisticsVO statisticsVO) throws DocumentException {
-        // 创建中文字体
-        BaseFont baseFont;
-        try {
-            baseFont = BaseFont.createFont("STSong-Light", "UniGB-UCS2-H", BaseFont.NOT_EMBEDDED);
-        } catch (Exception e) {
-            log.warn("无法加载中文字体，使用默认字体");
-            try {
-                baseFont = BaseFont.createFont(BaseFont.HELVETICA, BaseFont.CP1252, BaseFont.NOT_EMBEDDED);
-            } catch (Exception ex) {
-                log.error("创建默认字体失败", ex);
-                throw new RuntimeException("字体创建失败", ex);
-            }
-        }
-
-        Font headerFont = new Font(baseFont, HEADER_FONT_SIZE, Font.BOLD);
-        Font tableFont = new Font(baseFont, TABLE_FONT_SIZE, Font.NORMAL);
+        Font headerFont = pdfStyleRegistry.font(HEADER_FONT_SIZE, Font.BOLD);
+        Font tableFont = pdfStyleRegistry.font(TABLE_FONT_SIZE, Font.NORMAL);
 
         // 创建表格（4列：毕业年度、级别、地市、人数）
         PdfPTable table = new PdfPTable(4);
@@ -140,7 +114,7 @@ public class GraduationStatisticsPdfServiceImpl implements GraduationStatisticsP
         table.setWidths(columnWidths);
 
         // 添加表头
-        addTableHeader(table, headerFont);
+        pdfStyleRegistry.addHeaderRow(table, TABLE_HEADERS, headerFont, 8f);
 
         // 添加数据行
         List<GraduationStatisticsVO.CityStatistics> cityStatistics = statisticsVO.getGraduationStudentStatics();
@@ -151,75 +125,26 @@ public class GraduationStatisticsPdfServiceImpl implements GraduationStatisticsP
         document.add(table);
     }
 
-    /**
-     * 添加表头
-     */
-    private void addTableHeader(PdfPTable table, Font headerFont) {
-        String[] headers = {"毕业年度", "级别", "地市", "人数"};
-
-        for (String header : headers) {
-            PdfPCell cell = new PdfPCell(new Phrase(header, headerFont));
-            cell.setHorizontalAlignment(Element.ALIGN_CENTER);
-            cell.setVerticalAlignment(Element.ALIGN_MIDDLE);
-            cell.setPadding(8f);
-            cell.setBackgroundColor(new Color(240, 240, 240));
-            table.addCell(cell);
-        }
-    }
-
     /**
      * 添加数据行
      */
     private void addTableRow(PdfPTable table, GraduationStatisticsVO statisticsVO,
                              GraduationStatisticsVO.CityStatistics cityStats, Font tableFont) {
         // 毕业年度
-        PdfPCell byndCell = new PdfPCell(new Phrase(statisticsVO.getBynd() != null ? statisticsVO.getBynd().toString() : "", tableFont));
-        byndCell.setHorizontalAlignment(Element.ALIGN_CENTER);
-        byndCell.setVerticalAlignment(Element.ALIGN_MIDDLE);
-        byndCell.setPadding(5f);
-        table.addCell(byndCell);
-
+        table.addCell(pdfStyleRegistry.cell(statisticsVO.getBynd() != null ? statisticsVO.getBynd().toString() : "", tableFont, Element.ALIGN_CENTER, 5f));
         // 级别
-        PdfPCell rxndCell = new PdfPCell(new Phrase(statisticsVO.getRxnd() != null ? statisticsVO.getRxnd().toString() : "", tableFont));
-        rxndCell.setHorizontalAlignment(Element.ALIGN_CENTER);
-        rxndCell.setVerticalAlignment(Element.ALIGN_MIDDLE);
-        rxndCell.setPadding(5f);
-        table.addCell(rxndCell);
-
+        table.addCell(pdfStyleRegistry.cell(statisticsVO.getRxnd() != null ? statisticsVO.getRxnd().toString() : "", tableFont, Element.ALIGN_CENTER, 5f));
         // 地市
-        PdfPCell cityCell = new PdfPCell(new Phrase(cityStats.getSzsmc() != null ? cityStats.getSzsmc() : "", tableFont));
-        cityCell.setHorizontalAlignment(Element.ALIGN_CENTER);
-        cityCell.setVerticalAlignment(Element.ALIGN_MIDDLE);
-        cityCell.setPadding(5f);
-        table.addCell(cityCell);
-
+        table.addCell(pdfStyleRegistry.cell(cityStats.getSzsmc(), tableFont, Element.ALIGN_CENTER, 5f));
         // 人数
-        PdfPCell countCell = new PdfPCell(new Phrase(cityStats.getTotalCount() != null ? cityStats.getTotalCount().toString() : "0", tableFont));
-        countCell.setHorizontalAlignment(Element.ALIGN_CENTER);
-        countCell.setVerticalAlignment(Element.ALIGN_MIDDLE);
-        countCell.setPadding(5f);
-        table.addCell(countCell);
+        table.addCell(pdfStyleRegistry.cell(cityStats.getTotalCount() != null ? cityStats.getTotalCount().toString() : "0", tableFont, Element.ALIGN_CENTER, 5f));
     }
 
     /**
      * 添加汇总信息
      */
     private void addSummaryInfo(Document document, GraduationStatisticsVO statisticsVO) throws DocumentException {
-        // 创建中文字体
-        BaseFont baseFont;
-        try {
-            baseFont = BaseFont.createFont("STSong-Light", "UniGB-UCS2-H", BaseFont.NOT_EMBEDDED);
-        } catch (Exception e) {
-            log.warn("无法加载中文字体，使用默认字体");
-            try {
-                baseFont = BaseFont.createFont(BaseFont.HELVETICA, BaseFont.CP1252, BaseFont.NOT_EMBEDDED);
-            } catch (Exception ex) {
-                log.error("创建默认字体失败", ex);
-                throw new RuntimeException("字体创建失败", ex);
-            }
-        }
-
-        Font summaryFont = new Font(baseFont, HEADER_FONT_SIZE, Font.BOLD);
+        Font summaryFont = pdfStyleRegistry.font(HEADER_FONT_SIZE, Font.BOLD);
 
         // 添加汇总表格
         PdfPTable summaryTable = new PdfPTable(4);
@@ -231,40 +156,24 @@ public class GraduationStatisticsPdfServiceImpl implements GraduationStatisticsP
         summaryTable.setWidths(summaryWidths);
 
         // 毕业年度合计行
-        PdfPCell byndLabelCell = new PdfPCell(new Phrase((statisticsVO.getBynd() != null ? statisticsVO.getBynd().toString() : "") + "年度合计", summaryFont));
-        byndLabelCell.setHorizontalAlignment(Element.ALIGN_CENTER);
-        byndLabelCell.setVerticalAlignment(Element.ALIGN_MIDDLE);
-        byndLabelCell.setPadding(8f);
-        byndLabelCell.setBackgroundColor(new Color(240, 240, 240));
+        PdfPCell byndLabelCell = pdfStyleRegistry.headerCell((statisticsVO.getBynd() != null ? statisticsVO.getBynd().toString() : "") + "年度合计", summaryFont, 8f);
         byndLabelCell.setColspan(3); // 跨越前三列
         summaryTable.addCell(byndLabelCell);
 
-        PdfPCell byndCountCell = new PdfPCell(new Phrase(statisticsVO.getByndTotalCount() != null ? statisticsVO.getByndTotalCount().toString() : "0", summaryFont));
-        byndCountCell.setHorizontalAlignment(Element.ALIGN_CENTER);
-        byndCountCell.setVerticalAlignment(Element.ALIGN_MIDDLE);
-        byndCountCell.setPadding(8f);
-        summaryTable.addCell(byndCountCell);
+        summaryTable.addCell(pdfStyleRegistry.cell(statisticsVO.getByndTotalCount() != null ? statisticsVO.getByndTotalCount().toString() : "0", summaryFont, Element.ALIGN_CENTER, 8f));
 
         // 级别合计行
-        PdfPCell rxndLabelCell = new PdfPCell(new Phrase((statisticsVO.getRxnd() != null ? statisticsVO.getRxnd().toString() : "") + "级合计", summaryFont));
-        rxndLabelCell.setHorizontalAlignment(Element.ALIGN_CENTER);
-        rxndLabelCell.setVerticalAlignment(Element.ALIGN_MIDDLE);
-        rxndLabelCell.setPadding(8f);
-        rxndLabelCell.setBackgroundColor(new Color(240, 240, 240));
+        PdfPCell rxndLabelCell = pdfStyleRegistry.headerCell((statisticsVO.getRxnd() != null ? statisticsVO.getRxnd().toString() : "") + "级合计", summaryFont, 8f);
         rxndLabelCell.setColspan(3); // 跨越前三列
         summaryTable.addCell(rxndLabelCell);
 
-        PdfPCell rxndCountCell = new PdfPCell(new Phrase(statisticsVO.getRxndTotalCount() != null ? statisticsVO.getRxndTotalCount().toString() : "0", summaryFont));
-        rxndCountCell.setHorizontalAlignment(Element.ALIGN_CENTER);
-        rxndCountCell.setVerticalAlignment(Element.ALIGN_MIDDLE);
-        rxndCountCell.setPadding(8f);
-        summaryTable.addCell(rxndCountCell);
+        summaryTable.addCell(pdfStyleRegistry.cell(statisticsVO.getRxndTotalCount() != null ? statisticsVO.getRxndTotalCount().toString() : "0", summaryFont, Element.ALIGN_CENTER, 8f));
 
         document.add(summaryTable);
 
         // 添加生成时间
         String currentDate = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy年MM月dd日 HH:mm"));
-        Paragraph dateInfo = new Paragraph("生成时间：" + currentDate, new Font(baseFont, 10f, Font.NORMAL));
+        Paragraph dateInfo = new Paragraph("生成时间：" + currentDate, pdfStyleRegistry.font(10f, Font.NORMAL));
         dateInfo.setAlignment(Element.ALIGN_RIGHT);
         dateInfo.setSpacingBefore(30f);
         document.add(dateInfo);
@@ -0,0 +1,607 @@
+package edu.qhjy.score_service.service.impl;
+
+import com.lowagie.text.Document;
+import com.lowagie.text.pdf.PdfCopy;
+import com.lowagie.text.pdf.PdfReader;
+import com.lowagie.text.pdf.RandomAccessFileOrArray;
+import edu.qhjy.score_service.domain.dto.GradeBookQueryDTO;
+import edu.qhjy.score_service.domain.dto.GraduationPdfQueryDTO;
+import edu.qhjy.score_service.domain.vo.TaskStatusVO;
+import edu.qhjy.score_service.service.GradeBookPdfService;
+import edu.qhjy.score_service.service.GraduationPdfService;
+import edu.qhjy.score_service.service.PdfExportJobService;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.util.StringUtils;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntSupplier;
+
+/**
+ * PDF异步导出服务实现类
+ * 任务线程先统计总页数，按pages-per-shard切分为分片提交到分片线程池并行生成临时文件，
+ * 各分片页眉按整份报表的页码和总页数生成，全部完成后用PdfCopy按顺序合并，页码自然连续。
+ * <p>
+ * 任务状态写入Redis，执行任务的节点定时刷新心跳，任一节点都可查询；超过stale-minutes未刷新的
+ * 未结束任务视为所在节点已停止（如重启），按失败返回。导出文件保存在工作目录中，多节点部署时
+ * work-dir必须是各节点共享的存储（如NFS），否则只能在执行任务的节点下载，需按任务ID粘滞路由。
+ * 启动时及之后定期清理工作目录中超过保留时间或已无任务记录的任务目录
+ *
+ * @author dadalv
+ * @since 2025-08-01
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PdfExportJobServiceImpl implements PdfExportJobService, ApplicationRunner {
+
+    private static final String STATUS_PENDING = "PENDING";
+    private static final String STATUS_PROCESSING = "PROCESSING";
+    private static final String STATUS_COMPLETED = "COMPLETED";
+    private static final String STATUS_FAILED = "FAILED";
+    // 分片全部完成前的最大进度，余下部分留给合并
+    private static final double SHARD_PROGRESS_WEIGHT = 95.0;
+    private static final String JOB_KEY_PREFIX = "pdf_export_job:";
+    private static final String EXPORT_FILE_NAME = "export.pdf";
+    private static final int SWEEP_INTERVAL_MINUTES = 30;
+
+    private final GraduationPdfService graduationPdfService;
+    private final GradeBookPdfService gradeBookPdfService;
+    private final RedisTemplate<String, Object> redisTemplate;
+
+    // 本节点执行的导出任务（taskId -> 任务）
+    private final Map<String, ExportJob> jobs = new ConcurrentHashMap<>();
+
+    // 每个分片的页数
+    @Value("${pdf.export.pages-per-shard:200}")
+    private int pagesPerShard;
+    // 分片生成线程数（每个线程查询时占用一个数据库连接）
+    @Value("${pdf.export.shard-threads:4}")
+    private int shardThreads;
+    @Value("${pdf.export.shard-queue-capacity:200}")
+    private int shardQueueCapacity;
+    // 同时执行的导出任务数，超出的任务排队
+    @Value("${pdf.export.max-running-jobs:2}")
+    private int maxRunningJobs;
+    @Value("${pdf.export.queue-capacity:10}")
+    private int jobQueueCapacity;
+    // 导出文件工作目录，为空时使用系统临时目录
+    @Value("${pdf.export.work-dir:}")
+    private String workDir;
+    // 导出文件保留时间（分钟）
+    @Value("${pdf.export.retention-minutes:720}")
+    private long retentionMinutes;
+    // 任务心跳间隔（秒），执行中的任务按此间隔刷新Redis中的状态
+    @Value("${pdf.export.heartbeat-seconds:60}")
+    private long heartbeatSeconds;
+    // 未结束任务超过此时间（分钟）未刷新心跳，视为所在节点已停止
+    @Value("${pdf.export.stale-minutes:5}")
+    private long staleMinutes;
+
+    // 任务心跳和工作目录清理
+    private final ScheduledExecutorService scheduler =
+            Executors.newSingleThreadScheduledExecutor(namedThreadFactory("pdf-export-scheduler-"));
+
+    // 导出任务线程池
+    private volatile ThreadPoolExecutor jobExecutor;
+    // 分片生成线程池
+    private volatile ThreadPoolExecutor shardExecutor;
+
+    // 初始化导出任务线程池
+    private ThreadPoolExecutor getJobExecutor() {
+        if (jobExecutor == null) {
+            synchronized (this) {
+                if (jobExecutor == null) {
+                    // 队列满时拒绝提交，不能让请求线程执行整个导出任务
+                    jobExecutor = new ThreadPoolExecutor(
+                            maxRunningJobs,
+                            maxRunningJobs,
+                            60,
+                            TimeUnit.SECONDS,
+                            new LinkedBlockingQueue<>(jobQueueCapacity),
+                            namedThreadFactory("pdf-export-job-"),
+                            new ThreadPoolExecutor.AbortPolicy());
+                }
+            }
+        }
+        return jobExecutor;
+    }
+
+    // 初始化分片生成线程池
+    private ThreadPoolExecutor getShardExecutor() {
+        if (shardExecutor == null) {
+            synchronized (this) {
+                if (shardExecutor == null) {
+                    shardExecutor = new ThreadPoolExecutor(
+                            shardThreads,
+                            shardThreads,
+                            60,
+                            TimeUnit.SECONDS,
+                            new LinkedBlockingQueue<>(shardQueueCapacity),
+                            namedThreadFactory("pdf-export-shard-"),
+                            new ThreadPoolExecutor.CallerRunsPolicy());
+                }
+            }
+        }
+        return shardExecutor;
+    }
+
+    private static ThreadFactory namedThreadFactory(String prefix) {
+        return new ThreadFactory() {
+            private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, prefix + threadNumber.getAndIncrement());
+                t.setDaemon(false);
+                return t;
+            }
+        };
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        scheduler.scheduleWithFixedDelay(this::heartbeat, heartbeatSeconds, heartbeatSeconds, TimeUnit.SECONDS);
+        scheduler.scheduleWithFixedDelay(this::sweepWorkDir, 0, SWEEP_INTERVAL_MINUTES, TimeUnit.MINUTES);
+        log.info("PDF导出任务调度已启动，心跳间隔: {}秒，工作目录: {}", heartbeatSeconds, getWorkDir());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        log.info("正在关闭PDF导出线程池...");
+        scheduler.shutdownNow();
+        shutdownExecutor(jobExecutor);
+        shutdownExecutor(shardExecutor);
+        log.info("PDF导出线程池已关闭");
+    }
+
+    private void shutdownExecutor(ThreadPoolExecutor executor) {
+        if (executor != null && !executor.isShutdown()) {
+            executor.shutdown();
+            try {
+                if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                    executor.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                executor.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public TaskStatusVO submitGraduationExport(GraduationPdfQueryDTO queryDTO) {
+        return submit(graduationPdfService.generatePdfFileName(queryDTO), queryDTO,
+                () -> graduationPdfService.countGraduationPdfPages(queryDTO),
+                (firstPage, pageCount, totalPages, outputStream) -> graduationPdfService.writeGraduationPdfPages(
+                        queryDTO, firstPage, pageCount, totalPages, outputStream));
+    }
+
+    @Override
+    public TaskStatusVO submitGradeBookExport(GradeBookQueryDTO queryDTO) {
+        return submit(gradeBookPdfService.generatePdfFileName(queryDTO.getKsjhdm(), queryDTO.getSchool()), queryDTO,
+                () -> gradeBookPdfService.countGradeBookPdfPages(queryDTO),
+                (firstPage, pageCount, totalPages, outputStream) -> gradeBookPdfService.writeGradeBookPdfPages(
+                        queryDTO, firstPage, pageCount, totalPages, outputStream));
+    }
+
+    @Override
+    public TaskStatusVO getExportStatus(String taskId) {
+        ExportJob job = findJob(taskId);
+        return job != null ? toStatusVO(job) : null;
+    }
+
+    @Override
+    public Path getExportFile(String taskId) {
+        ExportJob job = findJob(taskId);
+        if (job == null || !STATUS_COMPLETED.equals(job.status)) {
+            return null;
+        }
+        // 工作目录未共享时，其他节点上完成的任务在本节点没有文件
+        Path file = getWorkDir().resolve(taskId).resolve(EXPORT_FILE_NAME);
+        return Files.exists(file) ? file : null;
+    }
+
+    /**
+     * 查找任务：本节点执行的任务直接返回，否则从Redis读取
+     */
+    private ExportJob findJob(String taskId) {
+        if (!isTaskId(taskId)) {
+            return null;
+        }
+        ExportJob job = jobs.get(taskId);
+        if (job != null) {
+            return job;
+        }
+        try {
+            return loadJob(taskId);
+        } catch (Exception e) {
+            log.error("读取PDF导出任务状态失败: taskId={}", taskId, e);
+            return null;
+        }
+    }
+
+    private ExportJob loadJob(String taskId) {
+        Map<Object, Object> data = redisTemplate.opsForHash().entries(JOB_KEY_PREFIX + taskId);
+        if (data.isEmpty()) {
+            return null;
+        }
+        ExportJob job = ExportJob.fromHash(taskId, data);
+        long staleBefore = System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(staleMinutes);
+        if (job.endTime == null && job.updateTime < staleBefore) {
+            job.status = STATUS_FAILED;
+            job.errorMessage = "导出任务所在服务节点已停止，任务已中断，请重新提交";
+        }
+        return job;
+    }
+
+    /**
+     * 将任务状态写入Redis并刷新心跳时间，保留时间与导出文件相同
+     */
+    private void saveJob(ExportJob job) {
+        String key = JOB_KEY_PREFIX + job.taskId;
+        // 按任务串行写入，避免心跳写入的旧状态覆盖任务结束时写入的最终状态
+        synchronized (job) {
+            try {
+                redisTemplate.opsForHash().putAll(key, job.toHash());
+                redisTemplate.expire(key, Duration.ofMinutes(retentionMinutes));
+            } catch (Exception e) {
+                log.error("保存PDF导出任务状态失败: taskId={}", job.taskId, e);
+            }
+        }
+    }
+
+    // 刷新本节点未结束任务的心跳
+    private void heartbeat() {
+        for (ExportJob job : jobs.values()) {
+            if (job.endTime == null) {
+                saveJob(job);
+            }
+        }
+    }
+
+    private static boolean isTaskId(String taskId) {
+        try {
+            return taskId != null && UUID.fromString(taskId).toString().equals(taskId);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private TaskStatusVO submit(String fileName, Object parameters, IntSupplier pageCounter, PageRangeWriter writer) {
+        purgeExpiredJobs();
+
+        ExportJob job = new ExportJob(UUID.randomUUID().toString(), fileName, parameters);
+        jobs.put(job.taskId, job);
+        try {
+            getJobExecutor().execute(() -> runJob(job, pageCounter, writer));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.taskId);
+            throw new RuntimeException("PDF导出任务过多，请稍后再试");
+        }
+        saveJob(job);
+        log.info("PDF导出任务已提交: taskId={}, fileName={}", job.taskId, fileName);
+        return toStatusVO(job);
+    }
+
+    private void runJob(ExportJob job, IntSupplier pageCounter, PageRangeWriter writer) {
+        job.startTime = LocalDateTime.now();
+        job.status = STATUS_PROCESSING;
+        saveJob(job);
+        long start = System.currentTimeMillis();
+        Path jobDir = getWorkDir().resolve(job.taskId);
+        List<Future<Path>> futures = new ArrayList<>();
+        try {
+            int totalPages = pageCounter.getAsInt();
+            if (totalPages == 0) {
+                throw new RuntimeException("未查询到导出数据");
+            }
+            int shardCount = (totalPages + pagesPerShard - 1) / pagesPerShard;
+            job.totalPages = totalPages;
+            job.totalShards = shardCount;
+            Files.createDirectories(jobDir);
+            saveJob(job);
+            log.info("PDF导出任务开始: taskId={}, 总页数={}, 分片数={}", job.taskId, totalPages, shardCount);
+
+            for (int i = 0; i < shardCount; i++) {
+                int firstPage = i * pagesPerShard;
+                int pageCount = Math.min(pagesPerShard, totalPages - firstPage);
+                Path shardFile = jobDir.resolve(String.format("shard-%05d.pdf", i));
+                futures.add(getShardExecutor().submit(() -> {
+                    try (OutputStream outputStream = new BufferedOutputStream(Files.newOutputStream(shardFile))) {
+                        writer.write(firstPage, pageCount, totalPages, outputStream);
+                    }
+                    job.completedShards.incrementAndGet();
+                    saveJob(job);
+                    return shardFile;
+                }));
+            }
+
+            List<Path> shardFiles = new ArrayList<>(shardCount);
+            for (Future<Path> future : futures) {
+                shardFiles.add(future.get());
+            }
+
+            job.merging = true;
+            saveJob(job);
+            Path target = jobDir.resolve(EXPORT_FILE_NAME);
+            mergeShards(shardFiles, target);
+            for (Path shardFile : shardFiles) {
+                Files.deleteIfExists(shardFile);
+            }
+
+            job.status = STATUS_COMPLETED;
+            log.info("PDF导出任务完成: taskId={}, 总页数={}, 文件大小={}字节, 耗时={}ms",
+                    job.taskId, totalPages, Files.size(target), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            for (Future<Path> future : futures) {
+                future.cancel(true);
+            }
+            Throwable cause = e instanceof ExecutionException && e.getCause() != null ? e.getCause() : e;
+            job.errorMessage = cause.getMessage();
+            job.status = STATUS_FAILED;
+            deleteQuietly(jobDir);
+            log.error("PDF导出任务失败: taskId={}", job.taskId, cause);
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+        } finally {
+            job.endTime = LocalDateTime.now();
+            saveJob(job);
+        }
+    }
+
+    /**
+     * 按顺序合并分片，分片只读取交叉引用表，页面内容按需读取，内存占用与总页数无关
+     */
+    private void mergeShards(List<Path> shardFiles, Path target) throws Exception {
+        Document document = new Document();
+        try (OutputStream outputStream = new BufferedOutputStream(Files.newOutputStream(target))) {
+            PdfCopy copy = new PdfCopy(document, outputStream);
+            document.open();
+            for (Path shardFile : shardFiles) {
+                PdfReader reader = new PdfReader(new RandomAccessFileOrArray(shardFile.toString()), null);
+                try {
+                    for (int page = 1; page <= reader.getNumberOfPages(); page++) {
+                        copy.addPage(copy.getImportedPage(reader, page));
+                    }
+                    copy.freeReader(reader);
+                } finally {
+                    reader.close();
+                }
+            }
+            document.close();
+        }
+    }
+
+    /**
+     * 清理工作目录：删除超过保留时间、Redis中已无记录或已失败的任务目录。
+     * 覆盖本节点重启前遗留的目录和其他节点写入共享目录的文件；读取Redis失败时只按保留时间清理
+     */
+    private void sweepWorkDir() {
+        Path dir = getWorkDir();
+        if (!Files.isDirectory(dir)) {
+            return;
+        }
+        long expireBefore = System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(retentionMinutes);
+        int removed = 0;
+        try (DirectoryStream<Path> taskDirs = Files.newDirectoryStream(dir, Files::isDirectory)) {
+            for (Path taskDir : taskDirs) {
+                String taskId = taskDir.getFileName().toString();
+                // 只处理任务目录，工作目录中的其他内容不动
+                if (!isTaskId(taskId) || jobs.containsKey(taskId)) {
+                    continue;
+                }
+                if (Files.getLastModifiedTime(taskDir).toMillis() < expireBefore || isOrphaned(taskId)) {
+                    deleteQuietly(taskDir);
+                    removed++;
+                }
+            }
+        } catch (Exception e) {
+            log.warn("清理PDF导出工作目录失败: {}, 错误: {}", dir, e.getMessage());
+        }
+        if (removed > 0) {
+            log.info("PDF导出工作目录已清理: {}, 删除任务目录{}个", dir, removed);
+        }
+    }
+
+    private boolean isOrphaned(String taskId) {
+        try {
+            ExportJob job = loadJob(taskId);
+            return job == null || STATUS_FAILED.equals(job.status);
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    /**
+     * 清理超过保留时间的已结束任务及其文件
+     */
+    private void purgeExpiredJobs() {
+        LocalDateTime expireBefore = LocalDateTime.now().minusMinutes(retentionMinutes);
+        jobs.values().removeIf(job -> {
+            if (job.endTime == null || job.endTime.isAfter(expireBefore)) {
+                return false;
+            }
+            deleteQuietly(getWorkDir().resolve(job.taskId));
+            log.info("PDF导出任务已过期清理: taskId={}", job.taskId);
+            return true;
+        });
+    }
+
+    private void deleteQuietly(Path path) {
+        try {
+            FileSystemUtils.deleteRecursively(path);
+        } catch (IOException e) {
+            log.warn("删除PDF导出文件失败: {}, 错误: {}", path, e.getMessage());
+        }
+    }
+
+    private Path getWorkDir() {
+        return StringUtils.hasText(workDir)
+                ? Paths.get(workDir)
+                : Paths.get(System.getProperty("java.io.tmpdir"), "score-pdf-export");
+    }
+
+    private TaskStatusVO toStatusVO(ExportJob job) {
+        TaskStatusVO vo = new TaskStatusVO();
+        vo.setTaskId(job.taskId);
+        vo.setStatus(job.status);
+        vo.setProgress(progressOf(job));
+        vo.setErrorMessage(job.errorMessage);
+        vo.setCreateTime(job.createTime);
+        vo.setStartTime(job.startTime);
+        vo.setEndTime(job.endTime);
+        vo.setParameters(job.parameters);
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("fileName", job.fileName);
+        result.put("totalPages", job.totalPages);
+        result.put("totalShards", job.totalShards);
+        result.put("completedShards", job.completedShards.get());
+        if (STATUS_COMPLETED.equals(job.status)) {
+            result.put("downloadUrl", "/api/pdf-export/" + job.taskId + "/file");
+        }
+        vo.setResult(result);
+        return vo;
+    }
+
+    private double progressOf(ExportJob job) {
+        if (STATUS_COMPLETED.equals(job.status)) {
+            return 100.0;
+        }
+        if (job.merging) {
+            return SHARD_PROGRESS_WEIGHT;
+        }
+        if (job.totalShards == 0) {
+            return 0.0;
+        }
+        double progress = SHARD_PROGRESS_WEIGHT * job.completedShards.get() / job.totalShards;
+        return Math.round(progress * 100.0) / 100.0;
+    }
+
+    /**
+     * 生成报表中一段连续页
+     */
+    @FunctionalInterface
+    private interface PageRangeWriter {
+        void write(int firstPage, int pageCount, int totalPages, OutputStream outputStream) throws Exception;
+    }
+
+    /**
+     * 导出任务，状态字段由任务线程写入、查询线程读取；以Hash形式保存到Redis供其他节点查询
+     */
+    private static class ExportJob {
+        private final String taskId;
+        private final String fileName;
+        private final Object parameters;
+        private final LocalDateTime createTime;
+        private final AtomicInteger completedShards = new AtomicInteger();
+        private volatile String status = STATUS_PENDING;
+        private volatile LocalDateTime startTime;
+        private volatile LocalDateTime endTime;
+        private volatile int totalPages;
+        private volatile int totalShards;
+        private volatile boolean merging;
+        private volatile String errorMessage;
+        // 最近一次写入Redis的时间（毫秒），仅从Redis读取的任务使用
+        private long updateTime;
+
+        private ExportJob(String taskId, String fileName, Object parameters) {
+            this(taskId, fileName, parameters, LocalDateTime.now());
+        }
+
+        private ExportJob(String taskId, String fileName, Object parameters, LocalDateTime createTime) {
+            this.taskId = taskId;
+            this.fileName = fileName;
+            this.parameters = parameters;
+            this.createTime = createTime;
+        }
+
+        private Map<String, Object> toHash() {
+            Map<String, Object> data = new HashMap<>();
+            data.put("fileName", fileName);
+            data.put("status", status);
+            data.put("totalPages", totalPages);
+            data.put("totalShards", totalShards);
+            data.put("completedShards", completedShards.get());
+            data.put("merging", merging);
+            data.put("createTime", toMillis(createTime));
+            if (startTime != null) {
+                data.put("startTime", toMillis(startTime));
+            }
+            if (endTime != null) {
+                data.put("endTime", toMillis(endTime));
+            }
+            if (errorMessage != null) {
+                data.put("errorMessage", errorMessage);
+            }
+            data.put("updateTime", System.currentTimeMillis());
+            return data;
+        }
+
+        // 任务参数只保存在执行节点，从Redis读取的任务不含参数
+        private static ExportJob fromHash(String taskId, Map<Object, Object> data) {
+            ExportJob job = new ExportJob(taskId, (String) data.get("fileName"), null,
+                    toDateTime(data.get("createTime")));
+            job.status = (String) data.get("status");
+            job.totalPages = toInt(data.get("totalPages"));
+            job.totalShards = toInt(data.get("totalShards"));
+            job.completedShards.set(toInt(data.get("completedShards")));
+            job.merging = Boolean.TRUE.equals(data.get("merging"));
+            job.startTime = toDateTime(data.get("startTime"));
+            job.endTime = toDateTime(data.get("endTime"));
+            job.errorMessage = (String) data.get("errorMessage");
+            job.updateTime = data.get("updateTime") instanceof Number n ? n.longValue() : 0L;
+            return job;
+        }
+
+        private static long toMillis(LocalDateTime time) {
+            return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        }
+
+        private static LocalDateTime toDateTime(Object millis) {
+            return millis instanceof Number n
+                    ? LocalDateTime.ofInstant(Instant.ofEpochMilli(n.longValue()), ZoneId.systemDefault())
+                    : null;
+        }
+
+        private static int toInt(Object value) {
+            return value instanceof Number n ? n.intValue() : 0;
+        }
+    }
+}
@@ -9,18 +9,26 @@ import edu.qhjy.score_service.mapper.primary.KscjMapper;
 import edu.qhjy.score_service.mapper.primary.KsjhMapper;
 import edu.qhjy.score_service.mapper.primary.WcxxMapper;
 import edu.qhjy.score_service.service.ScoreSegmentService;
+import edu.qhjy.score_service.service.ScoreStatisticsCubeService;
 import edu.qhjy.score_service.service.algorithm.GradeCalculationAlgorithm;
+import edu.qhjy.score_service.service.algorithm.ScoreSegmentCalculator;
 import edu.qhjy.score_service.service.redis.ScoreSegmentCacheService;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 /**
@@ -43,10 +51,127 @@ public class ScoreSegmentServiceImpl implements ScoreSegmentService {
     private ScoreSegmentCacheService cacheService;
 
     @Autowired
-    private GradeCalculationAlgorithm gradeCalculationAlgorithm;
+    private GradeAssignmentProperties gradeAssignmentProperties;
 
     @Autowired
-    private GradeAssignmentProperties gradeAssignmentProperties;
+    private ScoreStatisticsCubeService statisticsCubeService;
+
+    // 多市州并行计算的并发上限（计算线程不占用数据库连接，上限用于约束CPU和内存占用）
+    @Value("${score-segment.thread-pool.max-size:4}")
+    private int segmentPoolSize;
+    @Value("${score-segment.thread-pool.queue-capacity:100}")
+    private int segmentQueueCapacity;
+    @Value("${score-segment.thread-pool.keep-alive-seconds:60}")
+    private long segmentKeepAliveSeconds;
+    // 全部市州计算的等待超时（秒）
+    @Value("${score-segment.calculation-timeout-seconds:120}")
+    private long segmentCalculationTimeoutSeconds;
+
+    // 一分一段数据缓存剩余有效期低于该值时后台刷新（分钟）
+    @Value("${score-segment.cache.refresh-ahead-minutes:20}")
+    private long segmentRefreshAheadMinutes;
+    // 其他实例持有加载锁时，等待其写入缓存的最长时间（毫秒）
+    @Value("${score-segment.cache.load-lock-wait-millis:5000}")
+    private long segmentLoadLockWaitMillis;
+    private static final long SEGMENT_LOAD_POLL_MILLIS = 100;
+    // 后台刷新线程数和队列容量
+    @Value("${score-segment.cache.refresh-pool-size:2}")
+    private int segmentRefreshPoolSize;
+    @Value("${score-segment.cache.refresh-queue-capacity:50}")
+    private int segmentRefreshQueueCapacity;
+
+    // 一分一段计算线程池
+    private volatile ThreadPoolExecutor segmentExecutor;
+    // 一分一段缓存后台刷新线程池：队列满或已关闭时拒绝，放弃本次刷新，不在请求线程中执行
+    private volatile ThreadPoolExecutor segmentRefreshExecutor;
+
+    // 正在加载或刷新的一分一段数据，按 ksjhdm:kmmc:szsmc 合并并发请求
+    private final Map<String, CompletableFuture<List<ScoreSegmentDTO>>> segmentLoads = new ConcurrentHashMap<>();
+
+    // 初始化线程池
+    private ThreadPoolExecutor getSegmentExecutor() {
+        if (segmentExecutor == null) {
+            synchronized (this) {
+                if (segmentExecutor == null) {
+                    ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                            segmentPoolSize,
+                            segmentPoolSize,
+                            segmentKeepAliveSeconds,
+                            TimeUnit.SECONDS,
+                            new LinkedBlockingQueue<>(segmentQueueCapacity),
+                            new ThreadFactory() {
+                                private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+                                @Override
+                                public Thread newThread(Runnable r) {
+                                    Thread t = new Thread(r, "score-segment-" + threadNumber.getAndIncrement());
+                                    t.setDaemon(false);
+                                    return t;
+                                }
+                            },
+                            new ThreadPoolExecutor.CallerRunsPolicy());
+                    executor.allowCoreThreadTimeOut(true);
+                    segmentExecutor = executor;
+                }
+            }
+        }
+        return segmentExecutor;
+    }
+
+    // 初始化后台刷新线程池
+    private ThreadPoolExecutor getSegmentRefreshExecutor() {
+        if (segmentRefreshExecutor == null) {
+            synchronized (this) {
+                if (segmentRefreshExecutor == null) {
+                    ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                            segmentRefreshPoolSize,
+                            segmentRefreshPoolSize,
+                            segmentKeepAliveSeconds,
+                            TimeUnit.SECONDS,
+                            new LinkedBlockingQueue<>(segmentRefreshQueueCapacity),
+                            new ThreadFactory() {
+                                private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+                                @Override
+                                public Thread newThread(Runnable r) {
+                                    Thread t = new Thread(r, "score-segment-refresh-" + threadNumber.getAndIncrement());
+                                    t.setDaemon(false);
+                                    return t;
+                                }
+                            },
+                            new ThreadPoolExecutor.AbortPolicy());
+                    executor.allowCoreThreadTimeOut(true);
+                    segmentRefreshExecutor = executor;
+                }
+            }
+        }
+        return segmentRefreshExecutor;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        shutdownExecutor(segmentRefreshExecutor, "一分一段缓存刷新线程池");
+        // 强制关闭时队列中未执行的刷新被丢弃，结束其future，避免合并到这些刷新的请求一直等待
+        RejectedExecutionException closed = new RejectedExecutionException("一分一段缓存刷新线程池已关闭");
+        segmentLoads.values().forEach(load -> load.completeExceptionally(closed));
+        shutdownExecutor(segmentExecutor, "一分一段计算线程池");
+    }
+
+    private void shutdownExecutor(ThreadPoolExecutor executor, String name) {
+        if (executor != null && !executor.isShutdown()) {
+            log.info("正在关闭{}...", name);
+            executor.shutdown();
+            try {
+                if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                    executor.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                executor.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+            log.info("{}已关闭", name);
+        }
+    }
 
     // @Override
     // public ScoreSegmentOverviewVO getScoreSegmentOverview(ScoreSegmentQueryDTO
@@ -216,25 +341,33 @@ public class ScoreSegmentServiceImpl implements ScoreSegmentService {
             recalculateGradeStatistics(requestDTO, updatedAdjustedDistribution);
 
             // 清除相关缓存
-            cacheService.clearCache(requestDTO.getKsjhdm(), requestDTO.getKmmc());
+            clearSegmentCache(requestDTO.getKsjhdm(), requestDTO.getKmmc());
 
-            // 将更新后的数据写入Redis缓存
-            // 缓存更新后的等级分布数据
-            cacheService.cacheGradeDistribution(requestDTO.getKsjhdm(), requestDTO.getKmmc(),
-                    firstCityData.getSzsmc(), updatedAdjustedDistribution);
+            // 考生等级已调整，事务提交后重建统计汇总
+            statisticsCubeService.refreshAsync(requestDTO.getKsjhdm(), requestDTO.getKmmc());
 
-            // 缓存更新后的等级阈值数据
+            // 直接查询本事务内更新后的一分一段数据，不与其他请求的加载合并
+            List<ScoreSegmentDTO> updatedScoreSegmentData = queryScoreSegmentData(
+                    requestDTO.getKsjhdm(), requestDTO.getKmmc(), firstCityData.getSzsmc());
             Map<String, BigDecimal> updatedThresholds = extractThresholds(updatedAdjustedDistribution);
-            cacheService.cacheGradeThresholds(requestDTO.getKsjhdm(), requestDTO.getKmmc(),
-                    firstCityData.getSzsmc(), updatedThresholds);
 
-            // 缓存更新后的一分一段数据
-            List<ScoreSegmentDTO> updatedScoreSegmentData = getScoreSegmentDataFromDB(
-                    requestDTO.getKsjhdm(), requestDTO.getKmmc(), firstCityData.getSzsmc());
-            if (!updatedScoreSegmentData.isEmpty()) {
-                cacheService.cacheScoreSegmentData(requestDTO.getKsjhdm(), requestDTO.getKmmc(),
-                        firstCityData.getSzsmc(), updatedScoreSegmentData);
-            }
+            // 事务提交后再次清除缓存（丢弃事务期间其他请求按提交前数据加载的结果），再写入更新后的数据
+            runAfterCommit(() -> {
+                String ksjhdm = requestDTO.getKsjhdm();
+                String kmmc = requestDTO.getKmmc();
+                String szsmc = firstCityData.getSzsmc();
+                clearSegmentCache(ksjhdm, kmmc);
+                long generation = cacheService.getGeneration(ksjhdm, kmmc);
+
+                // 缓存更新后的等级分布数据和等级阈值数据
+                cacheService.cacheGradeDistribution(ksjhdm, kmmc, szsmc, updatedAdjustedDistribution);
+                cacheService.cacheGradeThresholds(ksjhdm, kmmc, szsmc, updatedThresholds);
+
+                // 缓存更新后的一分一段数据，期间缓存再次被清除时放弃写入
+                if (!updatedScoreSegmentData.isEmpty()) {
+                    cacheService.cacheScoreSegmentData(ksjhdm, kmmc, szsmc, updatedScoreSegmentData, generation);
+                }
+            });
 
             long processingTime = System.currentTimeMillis() - startTime;
 
@@ -427,7 +560,7 @@ public class ScoreSegmentServiceImpl implements ScoreSegmentService {
     @Override
     public void clearScoreSegmentCache(String ksjhdm, String kmmc) {
         log.info("清除一分一段表缓存: ksjhdm={}, kmmc={}", ksjhdm, kmmc);
-        cacheService.clearCache(ksjhdm, kmmc);
+        clearSegmentCache(ksjhdm, kmmc);
     }
 
     @Override
@@ -457,9 +590,21 @@ public class ScoreSegmentServiceImpl implements ScoreSegmentService {
 
     /**
      * 计算一分一段数据
+     * 全省计算时部分市州失败或超时，只读查询返回其余市州的结果
      */
     private List<ScoreSegmentDTO> calculateScoreSegments(String ksjhdm, String kmmc,
                                                          List<String> cities, Integer limit) {
+        return calculateScoreSegments(ksjhdm, kmmc, cities, limit, false);
+    }
+
+    /**
+     * 计算一分一段数据
+     *
+     * @param requireAllCities 全省计算时是否要求所有市州都计算成功；保存时为true，任一市州失败或超时即抛出异常，
+     *                         由事务回滚，避免保存缺少市州的一分一段数据
+     */
+    private List<ScoreSegmentDTO> calculateScoreSegments(String ksjhdm, String kmmc, List<String> cities,
+                                                         Integer limit, boolean requireAllCities) {
         List<ScoreSegmentDTO> segments = new ArrayList<>();
 
         try {
@@ -488,23 +633,23 @@ public class ScoreSegmentServiceImpl implements ScoreSegmentService {
                 List<String> allCities = kscjMapper.selectCitiesForGradeAssignment(ksjhdm, kmmc);
                 log.info("处理全省数据，共{}个市州，使用全省分数范围: {} - {}", allCities.size(), minScore, maxScore);
 
-                for (String cityName : allCities) {
-                    List<ScoreSegmentDTO> citySegments = calculateCityScoreSegments(
-                            ksjhdm, kmmc, cityName, minScore.intValue(), maxScore.intValue());
-                    segments.addAll(citySegments);
-
-                    // 检查限制
-                    if (limit != null && segments.size() >= limit) {
-                        log.info("达到限制数量 {}, 停止生成", limit);
-                        break;
-                    }
+                CitySegmentsResult result = calculateCitySegmentsInParallel(
+                        ksjhdm, kmmc, allCities, minScore.intValue(), maxScore.intValue(), limit);
+                if (!result.failedCities.isEmpty() && result.citySegments.isEmpty()) {
+                    throw new RuntimeException("所有市州一分一段计算均失败: " + result.failedCities);
                 }
+                if (requireAllCities && !result.failedCities.isEmpty()) {
+                    throw new RuntimeException("部分市州一分一段计算失败: " + result.failedCities);
+                }
+                segments.addAll(result.mergedSegments());
             } else {
                 // 处理单个市州数据，使用全省分数范围
                 String cityName = cities.get(0);
                 log.info("处理单个市州数据: {}，使用全省分数范围: {} - {}", cityName, minScore, maxScore);
+                List<ScoreHistogramDTO> cityHistogram = kscjMapper.getCityScoreHistogram(
+                        ksjhdm, kmmc, Collections.singletonList(cityName));
                 List<ScoreSegmentDTO> citySegments = calculateCityScoreSegments(
-                        ksjhdm, kmmc, cityName, minScore.intValue(), maxScore.intValue());
+                        ksjhdm, kmmc, cityName, cityHistogram, minScore.intValue(), maxScore.intValue());
                 segments.addAll(citySegments);
             }
 
@@ -513,22 +658,117 @@ public class ScoreSegmentServiceImpl implements ScoreSegmentService {
 
         } catch (Exception e) {
             log.error("计算一分一段数据时发生错误", e);
-            throw new RuntimeException("计算一分一段数据失败", e);
+            throw new RuntimeException("计算一分一段数据失败: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 并行计算多个市州的一分一段数据
+     * 分数直方图在调用线程一次查询完成，各市州在计算线程池中并发处理，结果按市州输入顺序合并；
+     * 单个市州失败或超时不影响其他市州，失败原因按市州记录
+     *
+     * @param limit 记录数限制，每个市州记录数固定，只计算达到限制所需的前若干个市州
+     */
+    private CitySegmentsResult calculateCitySegmentsInParallel(String ksjhdm, String kmmc, List<String> cities,
+                                                               int minScore, int maxScore, Integer limit) {
+        CitySegmentsResult result = new CitySegmentsResult();
+        if (cities == null || cities.isEmpty()) {
+            return result;
+        }
+
+        List<String> targetCities = cities;
+        int rowsPerCity = maxScore - minScore + 1;
+        if (limit != null && rowsPerCity > 0) {
+            // 与逐个市州生成、达到限制即停止的结果保持一致
+            int neededCities = Math.max(1, (limit + rowsPerCity - 1) / rowsPerCity);
+            targetCities = cities.subList(0, Math.min(cities.size(), neededCities));
+        }
+
+        Map<String, List<ScoreHistogramDTO>> cityHistograms = groupHistogramByCity(
+                kscjMapper.getCityScoreHistogram(ksjhdm, kmmc, targetCities));
+
+        // 使用线程池返回的Future，超时时cancel(true)可中断正在执行的计算线程并移除尚未开始的任务
+        ThreadPoolExecutor executor = getSegmentExecutor();
+        Map<String, Future<List<ScoreSegmentDTO>>> futures = new LinkedHashMap<>();
+        for (String cityName : targetCities) {
+            List<ScoreHistogramDTO> cityHistogram = cityHistograms.get(cityName);
+            futures.put(cityName, executor.submit(
+                    () -> calculateCityScoreSegments(ksjhdm, kmmc, cityName, cityHistogram, minScore, maxScore)));
         }
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(segmentCalculationTimeoutSeconds);
+        boolean timedOut = false;
+        for (Map.Entry<String, Future<List<ScoreSegmentDTO>>> entry : futures.entrySet()) {
+            String cityName = entry.getKey();
+            Future<List<ScoreSegmentDTO>> future = entry.getValue();
+            try {
+                if (timedOut && !future.isDone()) {
+                    throw new TimeoutException();
+                }
+                long remaining = Math.max(0, deadline - System.nanoTime());
+                result.citySegments.put(cityName, future.get(remaining, TimeUnit.NANOSECONDS));
+            } catch (TimeoutException | CancellationException e) {
+                if (!timedOut) {
+                    // 整体超时后其余市州同样不再等待，取消全部未完成的任务，释放计算线程
+                    timedOut = true;
+                    cancelUnfinished(futures.values());
+                }
+                log.error("市州 {} 一分一段计算超时", cityName);
+                result.failedCities.put(cityName, "计算超时");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                cancelUnfinished(futures.values());
+                throw new RuntimeException("一分一段计算被中断", e);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                log.error("市州 {} 一分一段计算失败: {}", cityName, cause.getMessage(), cause);
+                result.failedCities.put(cityName, cause.getMessage());
+            }
+        }
+
+        if (!result.failedCities.isEmpty()) {
+            log.warn("一分一段部分市州计算失败: 成功{}个, 失败{}个, 失败明细={}",
+                    result.citySegments.size(), result.failedCities.size(), result.failedCities);
+        }
+        return result;
+    }
+
+    /**
+     * 取消尚未完成的市州计算任务，正在执行的任务通过线程中断退出
+     */
+    private void cancelUnfinished(Collection<Future<List<ScoreSegmentDTO>>> futures) {
+        for (Future<List<ScoreSegmentDTO>> future : futures) {
+            if (!future.isDone()) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * 将分数直方图按市州分组，保持各市州内分数降序
+     */
+    private Map<String, List<ScoreHistogramDTO>> groupHistogramByCity(List<ScoreHistogramDTO> histogram) {
+        Map<String, List<ScoreHistogramDTO>> cityHistograms = new HashMap<>();
+        if (histogram == null) {
+            return cityHistograms;
+        }
+        for (ScoreHistogramDTO bucket : histogram) {
+            cityHistograms.computeIfAbsent(bucket.getSzsmc(), k -> new ArrayList<>()).add(bucket);
+        }
+        return cityHistograms;
     }
 
     /**
      * 为单个市州计算一分一段数据
+     *
+     * @param cityHistogram 该市州按分数降序排列的分数直方图
      */
-    private List<ScoreSegmentDTO> calculateCityScoreSegments(String ksjhdm, String kmmc,
-                                                             String cityName, int minScore, int maxScore) {
+    private List<ScoreSegmentDTO> calculateCityScoreSegments(String ksjhdm, String kmmc, String cityName,
+                                                             List<ScoreHistogramDTO> cityHistogram,
+                                                             int minScore, int maxScore) {
         List<ScoreSegmentDTO> segments = new ArrayList<>();
 
-        // 获取该市州的学生成绩数据
-        List<StudentScoreRankDTO> cityStudents = kscjMapper.getStudentScoreRanks(
-                ksjhdm, kmmc, Collections.singletonList(cityName));
-
-        if (cityStudents == null || cityStudents.isEmpty()) {
+        if (cityHistogram == null || cityHistogram.isEmpty()) {
             log.warn("市州 {} 未找到学生成绩数据，生成全部count=0的记录", cityName);
             // 即使没有学生数据，也要生成空的分数段记录
             for (int score = maxScore; score >= minScore; score--) {
@@ -548,22 +788,21 @@ public class ScoreSegmentServiceImpl implements ScoreSegmentService {
             return segments;
         }
 
-        log.debug("市州 {} 查询到学生成绩数据: {} 条", cityName, cityStudents.size());
+        log.debug("市州 {} 查询到分数直方图: {} 个分数", cityName, cityHistogram.size());
 
         // 使用动态等级计算算法重新计算等级
+        GradeThresholdsDTO thresholds = null;
         try {
-            // 计算等级阈值并分配等级（一次性完成，避免重复计算）
-            GradeThresholdsDTO thresholds = GradeCalculationAlgorithm.calculateGradeThresholds(
-                    cityStudents,
+            thresholds = GradeCalculationAlgorithm.calculateHistogramGradeThresholds(
+                    cityHistogram,
                     gradeAssignmentProperties.getGradeConfig().getGradeRatios(),
                     cityName,
                     kmmc,
                     gradeAssignmentProperties.isUseEGradePriorityAlgorithm(),
-                    gradeAssignmentProperties.getEGradeMinPercentage());
+                    gradeAssignmentProperties.getEGradeMinPercentage(),
+                    gradeAssignmentProperties.isUsePrimitiveRankingEngine());
 
-            // 为学生分配等级
             if (thresholds != null) {
-                gradeCalculationAlgorithm.assignGradesToStudents(cityStudents, thresholds);
                 log.debug("市州 {} 完成动态等级计算", cityName);
             } else {
                 log.warn("市州 {} 等级阈值计算失败，使用原有等级数据", cityName);
@@ -573,46 +812,13 @@ public class ScoreSegmentServiceImpl implements ScoreSegmentService {
             // 如果动态等级计算失败，继续使用原有等级数据
         }
 
-        // 按分数分组（成绩数据已经是整数）
-        Map<Integer, List<StudentScoreRankDTO>> scoreGroups = new HashMap<>();
-        for (StudentScoreRankDTO student : cityStudents) {
-            // 成绩数据在导入时已经四舍五入为整数，直接转换
-            int intScore = student.getFslkscj().intValue();
-            scoreGroups.computeIfAbsent(intScore, k -> new ArrayList<>()).add(student);
+        // 并行计算超时后任务被取消（线程中断），不再继续生成分段数据
+        if (Thread.currentThread().isInterrupted()) {
+            throw new CancellationException("市州 " + cityName + " 一分一段计算已取消");
         }
 
-        int cumulativeCount = 0;
-        int totalStudents = cityStudents.size();
-
-        // 为全省分数范围内的每个整数分数生成记录
-        for (int score = maxScore; score >= minScore; score--) {
-            List<StudentScoreRankDTO> studentsAtScore = scoreGroups.get(score);
-            int countAtScore = studentsAtScore != null ? studentsAtScore.size() : 0;
-            cumulativeCount += countAtScore;
-
-            // 计算该市州的累计百分比（动态精度方案）
-            BigDecimal cumulativePercentage = totalStudents > 0
-                    ? calculateNaturalPrecisionPercentage(cumulativeCount, totalStudents)
-                    : BigDecimal.ZERO;
-
-            String grade = (studentsAtScore != null && !studentsAtScore.isEmpty())
-                    ? studentsAtScore.get(0).getGrade()
-                    : null;
-
-            ScoreSegmentDTO segment = ScoreSegmentDTO.builder()
-                    .score(BigDecimal.valueOf(score))
-                    .count(countAtScore)
-                    .cumulativeCount(cumulativeCount)
-                    .cumulativePercentage(cumulativePercentage)
-                    .grade(grade)
-                    .rank(cumulativeCount)
-                    .ksjhdm(ksjhdm)
-                    .kmmc(kmmc)
-                    .szsmc(cityName)
-                    .build();
-
-            segments.add(segment);
-        }
+        segments = ScoreSegmentCalculator.buildCitySegments(
+                ksjhdm, kmmc, cityName, cityHistogram, thresholds, minScore, maxScore);
 
         log.debug("市州 {} 生成一分一段数据: {} 条", cityName, segments.size());
         return segments;
@@ -998,7 +1204,7 @@ public class ScoreSegmentServiceImpl implements ScoreSegmentService {
 
                     // 计算累计百分比（保留一位小数）
                     BigDecimal cumulativePercentage = totalStudents > 0
-                            ? calculateNaturalPrecisionPercentage(cumulativeCount, totalStudents)
+                            ? ScoreSegmentCalculator.calculateNaturalPrecisionPercentage(cumulativeCount, totalStudents)
                             : BigDecimal.ZERO;
                     adjusted.setPercentage(cumulativePercentage);
 
@@ -1315,39 +1521,11 @@ public class ScoreSegmentServiceImpl implements ScoreSegmentService {
         return "E";
     }
 
-    private BigDecimal calculateNaturalPrecisionPercentage(int count, int total) {
-        if (total == 0) {
-            return BigDecimal.ZERO;
-        }
-
-        // 计算精确的百分比
-        BigDecimal exactPercentage = BigDecimal.valueOf(count)
-                .multiply(BigDecimal.valueOf(100))
-                .divide(BigDecimal.valueOf(total), 10, RoundingMode.HALF_UP);
-
-        // 检查是否为整数
-        if (exactPercentage.stripTrailingZeros().scale() <= 0) {
-            return exactPercentage.setScale(0, RoundingMode.UNNECESSARY);
-        }
-
-        // 检查一位小数是否足够精确表示
-        BigDecimal oneDecimal = exactPercentage.setScale(1, RoundingMode.HALF_UP);
-        BigDecimal difference = exactPercentage.subtract(oneDecimal).abs();
-
-        // 如果差异很小（小于0.01），使用一位小数
-        if (difference.compareTo(BigDecimal.valueOf(0.01)) < 0) {
-            return oneDecimal;
-        }
-
-        // 否则使用截断到一位小数（避免四舍五入失真）
-        return exactPercentage.setScale(1, RoundingMode.DOWN);
-    }
-
     private BigDecimal calculatePercentage(Integer count, Integer total) {
         if (total == null || total == 0) {
             return BigDecimal.ZERO;
         }
-        return calculateNaturalPrecisionPercentage(count, total);
+        return ScoreSegmentCalculator.calculateNaturalPrecisionPercentage(count, total);
     }
 
     /**
@@ -1468,30 +1646,25 @@ public class ScoreSegmentServiceImpl implements ScoreSegmentService {
                 log.info("开始处理全省数据，共{}个市州", allCities.size());
                 int totalSavedCount = 0;
 
-                // 按市州顺序逐个处理
+                // 各市州并行计算，计算结果在当前事务线程中按市州顺序写入；任一市州失败或超时时整体回滚
+                Map<String, List<ScoreSegmentDTO>> citySegments = calculateScoreSegments(ksjhdm, kmmc, null, null, true)
+                        .stream()
+                        .collect(Collectors.groupingBy(ScoreSegmentDTO::getSzsmc, LinkedHashMap::new,
+                                Collectors.toList()));
+
                 for (String cityName : allCities) {
-                    try {
-                        log.info("正在处理市州: {}", cityName);
-
-                        // 为单个市州计算一分一段数据
-                        List<String> singleCityList = Collections.singletonList(cityName);
-                        List<ScoreSegmentDTO> cityScoreSegments = calculateScoreSegments(ksjhdm, kmmc, singleCityList,
-                                null);
-
-                        if (!cityScoreSegments.isEmpty()) {
-                            // 转换为WcxxEntity并批量插入
-                            List<WcxxEntity> cityEntities = convertToWcxxEntities(cityScoreSegments, ksjhdm, kmmc,
-                                    cityName, operatorName,
-                                    operatorCode);
-                            wcxxMapper.batchInsertScoreSegments(cityEntities);
-                            totalSavedCount += cityEntities.size();
-                            log.info("成功保存市州 {} 的一分一段数据，数据条数={}", cityName, cityEntities.size());
-                        } else {
-                            log.warn("市州 {} 没有计算出一分一段数据", cityName);
-                        }
-                    } catch (Exception e) {
-                        log.error("处理市州 {} 的一分一段数据时发生错误: {}", cityName, e.getMessage(), e);
-                        // 继续处理其他市州，不中断整个流程
+                    List<ScoreSegmentDTO> cityScoreSegments = citySegments.get(cityName);
+
+                    if (cityScoreSegments != null && !cityScoreSegments.isEmpty()) {
+                        // 转换为WcxxEntity并批量插入，写入失败时整体回滚，不保存缺少市州的数据
+                        List<WcxxEntity> cityEntities = convertToWcxxEntities(cityScoreSegments, ksjhdm, kmmc,
+                                cityName, operatorName,
+                                operatorCode);
+                        wcxxMapper.batchInsertScoreSegments(cityEntities);
+                        totalSavedCount += cityEntities.size();
+                        log.info("成功保存市州 {} 的一分一段数据，数据条数={}", cityName, cityEntities.size());
+                    } else {
+                        log.warn("市州 {} 没有计算出一分一段数据", cityName);
                     }
                 }
 
@@ -1519,28 +1692,171 @@ public class ScoreSegmentServiceImpl implements ScoreSegmentService {
             // 先尝试从Redis缓存获取
             List<ScoreSegmentDTO> cachedData = cacheService.getCachedScoreSegmentData(ksjhdm, kmmc, szsmc);
             if (cachedData != null) {
+                // 临近过期时由一个请求在后台刷新，其余请求继续使用当前缓存值
+                long ttlSeconds = cacheService.getScoreSegmentDataTtlSeconds(ksjhdm, kmmc, szsmc);
+                if (ttlSeconds >= 0 && ttlSeconds < TimeUnit.MINUTES.toSeconds(segmentRefreshAheadMinutes)) {
+                    refreshScoreSegmentDataAsync(ksjhdm, kmmc, szsmc);
+                }
                 log.info("从缓存获取一分一段数据: ksjhdm={}, kmmc={}, szsmc={}, 数据条数={}", ksjhdm, kmmc, szsmc, cachedData.size());
                 return cachedData;
             }
 
-            log.info("从数据库查询一分一段数据: ksjhdm={}, kmmc={}, szsmc={}", ksjhdm, kmmc, szsmc);
+            return loadScoreSegmentDataOnce(ksjhdm, kmmc, szsmc);
+        } catch (Exception e) {
+            log.error("从数据库查询一分一段数据失败: ksjhdm={}, kmmc={}, szsmc={}", ksjhdm, kmmc, szsmc, e);
+            throw new RuntimeException("查询一分一段数据失败: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 缓存未命中时加载一分一段数据
+     * 本实例内同一市州的并发请求合并为一次加载，跨实例通过Redis加载锁保证只有一个实例查询数据库，
+     * 未抢到锁的实例等待缓存写入。合并请求共用同一个结果列表，调用方不应修改
+     */
+    private List<ScoreSegmentDTO> loadScoreSegmentDataOnce(String ksjhdm, String kmmc, String szsmc) {
+        String loadKey = ksjhdm + ":" + kmmc + ":" + szsmc;
+        CompletableFuture<List<ScoreSegmentDTO>> loading = new CompletableFuture<>();
+        CompletableFuture<List<ScoreSegmentDTO>> inFlight = segmentLoads.putIfAbsent(loadKey, loading);
+        if (inFlight != null) {
+            log.info("合并一分一段数据并发查询: ksjhdm={}, kmmc={}, szsmc={}", ksjhdm, kmmc, szsmc);
+            List<ScoreSegmentDTO> result;
+            try {
+                result = inFlight.join();
+            } catch (CompletionException e) {
+                if (!(e.getCause() instanceof RejectedExecutionException)) {
+                    throw e;
+                }
+                // 合并到的后台刷新未能提交
+                result = null;
+            }
+            // 正在进行的是后台刷新且未执行（其他实例在刷新或刷新未能提交）时，自行加载
+            return result != null ? result : loadScoreSegmentDataWithLock(ksjhdm, kmmc, szsmc);
+        }
 
-            List<WcxxEntity> entities = wcxxMapper.selectScoreSegmentData(ksjhdm, kmmc, szsmc);
-            List<ScoreSegmentDTO> result = convertToScoreSegmentDTOs(entities);
+        try {
+            List<ScoreSegmentDTO> result = loadScoreSegmentDataWithLock(ksjhdm, kmmc, szsmc);
+            loading.complete(result);
+            return result;
+        } catch (RuntimeException e) {
+            loading.completeExceptionally(e);
+            throw e;
+        } finally {
+            segmentLoads.remove(loadKey, loading);
+        }
+    }
+
+    private List<ScoreSegmentDTO> loadScoreSegmentDataWithLock(String ksjhdm, String kmmc, String szsmc) {
+        boolean locked = cacheService.tryLockPreCalculation(ksjhdm, kmmc, szsmc);
+        if (!locked) {
+            // 其他实例正在加载，等待其写入缓存
+            long deadline = System.currentTimeMillis() + segmentLoadLockWaitMillis;
+            while (System.currentTimeMillis() < deadline) {
+                try {
+                    Thread.sleep(SEGMENT_LOAD_POLL_MILLIS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+                List<ScoreSegmentDTO> cachedData = cacheService.getCachedScoreSegmentData(ksjhdm, kmmc, szsmc);
+                if (cachedData != null) {
+                    log.info("其他实例已加载一分一段数据: ksjhdm={}, kmmc={}, szsmc={}", ksjhdm, kmmc, szsmc);
+                    return cachedData;
+                }
+            }
+            log.warn("等待其他实例加载一分一段数据超时，直接查询数据库: ksjhdm={}, kmmc={}, szsmc={}", ksjhdm, kmmc, szsmc);
+        }
 
+        try {
+            // 查询前记录缓存代数，查询期间缓存被清除时不写入旧数据
+            long generation = cacheService.getGeneration(ksjhdm, kmmc);
+            List<ScoreSegmentDTO> result = queryScoreSegmentData(ksjhdm, kmmc, szsmc);
             // 将查询结果缓存到Redis
             if (!result.isEmpty()) {
-                cacheService.cacheScoreSegmentData(ksjhdm, kmmc, szsmc, result);
+                cacheService.cacheScoreSegmentData(ksjhdm, kmmc, szsmc, result, generation);
             }
-
-            log.info("从数据库查询到一分一段数据: ksjhdm={}, kmmc={}, szsmc={}, 数据条数={}", ksjhdm, kmmc, szsmc, result.size());
             return result;
-        } catch (Exception e) {
-            log.error("从数据库查询一分一段数据失败: ksjhdm={}, kmmc={}, szsmc={}", ksjhdm, kmmc, szsmc, e);
-            throw new RuntimeException("查询一分一段数据失败: " + e.getMessage(), e);
+        } finally {
+            if (locked) {
+                cacheService.releaseLockPreCalculation(ksjhdm, kmmc, szsmc);
+            }
         }
     }
 
+    /**
+     * 清除一分一段缓存，并移除本实例内该考试科目正在进行的加载和刷新，之后的请求不再合并到清除前开始的加载
+     */
+    private void clearSegmentCache(String ksjhdm, String kmmc) {
+        cacheService.clearCache(ksjhdm, kmmc);
+        String loadKeyPrefix = ksjhdm + ":" + kmmc + ":";
+        segmentLoads.keySet().removeIf(loadKey -> loadKey.startsWith(loadKeyPrefix));
+    }
+
+    private void runAfterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    /**
+     * 后台刷新临近过期的一分一段数据缓存
+     * 本实例内同一市州只提交一次刷新，跨实例由Redis加载锁保证只有一个实例刷新；
+     * 刷新在独立线程池中执行，线程池队列满或已关闭时放弃本次刷新，请求线程不等待
+     */
+    private void refreshScoreSegmentDataAsync(String ksjhdm, String kmmc, String szsmc) {
+        String loadKey = ksjhdm + ":" + kmmc + ":" + szsmc;
+        CompletableFuture<List<ScoreSegmentDTO>> refreshing = new CompletableFuture<>();
+        if (segmentLoads.putIfAbsent(loadKey, refreshing) != null) {
+            return;
+        }
+        try {
+            getSegmentRefreshExecutor().execute(() -> {
+                boolean locked = cacheService.tryLockPreCalculation(ksjhdm, kmmc, szsmc);
+                try {
+                    if (!locked) {
+                        refreshing.complete(null);
+                        return;
+                    }
+                    long generation = cacheService.getGeneration(ksjhdm, kmmc);
+                    List<ScoreSegmentDTO> result = queryScoreSegmentData(ksjhdm, kmmc, szsmc);
+                    if (!result.isEmpty()) {
+                        cacheService.refreshScoreSegmentData(ksjhdm, kmmc, szsmc, result, generation);
+                    }
+                    refreshing.complete(result);
+                    log.info("后台刷新一分一段数据缓存完成: ksjhdm={}, kmmc={}, szsmc={}", ksjhdm, kmmc, szsmc);
+                } catch (Exception e) {
+                    log.warn("后台刷新一分一段数据缓存失败: ksjhdm={}, kmmc={}, szsmc={}", ksjhdm, kmmc, szsmc, e);
+                    refreshing.complete(null);
+                } finally {
+                    if (locked) {
+                        cacheService.releaseLockPreCalculation(ksjhdm, kmmc, szsmc);
+                    }
+                    segmentLoads.remove(loadKey, refreshing);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // 刷新线程池队列已满或已关闭，本次不刷新；已合并到该刷新的请求改为自行加载
+            log.warn("一分一段缓存后台刷新未能提交: ksjhdm={}, kmmc={}, szsmc={}, 原因={}",
+                    ksjhdm, kmmc, szsmc, e.getMessage());
+            segmentLoads.remove(loadKey, refreshing);
+            refreshing.completeExceptionally(e);
+        }
+    }
+
+    private List<ScoreSegmentDTO> queryScoreSegmentData(String ksjhdm, String kmmc, String szsmc) {
+        log.info("从数据库查询一分一段数据: ksjhdm={}, kmmc={}, szsmc={}", ksjhdm, kmmc, szsmc);
+        List<WcxxEntity> entities = wcxxMapper.selectScoreSegmentData(ksjhdm, kmmc, szsmc);
+        List<ScoreSegmentDTO> result = convertToScoreSegmentDTOs(entities);
+        log.info("从数据库查询到一分一段数据: ksjhdm={}, kmmc={}, szsmc={}, 数据条数={}", ksjhdm, kmmc, szsmc, result.size());
+        return result;
+    }
+
     @Override
     @Transactional(rollbackFor = Exception.class)
     public Boolean deleteScoreSegmentData(String ksjhdm, String kmmc, String szsmc) {
@@ -2216,7 +2532,7 @@ public class ScoreSegmentServiceImpl implements ScoreSegmentService {
             log.info("开始清理相关缓存: ksjhdm={}, kmmc={}, szsmc={}", ksjhdm, kmmc, szsmc);
 
             // 1. 清理一分一段相关缓存
-            cacheService.clearCache(ksjhdm, kmmc);
+            clearSegmentCache(ksjhdm, kmmc);
             if (szsmc != null) {
                 cacheService.clearCityCache(ksjhdm, kmmc, szsmc);
             }
@@ -2233,4 +2549,27 @@ public class ScoreSegmentServiceImpl implements ScoreSegmentService {
         }
     }
 
-}
\ No newline at end of file
+    /**
+     * 多市州一分一段计算结果
+     */
+    private static class CitySegmentsResult {
+        /**
+         * 各市州一分一段数据（按市州输入顺序）
+         */
+        private final Map<String, List<ScoreSegmentDTO>> citySegments = new LinkedHashMap<>();
+
+        /**
+         * 计算失败的市州及失败原因
+         */
+        private final Map<String, String> failedCities = new LinkedHashMap<>();
+
+        /**
+         * 按市州顺序合并的一分一段数据
+         */
+        List<ScoreSegmentDTO> mergedSegments() {
+            List<ScoreSegmentDTO> merged = new ArrayList<>();
+            citySegments.values().forEach(merged::addAll);
+            return merged;
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package edu.qhjy.score_service.service.impl;
 
 import edu.qhjy.score_service.aop.UserContext;
+import edu.qhjy.score_service.common.PageCursor;
 import edu.qhjy.score_service.common.PageResult;
 import edu.qhjy.score_service.domain.dto.ExamScoreQueryDTO;
 import edu.qhjy.score_service.domain.dto.InitializeExamStudentsDTO;
@@ -12,28 +13,39 @@ import edu.qhjy.score_service.domain.vo.*;
 import edu.qhjy.score_service.mapper.primary.KscjMapper;
 import edu.qhjy.score_service.mapper.primary.KsjhMapper;
 import edu.qhjy.score_service.mapper.primary.KskmxxMapper;
+import edu.qhjy.score_service.mapper.primary.ScoreStatisticsCubeMapper;
 import edu.qhjy.score_service.mapper.primary.YjxhMapper;
 import edu.qhjy.score_service.service.ScoreService;
+import edu.qhjy.score_service.service.ScoreStatisticsCubeService;
+import edu.qhjy.score_service.service.redis.PageTotalCacheService;
+import edu.qhjy.score_service.util.CompactStringSet;
+import edu.qhjy.score_service.util.XlsxStreamReader;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.cursor.Cursor;
 import org.apache.poi.ss.usermodel.*;
 import org.apache.poi.xssf.streaming.SXSSFWorkbook;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.util.StringUtils;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.ByteArrayOutputStream;
-import java.io.InputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 /**
@@ -47,6 +59,7 @@ public class ScoreServiceImpl implements ScoreService {
     private final KskmxxMapper kskmxxMapper;
     private final KscjMapper kscjMapper;
     private final YjxhMapper yjxhMapper;
+    private final ScoreStatisticsCubeMapper statisticsCubeMapper;
 
     // 二级数据源相关Mapper
     private final KsjhMapper ksjhMapper;
@@ -54,6 +67,76 @@ public class ScoreServiceImpl implements ScoreService {
     // Redis模板
     private final RedisTemplate<String, Object> redisTemplate;
 
+    // 分页总数缓存
+    private final PageTotalCacheService pageTotalCacheService;
+
+    // 成绩统计汇总
+    private final ScoreStatisticsCubeService statisticsCubeService;
+
+    // Excel成绩导入必需的列
+    private static final String[] EXCEL_IMPORT_COLUMNS = {"考籍号", "姓名", "科目", "成绩", "合格评定"};
+    // Excel成绩导入批量更新的批次大小
+    private static final int EXCEL_IMPORT_BATCH_SIZE = 1000;
+    // 考查科目成绩游标的排序方式签名
+    private static final String EXAM_SCORE_CURSOR_SIGNATURE = "exam_score:ksh:asc";
+
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${excel-import.thread-pool.max-size:4}")
+    private int excelImportPoolSize;
+    @Value("${excel-import.thread-pool.queue-capacity:8}")
+    private int excelImportQueueCapacity;
+    @Value("${excel-import.thread-pool.keep-alive-seconds:60}")
+    private long excelImportKeepAliveSeconds;
+    // Excel成绩导入批量更新线程池（懒加载）
+    private volatile ThreadPoolExecutor excelImportExecutor;
+
+    private ThreadPoolExecutor getExcelImportExecutor() {
+        if (excelImportExecutor == null) {
+            synchronized (this) {
+                if (excelImportExecutor == null) {
+                    ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                            excelImportPoolSize,
+                            excelImportPoolSize,
+                            excelImportKeepAliveSeconds,
+                            TimeUnit.SECONDS,
+                            new LinkedBlockingQueue<>(excelImportQueueCapacity),
+                            new ThreadFactory() {
+                                private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+                                @Override
+                                public Thread newThread(Runnable r) {
+                                    Thread t = new Thread(r, "excel-import-" + threadNumber.getAndIncrement());
+                                    t.setDaemon(false);
+                                    return t;
+                                }
+                            },
+                            new ThreadPoolExecutor.CallerRunsPolicy());
+                    executor.allowCoreThreadTimeOut(true);
+                    excelImportExecutor = executor;
+                }
+            }
+        }
+        return excelImportExecutor;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (excelImportExecutor != null && !excelImportExecutor.isShutdown()) {
+            log.info("正在关闭Excel成绩导入线程池...");
+            excelImportExecutor.shutdown();
+            try {
+                if (!excelImportExecutor.awaitTermination(30, TimeUnit.SECONDS)) {
+                    excelImportExecutor.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                excelImportExecutor.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+            log.info("Excel成绩导入线程池已关闭");
+        }
+    }
+
     @Override
     public List<KskmxxEntity> listTemplates() {
         log.info("查询所有模板（科目）列表");
@@ -105,9 +188,16 @@ public class ScoreServiceImpl implements ScoreService {
                 subjectName, examPlanCode, areaType, parentArea);
 
         try {
-            // 查询区域统计数据
-            List<Map<String, Object>> statisticsData = kscjMapper.selectAreaScoreStatistics(
-                    examPlanCode, subjectName, areaType, parentArea);
+            // 查询区域统计数据（启用汇总表时从汇总表读取）
+            List<Map<String, Object>> statisticsData;
+            if (statisticsCubeService.isEnabled()) {
+                statisticsCubeService.ensureSlice(examPlanCode, subjectName);
+                statisticsData = statisticsCubeMapper.selectAreaScoreStatistics(
+                        examPlanCode, subjectName, areaType, parentArea);
+            } else {
+                statisticsData = kscjMapper.selectAreaScoreStatistics(
+                        examPlanCode, subjectName, areaType, parentArea);
+            }
 
             AreaScoreStatisticsVO result = new AreaScoreStatisticsVO();
             result.setSubjectName(subjectName);
@@ -182,8 +272,9 @@ public class ScoreServiceImpl implements ScoreService {
             // 查询等级分布数据
             log.info("调用Mapper查询：examPlanCode={}, subjectName={}, areaLevel={}, areaCode={}",
                     examPlanCode, subjectName, areaLevel, areaCode);
-            List<Map<String, Object>> gradeData = kscjMapper.selectSubjectGradeDistribution(
-                    examPlanCode, subjectName, areaLevel, areaCode);
+            List<Map<String, Object>> gradeData = statisticsCubeService.isEnabled()
+                    ? selectGradeDistributionFromCube(examPlanCode, subjectName, areaLevel, areaCode)
+                    : kscjMapper.selectSubjectGradeDistribution(examPlanCode, subjectName, areaLevel, areaCode);
 
             log.info("Mapper查询结果：共返回 {} 条记录", gradeData.size());
             if (!gradeData.isEmpty()) {
@@ -270,6 +361,32 @@ public class ScoreServiceImpl implements ScoreService {
         }
     }
 
+    /**
+     * 从汇总表读取等级分布和分数段分布，转换为与原UNION ALL查询相同的行格式（grade_code、score_range、count）
+     */
+    private List<Map<String, Object>> selectGradeDistributionFromCube(String examPlanCode, String subjectName,
+                                                                      String areaLevel, String areaCode) {
+        statisticsCubeService.ensureSlice(examPlanCode, subjectName);
+        List<Map<String, Object>> rows = new ArrayList<>(
+                statisticsCubeMapper.selectGradeDistribution(examPlanCode, subjectName, areaLevel, areaCode));
+        Map<String, Object> ranges = statisticsCubeMapper.selectScoreRangeCounts(
+                examPlanCode, subjectName, areaLevel, areaCode);
+        if (ranges != null) {
+            String[][] columns = {{"fd90", "90-100"}, {"fd80", "80-89"}, {"fd70", "70-79"},
+                    {"fd60", "60-69"}, {"fdbjg", "0-59"}};
+            for (String[] column : columns) {
+                Object count = ranges.get(column[0]);
+                if (count != null && ((Number) count).longValue() > 0) {
+                    Map<String, Object> row = new HashMap<>();
+                    row.put("score_range", column[1]);
+                    row.put("count", count);
+                    rows.add(row);
+                }
+            }
+        }
+        return rows;
+    }
+
     @Override
     @Cacheable(value = "trend_analysis", key = "'trend_' + #subjectName + '_' + (#areaFilter ?: 'all') + '_' + (#startYear ?: 'all') + '_' + (#endYear ?: 'all')")
     public ScoreTrendAnalysisVO getHistoricalTrends(String subjectName, String areaFilter,
@@ -279,10 +396,12 @@ public class ScoreServiceImpl implements ScoreService {
 
         try {
             // 查询历史趋势数据
-            List<Map<String, Object>> trendData = kscjMapper.selectHistoricalTrends(
-                    subjectName, "all", areaFilter,
-                    startYear != null ? startYear.toString() : null,
-                    endYear != null ? endYear.toString() : null);
+            String startYearText = startYear != null ? startYear.toString() : null;
+            String endYearText = endYear != null ? endYear.toString() : null;
+            // 启用汇总表时只读取已汇总的考试计划，历史计划通过汇总补齐接口一次性补齐
+            List<Map<String, Object>> trendData = statisticsCubeService.isEnabled()
+                    ? statisticsCubeMapper.selectHistoricalTrends(subjectName, "all", areaFilter, startYearText, endYearText)
+                    : kscjMapper.selectHistoricalTrends(subjectName, "all", areaFilter, startYearText, endYearText);
 
             ScoreTrendAnalysisVO result = new ScoreTrendAnalysisVO();
             result.setKmmc(subjectName);
@@ -553,14 +672,34 @@ public class ScoreServiceImpl implements ScoreService {
         }
         // --- [NEW] 权限逻辑结束 ---
 
-        // 查询总数 (这部分逻辑不变)
-        Long total = kscjMapper.countExamScores(query);
+        // 解析翻页游标（按考籍号翻页）
+        boolean cursorMode = StringUtils.hasText(query.getCursor());
+        if (cursorMode) {
+            query.setAfterKsh(PageCursor.decode(query.getCursor(), EXAM_SCORE_CURSOR_SIGNATURE, 1).get(0));
+        }
 
-        // 查询数据列表 (这部分逻辑不变)
+        // 查询总数（按筛选条件缓存，游标翻页默认不统计）
+        Long total = null;
+        if (!cursorMode || Boolean.TRUE.equals(query.getWithTotal())) {
+            total = pageTotalCacheService.getTotal("exam_score", () -> kscjMapper.countExamScores(query),
+                    query.getPermissionDm(), query.getKsjhdm(), query.getKmmc(), query.getSzsmc(),
+                    query.getKqmc(), query.getXxmc(), query.getKsh(), query.getWithScores());
+        }
+
+        // 查询数据列表
         List<ExamScoreVO> records = kscjMapper.selectExamScoresWithPagination(query);
 
-        // 构建分页结果 (这部分逻辑不变)
-        return PageResult.of(records, query.getPageNum(), query.getPageSize(), total);
+        // 构建分页结果，游标为本页最后一个考籍号
+        String nextCursor = records.size() < query.getLimit() ? null
+                : PageCursor.encode(EXAM_SCORE_CURSOR_SIGNATURE, records.get(records.size() - 1).getKsh());
+        if (cursorMode) {
+            return PageResult.ofCursor(records, query.getPageSize(), total, nextCursor);
+        }
+        PageResult<ExamScoreVO> result = PageResult.of(records, query.getPageNum(), query.getPageSize(), total);
+        if (result.getHasNext()) {
+            result.setNextCursor(nextCursor);
+        }
+        return result;
     }
 
     @Override
@@ -714,6 +853,18 @@ public class ScoreServiceImpl implements ScoreService {
     @Override
     @Transactional(value = "transactionManager", rollbackFor = Exception.class)
     public byte[] generateExcelTemplate(String ksjhdm, String kmmc, String szsmc, String kqmc, String xxmc) {
+        prepareExcelTemplate(ksjhdm, kmmc, szsmc, kqmc, xxmc);
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        writeExcelTemplate(ksjhdm, kmmc, szsmc, kqmc, xxmc, outputStream);
+        byte[] excelBytes = outputStream.toByteArray();
+        log.info("Excel导入模板文件大小: {}KB", excelBytes.length / 1024);
+        return excelBytes;
+    }
+
+    @Override
+    @Transactional(value = "transactionManager", rollbackFor = Exception.class)
+    public void prepareExcelTemplate(String ksjhdm, String kmmc, String szsmc, String kqmc, String xxmc) {
         log.info("开始生成Excel导入模板，考试计划代码: {}, 科目名称: {}, 地市: {}, 考区: {}, 学校: {}",
                 ksjhdm, kmmc, szsmc, kqmc, xxmc);
 
@@ -797,8 +948,13 @@ public class ScoreServiceImpl implements ScoreService {
             existingRecordCount = kscjMapper.countExistingRecordsWithArea(ksjhdm, kmmc, szsmc, kqmc, xxmc);
             log.info("检测到已初始化，跳过自动初始化步骤，缓存标志: {}, 现有记录数: {}", isInitialized, existingRecordCount);
         }
+    }
 
-        try (SXSSFWorkbook workbook = new SXSSFWorkbook(1000)) { // 内存中保持1000行
+    @Override
+    public void writeExcelTemplate(String ksjhdm, String kmmc, String szsmc, String kqmc, String xxmc,
+                                   OutputStream outputStream) {
+        // 内存中保持1000行，超出部分刷到临时文件；close()时删除临时文件
+        try (SXSSFWorkbook workbook = new SXSSFWorkbook(1000)) {
             Sheet sheet = workbook.createSheet("成绩导入模板");
 
             // 创建表头样式
@@ -865,89 +1021,64 @@ public class ScoreServiceImpl implements ScoreService {
             // 密码为空，用户可以取消保护，但默认情况下基本信息列被锁定
             sheet.protectSheet("");
 
-            // 分页查询学生数据并写入Excel
-            int pageSize = 1000;
-            int pageNum = 1;
-            int currentRow = 1;
-
-            while (true) {
-                // 构建查询条件
-                ExamScoreQueryDTO queryDTO = new ExamScoreQueryDTO();
-                queryDTO.setKsjhdm(ksjhdm);
-                queryDTO.setKmmc(kmmc);
-                queryDTO.setSzsmc(szsmc);
-                queryDTO.setKqmc(kqmc);
-                queryDTO.setXxmc(xxmc);
-                queryDTO.setPageNum(pageNum);
-                queryDTO.setPageSize(pageSize);
-
-                PageResult<ExamScoreVO> pageResult = getExamScoresWithPagination(queryDTO);
-                List<ExamScoreVO> students = pageResult.getRecords();
-
-                if (students.isEmpty()) {
-                    break;
-                }
-
-                // 写入学生数据（按文档要求的字段顺序）
-                for (ExamScoreVO student : students) {
-                    Row dataRow = sheet.createRow(currentRow++);
-
-                    // 考籍号（锁定）
-                    Cell kshCell = dataRow.createCell(0);
-                    kshCell.setCellValue(student.getKsh() != null ? student.getKsh() : "");
-                    kshCell.setCellStyle(lockedDataStyle);
-
-                    // 姓名（锁定）
-                    Cell xmCell = dataRow.createCell(1);
-                    xmCell.setCellValue(student.getXm() != null ? student.getXm() : "");
-                    xmCell.setCellStyle(lockedDataStyle);
-
-                    // 身份证号（锁定）
-                    Cell sfzjhCell = dataRow.createCell(2);
-                    sfzjhCell.setCellValue(student.getSfzjh() != null ? student.getSfzjh() : "");
-                    sfzjhCell.setCellStyle(lockedDataStyle);
-
-                    // 学校（锁定）
-                    Cell xxmcCell = dataRow.createCell(3);
-                    xxmcCell.setCellValue(student.getXxmc() != null ? student.getXxmc() : "");
-                    xxmcCell.setCellStyle(lockedDataStyle);
-
-                    // 班级（锁定）
-                    Cell bjmcCell = dataRow.createCell(4);
-                    bjmcCell.setCellValue(student.getBjmc() != null ? student.getBjmc() : "");
-                    bjmcCell.setCellStyle(lockedDataStyle);
-
-                    // 科目（锁定，预填科目名称）
-                    Cell kmmcCell = dataRow.createCell(5);
-                    kmmcCell.setCellValue(kmmc != null ? kmmc : "");
-                    kmmcCell.setCellStyle(lockedDataStyle);
-
-                    // 成绩（可编辑，供用户填写）
-                    Cell scoreCell = dataRow.createCell(6);
-                    scoreCell.setCellValue("");
-                    scoreCell.setCellStyle(editableDataStyle);
-
-                    // 合格评定（可编辑，供用户填写）
-                    Cell gradeEvalCell = dataRow.createCell(7);
-                    gradeEvalCell.setCellValue("");
-                    gradeEvalCell.setCellStyle(editableDataStyle);
-                }
-
-                // 如果当前页数据少于pageSize，说明已经是最后一页
-                if (students.size() < pageSize) {
-                    break;
+            // 通过游标逐行读取学生数据并写入Excel，游标依赖打开的会话，需在事务中迭代
+            ExamScoreQueryDTO queryDTO = buildTemplateQuery(ksjhdm, kmmc, szsmc, kqmc, xxmc);
+            int[] rowCount = {0};
+            transactionTemplate.executeWithoutResult(status -> {
+                try (Cursor<ExamScoreVO> cursor = kscjMapper.selectExamTemplateStudents(queryDTO)) {
+                    for (ExamScoreVO student : cursor) {
+                        Row dataRow = sheet.createRow(++rowCount[0]);
+
+                        // 考籍号（锁定）
+                        Cell kshCell = dataRow.createCell(0);
+                        kshCell.setCellValue(student.getKsh() != null ? student.getKsh() : "");
+                        kshCell.setCellStyle(lockedDataStyle);
+
+                        // 姓名（锁定）
+                        Cell xmCell = dataRow.createCell(1);
+                        xmCell.setCellValue(student.getXm() != null ? student.getXm() : "");
+                        xmCell.setCellStyle(lockedDataStyle);
+
+                        // 身份证号（锁定）
+                        Cell sfzjhCell = dataRow.createCell(2);
+                        sfzjhCell.setCellValue(student.getSfzjh() != null ? student.getSfzjh() : "");
+                        sfzjhCell.setCellStyle(lockedDataStyle);
+
+                        // 学校（锁定）
+                        Cell xxmcCell = dataRow.createCell(3);
+                        xxmcCell.setCellValue(student.getXxmc() != null ? student.getXxmc() : "");
+                        xxmcCell.setCellStyle(lockedDataStyle);
+
+                        // 班级（锁定）
+                        Cell bjmcCell = dataRow.createCell(4);
+                        bjmcCell.setCellValue(student.getBjmc() != null ? student.getBjmc() : "");
+                        bjmcCell.setCellStyle(lockedDataStyle);
+
+                        // 科目（锁定，预填科目名称）
+                        Cell kmmcCell = dataRow.createCell(5);
+                        kmmcCell.setCellValue(kmmc != null ? kmmc : "");
+                        kmmcCell.setCellStyle(lockedDataStyle);
+
+                        // 成绩（可编辑，供用户填写）
+                        Cell scoreCell = dataRow.createCell(6);
+                        scoreCell.setCellValue("");
+                        scoreCell.setCellStyle(editableDataStyle);
+
+                        // 合格评定（可编辑，供用户填写）
+                        Cell gradeEvalCell = dataRow.createCell(7);
+                        gradeEvalCell.setCellValue("");
+                        gradeEvalCell.setCellStyle(editableDataStyle);
+                    }
+                } catch (IOException e) {
+                    throw new RuntimeException("关闭学生数据游标失败: " + e.getMessage(), e);
                 }
+            });
 
-                pageNum++;
-            }
-
-            // 将工作簿写入字节数组
-            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            // 直接写出到输出流，不在内存中缓冲整个文件
             workbook.write(outputStream);
-            byte[] excelBytes = outputStream.toByteArray();
+            outputStream.flush();
 
-            log.info("Excel导入模板生成成功，共{}行数据，文件大小: {}KB", currentRow - 1, excelBytes.length / 1024);
-            return excelBytes;
+            log.info("Excel导入模板生成成功，共{}行数据", rowCount[0]);
 
         } catch (Exception e) {
             log.error("生成Excel导入模板失败，考试计划代码: {}, 科目名称: {}, 地市: {}, 考区: {}, 学校: {}",
@@ -956,8 +1087,28 @@ public class ScoreServiceImpl implements ScoreService {
         }
     }
 
+    /**
+     * 构建模板学生查询条件，数据范围权限取自当前登录用户
+     */
+    private ExamScoreQueryDTO buildTemplateQuery(String ksjhdm, String kmmc, String szsmc, String kqmc, String xxmc) {
+        ExamScoreQueryDTO queryDTO = new ExamScoreQueryDTO();
+        queryDTO.setKsjhdm(ksjhdm);
+        queryDTO.setKmmc(kmmc);
+        queryDTO.setSzsmc(szsmc);
+        queryDTO.setKqmc(kqmc);
+        queryDTO.setXxmc(xxmc);
+        UserContext.UserInfo user = UserContext.get();
+        if (user != null) {
+            queryDTO.setPermissionDm(user.getDm());
+        }
+        return queryDTO;
+    }
+
+    /**
+     * 导入Excel成绩文件
+     * 已存在的考籍号一次性载入内存完成预校验，校验通过的批次提交到线程池并发更新，每个批次独立事务
+     */
     @Override
-    @Transactional(rollbackFor = Exception.class)
     public ImportResultVO importExcelScores(String ksjhdm, String kmmc, MultipartFile file) {
         log.info("开始导入Excel成绩文件，考试计划代码: {}, 科目名称: {}, 文件名: {}", ksjhdm, kmmc, file.getOriginalFilename());
 
@@ -972,143 +1123,52 @@ public class ScoreServiceImpl implements ScoreService {
         log.info("kscj表已初始化验证通过，现有记录数: {}", existingRecordCount);
 
         LocalDateTime startTime = LocalDateTime.now();
-        List<String> errorMessages = new ArrayList<>();
-        int totalCount = 0;
-        int successCount = 0;
-        int failCount = 0;
+        ExcelImportContext context = null;
 
-        try (InputStream inputStream = file.getInputStream();
-             XSSFWorkbook workbook = new XSSFWorkbook(inputStream)) {
+        try {
+            // 一次性载入已初始化的考籍号，逐行预校验，不再每批查询
+            CompactStringSet existingKsh = new CompactStringSet(existingRecordCount);
+            kscjMapper.scanExistingKsh(ksjhdm, kmmc, resultContext -> existingKsh.add(resultContext.getResultObject()));
+            context = new ExcelImportContext(ksjhdm, kmmc, existingKsh);
+            ExcelImportContext importContext = context;
+
+            // 按行流式读取第一个工作表，每满一批提交一次并发批量更新
+            boolean sheetFound = XlsxStreamReader.readFirstSheet(file, (rowIndex, cells) -> {
+                if (importContext.columnIndexes == null) {
+                    // 第一行必须是表头
+                    importContext.headerError = rowIndex == 0
+                            ? resolveImportColumns(cells, importContext)
+                            : "Excel文件中没有找到表头行";
+                    return importContext.headerError == null;
+                }
+                processImportRow(rowIndex, cells, importContext);
+                return true;
+            });
 
-            Sheet sheet = workbook.getSheetAt(0);
-            if (sheet == null) {
+            if (!sheetFound) {
                 return ImportResultVO.failure("Excel文件中没有找到工作表");
             }
-
-            // 验证表头
-            Row headerRow = sheet.getRow(0);
-            if (headerRow == null) {
-                return ImportResultVO.failure("Excel文件中没有找到表头行");
+            if (context.headerError != null) {
+                return ImportResultVO.failure(context.headerError);
             }
-
-            // 验证必需的列
-            Map<String, Integer> columnIndexMap = new HashMap<>();
-            for (int i = 0; i < headerRow.getLastCellNum(); i++) {
-                Cell cell = headerRow.getCell(i);
-                if (cell != null) {
-                    String columnName = cell.getStringCellValue().trim();
-                    columnIndexMap.put(columnName, i);
-                }
-            }
-
-            // 检查必需的列是否存在
-            String[] requiredColumns = {"考籍号", "姓名", "科目", "成绩", "合格评定"};
-            for (String column : requiredColumns) {
-                if (!columnIndexMap.containsKey(column)) {
-                    return ImportResultVO.failure("Excel文件缺少必需的列: " + column);
-                }
-            }
-
-            // 获取列索引
-            int kshIndex = columnIndexMap.get("考籍号");
-            int xmIndex = columnIndexMap.get("姓名");
-            int kmmcIndex = columnIndexMap.get("科目");
-            int scoreIndex = columnIndexMap.get("成绩");
-            int hgpdIndex = columnIndexMap.get("合格评定");
-
-            // 分批处理数据
-            List<ScoreUpdateDTO> batchData = new ArrayList<>();
-            int batchSize = 1000;
-
-            for (int rowIndex = 1; rowIndex <= sheet.getLastRowNum(); rowIndex++) {
-                Row row = sheet.getRow(rowIndex);
-                if (row == null)
-                    continue;
-
-                totalCount++;
-
-                try {
-                    // 读取数据
-                    String ksh = getCellStringValue(row.getCell(kshIndex));
-                    String xm = getCellStringValue(row.getCell(xmIndex));
-                    String kmmcValue = getCellStringValue(row.getCell(kmmcIndex));
-                    String score = getCellStringValue(row.getCell(scoreIndex));
-                    String hgpd = getCellStringValue(row.getCell(hgpdIndex));
-
-                    // 验证数据
-                    if (ksh == null || ksh.trim().isEmpty()) {
-                        errorMessages.add(String.format("第%d行：考籍号不能为空", rowIndex + 1));
-                        failCount++;
-                        continue;
-                    }
-
-                    if (!kmmc.equals(kmmcValue)) {
-                        errorMessages.add(String.format("第%d行：科目名称不匹配，期望: %s，实际: %s", rowIndex + 1, kmmc, kmmcValue));
-                        failCount++;
-                        continue;
-                    }
-
-                    // 创建更新DTO
-                    ScoreUpdateDTO updateDTO = new ScoreUpdateDTO();
-                    updateDTO.setKsh(ksh.trim());
-                    updateDTO.setKsjhdm(ksjhdm);
-                    updateDTO.setKmmc(kmmc);
-
-                    // 转换成绩为整数
-                    Integer scoreValue = null;
-                    if (score != null && !score.trim().isEmpty()) {
-                        try {
-                            scoreValue = Integer.parseInt(score.trim());
-                        } catch (NumberFormatException e) {
-                            errorMessages.add(String.format("第%d行：成绩格式错误，必须为整数", rowIndex + 1));
-                            failCount++;
-                            continue;
-                        }
-                    }
-
-                    updateDTO.setFslkscj(scoreValue);
-                    updateDTO.setCjhgm(hgpd != null ? hgpd.trim() : null);
-
-                    // 当成绩和合格评定都为空时，设置考考类型名称为'缺考'
-                    if (scoreValue == null && (hgpd == null || hgpd.trim().isEmpty())) {
-                        updateDTO.setKklxmc("缺考");
-                    } else if (scoreValue != null || (hgpd != null && !hgpd.trim().isEmpty())) {
-                        // 当成绩或合格评定不为空时，设置考考类型名称为'正考'
-                        updateDTO.setKklxmc("正考");
-                    }
-
-                    // TODO:gxr有关字段需要从登陆信息中获取
-                    updateDTO.setGxrxm("系统导入");
-                    updateDTO.setGxrgzrym("SYSTEM");
-                    updateDTO.setGxsj(LocalDateTime.now());
-
-                    batchData.add(updateDTO);
-
-                    // 达到批次大小时执行批量更新
-                    if (batchData.size() >= batchSize) {
-                        int batchSuccessCount = processBatchUpdate(batchData, errorMessages);
-                        successCount += batchSuccessCount;
-                        failCount += (batchData.size() - batchSuccessCount);
-                        batchData.clear();
-                    }
-
-                } catch (Exception e) {
-                    errorMessages.add(String.format("第%d行：处理失败 - %s", rowIndex + 1, e.getMessage()));
-                    failCount++;
-                }
+            if (context.columnIndexes == null) {
+                return ImportResultVO.failure("Excel文件中没有找到表头行");
             }
 
-            // 处理剩余的数据
-            if (!batchData.isEmpty()) {
-                int batchSuccessCount = processBatchUpdate(batchData, errorMessages);
-                successCount += batchSuccessCount;
-                failCount += (batchData.size() - batchSuccessCount);
-            }
+            // 提交剩余的数据并等待所有批次完成
+            dispatchImportBatch(context);
+            awaitImportBatches(context);
 
+            int totalCount = context.totalCount;
+            int successCount = context.successCount;
+            int failCount = context.failCount;
             LocalDateTime endTime = LocalDateTime.now();
             long duration = java.time.Duration.between(startTime, endTime).toMillis();
 
             log.info("Excel成绩导入完成，总数: {}, 成功: {}, 失败: {}, 耗时: {}ms", totalCount, successCount, failCount, duration);
+            if (successCount > 0) {
+                statisticsCubeService.refreshAsync(ksjhdm, kmmc);
+            }
 
             return ImportResultVO.builder()
                     .success(failCount == 0)
@@ -1116,7 +1176,7 @@ public class ScoreServiceImpl implements ScoreService {
                     .totalCount(totalCount)
                     .successCount(successCount)
                     .failCount(failCount)
-                    .errorMessages(errorMessages)
+                    .errorMessages(context.errorMessages)
                     .fileName(file.getOriginalFilename())
                     .startTime(startTime.format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")))
                     .endTime(endTime.format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")))
@@ -1125,80 +1185,223 @@ public class ScoreServiceImpl implements ScoreService {
 
         } catch (Exception e) {
             log.error("导入Excel成绩文件失败，考试计划代码: {}, 科目名称: {}", ksjhdm, kmmc, e);
-            return ImportResultVO.failure("导入失败: " + e.getMessage());
+            if (context == null) {
+                return ImportResultVO.failure("导入失败: " + e.getMessage());
+            }
+
+            // 已提交的批次在各自事务中继续执行，等待其结束后返回实际已提交的记录数
+            awaitImportBatches(context);
+            if (context.successCount > 0) {
+                statisticsCubeService.refreshAsync(ksjhdm, kmmc);
+            }
+            LocalDateTime endTime = LocalDateTime.now();
+            return ImportResultVO.builder()
+                    .success(false)
+                    .message(context.successCount > 0
+                            ? String.format("导入中断: %s，已成功导入%d条记录", e.getMessage(), context.successCount)
+                            : "导入失败: " + e.getMessage())
+                    .totalCount(context.totalCount)
+                    .successCount(context.successCount)
+                    .failCount(context.totalCount - context.successCount)
+                    .errorMessages(context.errorMessages)
+                    .fileName(file.getOriginalFilename())
+                    .startTime(startTime.format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")))
+                    .endTime(endTime.format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")))
+                    .duration(java.time.Duration.between(startTime, endTime).toMillis())
+                    .build();
         }
     }
 
     /**
-     * 获取单元格字符串值
+     * 解析表头，定位必需列
+     *
+     * @return 错误信息，表头有效时返回null
      */
-    private String getCellStringValue(Cell cell) {
-        if (cell == null) {
-            return null;
+    private String resolveImportColumns(List<String> headerCells, ExcelImportContext context) {
+        Map<String, Integer> columnIndexMap = new HashMap<>();
+        for (int i = 0; i < headerCells.size(); i++) {
+            String columnName = headerCells.get(i);
+            if (columnName != null) {
+                columnIndexMap.put(columnName.trim(), i);
+            }
         }
 
-        switch (cell.getCellType()) {
-            case STRING:
-                return cell.getStringCellValue();
-            case NUMERIC:
-                if (DateUtil.isCellDateFormatted(cell)) {
-                    return cell.getDateCellValue().toString();
-                } else {
-                    // 处理数字，避免科学计数法
-                    double numericValue = cell.getNumericCellValue();
-                    if (numericValue == (long) numericValue) {
-                        return String.valueOf((long) numericValue);
-                    } else {
-                        return String.valueOf(numericValue);
-                    }
-                }
-            case BOOLEAN:
-                return String.valueOf(cell.getBooleanCellValue());
-            case FORMULA:
-                return cell.getCellFormula();
-            default:
-                return null;
+        // 检查必需的列是否存在
+        int[] columnIndexes = new int[EXCEL_IMPORT_COLUMNS.length];
+        for (int i = 0; i < EXCEL_IMPORT_COLUMNS.length; i++) {
+            Integer index = columnIndexMap.get(EXCEL_IMPORT_COLUMNS[i]);
+            if (index == null) {
+                return "Excel文件缺少必需的列: " + EXCEL_IMPORT_COLUMNS[i];
+            }
+            columnIndexes[i] = index;
         }
+        context.columnIndexes = columnIndexes;
+        return null;
     }
 
     /**
-     * 处理批量更新
+     * 校验并转换一行成绩数据，达到批次大小时执行批量更新
      */
-    private int processBatchUpdate(List<ScoreUpdateDTO> batchData, List<String> errorMessages) {
-        int successCount = 0;
+    private void processImportRow(int rowIndex, List<String> cells, ExcelImportContext context) {
+        context.totalCount++;
+        List<String> errorMessages = context.errorMessages;
+        String kmmc = context.kmmc;
 
         try {
-            // 验证KSH是否存在于kscj表中
-            List<String> kshList = batchData.stream()
-                    .map(ScoreUpdateDTO::getKsh)
-                    .collect(Collectors.toList());
+            // 读取数据
+            int[] columns = context.columnIndexes;
+            String ksh = XlsxStreamReader.cellValue(cells, columns[0]);
+            String kmmcValue = XlsxStreamReader.cellValue(cells, columns[2]);
+            String score = XlsxStreamReader.cellValue(cells, columns[3]);
+            String hgpd = XlsxStreamReader.cellValue(cells, columns[4]);
+
+            // 验证数据
+            if (ksh == null || ksh.trim().isEmpty()) {
+                errorMessages.add(String.format("第%d行：考籍号不能为空", rowIndex + 1));
+                context.failCount++;
+                return;
+            }
 
-            List<String> existingKshList = kscjMapper.selectExistingKsh(batchData.get(0).getKsjhdm(),
-                    batchData.get(0).getKmmc(), kshList);
-            Set<String> existingKshSet = new HashSet<>(existingKshList);
+            if (!kmmc.equals(kmmcValue)) {
+                errorMessages.add(String.format("第%d行：科目名称不匹配，期望: %s，实际: %s", rowIndex + 1, kmmc, kmmcValue));
+                context.failCount++;
+                return;
+            }
 
-            // 过滤出存在的记录进行更新
-            List<ScoreUpdateDTO> validUpdates = new ArrayList<>();
-            for (ScoreUpdateDTO dto : batchData) {
-                if (existingKshSet.contains(dto.getKsh())) {
-                    validUpdates.add(dto);
-                } else {
-                    errorMessages.add(String.format("考籍号 %s 在系统中不存在或未初始化", dto.getKsh()));
+            // 创建更新DTO
+            ScoreUpdateDTO updateDTO = new ScoreUpdateDTO();
+            updateDTO.setKsh(ksh.trim());
+            updateDTO.setKsjhdm(context.ksjhdm);
+            updateDTO.setKmmc(kmmc);
+
+            // 转换成绩为整数
+            Integer scoreValue = null;
+            if (score != null && !score.trim().isEmpty()) {
+                try {
+                    scoreValue = Integer.parseInt(score.trim());
+                } catch (NumberFormatException e) {
+                    errorMessages.add(String.format("第%d行：成绩格式错误，必须为整数", rowIndex + 1));
+                    context.failCount++;
+                    return;
                 }
             }
 
-            // 执行批量更新
-            if (!validUpdates.isEmpty()) {
-                successCount = kscjMapper.batchUpdateScores(validUpdates);
-                log.debug("批量更新成绩完成，更新记录数: {}", successCount);
+            updateDTO.setFslkscj(scoreValue);
+            updateDTO.setCjhgm(hgpd != null ? hgpd.trim() : null);
+
+            // 当成绩和合格评定都为空时，设置考考类型名称为'缺考'
+            if (scoreValue == null && (hgpd == null || hgpd.trim().isEmpty())) {
+                updateDTO.setKklxmc("缺考");
+            } else if (scoreValue != null || (hgpd != null && !hgpd.trim().isEmpty())) {
+                // 当成绩或合格评定不为空时，设置考考类型名称为'正考'
+                updateDTO.setKklxmc("正考");
+            }
+
+            // TODO:gxr有关字段需要从登陆信息中获取
+            updateDTO.setGxrxm("系统导入");
+            updateDTO.setGxrgzrym("SYSTEM");
+            updateDTO.setGxsj(LocalDateTime.now());
+
+            if (!context.existingKsh.contains(updateDTO.getKsh())) {
+                errorMessages.add(String.format("考籍号 %s 在系统中不存在或未初始化", updateDTO.getKsh()));
+                context.failCount++;
+                return;
+            }
+
+            // 同一考籍号在已提交的批次中出现过时，先等待已提交批次完成，保证后出现的行覆盖先出现的行
+            if (context.dispatchedKsh.contains(updateDTO.getKsh())) {
+                awaitImportBatches(context);
+            }
+
+            context.batchData.add(updateDTO);
+
+            // 达到批次大小时提交批量更新
+            if (context.batchData.size() >= EXCEL_IMPORT_BATCH_SIZE) {
+                dispatchImportBatch(context);
             }
 
         } catch (Exception e) {
-            log.error("批量更新成绩失败: {}", e.getMessage(), e);
-            errorMessages.add("批量更新失败: " + e.getMessage());
+            errorMessages.add(String.format("第%d行：处理失败 - %s", rowIndex + 1, e.getMessage()));
+            context.failCount++;
+        }
+    }
+
+    /**
+     * 将当前批次提交到线程池，在独立事务中批量更新；线程池繁忙时由导入线程自己执行
+     */
+    private void dispatchImportBatch(ExcelImportContext context) {
+        if (context.batchData.isEmpty()) {
+            return;
         }
+        List<ScoreUpdateDTO> batch = context.batchData;
+        context.batchData = new ArrayList<>(EXCEL_IMPORT_BATCH_SIZE);
+        for (ScoreUpdateDTO dto : batch) {
+            context.dispatchedKsh.add(dto.getKsh());
+        }
+        CompletableFuture<Integer> future = CompletableFuture.supplyAsync(
+                () -> transactionTemplate.execute(status -> kscjMapper.batchUpdateScores(batch)),
+                getExcelImportExecutor());
+        context.pendingBatches.add(new PendingBatch(batch.size(), future));
+    }
 
-        return successCount;
+    /**
+     * 等待已提交的批次完成并汇总结果
+     */
+    private void awaitImportBatches(ExcelImportContext context) {
+        for (PendingBatch pending : context.pendingBatches) {
+            try {
+                Integer batchSuccessCount = pending.future.join();
+                int updated = batchSuccessCount != null ? batchSuccessCount : 0;
+                log.debug("批量更新成绩完成，更新记录数: {}", updated);
+                context.successCount += updated;
+                context.failCount += (pending.size - updated);
+            } catch (CompletionException | CancellationException e) {
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                log.error("批量更新成绩失败: {}", cause.getMessage(), cause);
+                context.errorMessages.add("批量更新失败: " + cause.getMessage());
+                context.failCount += pending.size;
+            }
+        }
+        context.pendingBatches.clear();
     }
 
-}
\ No newline at end of file
+    /**
+     * Excel成绩导入过程中的状态
+     */
+    private static class ExcelImportContext {
+        private final String ksjhdm;
+        private final String kmmc;
+        // 已初始化成绩记录的考籍号
+        private final CompactStringSet existingKsh;
+        // 已提交更新的考籍号
+        private final CompactStringSet dispatchedKsh = new CompactStringSet();
+        private final List<PendingBatch> pendingBatches = new ArrayList<>();
+        private final List<String> errorMessages = new ArrayList<>();
+        private List<ScoreUpdateDTO> batchData = new ArrayList<>();
+        // 必需列在表头中的下标，顺序同 EXCEL_IMPORT_COLUMNS；读到表头前为null
+        private int[] columnIndexes;
+        private String headerError;
+        private int totalCount;
+        private int successCount;
+        private int failCount;
+
+        ExcelImportContext(String ksjhdm, String kmmc, CompactStringSet existingKsh) {
+            this.ksjhdm = ksjhdm;
+            this.kmmc = kmmc;
+            this.existingKsh = existingKsh;
+        }
+    }
+
+    /**
+     * 已提交的更新批次
+     */
+    private static class PendingBatch {
+        private final int size;
+        private final CompletableFuture<Integer> future;
+
+        PendingBatch(int size, CompletableFuture<Integer> future) {
+            this.size = size;
+            this.future = future;
+        }
+    }
+}
@@ -1,17 +1,21 @@
 package edu.qhjy.score_service.service.impl;
 
 import edu.qhjy.score_service.aop.UserContext;
+import edu.qhjy.score_service.common.PageCursor;
 import edu.qhjy.score_service.common.PageResult;
 import edu.qhjy.score_service.domain.dto.StudentDataQueryDTO;
 import edu.qhjy.score_service.domain.vo.StudentDataVO;
 import edu.qhjy.score_service.mapper.primary.KscjMapper;
 import edu.qhjy.score_service.service.StudentDataService;
+import edu.qhjy.score_service.service.redis.PageTotalCacheService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 
+import java.math.BigDecimal;
 import java.util.List;
+import java.util.function.Function;
 
 /**
  * 学生数据查询服务实现类
@@ -22,6 +26,7 @@ import java.util.List;
 public class StudentDataServiceImpl implements StudentDataService {
 
     private final KscjMapper kscjMapper;
+    private final PageTotalCacheService pageTotalCacheService;
 
     @Override
     public PageResult<StudentDataVO> queryStudentData(StudentDataQueryDTO queryDTO) {
@@ -44,13 +49,21 @@ public class StudentDataServiceImpl implements StudentDataService {
         // 设置分页参数
         queryDTO.validateAndSetDefaults();
 
-        try {
-            // 查询总数
-            Long totalCount = kscjMapper.countStudentData(queryDTO);
-            log.info("查询到学生数据总数：{}", totalCount);
+        // 解析翻页游标
+        boolean cursorMode = StringUtils.hasText(queryDTO.getCursor());
+        if (cursorMode) {
+            applyCursor(queryDTO);
+        }
 
-            if (totalCount == 0) {
-                return PageResult.empty(queryDTO.getPageNum(), queryDTO.getPageSize());
+        try {
+            // 查询总数（按筛选条件缓存，游标翻页默认不统计）
+            Long totalCount = null;
+            if (!cursorMode || Boolean.TRUE.equals(queryDTO.getWithTotal())) {
+                totalCount = countStudentData(queryDTO);
+                log.info("查询到学生数据总数：{}", totalCount);
+                if (totalCount == 0) {
+                    return PageResult.empty(queryDTO.getPageNum(), queryDTO.getPageSize());
+                }
             }
 
             // 查询分页数据
@@ -60,7 +73,15 @@ public class StudentDataServiceImpl implements StudentDataService {
             // 处理科目类型相关的显示逻辑
             processSubjectTypeDisplay(dataList);
 
-            return PageResult.success(dataList, totalCount, queryDTO.getPageNum(), queryDTO.getPageSize());
+            String nextCursor = dataList.size() < queryDTO.getLimit() ? null : buildNextCursor(queryDTO, dataList);
+            if (cursorMode) {
+                return PageResult.ofCursor(dataList, queryDTO.getPageSize(), totalCount, nextCursor);
+            }
+            PageResult<StudentDataVO> result = PageResult.success(dataList, totalCount, queryDTO.getPageNum(), queryDTO.getPageSize());
+            if (result.getHasNext()) {
+                result.setNextCursor(nextCursor);
+            }
+            return result;
 
         } catch (Exception e) {
             log.error("查询学生数据失败，查询条件：{}，错误信息：{}", queryDTO, e.getMessage(), e);
@@ -68,6 +89,63 @@ public class StudentDataServiceImpl implements StudentDataService {
         }
     }
 
+    private long countStudentData(StudentDataQueryDTO queryDTO) {
+        return pageTotalCacheService.getTotal("student_data", () -> kscjMapper.countStudentData(queryDTO),
+                queryDTO.getPermissionDm(), queryDTO.getKsjhdm(), queryDTO.getKmmc(), queryDTO.getSzsmc(),
+                queryDTO.getKqmc(), queryDTO.getXxmc(), queryDTO.getKsh(), queryDTO.getBjmc(),
+                queryDTO.getMinScore(), queryDTO.getMaxScore(), queryDTO.getCjhgm(), queryDTO.getCjdjm(),
+                queryDTO.getOnlyWithScore());
+    }
+
+    /**
+     * 排序方式签名，游标只能用于相同排序方式的查询
+     */
+    private String cursorSignature(StudentDataQueryDTO queryDTO) {
+        String sortField = "kscjbs".equals(queryDTO.getSortField()) || "fslkscj".equals(queryDTO.getSortField())
+                ? queryDTO.getSortField() : "ksh";
+        return "student_data:" + sortField + ":" + ("desc".equals(queryDTO.getSortOrder()) ? "desc" : "asc");
+    }
+
+    /**
+     * 将游标解码为上一页最后一行的排序键（排序字段, kmmc, kscjbs）
+     */
+    private void applyCursor(StudentDataQueryDTO queryDTO) {
+        String signature = cursorSignature(queryDTO);
+        if ("kscjbs".equals(queryDTO.getSortField())) {
+            List<String> keys = PageCursor.decode(queryDTO.getCursor(), signature, 1);
+            queryDTO.setAfterKscjbs(parseCursorKey(keys.get(0), Long::valueOf));
+            return;
+        }
+        List<String> keys = PageCursor.decode(queryDTO.getCursor(), signature, 3);
+        if ("fslkscj".equals(queryDTO.getSortField())) {
+            queryDTO.setAfterScore(parseCursorKey(keys.get(0), BigDecimal::new));
+        } else {
+            queryDTO.setAfterKsh(keys.get(0));
+        }
+        queryDTO.setAfterKmmc(keys.get(1));
+        queryDTO.setAfterKscjbs(parseCursorKey(keys.get(2), Long::valueOf));
+    }
+
+    private String buildNextCursor(StudentDataQueryDTO queryDTO, List<StudentDataVO> dataList) {
+        StudentDataVO last = dataList.get(dataList.size() - 1);
+        String signature = cursorSignature(queryDTO);
+        if ("kscjbs".equals(queryDTO.getSortField())) {
+            return PageCursor.encode(signature, last.getKscjbs());
+        }
+        Object sortKey = "fslkscj".equals(queryDTO.getSortField())
+                ? (last.getFslkscj() != null ? last.getFslkscj() : BigDecimal.ONE.negate())
+                : last.getKsh();
+        return PageCursor.encode(signature, sortKey, last.getKmmc(), last.getKscjbs());
+    }
+
+    private static <T> T parseCursorKey(String value, Function<String, T> parser) {
+        try {
+            return parser.apply(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("分页游标无效");
+        }
+    }
+
     /**
      * 参数校验
      */
@@ -0,0 +1,222 @@
+package edu.qhjy.score_service.service.impl;
+
+import edu.qhjy.score_service.domain.entity.KscjEntity;
+import edu.qhjy.score_service.domain.vo.DbfImportStageMetricsVO;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.mybatis.spring.SqlSessionTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 成绩导入临时表（TMP_KSCJ_IMPORT）批量加载器
+ * 在同一个连接上复用预编译INSERT语句，按JDBC批量提交，
+ * 代替MyBatis拼接多行VALUES的写法，避免每批重新生成和解析长SQL。
+ * 加载在导入事务外进行，每批校验结果写入后即提交，记录以导入任务ID区分，由调用方在导入结束后按ID删除。
+ * 达梦驱动将JDBC批量以数组绑定方式一次发送；MySQL需在连接串中开启rewriteBatchedStatements
+ *
+ * @author dadalv
+ * @since 2025-08-01
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TempScoreBulkLoader {
+
+    private static final String INSERT_SQL = "INSERT INTO TMP_KSCJ_IMPORT "
+            + "(import_id, ksjhdm, ksjhmc, yjxh, kmmc, ksh, kklxmc, kmlx, fslkscj, cjfx1, cjfx2) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final DataSource dataSource;
+    private final SqlSessionTemplate sqlSessionTemplate;
+
+    @Value("${dbf.import.temp-table-loader.jdbc-batch-size:2000}")
+    private int jdbcBatchSize;
+
+    /**
+     * 打开一个加载会话，应在导入事务外调用，会话期间占用一个连接，每批写入按连接的自动提交方式提交
+     *
+     * @param importId 导入任务ID，写入每条记录
+     * @return 加载会话，使用完毕后需关闭
+     */
+    public Session open(String importId) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            // 在事务中调用时与MyBatis共用连接，先执行MyBatis中尚未提交的语句，保证执行顺序
+            sqlSessionTemplate.flushStatements();
+        }
+
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        try {
+            if (!DataSourceUtils.isConnectionTransactional(connection, dataSource) && !connection.getAutoCommit()) {
+                // 事务外加载时每批写入即提交，连接归还连接池时恢复默认设置
+                connection.setAutoCommit(true);
+            }
+            Dialect dialect = Dialect.detect(connection);
+            if (dialect == Dialect.MYSQL && !connection.getMetaData().getURL()
+                    .toLowerCase(Locale.ROOT).contains("rewritebatchedstatements=true")) {
+                log.warn("MySQL连接串未开启rewriteBatchedStatements，JDBC批量将逐条发送，建议在jdbcUrl中添加该参数");
+            }
+            return new Session(connection, connection.prepareStatement(INSERT_SQL), dialect, importId);
+        } catch (SQLException e) {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+            throw new RuntimeException("打开临时表批量加载失败: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 数据库类型
+     */
+    private enum Dialect {
+        DM("达梦"),
+        MYSQL("MySQL"),
+        OTHER("通用");
+
+        private final String displayName;
+
+        Dialect(String displayName) {
+            this.displayName = displayName;
+        }
+
+        static Dialect detect(Connection connection) throws SQLException {
+            String productName = connection.getMetaData().getDatabaseProductName().toUpperCase(Locale.ROOT);
+            if (productName.startsWith("DM")) {
+                return DM;
+            }
+            if (productName.contains("MYSQL")) {
+                return MYSQL;
+            }
+            return OTHER;
+        }
+    }
+
+    /**
+     * 加载会话：逐批追加记录，攒满JDBC批量大小后执行一次，每批追加结束时执行剩余部分
+     */
+    public class Session implements AutoCloseable {
+        private final Connection connection;
+        private final PreparedStatement statement;
+        private final Dialect dialect;
+        private final String importId;
+        private int pendingRows;
+        private long loadedRows;
+        private long executedBatches;
+        private long busyNanos;
+
+        private Session(Connection connection, PreparedStatement statement, Dialect dialect, String importId) {
+            this.connection = connection;
+            this.statement = statement;
+            this.dialect = dialect;
+            this.importId = importId;
+            log.info("临时表批量加载已启动，数据库: {}, JDBC批量大小: {}", dialect.displayName, jdbcBatchSize);
+        }
+
+        /**
+         * 追加一批成绩记录，返回时该批记录已全部写入临时表，会话不跨批缓存记录
+         */
+        public void add(List<KscjEntity> entities) {
+            long start = System.nanoTime();
+            try {
+                for (KscjEntity entity : entities) {
+                    bind(entity);
+                    statement.addBatch();
+                    if (++pendingRows >= jdbcBatchSize) {
+                        executePending();
+                    }
+                }
+                executePending();
+            } catch (SQLException e) {
+                throw new RuntimeException("写入临时表失败: " + e.getMessage(), e);
+            } finally {
+                busyNanos += System.nanoTime() - start;
+            }
+        }
+
+        /**
+         * 执行剩余未提交的批量并输出加载指标，MERGE前调用
+         */
+        public void finish() {
+            long start = System.nanoTime();
+            try {
+                executePending();
+            } catch (SQLException e) {
+                throw new RuntimeException("写入临时表失败: " + e.getMessage(), e);
+            } finally {
+                busyNanos += System.nanoTime() - start;
+            }
+            DbfImportStageMetricsVO metrics = getMetrics();
+            log.info("【性能分析-临时表加载】{}: 记录={}, JDBC批次={}, 耗时={} ms, 吞吐={} 条/秒",
+                    metrics.getStage(), metrics.getRecords(), metrics.getChunks(), metrics.getBusyMillis(),
+                    metrics.getRecordsPerSecond());
+        }
+
+        /**
+         * 加载指标（记录数、JDBC批次数、耗时、吞吐量）
+         */
+        public DbfImportStageMetricsVO getMetrics() {
+            long busyMillis = TimeUnit.NANOSECONDS.toMillis(busyNanos);
+            return new DbfImportStageMetricsVO()
+                    .setStage("临时表加载(" + dialect.displayName + " JDBC批量)")
+                    .setRecords(loadedRows)
+                    .setChunks(executedBatches)
+                    .setBusyMillis(busyMillis)
+                    .setRecordsPerSecond(busyMillis > 0 ? loadedRows * 1000 / busyMillis : loadedRows)
+                    .setQueueDepth(pendingRows)
+                    .setMaxQueueDepth(jdbcBatchSize);
+        }
+
+        @Override
+        public void close() {
+            try {
+                statement.close();
+            } catch (SQLException e) {
+                log.warn("关闭临时表批量加载语句失败: {}", e.getMessage());
+            } finally {
+                DataSourceUtils.releaseConnection(connection, dataSource);
+            }
+        }
+
+        private void executePending() throws SQLException {
+            if (pendingRows == 0) {
+                return;
+            }
+            statement.executeBatch();
+            statement.clearBatch();
+            loadedRows += pendingRows;
+            executedBatches++;
+            pendingRows = 0;
+        }
+
+        private void bind(KscjEntity entity) throws SQLException {
+            statement.setString(1, importId);
+            statement.setString(2, entity.getKsjhdm());
+            statement.setString(3, entity.getKsjhmc());
+            statement.setString(4, entity.getYjxh());
+            statement.setString(5, entity.getKmmc());
+            statement.setString(6, entity.getKsh());
+            statement.setString(7, entity.getKklxmc());
+            setInteger(8, entity.getKmlx());
+            setInteger(9, entity.getFslkscj());
+            statement.setBigDecimal(10, entity.getCjfx1());
+            statement.setBigDecimal(11, entity.getCjfx2());
+        }
+
+        private void setInteger(int index, Integer value) throws SQLException {
+            if (value == null) {
+                statement.setNull(index, Types.INTEGER);
+            } else {
+                statement.setInt(index, value);
+            }
+        }
+    }
+}
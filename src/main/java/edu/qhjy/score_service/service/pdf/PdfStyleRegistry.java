@@ -0,0 +1,120 @@
+package edu.qhjy.score_service.service.pdf;
+
+import com.lowagie.text.Element;
+import com.lowagie.text.Font;
+import com.lowagie.text.Phrase;
+import com.lowagie.text.pdf.BaseFont;
+import com.lowagie.text.pdf.PdfPCell;
+import com.lowagie.text.pdf.PdfPTable;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * PDF字体与样式注册表
+ * 中文基础字体在启动时创建一次，派生字体和固定表头行按（字号、样式、内边距）缓存，
+ * 由成绩等第册、毕业生花名册、毕业生统计表三个PDF服务共享，逐页生成时不再重复解析字体。
+ * <p>
+ * 缓存的Font和表头单元格创建后不再修改，可被并发生成的多个报表同时使用；
+ * 调用方不得修改取得的Font。PdfPTable.addCell会复制传入的单元格，表头模板本身不会被写入
+ *
+ * @author dadalv
+ * @since 2025-08-01
+ */
+@Slf4j
+@Component
+public class PdfStyleRegistry {
+
+    /**
+     * 表头单元格背景色
+     */
+    public static final Color HEADER_BACKGROUND = new Color(240, 240, 240);
+
+    private final BaseFont baseFont;
+
+    // 派生字体（size:style）
+    private final Map<String, Font> fonts = new ConcurrentHashMap<>();
+
+    // 固定表头行（表头文字、字体、内边距）
+    private final Map<String, List<PdfPCell>> headerRows = new ConcurrentHashMap<>();
+
+    public PdfStyleRegistry() {
+        this.baseFont = createBaseFont();
+    }
+
+    private static BaseFont createBaseFont() {
+        try {
+            return BaseFont.createFont("STSong-Light", "UniGB-UCS2-H", BaseFont.NOT_EMBEDDED);
+        } catch (Exception e) {
+            log.warn("无法加载中文字体，使用默认字体");
+            try {
+                return BaseFont.createFont(BaseFont.HELVETICA, BaseFont.CP1252, BaseFont.NOT_EMBEDDED);
+            } catch (Exception ex) {
+                log.error("创建默认字体失败", ex);
+                throw new RuntimeException("字体创建失败", ex);
+            }
+        }
+    }
+
+    public BaseFont getBaseFont() {
+        return baseFont;
+    }
+
+    /**
+     * 获取共享字体
+     *
+     * @param size  字号
+     * @param style 样式（Font.NORMAL、Font.BOLD等）
+     */
+    public Font font(float size, int style) {
+        return fonts.computeIfAbsent(size + ":" + style, key -> new Font(baseFont, size, style));
+    }
+
+    /**
+     * 创建表头单元格：居中、灰色背景
+     */
+    public PdfPCell headerCell(String text, Font font, float padding) {
+        PdfPCell cell = cell(text, font, Element.ALIGN_CENTER, padding);
+        cell.setBackgroundColor(HEADER_BACKGROUND);
+        return cell;
+    }
+
+    /**
+     * 创建数据单元格：垂直居中，内容为null时为空字符串
+     */
+    public PdfPCell cell(String text, Font font, int horizontalAlignment, float padding) {
+        PdfPCell cell = new PdfPCell(new Phrase(text != null ? text : "", font));
+        cell.setHorizontalAlignment(horizontalAlignment);
+        cell.setVerticalAlignment(Element.ALIGN_MIDDLE);
+        cell.setPadding(padding);
+        return cell;
+    }
+
+    /**
+     * 向表格添加固定表头行，同一组表头的单元格只创建一次
+     *
+     * @param table   表格
+     * @param headers 表头文字（按列顺序）
+     * @param font    表头字体，应取自{@link #font(float, int)}
+     * @param padding 内边距
+     */
+    public void addHeaderRow(PdfPTable table, String[] headers, Font font, float padding) {
+        String key = String.join("|", headers) + "#" + font.getSize() + ":" + font.getStyle() + ":" + padding;
+        List<PdfPCell> row = headerRows.computeIfAbsent(key, k -> {
+            List<PdfPCell> cells = new ArrayList<>(headers.length);
+            for (String header : headers) {
+                cells.add(headerCell(header, font, padding));
+            }
+            return Collections.unmodifiableList(cells);
+        });
+        for (PdfPCell cell : row) {
+            table.addCell(cell);
+        }
+    }
+}
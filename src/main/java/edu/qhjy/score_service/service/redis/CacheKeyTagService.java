@@ -0,0 +1,216 @@
+package edu.qhjy.score_service.service.redis;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.RedisClusterConnection;
+import org.springframework.data.redis.connection.RedisClusterNode;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * 缓存键标签服务
+ * 写缓存时把键登记到按（考试计划、科目）划分的标签集合中，清除缓存时按集合成员精确删除，
+ * 不再使用KEYS遍历整个键空间。标签集合的过期时间不短于其中任何一个缓存键。
+ * 标签上线前写入的旧键没有登记，由基于SCAN的兜底清理删除。旧键最多存活tag-ttl-hours，
+ * 兜底清理只在首次调用后的tag-ttl-hours内进行，且每个键模式只SCAN一次，之后不再遍历键空间
+ *
+ * @author dadalv
+ * @since 2025-08-01
+ */
+@Slf4j
+@Service
+public class CacheKeyTagService {
+
+    private static final String TAG_PREFIX = "cache_tag:";
+    // 兜底清理截止时间（各实例共用，首次兜底清理时写入）
+    private static final String LEGACY_SCAN_DEADLINE_KEY = TAG_PREFIX + "legacy_scan_deadline";
+    // 已执行兜底清理的键模式标记
+    private static final String LEGACY_SCAN_DONE_PREFIX = TAG_PREFIX + "legacy_scanned:";
+
+    @Autowired
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Value("${cache.tag-invalidation.tag-ttl-hours:25}")
+    private long tagTtlHours;
+
+    @Value("${cache.tag-invalidation.delete-batch-size:500}")
+    private int deleteBatchSize;
+
+    @Value("${cache.tag-invalidation.scan-count:1000}")
+    private long scanCount;
+
+    @Value("${cache.tag-invalidation.legacy-scan-enabled:true}")
+    private boolean legacyScanEnabled;
+
+    // 本实例缓存的兜底清理截止时间（毫秒），0表示尚未读取
+    private volatile long legacyScanDeadline;
+
+    /**
+     * 构建标签集合的键
+     *
+     * @param namespace 缓存所属业务（如一分一段、等级计算）
+     * @param ksjhdm    考试计划代码
+     * @param kmmc      科目名称
+     */
+    public static String tagKey(String namespace, String ksjhdm, String kmmc) {
+        return TAG_PREFIX + namespace + ":" + ksjhdm + ":" + kmmc;
+    }
+
+    /**
+     * 写入缓存并登记到标签集合
+     *
+     * @param tag   标签集合键
+     * @param key   缓存键
+     * @param value 缓存值
+     * @param ttl   缓存过期时间
+     */
+    public void setWithTag(String tag, String key, Object value, Duration ttl) {
+        redisTemplate.opsForValue().set(key, value, ttl);
+        register(tag, key);
+    }
+
+    /**
+     * 将已写入的缓存键登记到标签集合
+     */
+    public void register(String tag, String key) {
+        redisTemplate.opsForSet().add(tag, key);
+        redisTemplate.expire(tag, Duration.ofHours(tagTtlHours));
+    }
+
+    /**
+     * 删除标签集合中登记的全部缓存键及标签集合本身
+     *
+     * @param tag 标签集合键
+     * @return 删除的键数量（含标签集合本身）
+     */
+    public long invalidate(String tag) {
+        Set<Object> members = redisTemplate.opsForSet().members(tag);
+        List<String> keys = new ArrayList<>();
+        if (members != null) {
+            members.forEach(member -> keys.add(member.toString()));
+        }
+        keys.add(tag);
+        long deleted = deleteInBatches(keys);
+        log.debug("按标签清除缓存: {}, 登记键数: {}, 实际删除: {}", tag, keys.size() - 1, deleted);
+        return deleted;
+    }
+
+    /**
+     * 删除标签集合中满足条件的缓存键，并将其移出标签集合
+     *
+     * @param tag    标签集合键
+     * @param filter 缓存键过滤条件
+     * @return 删除的缓存键数量
+     */
+    public long invalidateMatching(String tag, Predicate<String> filter) {
+        Set<Object> members = redisTemplate.opsForSet().members(tag);
+        if (members == null || members.isEmpty()) {
+            return 0;
+        }
+        List<String> keys = new ArrayList<>();
+        for (Object member : members) {
+            String key = member.toString();
+            if (filter.test(key)) {
+                keys.add(key);
+            }
+        }
+        if (keys.isEmpty()) {
+            return 0;
+        }
+        long deleted = deleteInBatches(keys);
+        redisTemplate.opsForSet().remove(tag, keys.toArray());
+        return deleted;
+    }
+
+    /**
+     * 兜底清理：用SCAN增量遍历删除匹配模式的旧键（标签上线前写入、未登记到标签集合的键）
+     * 集群模式下逐个主节点遍历。每个键模式在截止时间前只清理一次，截止后直接返回
+     *
+     * @param pattern 键模式
+     * @return 删除的键数量
+     */
+    public long deleteLegacyKeys(String pattern) {
+        if (!legacyScanEnabled || !claimLegacyScan(pattern)) {
+            return 0;
+        }
+        List<String> keys = redisTemplate.execute((RedisCallback<List<String>>) connection -> scanKeys(connection, pattern));
+        if (keys == null || keys.isEmpty()) {
+            return 0;
+        }
+        long deleted = deleteInBatches(keys);
+        log.info("SCAN兜底清理旧缓存键: pattern={}, 删除: {}", pattern, deleted);
+        return deleted;
+    }
+
+    /**
+     * 领取键模式的兜底清理：截止时间前首次领取返回true，标记在截止时间后过期
+     * 旧键不会再产生，清理过一次的模式无需再次遍历
+     */
+    private boolean claimLegacyScan(String pattern) {
+        long now = System.currentTimeMillis();
+        long deadline = getLegacyScanDeadline(now);
+        if (now >= deadline) {
+            return false;
+        }
+        Boolean claimed = redisTemplate.opsForValue().setIfAbsent(LEGACY_SCAN_DONE_PREFIX + pattern, now,
+                Duration.ofMillis(deadline - now));
+        return Boolean.TRUE.equals(claimed);
+    }
+
+    private long getLegacyScanDeadline(long now) {
+        if (legacyScanDeadline > 0) {
+            return legacyScanDeadline;
+        }
+        // 标签上线后写入的键都已登记，旧键在首次兜底清理后tag-ttl-hours内全部过期
+        long candidate = now + TimeUnit.HOURS.toMillis(tagTtlHours);
+        redisTemplate.opsForValue().setIfAbsent(LEGACY_SCAN_DEADLINE_KEY, candidate);
+        Object stored = redisTemplate.opsForValue().get(LEGACY_SCAN_DEADLINE_KEY);
+        legacyScanDeadline = stored instanceof Number deadline ? deadline.longValue() : candidate;
+        return legacyScanDeadline;
+    }
+
+    private List<String> scanKeys(RedisConnection connection, String pattern) {
+        ScanOptions options = ScanOptions.scanOptions().match(pattern).count(scanCount).build();
+        List<String> keys = new ArrayList<>();
+        if (connection instanceof RedisClusterConnection clusterConnection) {
+            for (RedisClusterNode node : clusterConnection.clusterGetNodes()) {
+                if (node.isMaster()) {
+                    try (Cursor<byte[]> cursor = clusterConnection.scan(node, options)) {
+                        cursor.forEachRemaining(key -> keys.add(new String(key, StandardCharsets.UTF_8)));
+                    }
+                }
+            }
+        } else {
+            try (Cursor<byte[]> cursor = connection.keyCommands().scan(options)) {
+                cursor.forEachRemaining(key -> keys.add(new String(key, StandardCharsets.UTF_8)));
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * 分批删除，每批一条多键DEL命令；集群模式下由客户端按槽位拆分
+     */
+    private long deleteInBatches(List<String> keys) {
+        long deleted = 0;
+        for (int from = 0; from < keys.size(); from += deleteBatchSize) {
+            List<String> batch = keys.subList(from, Math.min(from + deleteBatchSize, keys.size()));
+            Long count = redisTemplate.delete(batch);
+            deleted += count != null ? count : 0;
+        }
+        return deleted;
+    }
+}
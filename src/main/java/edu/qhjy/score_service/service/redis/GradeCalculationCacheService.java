@@ -23,8 +23,12 @@ public class GradeCalculationCacheService {
     private static final String SCORE_RANK_CACHE_PREFIX = "score_ranks:";
     private static final String STATISTICS_CACHE_PREFIX = "grade_statistics:";
     private static final int CACHE_EXPIRATION_HOURS = 24;
+    // 缓存键标签命名空间
+    private static final String TAG_NAMESPACE = "grade_calculation";
     @Autowired
     private RedisTemplate<String, Object> redisTemplate;
+    @Autowired
+    private CacheKeyTagService cacheKeyTagService;
 
     /**
      * 缓存等级阈值
@@ -38,7 +42,7 @@ public class GradeCalculationCacheService {
                                 GradeThresholdsDTO thresholds) {
         String cacheKey = THRESHOLD_CACHE_PREFIX + ksjhdm + ":" + kmmc + ":" + szsmc;
         try {
-            redisTemplate.opsForValue().set(cacheKey, thresholds,
+            cacheKeyTagService.setWithTag(buildTagKey(ksjhdm, kmmc), cacheKey, thresholds,
                     Duration.ofHours(CACHE_EXPIRATION_HOURS));
             log.debug("等级阈值已缓存: {}", cacheKey);
         } catch (Exception e) {
@@ -76,7 +80,7 @@ public class GradeCalculationCacheService {
                                 List<StudentScoreRankDTO> scoreRanks) {
         String cacheKey = SCORE_RANK_CACHE_PREFIX + ksjhdm + ":" + kmmc + ":" + szsmc;
         try {
-            redisTemplate.opsForValue().set(cacheKey, scoreRanks, Duration.ofMinutes(15));
+            cacheKeyTagService.setWithTag(buildTagKey(ksjhdm, kmmc), cacheKey, scoreRanks, Duration.ofMinutes(15));
             log.debug("缓存成绩排名数据: {}, 数量: {}", cacheKey, scoreRanks.size());
         } catch (Exception e) {
             log.error("缓存成绩排名数据失败: {}", cacheKey, e);
@@ -113,7 +117,7 @@ public class GradeCalculationCacheService {
                                        Map<String, Object> distribution) {
         String cacheKey = STATISTICS_CACHE_PREFIX + "distribution:" + ksjhdm + ":" + kmmc;
         try {
-            redisTemplate.opsForValue().set(cacheKey, distribution, Duration.ofHours(6));
+            cacheKeyTagService.setWithTag(buildTagKey(ksjhdm, kmmc), cacheKey, distribution, Duration.ofHours(6));
             log.debug("缓存等级分布统计: {}", cacheKey);
         } catch (Exception e) {
             log.error("缓存等级分布统计失败: {}", cacheKey, e);
@@ -140,23 +144,27 @@ public class GradeCalculationCacheService {
 
     /**
      * 清除相关缓存
+     * 按标签集合精确删除登记过的缓存键，旧键由SCAN兜底清理
      *
      * @param ksjhdm 考试计划代码
      * @param kmmc   科目名称
      */
     public void clearCache(String ksjhdm, String kmmc) {
         try {
-            String pattern1 = THRESHOLD_CACHE_PREFIX + ksjhdm + ":" + kmmc + ":*";
-            String pattern2 = SCORE_RANK_CACHE_PREFIX + ksjhdm + ":" + kmmc + ":*";
-            String pattern3 = STATISTICS_CACHE_PREFIX + "*:" + ksjhdm + ":" + kmmc;
+            long deleted = cacheKeyTagService.invalidate(buildTagKey(ksjhdm, kmmc));
 
-            redisTemplate.delete(redisTemplate.keys(pattern1));
-            redisTemplate.delete(redisTemplate.keys(pattern2));
-            redisTemplate.delete(redisTemplate.keys(pattern3));
+            // 兜底清理标签上线前写入的旧键
+            deleted += cacheKeyTagService.deleteLegacyKeys(THRESHOLD_CACHE_PREFIX + ksjhdm + ":" + kmmc + ":*");
+            deleted += cacheKeyTagService.deleteLegacyKeys(SCORE_RANK_CACHE_PREFIX + ksjhdm + ":" + kmmc + ":*");
+            deleted += cacheKeyTagService.deleteLegacyKeys(STATISTICS_CACHE_PREFIX + "*:" + ksjhdm + ":" + kmmc);
 
-            log.info("清除等级划分相关缓存: ksjhdm={}, kmmc={}", ksjhdm, kmmc);
+            log.info("清除等级划分相关缓存: ksjhdm={}, kmmc={}, 删除键数: {}", ksjhdm, kmmc, deleted);
         } catch (Exception e) {
             log.error("清除缓存失败: ksjhdm={}, kmmc={}", ksjhdm, kmmc, e);
         }
     }
+
+    private String buildTagKey(String ksjhdm, String kmmc) {
+        return CacheKeyTagService.tagKey(TAG_NAMESPACE, ksjhdm, kmmc);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,65 @@
+package edu.qhjy.score_service.service.redis;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+import java.util.StringJoiner;
+import java.util.function.Supplier;
+
+/**
+ * 分页总数缓存服务
+ * 分页查询的总数按（查询类型、筛选条件、数据权限）缓存，翻页和游标翻页不再重复执行COUNT。
+ * 缓存区域pageTotal的过期时间较短，成绩变更后总数最迟在过期后更新
+ *
+ * @author dadalv
+ * @since 2025-08-01
+ */
+@Slf4j
+@Service
+public class PageTotalCacheService {
+
+    private static final String CACHE_NAME = "pageTotal";
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    /**
+     * 获取分页总数，未命中缓存时执行统计
+     *
+     * @param namespace 查询类型
+     * @param counter   总数统计
+     * @param filters   筛选条件（含数据权限），不含页码、游标和排序
+     * @return 总记录数
+     */
+    public long getTotal(String namespace, Supplier<Long> counter, Object... filters) {
+        Cache cache = cacheManager.getCache(CACHE_NAME);
+        if (cache == null) {
+            return nullToZero(counter.get());
+        }
+        String key = buildKey(namespace, filters);
+        // JSON反序列化后较小的数值为Integer，按Number读取
+        Number total = cache.get(key, () -> {
+            log.debug("分页总数未命中缓存，执行统计: {}", namespace);
+            return (Number) nullToZero(counter.get());
+        });
+        return total != null ? total.longValue() : 0L;
+    }
+
+    private String buildKey(String namespace, Object... filters) {
+        StringJoiner joiner = new StringJoiner("\u0001");
+        for (Object filter : filters) {
+            joiner.add(Objects.toString(filter, ""));
+        }
+        return namespace + ":" + DigestUtils.md5DigestAsHex(joiner.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static long nullToZero(Long value) {
+        return value != null ? value : 0L;
+    }
+}
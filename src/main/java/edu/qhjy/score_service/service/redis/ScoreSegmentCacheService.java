@@ -12,7 +12,7 @@ import java.math.BigDecimal;
 import java.time.Duration;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 /**
@@ -32,14 +32,23 @@ public class ScoreSegmentCacheService {
     private static final String GRADE_DISTRIBUTION_PREFIX = "score_segment:grade_distribution:";
     private static final String GRADE_THRESHOLDS_PREFIX = "score_segment:grade_thresholds:";
     private static final String SCORE_SEGMENT_DATA_PREFIX = "score_segment:data:";
+    // 缓存代数：每次清除缓存时递增，加载开始时记录，写入前比对，代数变化说明加载期间数据已变更
+    private static final String GENERATION_PREFIX = "score_segment:generation:";
+    // 缓存键标签命名空间
+    private static final String TAG_NAMESPACE = "score_segment";
     // 缓存过期时间
     private static final int OVERVIEW_CACHE_HOURS = 4;  // 总览数据缓存4小时
     private static final int DETAIL_CACHE_HOURS = 2;    // 详细数据缓存2小时
     private static final int STATUS_CACHE_MINUTES = 30; // 状态缓存30分钟
     private static final int LOCK_TIMEOUT_MINUTES = 10; // 预计算锁10分钟
     private static final int GRADE_DATA_CACHE_HOURS = 3; // 等级数据缓存3小时
+    // 按考试计划和科目登记标签的缓存键前缀（用于SCAN兜底清理旧键）
+    private static final List<String> TAGGED_PREFIXES = List.of(OVERVIEW_CACHE_PREFIX, DETAIL_CACHE_PREFIX,
+            CITY_CACHE_PREFIX, GRADE_DISTRIBUTION_PREFIX, GRADE_THRESHOLDS_PREFIX, SCORE_SEGMENT_DATA_PREFIX);
     @Autowired
     private RedisTemplate<String, Object> redisTemplate;
+    @Autowired
+    private CacheKeyTagService cacheKeyTagService;
 
     /**
      * 缓存总览数据
@@ -47,7 +56,7 @@ public class ScoreSegmentCacheService {
     public void cacheOverviewData(String ksjhdm, String kmmc, ScoreSegmentOverviewVO data) {
         try {
             String key = buildOverviewKey(ksjhdm, kmmc, null);
-            redisTemplate.opsForValue().set(key, data, Duration.ofHours(OVERVIEW_CACHE_HOURS));
+            cacheKeyTagService.setWithTag(buildTagKey(ksjhdm, kmmc), key, data, Duration.ofHours(OVERVIEW_CACHE_HOURS));
             log.debug("缓存一分一段表总览数据: {}", key);
         } catch (Exception e) {
             log.error("缓存总览数据失败: ksjhdm={}, kmmc={}", ksjhdm, kmmc, e);
@@ -77,7 +86,12 @@ public class ScoreSegmentCacheService {
     public void cacheDetailData(String cacheKey, List<ScoreSegmentDTO> data) {
         try {
             String key = DETAIL_CACHE_PREFIX + cacheKey;
-            redisTemplate.opsForValue().set(key, data, Duration.ofHours(DETAIL_CACHE_HOURS));
+            String tag = buildDetailTagKey(cacheKey);
+            if (tag != null) {
+                cacheKeyTagService.setWithTag(tag, key, data, Duration.ofHours(DETAIL_CACHE_HOURS));
+            } else {
+                redisTemplate.opsForValue().set(key, data, Duration.ofHours(DETAIL_CACHE_HOURS));
+            }
             log.debug("缓存一分一段表详细数据: {}", key);
         } catch (Exception e) {
             log.error("缓存详细数据失败: cacheKey={}", cacheKey, e);
@@ -108,7 +122,7 @@ public class ScoreSegmentCacheService {
     public void cacheCityData(String ksjhdm, String kmmc, List<String> cities, List<ScoreSegmentOverviewVO> data) {
         try {
             String key = buildCityKey(ksjhdm, kmmc, cities);
-            redisTemplate.opsForValue().set(key, data, Duration.ofHours(OVERVIEW_CACHE_HOURS));
+            cacheKeyTagService.setWithTag(buildTagKey(ksjhdm, kmmc), key, data, Duration.ofHours(OVERVIEW_CACHE_HOURS));
             log.debug("缓存分市州一分一段表数据: {}", key);
         } catch (Exception e) {
             log.error("缓存分市州数据失败: ksjhdm={}, kmmc={}, cities={}", ksjhdm, kmmc, cities, e);
@@ -190,13 +204,43 @@ public class ScoreSegmentCacheService {
         }
     }
 
+    /**
+     * 尝试获取指定市州的加载锁，跨实例保证同一份数据只有一个实例在加载
+     */
+    public boolean tryLockPreCalculation(String ksjhdm, String kmmc, String szsmc) {
+        try {
+            String key = buildLockKey(ksjhdm, kmmc) + ":" + szsmc;
+            Boolean success = redisTemplate.opsForValue().setIfAbsent(key, "LOCKED", Duration.ofMinutes(LOCK_TIMEOUT_MINUTES));
+            if (Boolean.TRUE.equals(success)) {
+                log.debug("获取加载锁成功: {}", key);
+                return true;
+            }
+        } catch (Exception e) {
+            log.error("获取加载锁失败: ksjhdm={}, kmmc={}, szsmc={}", ksjhdm, kmmc, szsmc, e);
+        }
+        return false;
+    }
+
+    /**
+     * 释放指定市州的加载锁
+     */
+    public void releaseLockPreCalculation(String ksjhdm, String kmmc, String szsmc) {
+        try {
+            String key = buildLockKey(ksjhdm, kmmc) + ":" + szsmc;
+            redisTemplate.delete(key);
+            log.debug("释放加载锁: {}", key);
+        } catch (Exception e) {
+            log.error("释放加载锁失败: ksjhdm={}, kmmc={}, szsmc={}", ksjhdm, kmmc, szsmc, e);
+        }
+    }
+
     /**
      * 缓存等级分布数据
      */
     public void cacheGradeDistribution(String ksjhdm, String kmmc, String szsmc, List<GradeAdjustmentResultVO.GradeDistributionData> data) {
         try {
             String key = buildGradeDistributionKey(ksjhdm, kmmc, szsmc);
-            redisTemplate.opsForValue().set(key, data, Duration.ofHours(GRADE_DATA_CACHE_HOURS));
+            cacheKeyTagService.setWithTag(buildTagKey(ksjhdm, kmmc), key, data, Duration.ofHours(GRADE_DATA_CACHE_HOURS));
             log.debug("缓存等级分布数据: {}", key);
         } catch (Exception e) {
             log.error("缓存等级分布数据失败: ksjhdm={}, kmmc={}, szsmc={}", ksjhdm, kmmc, szsmc, e);
@@ -227,7 +271,7 @@ public class ScoreSegmentCacheService {
     public void cacheGradeThresholds(String ksjhdm, String kmmc, String szsmc, Map<String, BigDecimal> thresholds) {
         try {
             String key = buildGradeThresholdsKey(ksjhdm, kmmc, szsmc);
-            redisTemplate.opsForValue().set(key, thresholds, Duration.ofHours(GRADE_DATA_CACHE_HOURS));
+            cacheKeyTagService.setWithTag(buildTagKey(ksjhdm, kmmc), key, thresholds, Duration.ofHours(GRADE_DATA_CACHE_HOURS));
             log.debug("缓存等级分界线数据: {}", key);
         } catch (Exception e) {
             log.error("缓存等级分界线数据失败: ksjhdm={}, kmmc={}, szsmc={}", ksjhdm, kmmc, szsmc, e);
@@ -240,13 +284,79 @@ public class ScoreSegmentCacheService {
     public void cacheScoreSegmentData(String ksjhdm, String kmmc, String szsmc, List<ScoreSegmentDTO> data) {
         try {
             String key = buildScoreSegmentDataKey(ksjhdm, kmmc, szsmc);
-            redisTemplate.opsForValue().set(key, data, Duration.ofHours(DETAIL_CACHE_HOURS));
+            cacheKeyTagService.setWithTag(buildTagKey(ksjhdm, kmmc), key, data, Duration.ofHours(DETAIL_CACHE_HOURS));
             log.debug("缓存一分一段数据成功: key={}, 数据条数={}", key, data.size());
         } catch (Exception e) {
             log.error("缓存一分一段数据失败: ksjhdm={}, kmmc={}, szsmc={}", ksjhdm, kmmc, szsmc, e);
         }
     }
 
+    /**
+     * 缓存一分一段数据，仅在缓存代数与加载开始时一致时写入
+     * 写入后再次比对代数，写入期间缓存被清除时删除刚写入的键，避免旧数据保留到过期
+     *
+     * @param generation 加载开始前取得的缓存代数
+     * @return 是否写入
+     */
+    public boolean cacheScoreSegmentData(String ksjhdm, String kmmc, String szsmc, List<ScoreSegmentDTO> data,
+                                         long generation) {
+        try {
+            String key = buildScoreSegmentDataKey(ksjhdm, kmmc, szsmc);
+            if (getGeneration(ksjhdm, kmmc) != generation) {
+                log.info("一分一段数据加载期间缓存已清除，放弃写入: key={}", key);
+                return false;
+            }
+            cacheKeyTagService.setWithTag(buildTagKey(ksjhdm, kmmc), key, data, Duration.ofHours(DETAIL_CACHE_HOURS));
+            return keepIfGenerationUnchanged(ksjhdm, kmmc, key, generation);
+        } catch (Exception e) {
+            log.error("缓存一分一段数据失败: ksjhdm={}, kmmc={}, szsmc={}", ksjhdm, kmmc, szsmc, e);
+            return false;
+        }
+    }
+
+    /**
+     * 刷新一分一段数据缓存，仅在缓存仍存在且缓存代数与刷新开始时一致时写入
+     * 刷新期间缓存被清除（数据已变更）时放弃写入，避免旧数据覆盖
+     *
+     * @param generation 刷新开始前取得的缓存代数
+     * @return 是否写入
+     */
+    public boolean refreshScoreSegmentData(String ksjhdm, String kmmc, String szsmc, List<ScoreSegmentDTO> data,
+                                           long generation) {
+        try {
+            String key = buildScoreSegmentDataKey(ksjhdm, kmmc, szsmc);
+            if (getGeneration(ksjhdm, kmmc) != generation) {
+                log.info("一分一段数据刷新期间缓存已清除，放弃写入: key={}", key);
+                return false;
+            }
+            Boolean written = redisTemplate.opsForValue().setIfPresent(key, data, Duration.ofHours(DETAIL_CACHE_HOURS));
+            if (Boolean.TRUE.equals(written)) {
+                cacheKeyTagService.register(buildTagKey(ksjhdm, kmmc), key);
+                written = keepIfGenerationUnchanged(ksjhdm, kmmc, key, generation);
+            }
+            log.debug("刷新一分一段数据缓存: key={}, 写入={}", key, written);
+            return Boolean.TRUE.equals(written);
+        } catch (Exception e) {
+            log.error("刷新一分一段数据缓存失败: ksjhdm={}, kmmc={}, szsmc={}", ksjhdm, kmmc, szsmc, e);
+            return false;
+        }
+    }
+
+    /**
+     * 获取一分一段数据缓存的剩余有效期（秒）
+     *
+     * @return 剩余秒数；缓存不存在或查询失败时返回-1
+     */
+    public long getScoreSegmentDataTtlSeconds(String ksjhdm, String kmmc, String szsmc) {
+        try {
+            Long ttl = redisTemplate.getExpire(buildScoreSegmentDataKey(ksjhdm, kmmc, szsmc), TimeUnit.SECONDS);
+            return ttl != null && ttl >= 0 ? ttl : -1;
+        } catch (Exception e) {
+            log.error("获取一分一段数据缓存有效期失败: ksjhdm={}, kmmc={}, szsmc={}", ksjhdm, kmmc, szsmc, e);
+            return -1;
+        }
+    }
+
     /**
      * 获取缓存的等级分界线数据
      */
@@ -283,30 +393,46 @@ public class ScoreSegmentCacheService {
         return null;
     }
 
+    /**
+     * 获取一分一段缓存代数，不存在时为0；读取失败时返回-1，按此代数写入的缓存会被放弃
+     */
+    public long getGeneration(String ksjhdm, String kmmc) {
+        try {
+            // INCRBY 0 原子地读取计数器，不经过值序列化器
+            Long generation = redisTemplate.opsForValue().increment(buildGenerationKey(ksjhdm, kmmc), 0);
+            return generation != null ? generation : 0L;
+        } catch (Exception e) {
+            log.error("获取一分一段缓存代数失败: ksjhdm={}, kmmc={}", ksjhdm, kmmc, e);
+            return -1L;
+        }
+    }
+
+    private boolean keepIfGenerationUnchanged(String ksjhdm, String kmmc, String key, long generation) {
+        if (getGeneration(ksjhdm, kmmc) == generation) {
+            return true;
+        }
+        redisTemplate.delete(key);
+        log.info("一分一段数据写入期间缓存已清除，删除刚写入的缓存: key={}", key);
+        return false;
+    }
+
     /**
      * 清除一分一段表缓存
+     * 先递增缓存代数，使正在进行的加载和刷新放弃写入；再按标签集合精确删除登记过的缓存键，旧键由SCAN兜底清理
      */
     public void clearCache(String ksjhdm, String kmmc) {
         try {
-            // 构建模式匹配键
-            String overviewPattern = buildOverviewKey(ksjhdm, kmmc, "*");
-            String detailPattern = DETAIL_CACHE_PREFIX + ksjhdm + ":" + kmmc + ":*";
-            String cityPattern = buildCityKey(ksjhdm, kmmc);
-            String statusPattern = buildStatusKey(ksjhdm, kmmc);
-            String gradeDistributionPattern = GRADE_DISTRIBUTION_PREFIX + ksjhdm + ":" + kmmc + ":*";
-            String gradeThresholdsPattern = GRADE_THRESHOLDS_PREFIX + ksjhdm + ":" + kmmc + ":*";
-            String scoreSegmentDataPattern = SCORE_SEGMENT_DATA_PREFIX + ksjhdm + ":" + kmmc + ":*";
-
-            // 删除匹配的键
-            deleteKeysByPattern(overviewPattern);
-            deleteKeysByPattern(detailPattern);
-            deleteKeysByPattern(gradeDistributionPattern);
-            deleteKeysByPattern(gradeThresholdsPattern);
-            deleteKeysByPattern(scoreSegmentDataPattern);
-            redisTemplate.delete(cityPattern);
-            redisTemplate.delete(statusPattern);
-
-            log.info("清除一分一段表缓存: ksjhdm={}, kmmc={}", ksjhdm, kmmc);
+            redisTemplate.opsForValue().increment(buildGenerationKey(ksjhdm, kmmc));
+            long deleted = cacheKeyTagService.invalidate(buildTagKey(ksjhdm, kmmc));
+            redisTemplate.delete(buildStatusKey(ksjhdm, kmmc));
+
+            // 兜底清理标签上线前写入的旧键
+            String suffix = ksjhdm + ":" + kmmc + ":*";
+            for (String prefix : TAGGED_PREFIXES) {
+                deleted += cacheKeyTagService.deleteLegacyKeys(prefix + suffix);
+            }
+
+            log.info("清除一分一段表缓存: ksjhdm={}, kmmc={}, 删除键数: {}", ksjhdm, kmmc, deleted);
         } catch (Exception e) {
             log.error("清除缓存失败: ksjhdm={}, kmmc={}", ksjhdm, kmmc, e);
         }
@@ -318,16 +444,14 @@ public class ScoreSegmentCacheService {
     public void clearCityCache(String ksjhdm, String kmmc, String szsmc) {
         try {
             String overviewKey = buildOverviewKey(ksjhdm, kmmc, szsmc);
-            String detailPattern = DETAIL_CACHE_PREFIX + ksjhdm + ":" + kmmc + ":" + szsmc + ":*";
+            String detailPrefix = DETAIL_CACHE_PREFIX + ksjhdm + ":" + kmmc + ":" + szsmc + ":";
             String gradeDistributionKey = buildGradeDistributionKey(ksjhdm, kmmc, szsmc);
             String gradeThresholdsKey = buildGradeThresholdsKey(ksjhdm, kmmc, szsmc);
             String scoreSegmentDataKey = buildScoreSegmentDataKey(ksjhdm, kmmc, szsmc);
 
-            redisTemplate.delete(overviewKey);
-            redisTemplate.delete(gradeDistributionKey);
-            redisTemplate.delete(gradeThresholdsKey);
-            redisTemplate.delete(scoreSegmentDataKey);
-            deleteKeysByPattern(detailPattern);
+            redisTemplate.delete(List.of(overviewKey, gradeDistributionKey, gradeThresholdsKey, scoreSegmentDataKey));
+            cacheKeyTagService.invalidateMatching(buildTagKey(ksjhdm, kmmc), key -> key.startsWith(detailPrefix));
+            cacheKeyTagService.deleteLegacyKeys(detailPrefix + "*");
 
             log.info("清除市州缓存: ksjhdm={}, kmmc={}, szsmc={}", ksjhdm, kmmc, szsmc);
         } catch (Exception e) {
@@ -361,22 +485,19 @@ public class ScoreSegmentCacheService {
         }
     }
 
+    // 构建缓存键的辅助方法
+    private String buildTagKey(String ksjhdm, String kmmc) {
+        return CacheKeyTagService.tagKey(TAG_NAMESPACE, ksjhdm, kmmc);
+    }
+
     /**
-     * 根据模式删除键
+     * 详细数据缓存键约定以“考试计划代码:科目名称:”开头，不符合约定时不登记标签
      */
-    private void deleteKeysByPattern(String pattern) {
-        try {
-            Set<String> keys = redisTemplate.keys(pattern);
-            if (keys != null && !keys.isEmpty()) {
-                redisTemplate.delete(keys);
-                log.debug("删除缓存键: {} 个", keys.size());
-            }
-        } catch (Exception e) {
-            log.error("删除缓存键失败: pattern={}", pattern, e);
-        }
+    private String buildDetailTagKey(String cacheKey) {
+        String[] parts = cacheKey.split(":", 3);
+        return parts.length == 3 ? buildTagKey(parts[0], parts[1]) : null;
     }
 
-    // 构建缓存键的辅助方法
     private String buildOverviewKey(String ksjhdm, String kmmc, String szsmc) {
         if (szsmc == null || szsmc.isEmpty()) {
             return OVERVIEW_CACHE_PREFIX + ksjhdm + ":" + kmmc + ":all";
@@ -390,8 +511,8 @@ public class ScoreSegmentCacheService {
         return CITY_CACHE_PREFIX + ksjhdm + ":" + kmmc + ":" + cityStr;
     }
 
-    private String buildCityKey(String ksjhdm, String kmmc) {
-        return CITY_CACHE_PREFIX + ksjhdm + ":" + kmmc + ":*";
+    private String buildGenerationKey(String ksjhdm, String kmmc) {
+        return GENERATION_PREFIX + ksjhdm + ":" + kmmc;
     }
 
     private String buildStatusKey(String ksjhdm, String kmmc) {
@@ -0,0 +1,117 @@
+package edu.qhjy.score_service.service.redis.codec;
+
+import lombok.extern.slf4j.Slf4j;
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FastDecompressor;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * 紧凑值序列化器
+ * 成绩排名列表、一分一段列表等大对象使用列式二进制编码（可选LZ4压缩），其余值仍交给JSON序列化器。
+ * 二进制值以0xFE开头，JSON不会以该字节开头，因此读取时可按首字节区分，已有的JSON缓存仍可正常读取
+ *
+ * <pre>
+ * 二进制格式：0xFE | 版本(1) | 编码类型(1) | 压缩标志(1) | [原始长度(4)] | 数据
+ * </pre>
+ *
+ * @author dadalv
+ * @since 2025-08-01
+ */
+@Slf4j
+public class CompactPayloadRedisSerializer implements RedisSerializer<Object> {
+
+    private static final byte MAGIC = (byte) 0xFE;
+    private static final byte VERSION = 1;
+    private static final byte COMPRESSION_NONE = 0;
+    private static final byte COMPRESSION_LZ4 = 1;
+    private static final int HEADER_LENGTH = 4;
+
+    private final RedisSerializer<Object> fallback;
+    private final boolean lz4Enabled;
+    private final int compressThreshold;
+    private final LZ4Compressor compressor;
+    private final LZ4FastDecompressor decompressor;
+
+    /**
+     * @param fallback          非列式编码值使用的序列化器
+     * @param lz4Enabled        是否启用LZ4压缩
+     * @param compressThreshold 编码后达到该字节数才压缩
+     */
+    public CompactPayloadRedisSerializer(RedisSerializer<Object> fallback, boolean lz4Enabled, int compressThreshold) {
+        this.fallback = fallback;
+        this.lz4Enabled = lz4Enabled;
+        this.compressThreshold = compressThreshold;
+        LZ4Factory factory = LZ4Factory.fastestInstance();
+        this.compressor = factory.fastCompressor();
+        this.decompressor = factory.fastDecompressor();
+    }
+
+    @Override
+    public byte[] serialize(Object value) throws SerializationException {
+        byte type = ScorePayloadCodec.typeOf(value);
+        if (type == 0) {
+            return fallback.serialize(value);
+        }
+        byte[] payload;
+        try {
+            payload = ScorePayloadCodec.encode(type, value);
+        } catch (IllegalArgumentException e) {
+            log.debug("列式编码不适用，改用JSON: {}", e.getMessage());
+            return fallback.serialize(value);
+        }
+
+        if (lz4Enabled && payload.length >= compressThreshold) {
+            byte[] compressed = new byte[compressor.maxCompressedLength(payload.length)];
+            int compressedLength = compressor.compress(payload, 0, payload.length, compressed, 0, compressed.length);
+            if (compressedLength < payload.length) {
+                return ByteBuffer.allocate(HEADER_LENGTH + 4 + compressedLength)
+                        .put(header(type, COMPRESSION_LZ4))
+                        .putInt(payload.length)
+                        .put(compressed, 0, compressedLength)
+                        .array();
+            }
+        }
+        return ByteBuffer.allocate(HEADER_LENGTH + payload.length)
+                .put(header(type, COMPRESSION_NONE))
+                .put(payload)
+                .array();
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0 || bytes[0] != MAGIC) {
+            return fallback.deserialize(bytes);
+        }
+        if (bytes.length < HEADER_LENGTH || bytes[1] != VERSION) {
+            throw new SerializationException("不支持的紧凑编码版本");
+        }
+        byte type = bytes[2];
+        byte compression = bytes[3];
+        try {
+            byte[] payload;
+            if (compression == COMPRESSION_LZ4) {
+                int originalLength = ByteBuffer.wrap(bytes, HEADER_LENGTH, 4).getInt();
+                payload = new byte[originalLength];
+                decompressor.decompress(bytes, HEADER_LENGTH + 4, payload, 0, originalLength);
+            } else if (compression == COMPRESSION_NONE) {
+                payload = Arrays.copyOfRange(bytes, HEADER_LENGTH, bytes.length);
+            } else {
+                throw new SerializationException("不支持的压缩方式: " + compression);
+            }
+            return ScorePayloadCodec.decode(type, payload);
+        } catch (SerializationException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            throw new SerializationException("紧凑编码数据解析失败: " + e.getMessage(), e);
+        }
+    }
+
+    private static byte[] header(byte type, byte compression) {
+        return new byte[]{MAGIC, VERSION, type, compression};
+    }
+}
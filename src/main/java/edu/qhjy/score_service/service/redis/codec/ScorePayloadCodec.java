@@ -0,0 +1,435 @@
+package edu.qhjy.score_service.service.redis.codec;
+
+import edu.qhjy.score_service.domain.dto.ScoreSegmentDTO;
+import edu.qhjy.score_service.domain.dto.StudentScoreRankDTO;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * 成绩缓存大对象的列式二进制编码
+ * 成绩排名列表和一分一段列表按列编码：字符串列使用字典编码（市州、等级等低基数列只保存一次），
+ * 整数列按差值做ZigZag变长编码，小数列保存标度和未缩放值，每列附带空值位图。
+ * 不写入类名和字段名，体积和编解码耗时都远小于带类型信息的JSON
+ *
+ * @author dadalv
+ * @since 2025-08-01
+ */
+public final class ScorePayloadCodec {
+
+    /**
+     * 成绩排名列表
+     */
+    public static final byte TYPE_SCORE_RANKS = 1;
+    /**
+     * 一分一段列表
+     */
+    public static final byte TYPE_SCORE_SEGMENTS = 2;
+
+    private ScorePayloadCodec() {
+    }
+
+    /**
+     * 判断值是否可以列式编码，返回编码类型，不支持时返回0
+     * 只支持元素类型一致的非空列表
+     */
+    public static byte typeOf(Object value) {
+        if (!(value instanceof List<?> list) || list.isEmpty()) {
+            return 0;
+        }
+        Class<?> elementType = list.get(0) != null ? list.get(0).getClass() : null;
+        byte type;
+        if (elementType == StudentScoreRankDTO.class) {
+            type = TYPE_SCORE_RANKS;
+        } else if (elementType == ScoreSegmentDTO.class) {
+            type = TYPE_SCORE_SEGMENTS;
+        } else {
+            return 0;
+        }
+        for (Object element : list) {
+            if (element == null || element.getClass() != elementType) {
+                return 0;
+            }
+        }
+        return type;
+    }
+
+    /**
+     * 按类型编码
+     *
+     * @throws IllegalArgumentException 值无法列式编码（如小数超出long范围）
+     */
+    @SuppressWarnings("unchecked")
+    public static byte[] encode(byte type, Object value) {
+        return switch (type) {
+            case TYPE_SCORE_RANKS -> encodeScoreRanks((List<StudentScoreRankDTO>) value);
+            case TYPE_SCORE_SEGMENTS -> encodeScoreSegments((List<ScoreSegmentDTO>) value);
+            default -> throw new IllegalArgumentException("不支持的编码类型: " + type);
+        };
+    }
+
+    /**
+     * 按类型解码
+     */
+    public static List<?> decode(byte type, byte[] data) {
+        return switch (type) {
+            case TYPE_SCORE_RANKS -> decodeScoreRanks(data);
+            case TYPE_SCORE_SEGMENTS -> decodeScoreSegments(data);
+            default -> throw new IllegalArgumentException("不支持的编码类型: " + type);
+        };
+    }
+
+    /**
+     * 编码成绩排名列表
+     */
+    public static byte[] encodeScoreRanks(List<StudentScoreRankDTO> ranks) {
+        ColumnWriter writer = new ColumnWriter(ranks.size());
+        writer.longs(column(ranks, StudentScoreRankDTO::getKscjbs));
+        writer.strings(column(ranks, StudentScoreRankDTO::getKsh));
+        writer.strings(column(ranks, StudentScoreRankDTO::getKsxm));
+        writer.strings(column(ranks, StudentScoreRankDTO::getSzsmc));
+        writer.decimals(column(ranks, StudentScoreRankDTO::getFslkscj));
+        writer.ints(column(ranks, StudentScoreRankDTO::getRankNum));
+        writer.ints(column(ranks, StudentScoreRankDTO::getTotalCount));
+        writer.strings(column(ranks, StudentScoreRankDTO::getGrade));
+        writer.strings(column(ranks, StudentScoreRankDTO::getQualified));
+        return writer.toByteArray();
+    }
+
+    /**
+     * 解码成绩排名列表
+     */
+    public static List<StudentScoreRankDTO> decodeScoreRanks(byte[] data) {
+        ColumnReader reader = new ColumnReader(data);
+        int size = reader.size();
+        Long[] kscjbs = reader.longs();
+        String[] ksh = reader.strings();
+        String[] ksxm = reader.strings();
+        String[] szsmc = reader.strings();
+        BigDecimal[] fslkscj = reader.decimals();
+        Integer[] rankNum = reader.ints();
+        Integer[] totalCount = reader.ints();
+        String[] grade = reader.strings();
+        String[] qualified = reader.strings();
+
+        List<StudentScoreRankDTO> ranks = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            StudentScoreRankDTO rank = new StudentScoreRankDTO();
+            rank.setKscjbs(kscjbs[i]);
+            rank.setKsh(ksh[i]);
+            rank.setKsxm(ksxm[i]);
+            rank.setSzsmc(szsmc[i]);
+            rank.setFslkscj(fslkscj[i]);
+            rank.setRankNum(rankNum[i]);
+            rank.setTotalCount(totalCount[i]);
+            rank.setGrade(grade[i]);
+            rank.setQualified(qualified[i]);
+            ranks.add(rank);
+        }
+        return ranks;
+    }
+
+    /**
+     * 编码一分一段列表
+     */
+    public static byte[] encodeScoreSegments(List<ScoreSegmentDTO> segments) {
+        ColumnWriter writer = new ColumnWriter(segments.size());
+        writer.decimals(column(segments, ScoreSegmentDTO::getScore));
+        writer.ints(column(segments, ScoreSegmentDTO::getCount));
+        writer.ints(column(segments, ScoreSegmentDTO::getCumulativeCount));
+        writer.decimals(column(segments, ScoreSegmentDTO::getCumulativePercentage));
+        writer.strings(column(segments, ScoreSegmentDTO::getGrade));
+        writer.ints(column(segments, ScoreSegmentDTO::getRank));
+        writer.strings(column(segments, ScoreSegmentDTO::getSzsmc));
+        writer.ints(column(segments, ScoreSegmentDTO::getSzsxh));
+        writer.strings(column(segments, ScoreSegmentDTO::getKsjhdm));
+        writer.strings(column(segments, ScoreSegmentDTO::getKmmc));
+        return writer.toByteArray();
+    }
+
+    /**
+     * 解码一分一段列表
+     */
+    public static List<ScoreSegmentDTO> decodeScoreSegments(byte[] data) {
+        ColumnReader reader = new ColumnReader(data);
+        int size = reader.size();
+        BigDecimal[] score = reader.decimals();
+        Integer[] count = reader.ints();
+        Integer[] cumulativeCount = reader.ints();
+        BigDecimal[] cumulativePercentage = reader.decimals();
+        String[] grade = reader.strings();
+        Integer[] rank = reader.ints();
+        String[] szsmc = reader.strings();
+        Integer[] szsxh = reader.ints();
+        String[] ksjhdm = reader.strings();
+        String[] kmmc = reader.strings();
+
+        List<ScoreSegmentDTO> segments = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            ScoreSegmentDTO segment = new ScoreSegmentDTO();
+            segment.setScore(score[i]);
+            segment.setCount(count[i]);
+            segment.setCumulativeCount(cumulativeCount[i]);
+            segment.setCumulativePercentage(cumulativePercentage[i]);
+            segment.setGrade(grade[i]);
+            segment.setRank(rank[i]);
+            segment.setSzsmc(szsmc[i]);
+            segment.setSzsxh(szsxh[i]);
+            segment.setKsjhdm(ksjhdm[i]);
+            segment.setKmmc(kmmc[i]);
+            segments.add(segment);
+        }
+        return segments;
+    }
+
+    private static <T, R> List<R> column(List<T> rows, Function<T, R> getter) {
+        List<R> values = new ArrayList<>(rows.size());
+        for (T row : rows) {
+            values.add(getter.apply(row));
+        }
+        return values;
+    }
+
+    /**
+     * 列写入器
+     */
+    private static class ColumnWriter {
+        private final ByteArrayOutputStream out;
+        private final int size;
+
+        ColumnWriter(int size) {
+            this.size = size;
+            this.out = new ByteArrayOutputStream(Math.max(64, size * 16));
+            writeVarLong(size);
+        }
+
+        /**
+         * 字典编码：先写字典，再写每行的字典下标（0表示null）
+         */
+        void strings(List<String> values) {
+            Map<String, Integer> dictionary = new HashMap<>();
+            List<String> entries = new ArrayList<>();
+            int[] indexes = new int[size];
+            for (int i = 0; i < size; i++) {
+                String value = values.get(i);
+                if (value != null) {
+                    Integer index = dictionary.get(value);
+                    if (index == null) {
+                        index = entries.size() + 1;
+                        dictionary.put(value, index);
+                        entries.add(value);
+                    }
+                    indexes[i] = index;
+                }
+            }
+            writeVarLong(entries.size());
+            for (String entry : entries) {
+                byte[] bytes = entry.getBytes(StandardCharsets.UTF_8);
+                writeVarLong(bytes.length);
+                out.write(bytes, 0, bytes.length);
+            }
+            for (int index : indexes) {
+                writeVarLong(index);
+            }
+        }
+
+        void ints(List<Integer> values) {
+            nullBitmap(values);
+            long previous = 0;
+            for (Integer value : values) {
+                if (value != null) {
+                    writeVarLong(zigZag(value - previous));
+                    previous = value;
+                }
+            }
+        }
+
+        void longs(List<Long> values) {
+            nullBitmap(values);
+            long previous = 0;
+            for (Long value : values) {
+                if (value != null) {
+                    writeVarLong(zigZag(value - previous));
+                    previous = value;
+                }
+            }
+        }
+
+        /**
+         * 小数按（标度，未缩放值）保存，未缩放值按差值编码
+         */
+        void decimals(List<BigDecimal> values) {
+            nullBitmap(values);
+            long previous = 0;
+            for (BigDecimal value : values) {
+                if (value != null) {
+                    BigInteger unscaled = value.unscaledValue();
+                    if (unscaled.bitLength() > 62) {
+                        throw new IllegalArgumentException("小数超出列式编码范围: " + value);
+                    }
+                    long current = unscaled.longValue();
+                    writeVarLong(zigZag(value.scale()));
+                    writeVarLong(zigZag(current - previous));
+                    previous = current;
+                }
+            }
+        }
+
+        byte[] toByteArray() {
+            return out.toByteArray();
+        }
+
+        private void nullBitmap(List<?> values) {
+            byte[] bitmap = new byte[(size + 7) >>> 3];
+            for (int i = 0; i < size; i++) {
+                if (values.get(i) == null) {
+                    bitmap[i >>> 3] |= (byte) (1 << (i & 7));
+                }
+            }
+            out.write(bitmap, 0, bitmap.length);
+        }
+
+        private void writeVarLong(long value) {
+            while ((value & ~0x7FL) != 0) {
+                out.write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            out.write((int) value);
+        }
+
+        private static long zigZag(long value) {
+            return (value << 1) ^ (value >> 63);
+        }
+    }
+
+    /**
+     * 列读取器
+     */
+    private static class ColumnReader {
+        private final byte[] data;
+        private final int size;
+        private int position;
+
+        ColumnReader(byte[] data) {
+            this.data = data;
+            long rows = readVarLong();
+            if (rows < 0 || rows > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("列式数据行数非法: " + rows);
+            }
+            this.size = (int) rows;
+        }
+
+        int size() {
+            return size;
+        }
+
+        String[] strings() {
+            int dictionarySize = readLength();
+            String[] dictionary = new String[dictionarySize + 1];
+            for (int i = 1; i <= dictionarySize; i++) {
+                int length = readLength();
+                checkAvailable(length);
+                dictionary[i] = new String(data, position, length, StandardCharsets.UTF_8);
+                position += length;
+            }
+            String[] values = new String[size];
+            for (int i = 0; i < size; i++) {
+                int index = readLength();
+                if (index > dictionarySize) {
+                    throw new IllegalArgumentException("字典下标越界: " + index);
+                }
+                values[i] = dictionary[index];
+            }
+            return values;
+        }
+
+        Integer[] ints() {
+            boolean[] nulls = nullBitmap();
+            Integer[] values = new Integer[size];
+            long previous = 0;
+            for (int i = 0; i < size; i++) {
+                if (!nulls[i]) {
+                    previous += unZigZag(readVarLong());
+                    values[i] = (int) previous;
+                }
+            }
+            return values;
+        }
+
+        Long[] longs() {
+            boolean[] nulls = nullBitmap();
+            Long[] values = new Long[size];
+            long previous = 0;
+            for (int i = 0; i < size; i++) {
+                if (!nulls[i]) {
+                    previous += unZigZag(readVarLong());
+                    values[i] = previous;
+                }
+            }
+            return values;
+        }
+
+        BigDecimal[] decimals() {
+            boolean[] nulls = nullBitmap();
+            BigDecimal[] values = new BigDecimal[size];
+            long previous = 0;
+            for (int i = 0; i < size; i++) {
+                if (!nulls[i]) {
+                    int scale = (int) unZigZag(readVarLong());
+                    previous += unZigZag(readVarLong());
+                    values[i] = BigDecimal.valueOf(previous, scale);
+                }
+            }
+            return values;
+        }
+
+        private boolean[] nullBitmap() {
+            int length = (size + 7) >>> 3;
+            checkAvailable(length);
+            boolean[] nulls = new boolean[size];
+            for (int i = 0; i < size; i++) {
+                nulls[i] = (data[position + (i >>> 3)] & (1 << (i & 7))) != 0;
+            }
+            position += length;
+            return nulls;
+        }
+
+        private int readLength() {
+            long value = readVarLong();
+            if (value < 0 || value > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("列式数据长度非法: " + value);
+            }
+            return (int) value;
+        }
+
+        private long readVarLong() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                checkAvailable(1);
+                byte b = data[position++];
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("变长整数格式错误");
+        }
+
+        private void checkAvailable(int length) {
+            if (length > data.length - position) {
+                throw new IllegalArgumentException("列式数据不完整");
+            }
+        }
+
+        private static long unZigZag(long value) {
+            return (value >>> 1) ^ -(value & 1);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package edu.qhjy.score_service.util;
+
+/**
+ * 紧凑字符串集合
+ * 开放寻址散列表，元素直接保存在数组中，不为每个元素创建HashMap节点，
+ * 适合一次性装入数十万考籍号等短字符串后做存在性判断。非线程安全
+ *
+ * @author dadalv
+ * @since 2025-08-01
+ */
+public class CompactStringSet {
+
+    private String[] table;
+    private int size;
+
+    public CompactStringSet() {
+        this(16);
+    }
+
+    /**
+     * @param expectedSize 预计元素个数
+     */
+    public CompactStringSet(int expectedSize) {
+        this.table = new String[tableSizeFor(expectedSize)];
+    }
+
+    /**
+     * 添加元素，null忽略
+     *
+     * @return 集合中原先不存在该元素时返回true
+     */
+    public boolean add(String value) {
+        if (value == null) {
+            return false;
+        }
+        int slot = find(table, value);
+        if (table[slot] != null) {
+            return false;
+        }
+        table[slot] = value;
+        // 负载因子不超过0.5
+        if (++size * 2 > table.length) {
+            resize();
+        }
+        return true;
+    }
+
+    /**
+     * 是否包含元素
+     */
+    public boolean contains(String value) {
+        return value != null && table[find(table, value)] != null;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * 查找元素所在槽位，不存在时返回应插入的空槽位
+     */
+    private static int find(String[] table, String value) {
+        int mask = table.length - 1;
+        int slot = spread(value.hashCode()) & mask;
+        String current;
+        while ((current = table[slot]) != null && !current.equals(value)) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void resize() {
+        String[] newTable = new String[table.length * 2];
+        for (String value : table) {
+            if (value != null) {
+                newTable[find(newTable, value)] = value;
+            }
+        }
+        table = newTable;
+    }
+
+    private static int spread(int h) {
+        return h ^ (h >>> 16);
+    }
+
+    private static int tableSizeFor(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(expectedSize, 8) * 2 - 1) << 1;
+        return Math.max(capacity, 16);
+    }
+}
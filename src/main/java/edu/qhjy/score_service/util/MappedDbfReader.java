@@ -0,0 +1,272 @@
+package edu.qhjy.score_service.util;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 基于内存映射的DBF文件读取器
+ * 上传文件只落盘一次并映射到内存，文件头和字段描述只解析一次，
+ * 字段值按需从映射区解码，支持O(1)获取记录数和按下标随机访问记录
+ *
+ * @author dadalv
+ * @since 2025-08-01
+ */
+@Slf4j
+public class MappedDbfReader implements Closeable {
+
+    /**
+     * 中文DBF文件默认编码
+     */
+    public static final Charset GBK = Charset.forName("GBK");
+
+    private static final int FILE_HEADER_SIZE = 32;
+    private static final int FIELD_DESCRIPTOR_SIZE = 32;
+    private static final int FIELD_NAME_SIZE = 11;
+    private static final byte HEADER_TERMINATOR = 0x0D;
+    private static final byte DELETED_FLAG = '*';
+
+    private final Path tempFile;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final Charset charset;
+
+    private final int recordCount;
+    private final int headerLength;
+    private final int recordLength;
+
+    private final List<String> fieldNames;
+    private final char[] fieldTypes;
+    private final int[] fieldOffsets;
+    private final int[] fieldLengths;
+
+    private MappedDbfReader(Path tempFile, FileChannel channel, Charset charset) throws IOException {
+        this.tempFile = tempFile;
+        this.channel = channel;
+        this.charset = charset;
+
+        long fileSize = channel.size();
+        if (fileSize < FILE_HEADER_SIZE) {
+            throw new IllegalArgumentException("DBF文件格式错误: 文件长度不足");
+        }
+        if (fileSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("DBF文件过大: " + fileSize + " bytes");
+        }
+        this.buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+        this.buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+        int declaredCount = buffer.getInt(4);
+        this.headerLength = Short.toUnsignedInt(buffer.getShort(8));
+        this.recordLength = Short.toUnsignedInt(buffer.getShort(10));
+        if (headerLength < FILE_HEADER_SIZE + 1 || recordLength < 1 || headerLength > fileSize) {
+            throw new IllegalArgumentException("DBF文件格式错误: 文件头长度或记录长度无效");
+        }
+
+        // 以实际文件长度校正记录数，避免文件被截断时越界
+        long availableCount = (fileSize - headerLength) / recordLength;
+        this.recordCount = (int) Math.min(Math.max(declaredCount, 0), availableCount);
+
+        // 解析字段描述，记录的第一个字节为删除标记
+        List<String> names = new ArrayList<>();
+        List<int[]> layouts = new ArrayList<>();
+        List<Character> types = new ArrayList<>();
+        int offset = 1;
+        for (int pos = FILE_HEADER_SIZE;
+             pos + FIELD_DESCRIPTOR_SIZE <= headerLength && buffer.get(pos) != HEADER_TERMINATOR;
+             pos += FIELD_DESCRIPTOR_SIZE) {
+            byte[] nameBytes = new byte[FIELD_NAME_SIZE];
+            buffer.get(pos, nameBytes);
+            int nameLength = 0;
+            while (nameLength < FIELD_NAME_SIZE && nameBytes[nameLength] != 0) {
+                nameLength++;
+            }
+            names.add(new String(nameBytes, 0, nameLength, StandardCharsets.US_ASCII).trim());
+            types.add((char) buffer.get(pos + 11));
+            int length = Byte.toUnsignedInt(buffer.get(pos + 16));
+            layouts.add(new int[]{offset, length});
+            offset += length;
+        }
+
+        this.fieldNames = Collections.unmodifiableList(names);
+        this.fieldTypes = new char[names.size()];
+        this.fieldOffsets = new int[names.size()];
+        this.fieldLengths = new int[names.size()];
+        for (int i = 0; i < names.size(); i++) {
+            fieldTypes[i] = types.get(i);
+            fieldOffsets[i] = layouts.get(i)[0];
+            fieldLengths[i] = layouts.get(i)[1];
+        }
+        if (offset > recordLength) {
+            throw new IllegalArgumentException("DBF文件格式错误: 字段总长度超过记录长度");
+        }
+    }
+
+    /**
+     * 将上传文件落盘到临时文件并映射到内存（GBK编码）
+     *
+     * @param file 上传的DBF文件
+     * @return 读取器，使用完毕后需关闭以删除临时文件
+     */
+    public static MappedDbfReader open(MultipartFile file) throws IOException {
+        return open(file, GBK);
+    }
+
+    /**
+     * 将上传文件落盘到临时文件并映射到内存
+     *
+     * @param file    上传的DBF文件
+     * @param charset 字符字段编码
+     * @return 读取器，使用完毕后需关闭以删除临时文件
+     */
+    public static MappedDbfReader open(MultipartFile file, Charset charset) throws IOException {
+        Path tempFile = Files.createTempFile("dbf-import-", ".dbf");
+        FileChannel channel = null;
+        try {
+            try (InputStream inputStream = file.getInputStream()) {
+                Files.copy(inputStream, tempFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+            channel = FileChannel.open(tempFile, StandardOpenOption.READ);
+            return new MappedDbfReader(tempFile, channel, charset);
+        } catch (IOException | RuntimeException e) {
+            if (channel != null) {
+                channel.close();
+            }
+            deleteQuietly(tempFile);
+            throw e;
+        }
+    }
+
+    /**
+     * 仅读取文件头中声明的记录数，不落盘、不解析记录
+     *
+     * @param inputStream DBF文件输入流
+     * @return 文件头中的记录数
+     */
+    public static int readDeclaredRecordCount(InputStream inputStream) throws IOException {
+        byte[] header = inputStream.readNBytes(8);
+        if (header.length < 8) {
+            throw new IllegalArgumentException("DBF文件格式错误: 文件长度不足");
+        }
+        return ByteBuffer.wrap(header).order(ByteOrder.LITTLE_ENDIAN).getInt(4);
+    }
+
+    /**
+     * 记录总数（包含已删除记录）
+     */
+    public int getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * 字段数量
+     */
+    public int getFieldCount() {
+        return fieldNames.size();
+    }
+
+    /**
+     * 字段名称列表（保持文件中的顺序和大小写）
+     */
+    public List<String> getFieldNames() {
+        return fieldNames;
+    }
+
+    /**
+     * 按名称查找字段下标（忽略大小写）
+     *
+     * @return 字段下标，不存在时返回-1
+     */
+    public int getFieldIndex(String fieldName) {
+        for (int i = 0; i < fieldNames.size(); i++) {
+            if (fieldNames.get(i).equalsIgnoreCase(fieldName)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 指定记录是否已被标记删除
+     */
+    public boolean isDeleted(int recordIndex) {
+        return buffer.get(recordStart(recordIndex)) == DELETED_FLAG;
+    }
+
+    /**
+     * 读取指定记录的字段值（去除首尾空白）
+     * 字符字段按文件编码解码，数值等其他字段按ASCII解码
+     *
+     * @return 字段文本，空值返回null
+     */
+    public String getString(int recordIndex, int fieldIndex) {
+        int start = recordStart(recordIndex) + fieldOffsets[fieldIndex];
+        int end = start + fieldLengths[fieldIndex];
+
+        // 直接在映射区上跳过首尾空白和填充字符，空字段不创建对象
+        while (start < end && isPadding(buffer.get(start))) {
+            start++;
+        }
+        while (end > start && isPadding(buffer.get(end - 1))) {
+            end--;
+        }
+        if (start == end) {
+            return null;
+        }
+
+        byte[] bytes = new byte[end - start];
+        buffer.get(start, bytes);
+        Charset fieldCharset = isCharacterField(fieldIndex) ? charset : StandardCharsets.US_ASCII;
+        return new String(bytes, fieldCharset);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            channel.close();
+        } finally {
+            deleteQuietly(tempFile);
+        }
+    }
+
+    private int recordStart(int recordIndex) {
+        if (recordIndex < 0 || recordIndex >= recordCount) {
+            throw new IndexOutOfBoundsException("记录下标越界: " + recordIndex + ", 记录总数: " + recordCount);
+        }
+        return headerLength + recordIndex * recordLength;
+    }
+
+    private boolean isCharacterField(int fieldIndex) {
+        char type = Character.toUpperCase(fieldTypes[fieldIndex]);
+        return type == 'C' || type == 'M';
+    }
+
+    private static boolean isPadding(byte b) {
+        return b == ' ' || b == 0;
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            // 部分平台在映射区释放前无法删除文件，退出时再删除
+            log.warn("删除DBF临时文件失败，将在JVM退出时删除: {}", path);
+            path.toFile().deleteOnExit();
+        }
+    }
+}
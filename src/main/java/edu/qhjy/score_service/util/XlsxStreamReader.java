@@ -0,0 +1,197 @@
+package edu.qhjy.score_service.util;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.springframework.web.multipart.MultipartFile;
+import org.xml.sax.InputSource;
+import org.xml.sax.XMLReader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * xlsx文件流式读取工具
+ * 基于POI事件模型（XSSFReader + SAX）逐行读取第一个工作表，不构建整个工作簿的对象模型，
+ * 内存占用与行数无关。单元格取值与用户模型逐格读取一致：
+ * 文本原样返回，整数不带小数和科学计数法，日期为Date.toString()，公式返回公式文本
+ *
+ * @author dadalv
+ * @since 2025-08-01
+ */
+@Slf4j
+public final class XlsxStreamReader {
+
+    private XlsxStreamReader() {
+    }
+
+    /**
+     * 行处理器
+     */
+    @FunctionalInterface
+    public interface RowHandler {
+
+        /**
+         * 处理一行数据
+         *
+         * @param rowIndex 行号（从0开始）
+         * @param cells    按列下标排列的单元格值，缺失的单元格为null；列表在读取下一行时复用，不要保留引用
+         * @return 是否继续读取
+         */
+        boolean handleRow(int rowIndex, List<String> cells) throws Exception;
+    }
+
+    /**
+     * 流式读取上传文件的第一个工作表
+     * 上传文件先落盘为临时文件再以只读方式打开，避免将整个压缩包解压到内存
+     *
+     * @param file    上传的xlsx文件
+     * @param handler 行处理器
+     * @return 是否找到工作表
+     */
+    public static boolean readFirstSheet(MultipartFile file, RowHandler handler) throws Exception {
+        Path tempFile = Files.createTempFile("excel-import-", ".xlsx");
+        try {
+            try (InputStream inputStream = file.getInputStream()) {
+                Files.copy(inputStream, tempFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+            try (OPCPackage pkg = OPCPackage.open(tempFile.toFile(), PackageAccess.READ)) {
+                XSSFReader reader = new XSSFReader(pkg);
+                Iterator<InputStream> sheets = reader.getSheetsData();
+                if (!sheets.hasNext()) {
+                    return false;
+                }
+                try (InputStream sheet = sheets.next()) {
+                    parseSheet(sheet, new ReadOnlySharedStringsTable(pkg), reader.getStylesTable(), handler);
+                }
+                return true;
+            }
+        } finally {
+            try {
+                Files.deleteIfExists(tempFile);
+            } catch (IOException e) {
+                log.warn("删除Excel临时文件失败: {}", tempFile);
+                tempFile.toFile().deleteOnExit();
+            }
+        }
+    }
+
+    /**
+     * 取指定列的单元格值，越界时返回null
+     */
+    public static String cellValue(List<String> cells, int columnIndex) {
+        return columnIndex < cells.size() ? cells.get(columnIndex) : null;
+    }
+
+    private static void parseSheet(InputStream sheet, ReadOnlySharedStringsTable sharedStrings, StylesTable styles,
+                                   RowHandler handler) throws Exception {
+        RowCollector collector = new RowCollector(handler);
+        XMLReader xmlReader = XMLHelper.newXMLReader();
+        // 公式单元格返回公式文本，与用户模型 getCellFormula() 一致
+        xmlReader.setContentHandler(new XSSFSheetXMLHandler(
+                styles, sharedStrings, collector, new RawValueFormatter(), true));
+        try {
+            xmlReader.parse(new InputSource(sheet));
+        } catch (StopReadingException e) {
+            // 行处理器要求停止读取
+        } catch (HandlerException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * 收集一行中的单元格并交给行处理器
+     */
+    private static class RowCollector implements XSSFSheetXMLHandler.SheetContentsHandler {
+        private final RowHandler handler;
+        private final List<String> cells = new ArrayList<>();
+        private int currentColumn;
+
+        RowCollector(RowHandler handler) {
+            this.handler = handler;
+        }
+
+        @Override
+        public void startRow(int rowNum) {
+            cells.clear();
+            currentColumn = -1;
+        }
+
+        @Override
+        public void endRow(int rowNum) {
+            boolean proceed;
+            try {
+                proceed = handler.handleRow(rowNum, cells);
+            } catch (Exception e) {
+                throw new HandlerException(e);
+            }
+            if (!proceed) {
+                throw new StopReadingException();
+            }
+        }
+
+        @Override
+        public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+            currentColumn = cellReference != null ? new CellReference(cellReference).getCol() : currentColumn + 1;
+            while (cells.size() <= currentColumn) {
+                cells.add(null);
+            }
+            cells.set(currentColumn, formattedValue);
+        }
+    }
+
+    /**
+     * 数值单元格按原始值输出，不套用单元格的显示格式
+     */
+    private static class RawValueFormatter extends DataFormatter {
+        @Override
+        public String formatRawCellContents(double value, int formatIndex, String formatString) {
+            if (DateUtil.isADateFormat(formatIndex, formatString) && DateUtil.isValidExcelDate(value)) {
+                return DateUtil.getJavaDate(value).toString();
+            }
+            // 避免科学计数法
+            if (value == (long) value) {
+                return String.valueOf((long) value);
+            }
+            return String.valueOf(value);
+        }
+    }
+
+    /**
+     * 提前结束读取的信号
+     */
+    private static class StopReadingException extends RuntimeException {
+        StopReadingException() {
+            super(null, null, false, false);
+        }
+    }
+
+    /**
+     * 包装行处理器抛出的异常，穿过SAX解析器后还原
+     */
+    private static class HandlerException extends RuntimeException {
+        HandlerException(Exception cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized Exception getCause() {
+            return (Exception) super.getCause();
+        }
+    }
+}
@@ -0,0 +1,68 @@
+-- 成绩统计汇总表（统计分析接口的预聚合数据）
+-- 粒度：考试计划 × 科目 × 市州 × 区县 × 学校 × 班级 × 等级，只汇总正考成绩
+-- 由 ScoreStatisticsCubeService 在成绩导入、等级赋分、等级调整后按（考试计划、科目）整片重建
+CREATE TABLE KSCJ_TJHZ
+(
+    KSJHDM VARCHAR(50)  NOT NULL,
+    KMMC   VARCHAR(100) NOT NULL,
+    SZSMC  VARCHAR(100),
+    KQMC   VARCHAR(100),
+    XXMC   VARCHAR(200),
+    BJMC   VARCHAR(100),
+    CJDJM  VARCHAR(10),
+    ZRS    INT          NOT NULL,
+    YXRS   INT          NOT NULL,
+    ZF     BIGINT,
+    ZGF    INT,
+    ZDF    INT,
+    HGRS   INT          NOT NULL,
+    FD90   INT          NOT NULL,
+    FD80   INT          NOT NULL,
+    FD70   INT          NOT NULL,
+    FD60   INT          NOT NULL,
+    FDBJG  INT          NOT NULL,
+    GXSJ   DATETIME
+);
+
+COMMENT ON TABLE KSCJ_TJHZ IS '成绩统计汇总表';
+COMMENT ON COLUMN KSCJ_TJHZ.KSJHDM IS '考试计划代码';
+COMMENT ON COLUMN KSCJ_TJHZ.KMMC IS '科目名称';
+COMMENT ON COLUMN KSCJ_TJHZ.SZSMC IS '市州名称';
+COMMENT ON COLUMN KSCJ_TJHZ.KQMC IS '区县名称';
+COMMENT ON COLUMN KSCJ_TJHZ.XXMC IS '学校名称';
+COMMENT ON COLUMN KSCJ_TJHZ.BJMC IS '班级名称';
+COMMENT ON COLUMN KSCJ_TJHZ.CJDJM IS '成绩等级码';
+COMMENT ON COLUMN KSCJ_TJHZ.ZRS IS '总人数';
+COMMENT ON COLUMN KSCJ_TJHZ.YXRS IS '有分数的人数';
+COMMENT ON COLUMN KSCJ_TJHZ.ZF IS '分数合计';
+COMMENT ON COLUMN KSCJ_TJHZ.ZGF IS '最高分';
+COMMENT ON COLUMN KSCJ_TJHZ.ZDF IS '最低分';
+COMMENT ON COLUMN KSCJ_TJHZ.HGRS IS '合格人数';
+COMMENT ON COLUMN KSCJ_TJHZ.FD90 IS '90-100分人数';
+COMMENT ON COLUMN KSCJ_TJHZ.FD80 IS '80-89分人数';
+COMMENT ON COLUMN KSCJ_TJHZ.FD70 IS '70-79分人数';
+COMMENT ON COLUMN KSCJ_TJHZ.FD60 IS '60-69分人数';
+COMMENT ON COLUMN KSCJ_TJHZ.FDBJG IS '0-59分人数';
+COMMENT ON COLUMN KSCJ_TJHZ.GXSJ IS '汇总时间';
+
+-- 汇总粒度唯一；已有部署在创建前先执行 POST /api/score/statistics/cube/rebuild 清除重复行
+CREATE UNIQUE INDEX UK_KSCJ_TJHZ_GRAIN ON KSCJ_TJHZ (KSJHDM, KMMC, SZSMC, KQMC, XXMC, BJMC, CJDJM);
+CREATE INDEX IDX_KSCJ_TJHZ_TREND ON KSCJ_TJHZ (KMMC, KSJHDM);
+
+-- 汇总分片状态表：每个（考试计划、科目）一行
+-- 重建分片时先对该行加行锁（SELECT ... FOR UPDATE），同一分片的重建在各线程、各节点间依次执行；
+-- SFYHZ=1 表示已汇总（包括没有成绩的空分片），读取时据此判断，不再用汇总行数判断
+CREATE TABLE KSCJ_TJHZ_ZT
+(
+    KSJHDM VARCHAR(50)  NOT NULL,
+    KMMC   VARCHAR(100) NOT NULL,
+    SFYHZ  INT          NOT NULL,
+    GXSJ   DATETIME,
+    PRIMARY KEY (KSJHDM, KMMC)
+);
+
+COMMENT ON TABLE KSCJ_TJHZ_ZT IS '成绩统计汇总分片状态表';
+COMMENT ON COLUMN KSCJ_TJHZ_ZT.KSJHDM IS '考试计划代码';
+COMMENT ON COLUMN KSCJ_TJHZ_ZT.KMMC IS '科目名称';
+COMMENT ON COLUMN KSCJ_TJHZ_ZT.SFYHZ IS '是否已汇总（0否 1是）';
+COMMENT ON COLUMN KSCJ_TJHZ_ZT.GXSJ IS '最近汇总时间';
@@ -0,0 +1,9 @@
+-- 成绩导入临时表按导入批次区分数据
+-- DBF导入在事务外逐批写入临时表，每次导入的记录以导入任务ID（IMPORT_ID）标识，
+-- MERGE只读取本次导入的记录，导入结束（成功或失败）后按IMPORT_ID删除，多个导入可同时使用该表
+-- 部署前执行；进程异常退出残留的记录可在无导入进行时 TRUNCATE TABLE TMP_KSCJ_IMPORT 清理
+ALTER TABLE TMP_KSCJ_IMPORT ADD IMPORT_ID VARCHAR(36);
+
+COMMENT ON COLUMN TMP_KSCJ_IMPORT.IMPORT_ID IS '导入任务ID';
+
+CREATE INDEX IDX_TMP_KSCJ_IMPORT_ID ON TMP_KSCJ_IMPORT (IMPORT_ID);
@@ -0,0 +1,223 @@
+package edu.qhjy.score_service.service.algorithm;
+
+import edu.qhjy.score_service.domain.dto.GradeThresholdsDTO;
+import edu.qhjy.score_service.domain.dto.ScoreHistogramDTO;
+import edu.qhjy.score_service.domain.dto.StudentScoreRankDTO;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * 基本类型数组排名引擎与原BigDecimal排名引擎的一致性测试
+ * 随机成绩和边界用例（同分、空市州、比例恰好落在边界）下两个引擎应返回相同的等级临界值
+ */
+class PrimitiveGradeCalculationAlgorithmTest {
+
+    private static final Map<String, Double> DEFAULT_RATIOS =
+            Map.of("A", 0.15, "B", 0.35, "C", 0.35, "D", 0.13, "E", 0.02);
+
+    private static final Map<String, Double> WIDE_E_RATIOS =
+            Map.of("A", 0.2, "B", 0.3, "C", 0.3, "D", 0.15, "E", 0.05);
+
+    private static final double[] E_MIN_PERCENTAGES = {0.02, 0.05, 0.1};
+
+    @Test
+    void randomScoresMatchBigDecimalEngine() {
+        Random random = new Random(20250801L);
+        for (int round = 0; round < 400; round++) {
+            int size = random.nextInt(10) == 0 ? 1 + random.nextInt(20) : 1 + random.nextInt(3000);
+            // 分数范围越小同分越多
+            int maxTenths = new int[]{30, 100, 1000, 1500}[random.nextInt(4)];
+            int scale = random.nextInt(2);
+            assertSameThresholds(randomScores(random, size, maxTenths, scale), "round " + round);
+        }
+    }
+
+    @Test
+    void emptyCityReturnsNull() {
+        for (boolean ePriority : new boolean[]{false, true}) {
+            assertNull(GradeCalculationAlgorithm.calculateGradeThresholds(
+                    new ArrayList<>(), DEFAULT_RATIOS, "西宁市", "物理", ePriority, 0.02, true));
+            assertNull(GradeCalculationAlgorithm.calculateGradeThresholds(
+                    null, DEFAULT_RATIOS, "西宁市", "物理", ePriority, 0.02, true));
+            assertNull(GradeCalculationAlgorithm.calculateHistogramGradeThresholds(
+                    new ArrayList<>(), DEFAULT_RATIOS, "西宁市", "物理", ePriority, 0.02, true));
+        }
+    }
+
+    @Test
+    void allTiedScoresMatch() {
+        int[] tenths = new int[1000];
+        Arrays.fill(tenths, 600);
+        assertSameThresholds(ranks(tenths, 0), "all tied");
+        assertSameThresholds(ranks(new int[]{900, 900}, 1), "two tied");
+    }
+
+    @Test
+    void tiesStraddlingGradeBoundariesMatch() {
+        // 100人时A、A+B、A+B+C、D/E的累计人数分别落在第15、50、85、98名
+        for (int boundary : new int[]{15, 50, 85, 98}) {
+            for (int before = 0; before <= 3; before++) {
+                for (int after = 0; after <= 3; after++) {
+                    int[] tenths = descendingDistinct(100);
+                    int start = Math.max(0, boundary - 1 - before);
+                    int end = Math.min(99, boundary - 1 + after);
+                    for (int i = start; i <= end; i++) {
+                        tenths[i] = tenths[start];
+                    }
+                    assertSameThresholds(ranks(tenths, 0),
+                            "boundary " + boundary + " tie [" + start + "," + end + "]");
+                }
+            }
+        }
+    }
+
+    @Test
+    void roundingBoundarySizesMatch() {
+        // 人数乘以比例恰好为x.5或整数的情况
+        for (int size : new int[]{10, 20, 30, 50, 100, 200, 1000, 1001, 999}) {
+            assertSameThresholds(ranks(descendingDistinct(size), 0), "distinct size " + size);
+            assertSameThresholds(ranks(pairedTies(size), 1), "paired size " + size);
+        }
+    }
+
+    @Test
+    void tooFewStudentsFailTheSameWay() {
+        // 人数过少时A等级人数为0，两个引擎同样越界失败
+        for (int size = 1; size <= 3; size++) {
+            List<StudentScoreRankDTO> scores = ranks(descendingDistinct(size), 0);
+            for (boolean ePriority : new boolean[]{false, true}) {
+                assertThrows(IndexOutOfBoundsException.class, () -> GradeCalculationAlgorithm
+                        .calculateGradeThresholds(scores, DEFAULT_RATIOS, "西宁市", "物理", ePriority, 0.02, false));
+                assertThrows(IndexOutOfBoundsException.class, () -> GradeCalculationAlgorithm
+                        .calculateGradeThresholds(scores, DEFAULT_RATIOS, "西宁市", "物理", ePriority, 0.02, true));
+            }
+        }
+    }
+
+    @Test
+    void multiDecimalScoresFallBackToBigDecimalEngine() {
+        List<StudentScoreRankDTO> scores = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            StudentScoreRankDTO rank = new StudentScoreRankDTO();
+            rank.setFslkscj(BigDecimal.valueOf(10000 - i * 7L, 2));
+            scores.add(rank);
+        }
+        assertSameThresholds(scores, "two decimals");
+    }
+
+    /**
+     * 两种算法（原算法、E等级优先）、两组比例、多个E等级最小百分比下，
+     * 基本类型引擎（成绩列表和分数直方图两种输入）与原引擎结果一致；原引擎越界失败时基本类型引擎同样失败
+     */
+    private static void assertSameThresholds(List<StudentScoreRankDTO> scores, String label) {
+        List<ScoreHistogramDTO> histogram = toHistogram(scores);
+        for (Map<String, Double> ratios : List.of(DEFAULT_RATIOS, WIDE_E_RATIOS)) {
+            for (boolean ePriority : new boolean[]{false, true}) {
+                for (double eMin : E_MIN_PERCENTAGES) {
+                    String message = label + ", ratios=" + ratios + ", ePriority=" + ePriority + ", eMin=" + eMin;
+                    GradeThresholdsDTO expected;
+                    try {
+                        expected = GradeCalculationAlgorithm.calculateGradeThresholds(
+                                scores, ratios, "西宁市", "物理", ePriority, eMin, false);
+                    } catch (IndexOutOfBoundsException e) {
+                        assertThrows(IndexOutOfBoundsException.class, () -> GradeCalculationAlgorithm
+                                .calculateGradeThresholds(scores, ratios, "西宁市", "物理", ePriority, eMin, true),
+                                message);
+                        continue;
+                    }
+                    assertEquals(expected, run(() -> GradeCalculationAlgorithm.calculateGradeThresholds(
+                            scores, ratios, "西宁市", "物理", ePriority, eMin, true), message), message);
+                    assertEquals(expected, run(() -> GradeCalculationAlgorithm.calculateHistogramGradeThresholds(
+                            histogram, ratios, "西宁市", "物理", ePriority, eMin, true), message), message);
+                }
+            }
+        }
+    }
+
+    private static GradeThresholdsDTO run(Supplier<GradeThresholdsDTO> engine, String message) {
+        try {
+            return engine.get();
+        } catch (RuntimeException e) {
+            throw new AssertionError("基本类型引擎失败而原引擎成功: " + message, e);
+        }
+    }
+
+    private static List<StudentScoreRankDTO> randomScores(Random random, int size, int maxTenths, int scale) {
+        int[] tenths = new int[size];
+        for (int i = 0; i < size; i++) {
+            int value = random.nextInt(maxTenths + 1);
+            // 整数成绩时取整到十分位的整十
+            tenths[i] = scale == 0 ? value / 10 * 10 : value;
+        }
+        Arrays.sort(tenths);
+        reverse(tenths);
+        return ranks(tenths, scale);
+    }
+
+    private static int[] descendingDistinct(int size) {
+        int[] tenths = new int[size];
+        for (int i = 0; i < size; i++) {
+            tenths[i] = (size - i) * 10;
+        }
+        return tenths;
+    }
+
+    private static int[] pairedTies(int size) {
+        int[] tenths = new int[size];
+        for (int i = 0; i < size; i++) {
+            tenths[i] = (size - i / 2) * 5;
+        }
+        return tenths;
+    }
+
+    private static void reverse(int[] values) {
+        for (int i = 0, j = values.length - 1; i < j; i++, j--) {
+            int tmp = values[i];
+            values[i] = values[j];
+            values[j] = tmp;
+        }
+    }
+
+    /**
+     * 由降序十分位成绩构建排名列表，同一列表内小数位数一致（与数据库列一致）
+     */
+    private static List<StudentScoreRankDTO> ranks(int[] tenths, int scale) {
+        List<StudentScoreRankDTO> scores = new ArrayList<>(tenths.length);
+        for (int i = 0; i < tenths.length; i++) {
+            StudentScoreRankDTO rank = new StudentScoreRankDTO();
+            rank.setKsh(String.valueOf(i));
+            rank.setFslkscj(BigDecimal.valueOf(tenths[i], 1).setScale(scale, RoundingMode.UNNECESSARY));
+            scores.add(rank);
+        }
+        return Collections.unmodifiableList(scores);
+    }
+
+    private static List<ScoreHistogramDTO> toHistogram(List<StudentScoreRankDTO> scores) {
+        List<ScoreHistogramDTO> histogram = new ArrayList<>();
+        ScoreHistogramDTO bucket = null;
+        for (StudentScoreRankDTO rank : scores) {
+            if (bucket == null || bucket.getFslkscj().compareTo(rank.getFslkscj()) != 0) {
+                bucket = new ScoreHistogramDTO();
+                bucket.setSzsmc("西宁市");
+                bucket.setFslkscj(rank.getFslkscj());
+                bucket.setCount(0);
+                histogram.add(bucket);
+            }
+            bucket.setCount(bucket.getCount() + 1);
+        }
+        return histogram;
+    }
+}
@@ -0,0 +1,191 @@
+package edu.qhjy.score_service.service.redis.codec;
+
+import edu.qhjy.score_service.domain.dto.ScoreSegmentDTO;
+import edu.qhjy.score_service.domain.dto.StudentScoreRankDTO;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * 成绩缓存列式编码往返测试
+ * 覆盖空字段、负数、空列表，并检查DTO的每个字段都经过编码，DTO新增字段而编码未覆盖时测试失败
+ */
+class ScorePayloadCodecTest {
+
+    @Test
+    void scoreRanksRoundTrip() {
+        List<StudentScoreRankDTO> ranks = new ArrayList<>();
+        ranks.add(rank(1L, "250101001", "张三", "西宁市", new BigDecimal("98.5"), 1, 3, "A", "合格"));
+        // 负分、负位次和标度不同的小数
+        ranks.add(rank(-7L, "250101002", "李四", "西宁市", new BigDecimal("-12.25"), -1, 3, "E", "不合格"));
+        // 全部字段为空
+        ranks.add(new StudentScoreRankDTO());
+        // 相邻行差值溢出long范围
+        ranks.add(rank(Long.MIN_VALUE, "", "", "海东市", new BigDecimal("0"), Integer.MIN_VALUE, 0, "", null));
+        ranks.add(rank(Long.MAX_VALUE, null, "王五", null, new BigDecimal("1E+3"), Integer.MAX_VALUE, null, null, ""));
+
+        assertEquals(ScorePayloadCodec.TYPE_SCORE_RANKS, ScorePayloadCodec.typeOf(ranks));
+        byte[] encoded = ScorePayloadCodec.encode(ScorePayloadCodec.TYPE_SCORE_RANKS, ranks);
+        assertEquals(ranks, ScorePayloadCodec.decode(ScorePayloadCodec.TYPE_SCORE_RANKS, encoded));
+    }
+
+    @Test
+    void scoreSegmentsRoundTrip() {
+        List<ScoreSegmentDTO> segments = new ArrayList<>();
+        segments.add(new ScoreSegmentDTO(new BigDecimal("100"), 5, 5, new BigDecimal("0.5"), "A", 1,
+                "西宁市", 1, "202507", "物理"));
+        segments.add(new ScoreSegmentDTO(new BigDecimal("-3.5"), 0, -2, new BigDecimal("-100.0"), null, -9,
+                "西宁市", -1, "202507", "物理"));
+        segments.add(new ScoreSegmentDTO());
+
+        assertEquals(ScorePayloadCodec.TYPE_SCORE_SEGMENTS, ScorePayloadCodec.typeOf(segments));
+        byte[] encoded = ScorePayloadCodec.encode(ScorePayloadCodec.TYPE_SCORE_SEGMENTS, segments);
+        assertEquals(segments, ScorePayloadCodec.decode(ScorePayloadCodec.TYPE_SCORE_SEGMENTS, encoded));
+    }
+
+    @Test
+    void everyRankFieldIsEncoded() {
+        assertAllFieldsRoundTrip(StudentScoreRankDTO.class, ScorePayloadCodec.TYPE_SCORE_RANKS);
+    }
+
+    @Test
+    void everySegmentFieldIsEncoded() {
+        assertAllFieldsRoundTrip(ScoreSegmentDTO.class, ScorePayloadCodec.TYPE_SCORE_SEGMENTS);
+    }
+
+    @Test
+    void serializerRoundTrip() {
+        List<StudentScoreRankDTO> ranks = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            ranks.add(rank((long) i, "2501" + i, "考生" + i, i % 2 == 0 ? "西宁市" : null,
+                    BigDecimal.valueOf(150 - i, 1), i + 1, 200, i < 30 ? "A" : "B", null));
+        }
+
+        GenericJackson2JsonRedisSerializer json = new GenericJackson2JsonRedisSerializer();
+        for (boolean lz4 : new boolean[]{false, true}) {
+            CompactPayloadRedisSerializer serializer = new CompactPayloadRedisSerializer(json, lz4, 0);
+            byte[] bytes = serializer.serialize(ranks);
+            assertEquals((byte) 0xFE, bytes[0]);
+            assertEquals(ranks, serializer.deserialize(bytes));
+        }
+    }
+
+    @Test
+    void emptyListFallsBackToJson() {
+        CompactPayloadRedisSerializer serializer =
+                new CompactPayloadRedisSerializer(new GenericJackson2JsonRedisSerializer(), true, 0);
+        List<ScoreSegmentDTO> empty = new ArrayList<>();
+
+        assertEquals(0, ScorePayloadCodec.typeOf(empty));
+        byte[] bytes = serializer.serialize(empty);
+        assertNotEquals((byte) 0xFE, bytes[0]);
+        Object decoded = serializer.deserialize(bytes);
+        assertTrue(decoded instanceof List<?> list && list.isEmpty());
+    }
+
+    @Test
+    void oversizedDecimalFallsBackToJson() {
+        CompactPayloadRedisSerializer serializer =
+                new CompactPayloadRedisSerializer(new GenericJackson2JsonRedisSerializer(), false, 0);
+        List<StudentScoreRankDTO> ranks = new ArrayList<>();
+        ranks.add(rank(1L, "250101001", "张三", "西宁市",
+                new BigDecimal("123456789012345678901234567890"), 1, 1, "A", "合格"));
+
+        byte[] bytes = serializer.serialize(ranks);
+        assertNotEquals((byte) 0xFE, bytes[0]);
+        assertEquals(ranks, serializer.deserialize(bytes));
+    }
+
+    @Test
+    void nullValueIsNotEncoded() {
+        assertEquals(0, ScorePayloadCodec.typeOf(null));
+        List<StudentScoreRankDTO> withNullElement = new ArrayList<>();
+        withNullElement.add(new StudentScoreRankDTO());
+        withNullElement.add(null);
+        assertEquals(0, ScorePayloadCodec.typeOf(withNullElement));
+        assertNull(new CompactPayloadRedisSerializer(new GenericJackson2JsonRedisSerializer(), false, 0)
+                .deserialize(null));
+    }
+
+    /**
+     * 为DTO的每个字段填入互不相同的非空值，编解码后逐字段比对；
+     * 编码未覆盖的字段解码后为null，字段类型不受支持时直接失败
+     */
+    private static <T> void assertAllFieldsRoundTrip(Class<T> dtoClass, byte type) {
+        List<T> rows = new ArrayList<>();
+        List<Field> fields = new ArrayList<>();
+        for (Field field : dtoClass.getDeclaredFields()) {
+            if (!Modifier.isStatic(field.getModifiers())) {
+                field.setAccessible(true);
+                fields.add(field);
+            }
+        }
+        for (int row = 0; row < 3; row++) {
+            try {
+                T dto = dtoClass.getDeclaredConstructor().newInstance();
+                for (int i = 0; i < fields.size(); i++) {
+                    Field field = fields.get(i);
+                    field.set(dto, sampleValue(field, row * 100 + i + 1));
+                }
+                rows.add(dto);
+            } catch (ReflectiveOperationException e) {
+                fail("无法构造" + dtoClass.getSimpleName() + ": " + e.getMessage());
+            }
+        }
+
+        List<?> decoded = ScorePayloadCodec.decode(type, ScorePayloadCodec.encode(type, rows));
+        assertEquals(rows.size(), decoded.size());
+        for (int row = 0; row < rows.size(); row++) {
+            for (Field field : fields) {
+                try {
+                    assertEquals(field.get(rows.get(row)), field.get(decoded.get(row)),
+                            dtoClass.getSimpleName() + "." + field.getName() + " 未被列式编码覆盖");
+                } catch (IllegalAccessException e) {
+                    fail(e.getMessage());
+                }
+            }
+        }
+    }
+
+    private static Object sampleValue(Field field, int seed) {
+        Class<?> fieldType = field.getType();
+        if (fieldType == String.class) {
+            return field.getName() + "-" + seed;
+        } else if (fieldType == Integer.class) {
+            return -seed;
+        } else if (fieldType == Long.class) {
+            return seed * 1_000_000_007L;
+        } else if (fieldType == BigDecimal.class) {
+            return BigDecimal.valueOf(-seed * 10L - 5, 1);
+        }
+        fail(field.getDeclaringClass().getSimpleName() + "." + field.getName()
+                + " 的类型 " + fieldType.getSimpleName() + " 不受列式编码支持，需同时修改ScorePayloadCodec");
+        return null;
+    }
+
+    private static StudentScoreRankDTO rank(Long kscjbs, String ksh, String ksxm, String szsmc, BigDecimal fslkscj,
+                                            Integer rankNum, Integer totalCount, String grade, String qualified) {
+        StudentScoreRankDTO rank = new StudentScoreRankDTO();
+        rank.setKscjbs(kscjbs);
+        rank.setKsh(ksh);
+        rank.setKsxm(ksxm);
+        rank.setSzsmc(szsmc);
+        rank.setFslkscj(fslkscj);
+        rank.setRankNum(rankNum);
+        rank.setTotalCount(totalCount);
+        rank.setGrade(grade);
+        rank.setQualified(qualified);
+        return rank;
+    }
+}